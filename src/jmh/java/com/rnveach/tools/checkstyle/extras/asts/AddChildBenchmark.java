@@ -0,0 +1,90 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.asts;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rnveach.tools.checkstyle.extras.tokens.PropertyTokenTypes;
+import com.rnveach.tools.checkstyle.extras.tokens.XmlTokenTypes;
+
+/**
+ * Measures appending children to a single parent. Since the last child is
+ * remembered, the time per child should stay the same as the number of
+ * children grows; if adding were quadratic, four times the children would take
+ * sixteen times as long.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AddChildBenchmark {
+
+    /** The number of children to add. */
+    @Param({"20000", "80000"})
+    private int childCount;
+
+    /**
+     * Adds the children to an XML AST.
+     *
+     * @return the parent of the children
+     */
+    @Benchmark
+    public XmlAST xmlAddChild() {
+        final XmlAstImpl parent = new XmlAstImpl();
+        parent.initialize(XmlTokenTypes.CONTENT, "CONTENT");
+        for (int index = 0; index < childCount; index++) {
+            final XmlAstImpl child = new XmlAstImpl();
+            child.initialize(XmlTokenTypes.TEXT, "x");
+            parent.addChild(child);
+        }
+        return parent;
+    }
+
+    /**
+     * Adds the children to a properties AST.
+     *
+     * @return the parent of the children
+     */
+    @Benchmark
+    public PropertyAST propertyAddChild() {
+        final PropertyAstImpl parent = new PropertyAstImpl();
+        parent.initialize(PropertyTokenTypes.FILE, "FILE");
+        for (int index = 0; index < childCount; index++) {
+            final PropertyAstImpl child = new PropertyAstImpl();
+            child.initialize(PropertyTokenTypes.TEXT, "x");
+            parent.addChild(child);
+        }
+        return parent;
+    }
+
+}
@@ -0,0 +1,186 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.rnveach.tools.checkstyle.extras.asts.CompactXmlTree;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+
+/**
+ * Compares building the AST of the same XML file as one
+ * {@code XmlAstImpl} object per node against building it as a
+ * {@link CompactXmlTree}. Both sides build the AST while parsing, so the
+ * parse itself costs the same and only the AST differs. Run with the GC
+ * profiler to compare the bytes allocated per parse,
+ * {@code mvn -P jmh verify -Djmh.args="CompactAstBenchmark -prof gc"}, and
+ * read {@code gc.alloc.rate.norm}. This counts every byte allocated while
+ * parsing, including the arrays the compact tree outgrows, not only the bytes
+ * the finished AST keeps alive. The {@code Retained} benchmarks hold many
+ * ASTs and report the heap they keep alive after a full garbage collection as
+ * {@code retainedBytes} per AST.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CompactAstBenchmark {
+
+    /** The number of elements in the file. */
+    private static final int ELEMENT_COUNT = 400;
+
+    /** The number of ASTs held when measuring the retained heap. */
+    private static final int RETAINED_AST_COUNT = 50;
+
+    /** The contents of the XML file. */
+    private FileContents contents;
+
+    /** Creates the file contents. */
+    @Setup
+    public void setUp() {
+        final StringBuilder text = new StringBuilder("<root>\n");
+        for (int index = 0; index < ELEMENT_COUNT; index++) {
+            text.append("  <item id=\"").append(index).append("\" kind=\"plain\">text</item>\n");
+        }
+        text.append("</root>\n");
+        contents = new FileContents(new FileText(new File("Input.xml"),
+                Arrays.asList(text.toString().split("\n"))));
+    }
+
+    /**
+     * Parses the file into one object per node.
+     *
+     * @return the root of the AST
+     * @throws Exception if the file could not be parsed
+     */
+    @Benchmark
+    public XmlAST objectAst() throws Exception {
+        return XmlParser.parse(contents, false, true, false);
+    }
+
+    /**
+     * Parses the file into a {@link CompactXmlTree}.
+     *
+     * @return the root of the AST
+     * @throws Exception if the file could not be parsed
+     */
+    @Benchmark
+    public XmlAST compactAst() throws Exception {
+        return XmlParser.parse(contents, false, true, true);
+    }
+
+    /**
+     * Measures the heap kept alive by ASTs of one object per node.
+     *
+     * @param heap the retained heap counter
+     * @throws Exception if the file could not be parsed
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 1)
+    public void objectAstRetained(RetainedHeap heap) throws Exception {
+        heap.measure(this::objectAst);
+    }
+
+    /**
+     * Measures the heap kept alive by {@link CompactXmlTree} ASTs.
+     *
+     * @param heap the retained heap counter
+     * @throws Exception if the file could not be parsed
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 1)
+    public void compactAstRetained(RetainedHeap heap) throws Exception {
+        heap.measure(this::compactAst);
+    }
+
+    /**
+     * The heap kept alive by each AST, reported next to the benchmark score.
+     * JMH adds up the counter of all measurement iterations, so the retained
+     * benchmarks run a single one.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RetainedHeap {
+
+        /** The number of bytes of the heap kept alive by each AST. */
+        public long retainedBytes;
+
+        /**
+         * Parses the file many times, holding every AST, and sets the growth of
+         * the used heap after a full garbage collection per AST.
+         *
+         * @param parser parses the file
+         * @throws Exception if the file could not be parsed
+         */
+        public void measure(Callable<XmlAST> parser) throws Exception {
+            final XmlAST[] asts = new XmlAST[RETAINED_AST_COUNT];
+            // the parse context of the thread is created before measuring
+            parser.call();
+            final long before = getUsedHeapAfterGc();
+            for (int index = 0; index < asts.length; index++) {
+                asts[index] = parser.call();
+            }
+            final long after = getUsedHeapAfterGc();
+            Reference.reachabilityFence(asts);
+            retainedBytes = (after - before) / asts.length;
+        }
+
+        /**
+         * Gets the used heap after asking for full garbage collections.
+         *
+         * @return the number of bytes used
+         */
+        private static long getUsedHeapAfterGc() {
+            final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            for (int count = 0; count < 3; count++) {
+                System.gc();
+            }
+            return memory.getHeapMemoryUsage().getUsed();
+        }
+
+    }
+
+}
@@ -0,0 +1,183 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.puppycrawl.tools.checkstyle.CheckstyleParserErrorStrategy;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.rnveach.tools.checkstyle.extras.asts.PropertyAST;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+import com.rnveach.tools.checkstyle.extras.grammars.PropertyLanguageLexer;
+import com.rnveach.tools.checkstyle.extras.grammars.PropertyLanguageParser;
+import com.rnveach.tools.checkstyle.extras.grammars.XmlLanguageLexer;
+import com.rnveach.tools.checkstyle.extras.grammars.XmlLanguageParser;
+import com.rnveach.tools.checkstyle.extras.visitors.PropertyAstVisitor;
+import com.rnveach.tools.checkstyle.extras.visitors.XmlAstBuilder;
+
+/**
+ * Compares parsing short files with the reused per-thread parse context
+ * against creating a new lexer, parser and helpers for every file. Both sides
+ * parse with full {@link PredictionMode#LL} prediction, the same error
+ * strategy, an error listener that fails on the first syntax error and the
+ * same way of building the AST, so only the cost of creating the context
+ * differs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseContextBenchmark {
+
+    /** A short XML file. */
+    private static final String XML_TEXT = "<?xml version=\"1.0\"?>\n"
+            + "<module name=\"Checker\">\n"
+            + "  <property name=\"severity\" value=\"error\"/>\n"
+            + "  <module name=\"TreeWalker\"/>\n"
+            + "</module>\n";
+
+    /** A short properties file. */
+    private static final String PROPERTY_TEXT = "# comment\n"
+            + "key1=value1\n"
+            + "key2 = value2\n"
+            + "key3:value3 \\\n"
+            + "    continued\n";
+
+    /** The contents of the XML file. */
+    private FileContents xmlContents;
+
+    /** The contents of the properties file. */
+    private FileContents propertyContents;
+
+    /** Creates the file contents. */
+    @Setup
+    public void setUp() {
+        xmlContents = new FileContents(
+                new FileText(new File("Input.xml"), Arrays.asList(XML_TEXT.split("\n"))));
+        propertyContents = new FileContents(new FileText(new File("Input.properties"),
+                Arrays.asList(PROPERTY_TEXT.split("\n"))));
+    }
+
+    /**
+     * Parses the XML file with the reused per-thread parse context.
+     *
+     * @return the root of the AST
+     * @throws Exception if the file could not be parsed
+     */
+    @Benchmark
+    public XmlAST xmlReusedContext() throws Exception {
+        return XmlParser.parse(xmlContents);
+    }
+
+    /**
+     * Parses the XML file with a new lexer, parser and helpers.
+     *
+     * @return the root of the AST
+     */
+    @Benchmark
+    public XmlAST xmlNewContext() {
+        final XmlLanguageLexer lexer = new XmlLanguageLexer(
+                CharStreams.fromString(xmlContents.getText().getFullText().toString()), true);
+        lexer.removeErrorListeners();
+
+        final XmlLanguageParser parser = new XmlLanguageParser(new CommonTokenStream(lexer));
+        setUpLl(parser);
+
+        final XmlAstBuilder builder = new XmlAstBuilder();
+        new IterativeParseTreeWalker().walk(builder, parser.document());
+        return builder.getRoot();
+    }
+
+    /**
+     * Parses the properties file with the reused per-thread parse context.
+     *
+     * @return the root of the AST
+     * @throws Exception if the file could not be parsed
+     */
+    @Benchmark
+    public PropertyAST propertyReusedContext() throws Exception {
+        return PropertyParser.parse(propertyContents);
+    }
+
+    /**
+     * Parses the properties file with a new lexer, parser and helpers.
+     *
+     * @return the root of the AST
+     */
+    @Benchmark
+    public PropertyAST propertyNewContext() {
+        final PropertyLanguageLexer lexer = new PropertyLanguageLexer(
+                CharStreams.fromString(propertyContents.getText().getFullText().toString()),
+                true);
+        lexer.removeErrorListeners();
+
+        final PropertyLanguageParser parser =
+                new PropertyLanguageParser(new CommonTokenStream(lexer));
+        setUpLl(parser);
+
+        return new PropertyAstVisitor().visit(parser.file());
+    }
+
+    /**
+     * Sets up a new parser the way the parse context sets up a full LL parse.
+     *
+     * @param parser the parser
+     */
+    private static void setUpLl(Parser parser) {
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        parser.setErrorHandler(new CheckstyleParserErrorStrategy());
+        parser.removeErrorListeners();
+        parser.addErrorListener(new FailingErrorListener());
+    }
+
+    /** Error listener that fails on the first syntax error, like the parsers do. */
+    private static final class FailingErrorListener extends BaseErrorListener {
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                int charPositionInLine, String msg, RecognitionException ex) {
+            throw new IllegalStateException(line + ":" + charPositionInLine + ": " + msg, ex);
+        }
+    }
+
+}
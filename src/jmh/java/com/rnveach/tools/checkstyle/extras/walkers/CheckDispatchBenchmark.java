@@ -0,0 +1,252 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.walkers;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+import com.rnveach.tools.checkstyle.extras.checks.AbstractXmlCheck;
+import com.rnveach.tools.checkstyle.extras.parsers.XmlParser;
+import com.rnveach.tools.checkstyle.extras.tokens.XmlTokenTypes;
+import com.rnveach.tools.checkstyle.extras.utils.ModuleReflectionExtraUtil;
+
+/**
+ * Compares notifying checks for every node of an AST through a map of sorted
+ * sets, as {@link XmlWalker} used to, against the arrays indexed by token type
+ * it builds now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckDispatchBenchmark {
+
+    /** Number of elements in the XML file. */
+    private static final int ELEMENT_COUNT = 500;
+
+    /** The token types the checks are registered for. */
+    private static final int[] TOKENS = {
+        XmlTokenTypes.ELEMENT, XmlTokenTypes.ATTRIBUTE, XmlTokenTypes.TEXT,
+        XmlTokenTypes.OPEN, XmlTokenTypes.CLOSE, XmlTokenTypes.CHAR_DATA,
+    };
+
+    /** The root of the AST. */
+    private XmlAST root;
+
+    /** The checks by token type, as sorted sets in a map. */
+    private Map<Integer, Set<AbstractXmlCheck>> tokenToChecks;
+
+    /** The checks to visit by token type. */
+    private AbstractXmlCheck[][] visitChecks;
+
+    /** The checks to leave by token type. */
+    private AbstractXmlCheck[][] leaveChecks;
+
+    /**
+     * Parses the XML file and registers the checks.
+     *
+     * @throws Exception if the file could not be parsed
+     */
+    @Setup
+    public void setUp() throws Exception {
+        final StringBuilder text = new StringBuilder("<root>\n");
+        for (int index = 0; index < ELEMENT_COUNT; index++) {
+            text.append("  <item id=\"").append(index).append("\">value</item>\n");
+        }
+        text.append("</root>\n");
+        root = XmlParser.parse(new FileContents(new FileText(new File("Input.xml"),
+                Arrays.asList(text.toString().split("\n")))));
+
+        final AbstractXmlCheck[] checks = {
+            new VisitingCheck(), new VisitingCheck(), new LeavingCheck(), new LeavingCheck(),
+        };
+
+        tokenToChecks = new HashMap<>();
+        for (int token : TOKENS) {
+            final Set<AbstractXmlCheck> set =
+                    new TreeSet<>(Comparator.comparingInt(System::identityHashCode));
+            set.addAll(Arrays.asList(checks));
+            tokenToChecks.put(token, set);
+        }
+
+        final int size = Arrays.stream(TOKENS).max().getAsInt() + 1;
+        visitChecks = new AbstractXmlCheck[size][0];
+        leaveChecks = new AbstractXmlCheck[size][0];
+        for (int token : TOKENS) {
+            visitChecks[token] = checks;
+            leaveChecks[token] = Arrays.stream(checks)
+                    .filter(check -> ModuleReflectionExtraUtil.isMethodOverridden(
+                            check.getClass(), AbstractXmlCheck.class, "leaveToken",
+                            XmlAST.class))
+                    .toArray(AbstractXmlCheck[]::new);
+        }
+    }
+
+    /**
+     * Walks the AST looking up the checks in a map for every node.
+     *
+     * @return the number of nodes walked
+     */
+    @Benchmark
+    public int mapDispatch() {
+        int count = 0;
+        XmlAST curNode = root;
+        while (curNode != null) {
+            notify(tokenToChecks.get(curNode.getType()), curNode, true);
+            count++;
+            XmlAST toVisit = curNode.getFirstChild();
+            while (curNode != null && toVisit == null) {
+                notify(tokenToChecks.get(curNode.getType()), curNode, false);
+                toVisit = curNode.getNextSibling();
+                curNode = curNode.getParent();
+            }
+            curNode = toVisit;
+        }
+        return count;
+    }
+
+    /**
+     * Walks the AST looking up the checks in arrays indexed by token type.
+     *
+     * @return the number of nodes walked
+     */
+    @Benchmark
+    public int arrayDispatch() {
+        int count = 0;
+        XmlAST curNode = root;
+        while (curNode != null) {
+            for (AbstractXmlCheck check : getChecks(visitChecks, curNode.getType())) {
+                check.visitToken(curNode);
+            }
+            count++;
+            XmlAST toVisit = curNode.getFirstChild();
+            while (curNode != null && toVisit == null) {
+                for (AbstractXmlCheck check : getChecks(leaveChecks, curNode.getType())) {
+                    check.leaveToken(curNode);
+                }
+                toVisit = curNode.getNextSibling();
+                curNode = curNode.getParent();
+            }
+            curNode = toVisit;
+        }
+        return count;
+    }
+
+    /**
+     * Notifies the checks from the map of a node.
+     *
+     * @param checks the checks, or {@code null} if there are none
+     * @param ast the node
+     * @param visit {@code true} to visit the node, {@code false} to leave it
+     */
+    private static void notify(Collection<AbstractXmlCheck> checks, XmlAST ast,
+            boolean visit) {
+        if (checks != null) {
+            for (AbstractXmlCheck check : checks) {
+                if (visit) {
+                    check.visitToken(ast);
+                }
+                else {
+                    check.leaveToken(ast);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the checks of a token type from an array.
+     *
+     * @param checks the checks by token type
+     * @param tokenId the token type
+     * @return the checks
+     */
+    private static AbstractXmlCheck[] getChecks(AbstractXmlCheck[][] checks, int tokenId) {
+        AbstractXmlCheck[] result = checks[0];
+        if (tokenId < checks.length) {
+            result = checks[tokenId];
+        }
+        return result;
+    }
+
+    /** A check that only visits nodes. */
+    private static class VisitingCheck extends AbstractXmlCheck {
+
+        /** Number of nodes visited. */
+        private int visits;
+
+        @Override
+        public int[] getDefaultTokens() {
+            return TOKENS.clone();
+        }
+
+        @Override
+        public int[] getAcceptableTokens() {
+            return TOKENS.clone();
+        }
+
+        @Override
+        public int[] getRequiredTokens() {
+            return new int[0];
+        }
+
+        @Override
+        public void visitToken(XmlAST ast) {
+            visits++;
+        }
+
+    }
+
+    /** A check that visits and leaves nodes. */
+    private static final class LeavingCheck extends VisitingCheck {
+
+        /** Number of nodes left. */
+        private int leaves;
+
+        @Override
+        public void leaveToken(XmlAST ast) {
+            leaves++;
+        }
+
+    }
+
+}
@@ -0,0 +1,733 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.asts;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.antlr.v4.runtime.Token;
+
+import com.rnveach.tools.checkstyle.extras.utils.XmlAstUtil;
+
+/**
+ * A whole XML AST stored in parallel primitive arrays, indexed by the position
+ * of each node in a pre-order traversal. A large file needs a handful of arrays
+ * instead of one object and one string per node, which keeps the garbage
+ * collector from having to trace millions of small objects. The text of the
+ * tokens is not copied, it is read from the text of the file when asked for.
+ *
+ * <p>
+ * The nodes are read through {@link Node} cursors, which only hold the tree
+ * and an index and are created when navigating. Two cursors for the same node
+ * are {@link Object#equals(Object) equal}, but not always the same instance.
+ * The tree can not be modified once built, so it can be read by several
+ * threads at the same time. The nodes are also indexed by token type when the
+ * tree is built, so {@link Node#getNodesOfType(int)} needs no walk.
+ * </p>
+ */
+public final class CompactXmlTree {
+
+    /** Index used when there is no such node. */
+    private static final int NONE = -1;
+
+    /** Line or column of a node whose position is not known. */
+    private static final int NOT_INITIALIZED = Integer.MIN_VALUE;
+
+    /** The number of nodes. */
+    private final int size;
+
+    /** The token type of each node. */
+    private final int[] types;
+
+    /** The line number of each node. */
+    private final int[] lines;
+
+    /** The column number of each node. */
+    private final int[] columns;
+
+    /** The index of the parent of each node. */
+    private final int[] parents;
+
+    /** The index of the first child of each node. */
+    private final int[] firstChildren;
+
+    /** The index of the next sibling of each node. */
+    private final int[] nextSiblings;
+
+    /** The index of the previous sibling of each node. */
+    private final int[] previousSiblings;
+
+    /** The offset of the first character of each node in {@link #source}. */
+    private final int[] startOffsets;
+
+    /** The offset right after the last character of each node in {@link #source}. */
+    private final int[] endOffsets;
+
+    /** The mask of the token types of each node and its descendants. */
+    private final long[] subtreeTypeMasks;
+
+    /** The smallest token type of the nodes. */
+    private final int minType;
+
+    /**
+     * The position in {@link #nodesByType} of the first node of each token
+     * type, counted from {@link #minType}, followed by the number of nodes.
+     */
+    private final int[] typeStarts;
+
+    /** The index of each node, sorted by token type and then in document order. */
+    private final int[] nodesByType;
+
+    /** The text of the file. */
+    private final CharSequence source;
+
+    /**
+     * Creates a tree from the arrays of a builder, trimmed to the number of
+     * nodes.
+     *
+     * @param builder the builder
+     */
+    private CompactXmlTree(Builder builder) {
+        size = builder.size;
+        types = Arrays.copyOf(builder.types, size);
+        lines = Arrays.copyOf(builder.lines, size);
+        columns = Arrays.copyOf(builder.columns, size);
+        parents = Arrays.copyOf(builder.parents, size);
+        firstChildren = Arrays.copyOf(builder.firstChildren, size);
+        nextSiblings = Arrays.copyOf(builder.nextSiblings, size);
+        previousSiblings = Arrays.copyOf(builder.previousSiblings, size);
+        startOffsets = Arrays.copyOf(builder.startOffsets, size);
+        endOffsets = Arrays.copyOf(builder.endOffsets, size);
+        subtreeTypeMasks = Arrays.copyOf(builder.subtreeTypeMasks, size);
+        source = builder.source;
+
+        int min = 0;
+        int max = -1;
+        if (size > 0) {
+            min = Arrays.stream(types).min().getAsInt();
+            max = Arrays.stream(types).max().getAsInt();
+        }
+        minType = min;
+        typeStarts = new int[max - min + 2];
+        for (int type : types) {
+            typeStarts[type - min + 1]++;
+        }
+        for (int type = 1; type < typeStarts.length; type++) {
+            typeStarts[type] += typeStarts[type - 1];
+        }
+        final int[] positions = typeStarts.clone();
+        nodesByType = new int[size];
+        for (int node = 0; node < size; node++) {
+            nodesByType[positions[types[node] - min]++] = node;
+        }
+    }
+
+    /**
+     * Gets the number of nodes in the tree.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the root of the tree.
+     *
+     * @return the root, or {@code null} if the tree is empty
+     */
+    public Node getRoot() {
+        return getNode(0);
+    }
+
+    /**
+     * Gets a cursor for a node.
+     *
+     * @param index the index of the node in a pre-order traversal of the tree
+     * @return the cursor, or {@code null} if there is no such node
+     */
+    public Node getNode(int index) {
+        Node result = null;
+        if (index >= 0 && index < size) {
+            result = new Node(this, index);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the nodes of a token type, from the index built with the tree.
+     *
+     * @param type the token type
+     * @return the number of nodes
+     */
+    public int getNodeCount(int type) {
+        final int index = type - minType;
+        int result = 0;
+        if (index >= 0 && index < typeStarts.length - 1) {
+            result = typeStarts[index + 1] - typeStarts[index];
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the number of bytes used by the tree, assuming compressed
+     * object pointers. The text of the file is not included, since it is kept
+     * by the file anyway.
+     *
+     * @return the estimated number of bytes
+     */
+    public long getEstimatedSize() {
+        // 11 int arrays and 1 long array, each with a header
+        final long arrayHeaders = 12L * 16;
+        return arrayHeaders + 10L * Integer.BYTES * size + (long) Long.BYTES * size
+                + (long) Integer.BYTES * typeStarts.length;
+    }
+
+    /**
+     * Gets the nodes of a token type in a range of indexes.
+     *
+     * @param type the token type
+     * @param from the first index of the range
+     * @param to the index right after the range
+     * @return the nodes in document order, which can not be modified
+     */
+    private List<XmlAST> getNodesOfType(int type, int from, int to) {
+        final int index = type - minType;
+        final List<XmlAST> result;
+        if (index < 0 || index >= typeStarts.length - 1) {
+            result = Collections.emptyList();
+        }
+        else {
+            final int start = typeStarts[index];
+            final int end = typeStarts[index + 1];
+            result = new NodeList(this, lowerBound(start, end, from),
+                    lowerBound(start, end, to));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first position in a part of {@link #nodesByType} whose node
+     * index is at least the given one. The node indexes of each type are
+     * sorted.
+     *
+     * @param start the first position of the part
+     * @param end the position right after the part
+     * @param node the node index to find
+     * @return the position
+     */
+    private int lowerBound(int start, int end, int node) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (nodesByType[middle] < node) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The cursor of a node of a {@link CompactXmlTree}. Cursors are cheap to
+     * create and are not kept by the tree.
+     */
+    public static final class Node implements XmlAST {
+
+        /** The tree the node belongs to. */
+        private final CompactXmlTree tree;
+
+        /** The index of the node. */
+        private final int index;
+
+        /**
+         * Creates a new cursor.
+         *
+         * @param tree the tree the node belongs to
+         * @param index the index of the node
+         */
+        private Node(CompactXmlTree tree, int index) {
+            this.tree = tree;
+            this.index = index;
+        }
+
+        /**
+         * Gets the tree the node belongs to.
+         *
+         * @return the tree
+         */
+        public CompactXmlTree getTree() {
+            return tree;
+        }
+
+        /**
+         * Gets the index of the node in a pre-order traversal of its tree.
+         *
+         * @return the index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public int getLineNo() {
+            return tree.lines[index];
+        }
+
+        @Override
+        public int getColumnNo() {
+            return tree.columns[index];
+        }
+
+        @Override
+        public int getStartOffset() {
+            return tree.startOffsets[index];
+        }
+
+        @Override
+        public int getEndOffset() {
+            return tree.endOffsets[index];
+        }
+
+        @Override
+        public int getType() {
+            return tree.types[index];
+        }
+
+        @Override
+        public String getText() {
+            final int type = tree.types[index];
+            final String result;
+            if (XmlAstUtil.isLexerTokenType(type)) {
+                result = tree.source.subSequence(tree.startOffsets[index],
+                        tree.endOffsets[index]).toString();
+            }
+            else {
+                result = XmlAstUtil.getTokenName(type);
+            }
+            return result;
+        }
+
+        @Override
+        public Node getNextSibling() {
+            return tree.getNode(tree.nextSiblings[index]);
+        }
+
+        @Override
+        public Node getPreviousSibling() {
+            return tree.getNode(tree.previousSiblings[index]);
+        }
+
+        @Override
+        public boolean hasChildren() {
+            return tree.firstChildren[index] != NONE;
+        }
+
+        @Override
+        public int getChildCount() {
+            int result = 0;
+            for (int child = tree.firstChildren[index]; child != NONE;
+                    child = tree.nextSiblings[child]) {
+                result++;
+            }
+            return result;
+        }
+
+        @Override
+        public int getChildCount(int type) {
+            int result = 0;
+            for (int child = tree.firstChildren[index]; child != NONE;
+                    child = tree.nextSiblings[child]) {
+                if (tree.types[child] == type) {
+                    result++;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public long getSubtreeTypeMask() {
+            return tree.subtreeTypeMasks[index];
+        }
+
+        @Override
+        public Node getFirstChild() {
+            return tree.getNode(tree.firstChildren[index]);
+        }
+
+        @Override
+        public Node getLastChild() {
+            int result = tree.firstChildren[index];
+            while (result != NONE && tree.nextSiblings[result] != NONE) {
+                result = tree.nextSiblings[result];
+            }
+            return tree.getNode(result);
+        }
+
+        @Override
+        public Node getParent() {
+            return tree.getNode(tree.parents[index]);
+        }
+
+        @Override
+        public Node findFirst(int type) {
+            int result = tree.firstChildren[index];
+            while (result != NONE && tree.types[result] != type) {
+                result = tree.nextSiblings[result];
+            }
+            return tree.getNode(result);
+        }
+
+        @Override
+        public List<XmlAST> getNodesOfType(int type) {
+            // the subtree is every node up to the next node after it in pre-order
+            int end = tree.size;
+            for (int node = index; node != NONE; node = tree.parents[node]) {
+                if (tree.nextSiblings[node] != NONE) {
+                    end = tree.nextSiblings[node];
+                    break;
+                }
+            }
+            return tree.getNodesOfType(type, index, end);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            final boolean result;
+            if (this == other) {
+                result = true;
+            }
+            else if (other instanceof Node) {
+                final Node node = (Node) other;
+                result = tree == node.tree && index == node.index;
+            }
+            else {
+                result = false;
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(tree) * 31 + index;
+        }
+
+        @Override
+        public String toString() {
+            return getText() + "[" + getLineNo() + "x" + getColumnNo() + "]";
+        }
+
+    }
+
+    /**
+     * A read-only list of the nodes at some positions of
+     * {@link CompactXmlTree#nodesByType}. The cursors are created when read.
+     */
+    private static final class NodeList extends AbstractList<XmlAST>
+            implements RandomAccess {
+
+        /** The tree the nodes belong to. */
+        private final CompactXmlTree tree;
+
+        /** The first position of the nodes. */
+        private final int start;
+
+        /** The position right after the nodes. */
+        private final int end;
+
+        /**
+         * Creates a new list.
+         *
+         * @param tree the tree the nodes belong to
+         * @param start the first position of the nodes
+         * @param end the position right after the nodes
+         */
+        private NodeList(CompactXmlTree tree, int start, int end) {
+            this.tree = tree;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public XmlAST get(int position) {
+            if (position < 0 || position >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size());
+            }
+            return new Node(tree, tree.nodesByType[start + position]);
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+    }
+
+    /**
+     * Builds a {@link CompactXmlTree} in pre-order. Nodes are opened, their
+     * children are added, and they are closed again. The arrays of the builder
+     * are reused for the next tree after {@link #reset()}.
+     */
+    public static final class Builder {
+
+        /** Initial number of nodes the arrays have room for. */
+        private static final int INITIAL_CAPACITY = 256;
+
+        /**
+         * Largest number of nodes the arrays are kept for after a reset, so a
+         * builder does not hold on to the memory of one huge file.
+         */
+        private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+        /** The number of nodes added. */
+        private int size;
+
+        /** The token type of each node. */
+        private int[] types;
+
+        /** The line number of each node. */
+        private int[] lines;
+
+        /** The column number of each node. */
+        private int[] columns;
+
+        /** The index of the parent of each node. */
+        private int[] parents;
+
+        /** The index of the first child of each node. */
+        private int[] firstChildren;
+
+        /** The index of the next sibling of each node. */
+        private int[] nextSiblings;
+
+        /** The index of the previous sibling of each node. */
+        private int[] previousSiblings;
+
+        /** The offset of the first character of each node in the file. */
+        private int[] startOffsets;
+
+        /** The offset right after the last character of each node in the file. */
+        private int[] endOffsets;
+
+        /** The mask of the token types of each node and its descendants. */
+        private long[] subtreeTypeMasks;
+
+        /** The text of the file the tokens are read from. */
+        private CharSequence source;
+
+        /** The index of the last child of each node, only used while building. */
+        private int[] lastChildren;
+
+        /** The index of the innermost open node. */
+        private int current = NONE;
+
+        /** Creates a new builder. */
+        public Builder() {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        /**
+         * Opens a node for a parser rule as the last child of the innermost
+         * open node. Its position and range in the file are the ones of its
+         * children, and its text is the name of its type.
+         *
+         * @param type the token type
+         */
+        public void openNode(int type) {
+            current = add(type, NOT_INITIALIZED, NOT_INITIALIZED, -1, -1);
+        }
+
+        /**
+         * Closes the innermost open node.
+         */
+        public void closeNode() {
+            final int firstChild = firstChildren[current];
+            if (firstChild != NONE) {
+                if (lines[current] == NOT_INITIALIZED) {
+                    lines[current] = lines[firstChild];
+                    columns[current] = columns[firstChild];
+                }
+                startOffsets[current] = startOffsets[firstChild];
+                endOffsets[current] = endOffsets[lastChildren[current]];
+            }
+            current = parents[current];
+        }
+
+        /**
+         * Adds a token as the last child of the innermost open node. All tokens
+         * of a tree must be read from the same file.
+         *
+         * @param token the token
+         * @param tokenSource the text of the file the token was read from
+         * @param startOffset the offset of the first character of the token in
+         *        the text of the file
+         * @param endOffset the offset right after the last character of the
+         *        token in the text of the file
+         * @throws IllegalArgumentException if the text of the file is missing,
+         *         or is not the text of the tokens added before
+         */
+        public void addToken(Token token, CharSequence tokenSource, int startOffset,
+                int endOffset) {
+            if (tokenSource == null || source != null && source != tokenSource) {
+                throw new IllegalArgumentException("Token is not from the text of the tree: "
+                        + token);
+            }
+            source = tokenSource;
+            add(token.getType(), token.getLine(), token.getCharPositionInLine(), startOffset,
+                    endOffset);
+        }
+
+        /**
+         * Builds the tree from the nodes added so far. The root is the first
+         * node added.
+         *
+         * @return the tree
+         */
+        public CompactXmlTree build() {
+            return new CompactXmlTree(this);
+        }
+
+        /** Drops all nodes added, so a new tree can be built. */
+        public void reset() {
+            if (types.length > MAX_RETAINED_CAPACITY) {
+                allocate(INITIAL_CAPACITY);
+            }
+            size = 0;
+            source = null;
+            current = NONE;
+        }
+
+        /**
+         * Gets the number of nodes added.
+         *
+         * @return the number of nodes
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Gets whether the first node added has children.
+         *
+         * @return {@code true} if the root has children
+         */
+        public boolean hasRootChildren() {
+            return size > 1;
+        }
+
+        /**
+         * Adds a node as the last child of the innermost open node.
+         *
+         * @param type the token type
+         * @param lineNo the line number of the node
+         * @param columnNo the column number of the node
+         * @param startOffset the offset of the first character of the node
+         * @param endOffset the offset right after the last character of the node
+         * @return the index of the node
+         */
+        private int add(int type, int lineNo, int columnNo, int startOffset, int endOffset) {
+            ensureCapacity(size + 1);
+            final int node = size;
+            size++;
+
+            types[node] = type;
+            lines[node] = lineNo;
+            columns[node] = columnNo;
+            parents[node] = current;
+            firstChildren[node] = NONE;
+            lastChildren[node] = NONE;
+            nextSiblings[node] = NONE;
+            previousSiblings[node] = NONE;
+            startOffsets[node] = startOffset;
+            endOffsets[node] = endOffset;
+
+            final long mask = XmlAstUtil.getTypeMask(type);
+            subtreeTypeMasks[node] = mask;
+            if (current != NONE) {
+                final int previous = lastChildren[current];
+                if (previous == NONE) {
+                    firstChildren[current] = node;
+                }
+                else {
+                    nextSiblings[previous] = node;
+                    previousSiblings[node] = previous;
+                }
+                lastChildren[current] = node;
+                for (int ancestor = current; ancestor != NONE
+                        && (subtreeTypeMasks[ancestor] & mask) != mask;
+                        ancestor = parents[ancestor]) {
+                    subtreeTypeMasks[ancestor] |= mask;
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Makes sure the arrays have room for more nodes. Calling it with the
+         * expected number of nodes before adding them avoids growing the
+         * arrays one step at a time.
+         *
+         * @param nodeCount the number of nodes needed
+         */
+        public void ensureCapacity(int nodeCount) {
+            if (nodeCount > types.length) {
+                final int capacity = Math.max(nodeCount, types.length * 2);
+                types = Arrays.copyOf(types, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+                columns = Arrays.copyOf(columns, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                firstChildren = Arrays.copyOf(firstChildren, capacity);
+                lastChildren = Arrays.copyOf(lastChildren, capacity);
+                nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+                previousSiblings = Arrays.copyOf(previousSiblings, capacity);
+                startOffsets = Arrays.copyOf(startOffsets, capacity);
+                endOffsets = Arrays.copyOf(endOffsets, capacity);
+                subtreeTypeMasks = Arrays.copyOf(subtreeTypeMasks, capacity);
+            }
+        }
+
+        /**
+         * Allocates empty arrays.
+         *
+         * @param capacity the number of nodes the arrays have room for
+         */
+        private void allocate(int capacity) {
+            types = new int[capacity];
+            lines = new int[capacity];
+            columns = new int[capacity];
+            parents = new int[capacity];
+            firstChildren = new int[capacity];
+            lastChildren = new int[capacity];
+            nextSiblings = new int[capacity];
+            previousSiblings = new int[capacity];
+            startOffsets = new int[capacity];
+            endOffsets = new int[capacity];
+            subtreeTypeMasks = new long[capacity];
+        }
+
+    }
+
+}
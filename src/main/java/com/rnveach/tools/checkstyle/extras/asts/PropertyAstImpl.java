@@ -19,8 +19,14 @@
 
 package com.rnveach.tools.checkstyle.extras.asts;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.antlr.v4.runtime.Token;
 
+import com.rnveach.tools.checkstyle.extras.utils.PropertyAstUtil;
+
 /**
  * The implementation of {@link PropertyAST}. This should only be directly used
  * to create custom AST nodes and in 'PropertyAstVisitor.java'.
@@ -36,12 +42,30 @@ public final class PropertyAstImpl implements PropertyAST {
     private int columnNo = NOT_INITIALIZED;
     /** The type of this PropertyAST. */
     private int type;
-    /** Text of this PropertyAST. */
+    /**
+     * Text of this PropertyAST. Tokens read it from {@link #source} the first
+     * time it is asked for.
+     */
     private String text;
+    /** Text of the file the text of this PropertyAST is read from. */
+    private CharSequence source;
+    /** The offset of the first character of this PropertyAST in the file. */
+    private int startOffset = NOT_INITIALIZED;
+    /** The offset right after the last character of this PropertyAST in the file. */
+    private int endOffset = NOT_INITIALIZED;
 
     /** Number of children. */
     private int childCount = NOT_INITIALIZED;
 
+    /** Mask of the token types of this PropertyAST and all of its descendants. */
+    private long subtreeTypeMask;
+
+    /**
+     * Index of the nodes of the tree by type, kept by the root once asked for
+     * until the tree is modified.
+     */
+    private TypeIndex<PropertyAST> typeIndex;
+
     /** First sibling of this PropertyAST. */
     private PropertyAstImpl nextSibling;
     /** Previous sibling. */
@@ -49,6 +73,12 @@ public final class PropertyAstImpl implements PropertyAST {
 
     /** First child of this PropertyAST. */
     private PropertyAstImpl firstChild;
+    /**
+     * Last child of this PropertyAST, as last seen. It is checked before it is
+     * used, since siblings can be added and removed without going through
+     * this PropertyAST.
+     */
+    private PropertyAstImpl lastChild;
     /** The parent token. */
     private PropertyAstImpl parent;
 
@@ -59,8 +89,11 @@ public final class PropertyAstImpl implements PropertyAST {
      * @param tokenText the text of this PropertyAstImpl
      */
     public void initialize(int tokenType, String tokenText) {
+        clearTypeIndex();
         type = tokenType;
         text = tokenText;
+        source = null;
+        addToSubtreeTypeMask(tokenType);
     }
 
     /**
@@ -69,10 +102,38 @@ public final class PropertyAstImpl implements PropertyAST {
      * @param token the token to generate this PropertyAstImpl from
      */
     public void initialize(Token token) {
+        initialize(token, null, token.getStartIndex(), token.getStopIndex() + 1);
+    }
+
+    /**
+     * Initializes this PropertyAstImpl from a token of a file, whose text is
+     * read from the text of the file only when it is asked for.
+     *
+     * @param token the token to generate this PropertyAstImpl from
+     * @param tokenSource the text of the file, or {@code null} to copy the
+     *        text of the token
+     * @param tokenStartOffset the offset of the first character of the token in
+     *        the text of the file
+     * @param tokenEndOffset the offset right after the last character of the
+     *        token in the text of the file
+     */
+    public void initialize(Token token, CharSequence tokenSource, int tokenStartOffset,
+            int tokenEndOffset) {
+        clearTypeIndex();
         lineNo = token.getLine();
         columnNo = token.getCharPositionInLine();
         type = token.getType();
-        text = token.getText();
+        source = tokenSource;
+        startOffset = tokenStartOffset;
+        endOffset = tokenEndOffset;
+        if (source == null) {
+            text = token.getText();
+        }
+        else {
+            // read only when needed, most token texts are never looked at
+            text = null;
+        }
+        addToSubtreeTypeMask(type);
     }
 
     @Override
@@ -119,6 +180,53 @@ public final class PropertyAstImpl implements PropertyAST {
         this.columnNo = columnNo;
     }
 
+    @Override
+    public int getStartOffset() {
+        int result = startOffset;
+
+        if (result == NOT_INITIALIZED) {
+            result = -1;
+            if (firstChild != null) {
+                result = firstChild.getStartOffset();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getEndOffset() {
+        int result = endOffset;
+
+        if (result == NOT_INITIALIZED) {
+            result = -1;
+            final PropertyAST last = getLastChild();
+            if (last != null) {
+                result = last.getEndOffset();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Moves the text of this AST to a new text of the file, in which it starts
+     * {@code offsetDelta} chars later than before. Used when the text of the
+     * file was edited before or around this AST.
+     *
+     * @param newSource the new text of the file
+     * @param offsetDelta the number of chars the text of this AST moved by
+     */
+    public void moveText(CharSequence newSource, int offsetDelta) {
+        if (startOffset != NOT_INITIALIZED) {
+            startOffset += offsetDelta;
+            if (endOffset != NOT_INITIALIZED) {
+                endOffset += offsetDelta;
+            }
+            if (source != null) {
+                source = newSource;
+            }
+        }
+    }
+
     @Override
     public int getType() {
         return type;
@@ -130,12 +238,26 @@ public final class PropertyAstImpl implements PropertyAST {
      * @param type the token type of this PropertyAstImpl
      */
     public void setType(int type) {
+        clearTypeIndex();
         this.type = type;
+
+        // ancestors can keep the old type, but the mask of this AST is exact
+        subtreeTypeMask = 0;
+        for (PropertyAstImpl child = firstChild; child != null; child = child.nextSibling) {
+            subtreeTypeMask |= child.subtreeTypeMask;
+        }
+        addToSubtreeTypeMask(type);
     }
 
     @Override
     public String getText() {
-        return text;
+        String result = text;
+        if (result == null && source != null) {
+            // threads racing here read and store the same immutable string
+            result = source.subSequence(startOffset, endOffset).toString();
+            text = result;
+        }
+        return result;
     }
 
     /**
@@ -145,6 +267,61 @@ public final class PropertyAstImpl implements PropertyAST {
      */
     public void setText(String text) {
         this.text = text;
+        source = null;
+    }
+
+    /**
+     * Appends the text of the AST that follows this one to the text of this
+     * AST. When both are next to each other in the text of the file, the text
+     * is still read from the file when needed.
+     *
+     * @param next the PropertyAST whose text is appended
+     */
+    public void appendText(PropertyAST next) {
+        if (source != null && next instanceof PropertyAstImpl
+                && ((PropertyAstImpl) next).source == source
+                && endOffset == next.getStartOffset()) {
+            text = null;
+        }
+        else {
+            text = getText() + next.getText();
+            source = null;
+        }
+        if (startOffset != NOT_INITIALIZED) {
+            endOffset = next.getEndOffset();
+        }
+    }
+
+    /**
+     * Splits the text of this AST in two. This AST keeps the text before the
+     * index, and a new AST of the same type gets the rest. The new AST is on
+     * the same line, right after this one.
+     *
+     * @param index the index in the text of this AST to split at
+     * @return the new PropertyAstImpl with the rest of the text
+     */
+    public PropertyAstImpl splitText(int index) {
+        final PropertyAstImpl result = new PropertyAstImpl();
+        result.initialize(type, null);
+        result.setLineNo(getLineNo());
+        result.setColumnNo(getColumnNo() + index);
+
+        if (source == null) {
+            final String fullText = text;
+            text = fullText.substring(0, index);
+            result.text = fullText.substring(index);
+        }
+        else {
+            text = null;
+            result.source = source;
+        }
+        if (startOffset != NOT_INITIALIZED) {
+            result.startOffset = startOffset + index;
+            result.endOffset = endOffset;
+            endOffset = result.startOffset;
+        }
+
+        return result;
     }
 
     /**
@@ -153,6 +330,7 @@ public final class PropertyAstImpl implements PropertyAST {
      * @param ast PropertyAST object.
      */
     public void addNextSibling(PropertyAST ast) {
+        clearTypeIndex();
         clearChildCountCache(parent);
         if (ast != null) {
             // parent is set in setNextSibling
@@ -175,6 +353,7 @@ public final class PropertyAstImpl implements PropertyAST {
      * @param nextSibling the PropertyAST to set as sibling
      */
     public void setNextSibling(PropertyAST nextSibling) {
+        clearTypeIndex();
         clearChildCountCache(parent);
         this.nextSibling = (PropertyAstImpl) nextSibling;
         if (nextSibling != null && parent != null) {
@@ -196,6 +375,7 @@ public final class PropertyAstImpl implements PropertyAST {
      * @param ast PropertyAST object.
      */
     public void addPreviousSibling(PropertyAST ast) {
+        clearTypeIndex();
         clearChildCountCache(parent);
         if (ast != null) {
             // parent is set in setNextSibling or parent.setFirstChild
@@ -226,22 +406,22 @@ public final class PropertyAstImpl implements PropertyAST {
      * @param child PropertyAST to add as child
      */
     public void addChild(PropertyAST child) {
+        clearTypeIndex();
         clearChildCountCache(this);
+        final PropertyAstImpl last = (PropertyAstImpl) getLastChild();
         if (child != null) {
             final PropertyAstImpl astImpl = (PropertyAstImpl) child;
             astImpl.setParent(this);
-            astImpl.previousSibling = (PropertyAstImpl) getLastChild();
+            astImpl.previousSibling = last;
         }
-        PropertyAST temp = firstChild;
-        if (temp == null) {
+        if (last == null) {
             firstChild = (PropertyAstImpl) child;
         }
         else {
-            while (temp.getNextSibling() != null) {
-                temp = temp.getNextSibling();
-            }
-
-            ((PropertyAstImpl) temp).setNextSibling(child);
+            last.setNextSibling(child);
+        }
+        if (child != null) {
+            lastChild = (PropertyAstImpl) child;
         }
     }
 
@@ -251,14 +431,18 @@ public final class PropertyAstImpl implements PropertyAST {
      * @param child PropertyAST to remove as child
      */
     public void removeChild(PropertyAST child) {
+        clearTypeIndex();
         clearChildCountCache(this);
+        final PropertyAstImpl nextSiblingNode = (PropertyAstImpl) child.getNextSibling();
         if (firstChild == child) {
-            firstChild = (PropertyAstImpl) child.getNextSibling();
+            firstChild = nextSiblingNode;
+            if (nextSiblingNode != null) {
+                nextSiblingNode.previousSibling = null;
+            }
         }
         else {
-            ((PropertyAstImpl) child.getPreviousSibling()).setNextSibling(child.getNextSibling());
+            ((PropertyAstImpl) child.getPreviousSibling()).setNextSibling(nextSiblingNode);
         }
-
     }
 
     /**
@@ -267,6 +451,7 @@ public final class PropertyAstImpl implements PropertyAST {
      * @param firstChild the PropertyAST to set as first child
      */
     public void setFirstChild(PropertyAST firstChild) {
+        clearTypeIndex();
         clearChildCountCache(this);
         this.firstChild = (PropertyAstImpl) firstChild;
         if (firstChild != null) {
@@ -312,13 +497,71 @@ public final class PropertyAstImpl implements PropertyAST {
 
     @Override
     public PropertyAST getLastChild() {
-        PropertyAstImpl ast = firstChild;
+        PropertyAstImpl ast = lastChild;
+        if (ast == null || !isChild(ast)) {
+            ast = firstChild;
+        }
         while (ast != null && ast.nextSibling != null) {
             ast = ast.nextSibling;
         }
+        lastChild = ast;
         return ast;
     }
 
+    /**
+     * Checks whether an AST is still in the list of children of this AST.
+     *
+     * @param ast the AST to check
+     * @return {@code true} if the AST is a child of this AST
+     */
+    private boolean isChild(PropertyAstImpl ast) {
+        final boolean result;
+        if (ast.previousSibling == null) {
+            result = firstChild == ast;
+        }
+        else {
+            result = ast.parent == this && ast.previousSibling.nextSibling == ast;
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the positions of this AST and all of its descendants that take
+     * their position from their first child, so they are stored instead of
+     * looked up on every call. Called once, after the AST is built.
+     */
+    public void resolvePositions() {
+        PropertyAstImpl node = this;
+        while (node.firstChild != null) {
+            node = node.firstChild;
+        }
+        while (true) {
+            // all children of the node are resolved
+            final PropertyAstImpl first = node.firstChild;
+            if (first != null) {
+                if (node.lineNo == NOT_INITIALIZED) {
+                    node.lineNo = first.lineNo;
+                    node.columnNo = first.columnNo;
+                }
+                if (node.startOffset == NOT_INITIALIZED) {
+                    node.startOffset = first.startOffset;
+                }
+            }
+            if (node == this) {
+                break;
+            }
+            if (node.nextSibling == null) {
+                node = node.parent;
+            }
+            else {
+                node = node.nextSibling;
+                while (node.firstChild != null) {
+                    node = node.firstChild;
+                }
+            }
+        }
+    }
+
     @Override
     public PropertyAST getParent() {
         return parent;
@@ -333,10 +576,43 @@ public final class PropertyAstImpl implements PropertyAST {
         PropertyAstImpl instance = this;
         do {
             instance.parent = parent;
+            instance.typeIndex = null;
+            if (parent != null) {
+                parent.addToSubtreeMask(instance.subtreeTypeMask);
+            }
             instance = instance.nextSibling;
         } while (instance != null);
     }
 
+    @Override
+    public long getSubtreeTypeMask() {
+        return subtreeTypeMask;
+    }
+
+    /**
+     * Adds a token type to the subtree type mask of this AST and its ancestors.
+     *
+     * @param tokenType the token type
+     */
+    private void addToSubtreeTypeMask(int tokenType) {
+        addToSubtreeMask(PropertyAstUtil.getTypeMask(tokenType));
+    }
+
+    /**
+     * Adds token types to the subtree type mask of this AST and its ancestors.
+     * Stops at the first ancestor that already has all of them, since its own
+     * ancestors have them too.
+     *
+     * @param mask the mask of the token types
+     */
+    private void addToSubtreeMask(long mask) {
+        PropertyAstImpl instance = this;
+        while (instance != null && (instance.subtreeTypeMask & mask) != mask) {
+            instance.subtreeTypeMask |= mask;
+            instance = instance.parent;
+        }
+    }
+
     @Override
     public PropertyAST findFirst(int findType) {
         PropertyAST returnValue = null;
@@ -351,6 +627,74 @@ public final class PropertyAstImpl implements PropertyAST {
         return returnValue;
     }
 
+    @Override
+    public List<PropertyAST> getNodesOfType(int findType) {
+        final List<PropertyAST> result;
+        if (parent == null) {
+            TypeIndex<PropertyAST> index = typeIndex;
+            if (index == null) {
+                index = createTypeIndex(this);
+                typeIndex = index;
+            }
+            result = index.get(findType);
+        }
+        else {
+            final List<PropertyAST> nodes = new ArrayList<>();
+            final long mask = PropertyAstUtil.getTypeMask(findType);
+            PropertyAstImpl node = this;
+            while (node != null) {
+                PropertyAstImpl toVisit = null;
+                // the mask never misses a type of the subtree
+                if ((node.subtreeTypeMask & mask) != 0) {
+                    if (node.type == findType) {
+                        nodes.add(node);
+                    }
+                    toVisit = node.firstChild;
+                }
+                while (toVisit == null && node != this) {
+                    toVisit = node.nextSibling;
+                    node = node.parent;
+                }
+                node = toVisit;
+            }
+            result = Collections.unmodifiableList(nodes);
+        }
+        return result;
+    }
+
+    /**
+     * Creates the index of the nodes by type of a tree.
+     *
+     * @param root the root of the tree
+     * @return the index
+     */
+    private static TypeIndex<PropertyAST> createTypeIndex(PropertyAstImpl root) {
+        final List<PropertyAST> nodes = new ArrayList<>();
+        PropertyAstImpl node = root;
+        while (node != null) {
+            nodes.add(node);
+            PropertyAstImpl toVisit = node.firstChild;
+            while (toVisit == null && node != root) {
+                toVisit = node.nextSibling;
+                node = node.parent;
+            }
+            node = toVisit;
+        }
+        return new TypeIndex<>(nodes, PropertyAST::getType);
+    }
+
+    /**
+     * Drops the index of the nodes by type of the tree of this AST, since the
+     * tree is being modified.
+     */
+    private void clearTypeIndex() {
+        PropertyAstImpl instance = this;
+        while (instance != null) {
+            instance.typeIndex = null;
+            instance = instance.parent;
+        }
+    }
+
     /**
      * Clears the child count for the ast instance.
      *
@@ -364,7 +708,7 @@ public final class PropertyAstImpl implements PropertyAST {
 
     @Override
     public String toString() {
-        return text + "[" + getLineNo() + "x" + getColumnNo() + "]";
+        return getText() + "[" + getLineNo() + "x" + getColumnNo() + "]";
     }
 
 }
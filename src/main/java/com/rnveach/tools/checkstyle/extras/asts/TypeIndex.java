@@ -0,0 +1,101 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.asts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Index of the nodes of a tree by token type. The nodes of each type are kept
+ * in document order, so they can be iterated without walking the tree.
+ *
+ * @param <T> the type of the nodes
+ */
+final class TypeIndex<T> {
+
+    /** The nodes, sorted by token type and then in document order. */
+    private final List<T> nodes;
+
+    /** The smallest token type of the nodes. */
+    private final int minType;
+
+    /**
+     * The position in {@link #nodes} of the first node of each token type,
+     * counted from {@link #minType}, followed by the number of nodes.
+     */
+    private final int[] typeStarts;
+
+    /**
+     * Creates the index of some nodes.
+     *
+     * @param preOrderNodes the nodes, in document order
+     * @param typeOf gets the token type of a node
+     */
+    TypeIndex(List<T> preOrderNodes, ToIntFunction<T> typeOf) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (T node : preOrderNodes) {
+            final int type = typeOf.applyAsInt(node);
+            min = Math.min(min, type);
+            max = Math.max(max, type);
+        }
+        if (preOrderNodes.isEmpty()) {
+            min = 0;
+            max = -1;
+        }
+
+        minType = min;
+        typeStarts = new int[max - min + 2];
+        for (T node : preOrderNodes) {
+            typeStarts[typeOf.applyAsInt(node) - min + 1]++;
+        }
+        for (int index = 1; index < typeStarts.length; index++) {
+            typeStarts[index] += typeStarts[index - 1];
+        }
+
+        final int[] positions = typeStarts.clone();
+        nodes = new ArrayList<>(Collections.nCopies(preOrderNodes.size(), null));
+        for (T node : preOrderNodes) {
+            nodes.set(positions[typeOf.applyAsInt(node) - min]++, node);
+        }
+    }
+
+    /**
+     * Gets the nodes of a token type.
+     *
+     * @param type the token type
+     * @return the nodes in document order, which can not be modified
+     */
+    List<T> get(int type) {
+        final int index = type - minType;
+        final List<T> result;
+        if (index < 0 || index >= typeStarts.length - 1) {
+            result = Collections.emptyList();
+        }
+        else {
+            result = Collections.unmodifiableList(
+                    nodes.subList(typeStarts[index], typeStarts[index + 1]));
+        }
+        return result;
+    }
+
+}
@@ -19,6 +19,8 @@
 
 package com.rnveach.tools.checkstyle.extras.asts;
 
+import java.util.List;
+
 /**
  * An interface of AST nodes for traversing trees generated from the XML file.
  * The main purpose of this interface is to abstract away ANTLR specific classes
@@ -42,6 +44,26 @@ public interface XmlAST {
      */
     int getColumnNo();
 
+    /**
+     * Gets the offset of the first character of this AST in the text of the
+     * file, in chars. For a node that is not a token, it is the start offset of
+     * its first child.
+     *
+     * @return the start offset, or {@code -1} if this AST has no text in the
+     *         file
+     */
+    int getStartOffset();
+
+    /**
+     * Gets the offset right after the last character of this AST in the text
+     * of the file, in chars. For a node that is not a token, it is the end
+     * offset of its last child.
+     *
+     * @return the end offset, or {@code -1} if this AST has no text in the
+     *         file
+     */
+    int getEndOffset();
+
     /**
      * Gets the type of this AST.
      *
@@ -93,6 +115,16 @@ public interface XmlAST {
      */
     int getChildCount(int type);
 
+    /**
+     * Gets a mask of the token types of this AST and all of its descendants,
+     * as built by {@code XmlAstUtil.getTypeMask}. The mask can contain
+     * types of nodes that were removed since, but never misses a type that is
+     * in the subtree.
+     *
+     * @return the mask of the token types in the subtree
+     */
+    long getSubtreeTypeMask();
+
     /**
      * Get the first child of this AST.
      *
@@ -122,4 +154,15 @@ public interface XmlAST {
      */
     XmlAST findFirst(int type);
 
+    /**
+     * Gets all nodes of the specified type in the subtree of this AST, this
+     * AST included, in document order. The root of a tree keeps an index of
+     * its nodes by type, so called on the root the nodes are found without
+     * walking the tree.
+     *
+     * @param type the AST type to match
+     * @return the matching ASTs, which can not be modified
+     */
+    List<XmlAST> getNodesOfType(int type);
+
 }
@@ -19,11 +19,17 @@
 
 package com.rnveach.tools.checkstyle.extras.asts;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.antlr.v4.runtime.Token;
 
+import com.rnveach.tools.checkstyle.extras.utils.XmlAstUtil;
+
 /**
  * The implementation of {@link XmlAST}. This should only be directly used to
- * create custom AST nodes and in 'XmlAstVisitor.java'.
+ * create custom AST nodes and in 'XmlAstBuilder.java'.
  */
 public final class XmlAstImpl implements XmlAST {
 
@@ -36,12 +42,33 @@ public final class XmlAstImpl implements XmlAST {
     private int columnNo = NOT_INITIALIZED;
     /** The type of this XmlAST. */
     private int type;
-    /** Text of this XmlAST. */
+    /**
+     * Text of this XmlAST. Tokens read it from {@link #source} the first time it
+     * is asked for.
+     */
     private String text;
+    /** Text of the file the text of this XmlAST is read from. */
+    private CharSequence source;
+    /** The offset of the first character of this XmlAST in the file. */
+    private int startOffset = NOT_INITIALIZED;
+    /** The offset right after the last character of this XmlAST in the file. */
+    private int endOffset = NOT_INITIALIZED;
 
     /** Number of children. */
     private int childCount = NOT_INITIALIZED;
 
+    /** Mask of the token types of this XmlAST and all of its descendants. */
+    private long subtreeTypeMask;
+
+    /** Whether this XmlAST is frozen and can no longer be modified. */
+    private boolean frozen;
+
+    /**
+     * Index of the nodes of the tree by type, kept by the root once asked for
+     * until the tree is modified.
+     */
+    private TypeIndex<XmlAST> typeIndex;
+
     /** First sibling of this XmlAST. */
     private XmlAstImpl nextSibling;
     /** Previous sibling. */
@@ -49,6 +76,12 @@ public final class XmlAstImpl implements XmlAST {
 
     /** First child of this XmlAST. */
     private XmlAstImpl firstChild;
+    /**
+     * Last child of this XmlAST, as last seen. It is checked before it is used,
+     * since siblings can be added and removed without going through this
+     * XmlAST.
+     */
+    private XmlAstImpl lastChild;
     /** The parent token. */
     private XmlAstImpl parent;
 
@@ -59,8 +92,12 @@ public final class XmlAstImpl implements XmlAST {
      * @param tokenText the text of this XmlAstImpl
      */
     public void initialize(int tokenType, String tokenText) {
+        checkNotFrozen();
+        clearTypeIndex();
         type = tokenType;
         text = tokenText;
+        source = null;
+        addToSubtreeTypeMask(tokenType);
     }
 
     /**
@@ -69,10 +106,39 @@ public final class XmlAstImpl implements XmlAST {
      * @param token the token to generate this XmlAstImpl from
      */
     public void initialize(Token token) {
+        initialize(token, null, token.getStartIndex(), token.getStopIndex() + 1);
+    }
+
+    /**
+     * Initializes this XmlAstImpl from a token of a file, whose text is
+     * read from the text of the file only when it is asked for.
+     *
+     * @param token the token to generate this XmlAstImpl from
+     * @param tokenSource the text of the file, or {@code null} to copy the
+     *        text of the token
+     * @param tokenStartOffset the offset of the first character of the token in
+     *        the text of the file
+     * @param tokenEndOffset the offset right after the last character of the
+     *        token in the text of the file
+     */
+    public void initialize(Token token, CharSequence tokenSource, int tokenStartOffset,
+            int tokenEndOffset) {
+        checkNotFrozen();
+        clearTypeIndex();
         lineNo = token.getLine();
         columnNo = token.getCharPositionInLine();
         type = token.getType();
-        text = token.getText();
+        source = tokenSource;
+        startOffset = tokenStartOffset;
+        endOffset = tokenEndOffset;
+        if (source == null) {
+            text = token.getText();
+        }
+        else {
+            // read only when needed, most token texts are never looked at
+            text = null;
+        }
+        addToSubtreeTypeMask(type);
     }
 
     @Override
@@ -94,6 +160,7 @@ public final class XmlAstImpl implements XmlAST {
      * @param lineNo line number.
      */
     public void setLineNo(int lineNo) {
+        checkNotFrozen();
         this.lineNo = lineNo;
     }
 
@@ -116,9 +183,58 @@ public final class XmlAstImpl implements XmlAST {
      * @param columnNo column number.
      */
     public void setColumnNo(int columnNo) {
+        checkNotFrozen();
         this.columnNo = columnNo;
     }
 
+    @Override
+    public int getStartOffset() {
+        int result = startOffset;
+
+        if (result == NOT_INITIALIZED) {
+            result = -1;
+            if (firstChild != null) {
+                result = firstChild.getStartOffset();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getEndOffset() {
+        int result = endOffset;
+
+        if (result == NOT_INITIALIZED) {
+            result = -1;
+            final XmlAST last = getLastChild();
+            if (last != null) {
+                result = last.getEndOffset();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Moves the text of this AST to a new text of the file, in which it starts
+     * {@code offsetDelta} chars later than before. Used when the text of the
+     * file was edited before or around this AST.
+     *
+     * @param newSource the new text of the file
+     * @param offsetDelta the number of chars the text of this AST moved by
+     */
+    public void moveText(CharSequence newSource, int offsetDelta) {
+        checkNotFrozen();
+        if (startOffset != NOT_INITIALIZED) {
+            startOffset += offsetDelta;
+            if (endOffset != NOT_INITIALIZED) {
+                endOffset += offsetDelta;
+            }
+            if (source != null) {
+                source = newSource;
+            }
+        }
+    }
+
     @Override
     public int getType() {
         return type;
@@ -130,12 +246,27 @@ public final class XmlAstImpl implements XmlAST {
      * @param type the token type of this XmlAstImpl
      */
     public void setType(int type) {
+        checkNotFrozen();
+        clearTypeIndex();
         this.type = type;
+
+        // ancestors can keep the old type, but the mask of this AST is exact
+        subtreeTypeMask = 0;
+        for (XmlAstImpl child = firstChild; child != null; child = child.nextSibling) {
+            subtreeTypeMask |= child.subtreeTypeMask;
+        }
+        addToSubtreeTypeMask(type);
     }
 
     @Override
     public String getText() {
-        return text;
+        String result = text;
+        if (result == null && source != null) {
+            // threads racing here read and store the same immutable string
+            result = source.subSequence(startOffset, endOffset).toString();
+            text = result;
+        }
+        return result;
     }
 
     /**
@@ -144,7 +275,9 @@ public final class XmlAstImpl implements XmlAST {
      * @param text the text field of this XmlAstImpl
      */
     public void setText(String text) {
+        checkNotFrozen();
         this.text = text;
+        source = null;
     }
 
     /**
@@ -153,6 +286,8 @@ public final class XmlAstImpl implements XmlAST {
      * @param ast XmlAST object.
      */
     public void addNextSibling(XmlAST ast) {
+        checkNotFrozen();
+        clearTypeIndex();
         clearChildCountCache(parent);
         if (ast != null) {
             // parent is set in setNextSibling
@@ -175,6 +310,8 @@ public final class XmlAstImpl implements XmlAST {
      * @param nextSibling the XmlAST to set as sibling
      */
     public void setNextSibling(XmlAST nextSibling) {
+        checkNotFrozen();
+        clearTypeIndex();
         clearChildCountCache(parent);
         this.nextSibling = (XmlAstImpl) nextSibling;
         if (nextSibling != null && parent != null) {
@@ -196,6 +333,8 @@ public final class XmlAstImpl implements XmlAST {
      * @param ast XmlAST object.
      */
     public void addPreviousSibling(XmlAST ast) {
+        checkNotFrozen();
+        clearTypeIndex();
         clearChildCountCache(parent);
         if (ast != null) {
             // parent is set in setNextSibling or parent.setFirstChild
@@ -226,22 +365,44 @@ public final class XmlAstImpl implements XmlAST {
      * @param child to XmlAST to add as child
      */
     public void addChild(XmlAST child) {
+        checkNotFrozen();
+        clearTypeIndex();
         clearChildCountCache(this);
+        final XmlAstImpl last = (XmlAstImpl) getLastChild();
         if (child != null) {
             final XmlAstImpl astImpl = (XmlAstImpl) child;
             astImpl.setParent(this);
-            astImpl.previousSibling = (XmlAstImpl) getLastChild();
+            astImpl.previousSibling = last;
         }
-        XmlAST temp = firstChild;
-        if (temp == null) {
+        if (last == null) {
             firstChild = (XmlAstImpl) child;
         }
         else {
-            while (temp.getNextSibling() != null) {
-                temp = temp.getNextSibling();
-            }
+            last.setNextSibling(child);
+        }
+        if (child != null) {
+            lastChild = (XmlAstImpl) child;
+        }
+    }
 
-            ((XmlAstImpl) temp).setNextSibling(child);
+    /**
+     * Removes a child of the current AST.
+     *
+     * @param child the XmlAST to remove
+     */
+    public void removeChild(XmlAST child) {
+        checkNotFrozen();
+        clearTypeIndex();
+        clearChildCountCache(this);
+        final XmlAstImpl nextSiblingNode = (XmlAstImpl) child.getNextSibling();
+        if (firstChild == child) {
+            firstChild = nextSiblingNode;
+            if (nextSiblingNode != null) {
+                nextSiblingNode.previousSibling = null;
+            }
+        }
+        else {
+            ((XmlAstImpl) child.getPreviousSibling()).setNextSibling(nextSiblingNode);
         }
     }
 
@@ -251,6 +412,8 @@ public final class XmlAstImpl implements XmlAST {
      * @param firstChild the XmlAST to set as first child
      */
     public void setFirstChild(XmlAST firstChild) {
+        checkNotFrozen();
+        clearTypeIndex();
         clearChildCountCache(this);
         this.firstChild = (XmlAstImpl) firstChild;
         if (firstChild != null) {
@@ -296,13 +459,72 @@ public final class XmlAstImpl implements XmlAST {
 
     @Override
     public XmlAST getLastChild() {
-        XmlAstImpl ast = firstChild;
+        XmlAstImpl ast = lastChild;
+        if (ast == null || !isChild(ast)) {
+            ast = firstChild;
+        }
         while (ast != null && ast.nextSibling != null) {
             ast = ast.nextSibling;
         }
+        lastChild = ast;
         return ast;
     }
 
+    /**
+     * Checks whether an AST is still in the list of children of this AST.
+     *
+     * @param ast the AST to check
+     * @return {@code true} if the AST is a child of this AST
+     */
+    private boolean isChild(XmlAstImpl ast) {
+        final boolean result;
+        if (ast.previousSibling == null) {
+            result = firstChild == ast;
+        }
+        else {
+            result = ast.parent == this && ast.previousSibling.nextSibling == ast;
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the positions of this AST and all of its descendants that take
+     * their position from their first child, so they are stored instead of
+     * looked up on every call. Called once, after the AST is built.
+     */
+    public void resolvePositions() {
+        checkNotFrozen();
+        XmlAstImpl node = this;
+        while (node.firstChild != null) {
+            node = node.firstChild;
+        }
+        while (true) {
+            // all children of the node are resolved
+            final XmlAstImpl first = node.firstChild;
+            if (first != null) {
+                if (node.lineNo == NOT_INITIALIZED) {
+                    node.lineNo = first.lineNo;
+                    node.columnNo = first.columnNo;
+                }
+                if (node.startOffset == NOT_INITIALIZED) {
+                    node.startOffset = first.startOffset;
+                }
+            }
+            if (node == this) {
+                break;
+            }
+            if (node.nextSibling == null) {
+                node = node.parent;
+            }
+            else {
+                node = node.nextSibling;
+                while (node.firstChild != null) {
+                    node = node.firstChild;
+                }
+            }
+        }
+    }
+
     @Override
     public XmlAST getParent() {
         return parent;
@@ -317,10 +539,90 @@ public final class XmlAstImpl implements XmlAST {
         XmlAstImpl instance = this;
         do {
             instance.parent = parent;
+            instance.typeIndex = null;
+            if (parent != null) {
+                parent.addToSubtreeMask(instance.subtreeTypeMask);
+            }
             instance = instance.nextSibling;
         } while (instance != null);
     }
 
+    @Override
+    public long getSubtreeTypeMask() {
+        return subtreeTypeMask;
+    }
+
+    /**
+     * Adds a token type to the subtree type mask of this AST and its ancestors.
+     *
+     * @param tokenType the token type
+     */
+    private void addToSubtreeTypeMask(int tokenType) {
+        addToSubtreeMask(XmlAstUtil.getTypeMask(tokenType));
+    }
+
+    /**
+     * Adds token types to the subtree type mask of this AST and its ancestors.
+     * Stops at the first ancestor that already has all of them, since its own
+     * ancestors have them too.
+     *
+     * @param mask the mask of the token types
+     */
+    private void addToSubtreeMask(long mask) {
+        XmlAstImpl instance = this;
+        while (instance != null && (instance.subtreeTypeMask & mask) != mask) {
+            instance.subtreeTypeMask |= mask;
+            instance = instance.parent;
+        }
+    }
+
+    /**
+     * Drops the index of the nodes by type of the tree of this AST, since the
+     * tree is being modified.
+     */
+    private void clearTypeIndex() {
+        XmlAstImpl instance = this;
+        while (instance != null) {
+            instance.typeIndex = null;
+            instance = instance.parent;
+        }
+    }
+
+    /**
+     * Freezes this AST and all of its descendants, so they can be read by
+     * several threads at the same time. The child counts, last children and
+     * the index of the nodes by type are computed up front, and any later
+     * attempt to modify a frozen node throws an {@link IllegalStateException}.
+     */
+    public void freeze() {
+        XmlAstImpl curNode = this;
+        while (curNode != null) {
+            curNode.frozen = true;
+            curNode.getChildCount();
+            curNode.getLastChild();
+            if (curNode.parent == null) {
+                curNode.typeIndex = createTypeIndex(curNode);
+            }
+            XmlAstImpl toVisit = curNode.firstChild;
+            while (toVisit == null && curNode != this) {
+                toVisit = curNode.nextSibling;
+                curNode = curNode.parent;
+            }
+            curNode = toVisit;
+        }
+    }
+
+    /**
+     * Checks that this AST can be modified.
+     *
+     * @throws IllegalStateException if this AST is frozen
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("AST is frozen: " + this);
+        }
+    }
+
     @Override
     public XmlAST findFirst(int findType) {
         XmlAST returnValue = null;
@@ -335,6 +637,62 @@ public final class XmlAstImpl implements XmlAST {
         return returnValue;
     }
 
+    @Override
+    public List<XmlAST> getNodesOfType(int findType) {
+        final List<XmlAST> result;
+        if (parent == null) {
+            TypeIndex<XmlAST> index = typeIndex;
+            if (index == null) {
+                index = createTypeIndex(this);
+                typeIndex = index;
+            }
+            result = index.get(findType);
+        }
+        else {
+            final List<XmlAST> nodes = new ArrayList<>();
+            final long mask = XmlAstUtil.getTypeMask(findType);
+            XmlAstImpl node = this;
+            while (node != null) {
+                XmlAstImpl toVisit = null;
+                // the mask never misses a type of the subtree
+                if ((node.subtreeTypeMask & mask) != 0) {
+                    if (node.type == findType) {
+                        nodes.add(node);
+                    }
+                    toVisit = node.firstChild;
+                }
+                while (toVisit == null && node != this) {
+                    toVisit = node.nextSibling;
+                    node = node.parent;
+                }
+                node = toVisit;
+            }
+            result = Collections.unmodifiableList(nodes);
+        }
+        return result;
+    }
+
+    /**
+     * Creates the index of the nodes by type of a tree.
+     *
+     * @param root the root of the tree
+     * @return the index
+     */
+    private static TypeIndex<XmlAST> createTypeIndex(XmlAstImpl root) {
+        final List<XmlAST> nodes = new ArrayList<>();
+        XmlAstImpl node = root;
+        while (node != null) {
+            nodes.add(node);
+            XmlAstImpl toVisit = node.firstChild;
+            while (toVisit == null && node != root) {
+                toVisit = node.nextSibling;
+                node = node.parent;
+            }
+            node = toVisit;
+        }
+        return new TypeIndex<>(nodes, XmlAST::getType);
+    }
+
     /**
      * Clears the child count for the ast instance.
      *
@@ -348,7 +706,7 @@ public final class XmlAstImpl implements XmlAST {
 
     @Override
     public String toString() {
-        return text + "[" + getLineNo() + "x" + getColumnNo() + "]";
+        return getText() + "[" + getLineNo() + "x" + getColumnNo() + "]";
     }
 
 }
@@ -19,11 +19,15 @@
 
 package com.rnveach.tools.checkstyle.extras.checks;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.Function;
 
 import com.puppycrawl.tools.checkstyle.api.AbstractViolationReporter;
 import com.puppycrawl.tools.checkstyle.api.FileContents;
@@ -42,6 +46,9 @@ public abstract class AbstractPropertyCheck extends AbstractViolationReporter {
      */
     private final ThreadLocal<FileContext> context = ThreadLocal.withInitial(FileContext::new);
 
+    /** Creates the violations of the records logged by this check. */
+    private final Function<ViolationRecord, Violation> violationFactory = this::createViolation;
+
     /** The tokens the check is interested in. */
     private final Set<String> tokens = new HashSet<>();
 
@@ -100,11 +107,28 @@ public abstract class AbstractPropertyCheck extends AbstractViolationReporter {
      * @return the sorted set of {@link Violation}.
      */
     public SortedSet<Violation> getViolations() {
-        return new TreeSet<>(context.get().violations);
+        final SortedSet<Violation> result = new TreeSet<>();
+        for (ViolationRecord record : context.get().violations) {
+            result.add(record.toViolation());
+        }
+        return result;
+    }
+
+    /**
+     * Moves the records of the violations logged since they were last cleared
+     * to a collection, in the order they were logged and without sorting them
+     * or removing duplicates.
+     *
+     * @param target the collection to add the records to
+     */
+    public final void drainViolationRecords(Collection<? super ViolationRecord> target) {
+        final List<ViolationRecord> violations = context.get().violations;
+        target.addAll(violations);
+        violations.clear();
     }
 
     /**
-     * Clears the sorted set of {@link Violation} of the check.
+     * Clears the violations of the check.
      */
     public final void clearViolations() {
         context.get().violations.clear();
@@ -192,16 +216,14 @@ public abstract class AbstractPropertyCheck extends AbstractViolationReporter {
 
     @Override
     public final void log(int line, String key, Object... args) {
-        context.get().violations.add(new Violation(line, getMessageBundle(), key, args,
-                getSeverityLevel(), getId(), getClass(), getCustomMessages().get(key)));
+        context.get().violations.add(new ViolationRecord(violationFactory, getId(), line, null,
+                ViolationRecord.NO_COLUMN, ViolationRecord.NO_TOKEN, key, args));
     }
 
     @Override
     public final void log(int lineNo, int colNo, String key, Object... args) {
-        final int col = 1 + CommonUtil.lengthExpandedTabs(getLines()[lineNo - 1], colNo, tabWidth);
-
-        context.get().violations.add(new Violation(lineNo, col, getMessageBundle(), key, args,
-                getSeverityLevel(), getId(), getClass(), getCustomMessages().get(key)));
+        context.get().violations.add(new ViolationRecord(violationFactory, getId(), lineNo,
+                getLine(lineNo - 1), colNo, ViolationRecord.NO_TOKEN, key, args));
     }
 
     /**
@@ -213,19 +235,49 @@ public abstract class AbstractPropertyCheck extends AbstractViolationReporter {
      * @param args arguments to format
      */
     public final void log(PropertyAST ast, String key, Object... args) {
-        // CommonUtil.lengthExpandedTabs returns column number considering
-        // tabulation characters, it takes line from the file by line number,
-        // ast column number and tab width as arguments. Returned value is
-        // 0-based, but user must see column number starting from 1, that is why
-        // result of the method CommonUtil.lengthExpandedTabs is increased by
-        // one.
-
-        final int col = 1 + CommonUtil.lengthExpandedTabs(getLines()[ast.getLineNo() - 1],
-                ast.getColumnNo(), tabWidth);
-
-        context.get().violations.add(new Violation(ast.getLineNo(), col, ast.getColumnNo(),
-                ast.getType(), getMessageBundle(), key, args, getSeverityLevel(), getId(),
-                getClass(), getCustomMessages().get(key)));
+        context.get().violations.add(new ViolationRecord(violationFactory, getId(),
+                ast.getLineNo(), getLine(ast.getLineNo() - 1), ast.getColumnNo(), ast.getType(),
+                key, args));
+    }
+
+    /**
+     * Creates the violation of a record logged by this check.
+     *
+     * @param record the record
+     * @return the violation
+     */
+    private Violation createViolation(ViolationRecord record) {
+        final String key = record.getKey();
+        final Violation result;
+
+        if (record.getColumnNo() == ViolationRecord.NO_COLUMN) {
+            result = new Violation(record.getLineNo(), getMessageBundle(), key, record.getArgs(),
+                    getSeverityLevel(), getId(), getClass(), getCustomMessages().get(key));
+        }
+        else {
+            // CommonUtil.lengthExpandedTabs returns column number considering
+            // tabulation characters, it takes line from the file by line number,
+            // ast column number and tab width as arguments. Returned value is
+            // 0-based, but user must see column number starting from 1, that is why
+            // result of the method CommonUtil.lengthExpandedTabs is increased by
+            // one.
+
+            final int col = 1 + CommonUtil.lengthExpandedTabs(record.getLine(),
+                    record.getColumnNo(), tabWidth);
+
+            if (record.getTokenType() == ViolationRecord.NO_TOKEN) {
+                result = new Violation(record.getLineNo(), col, getMessageBundle(), key,
+                        record.getArgs(), getSeverityLevel(), getId(), getClass(),
+                        getCustomMessages().get(key));
+            }
+            else {
+                result = new Violation(record.getLineNo(), col, record.getColumnNo(),
+                        record.getTokenType(), getMessageBundle(), key, record.getArgs(),
+                        getSeverityLevel(), getId(), getClass(), getCustomMessages().get(key));
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -271,8 +323,8 @@ public abstract class AbstractPropertyCheck extends AbstractViolationReporter {
      */
     private static class FileContext {
 
-        /** The sorted set for collecting violations. */
-        private final SortedSet<Violation> violations = new TreeSet<>();
+        /** The records of the violations logged, in the order they were logged. */
+        private final List<ViolationRecord> violations = new ArrayList<>();
 
         /** The current file contents. */
         private FileContents fileContents;
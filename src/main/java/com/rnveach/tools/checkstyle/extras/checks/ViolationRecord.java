@@ -0,0 +1,199 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.checks;
+
+import java.util.function.Function;
+
+import com.puppycrawl.tools.checkstyle.api.Violation;
+
+/**
+ * A violation logged by a check, which is only turned into a {@link Violation}
+ * when it is needed. Resolving the custom message, the severity and the column
+ * with expanded tabs is left until then, so violations that are dropped by
+ * filters or as duplicates never pay for it.
+ *
+ * <p>
+ * Records are ordered the same way as the violations they create, so they can
+ * be sorted before they are created. The column without expanded tabs gives
+ * the same order as the expanded column, since tabs are only expanded within
+ * a line.
+ * </p>
+ */
+public final class ViolationRecord implements Comparable<ViolationRecord> {
+
+    /** The column of a violation that is only reported for a line. */
+    static final int NO_COLUMN = -1;
+
+    /** The token type of a violation that was not logged for a token. */
+    static final int NO_TOKEN = Integer.MIN_VALUE;
+
+    /** Creates the violation of the record, from the check that logged it. */
+    private final Function<ViolationRecord, Violation> factory;
+
+    /** The id of the check that logged the violation. */
+    private final String moduleId;
+
+    /** The line number of the violation. */
+    private final int lineNo;
+
+    /** The text of the line, used to expand the tabs of the column. */
+    private final String line;
+
+    /** The column of the violation without expanded tabs. */
+    private final int columnNo;
+
+    /** The type of the token the violation was logged for. */
+    private final int tokenType;
+
+    /** The key of the message. */
+    private final String key;
+
+    /** The arguments of the message. */
+    private final Object[] args;
+
+    /** The violation, once it was created. */
+    private Violation violation;
+
+    /**
+     * Creates a new {@code ViolationRecord} instance.
+     *
+     * @param factory creates the violation of the record
+     * @param moduleId the id of the check that logged the violation
+     * @param lineNo the line number of the violation
+     * @param line the text of the line, or {@code null} if there is no column
+     * @param columnNo the column of the violation, or {@link #NO_COLUMN}
+     * @param tokenType the type of the token, or {@link #NO_TOKEN}
+     * @param key the key of the message
+     * @param args the arguments of the message
+     */
+    // -@cs[ParameterNumber] Mirrors the arguments of the violation it creates.
+    ViolationRecord(Function<ViolationRecord, Violation> factory, String moduleId, int lineNo,
+            String line, int columnNo, int tokenType, String key, Object... args) {
+        this.factory = factory;
+        this.moduleId = moduleId;
+        this.lineNo = lineNo;
+        this.line = line;
+        this.columnNo = columnNo;
+        this.tokenType = tokenType;
+        this.key = key;
+        this.args = args;
+    }
+
+    /**
+     * Returns the line number of the violation.
+     *
+     * @return the line number
+     */
+    public int getLineNo() {
+        return lineNo;
+    }
+
+    /**
+     * Returns the violation of the record, creating it the first time.
+     *
+     * @return the violation
+     */
+    public Violation toViolation() {
+        if (violation == null) {
+            violation = factory.apply(this);
+        }
+        return violation;
+    }
+
+    /**
+     * Returns the text of the line of the violation.
+     *
+     * @return the text of the line
+     */
+    String getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column of the violation without expanded tabs.
+     *
+     * @return the column, or {@link #NO_COLUMN}
+     */
+    int getColumnNo() {
+        return columnNo;
+    }
+
+    /**
+     * Returns the type of the token the violation was logged for.
+     *
+     * @return the token type, or {@link #NO_TOKEN}
+     */
+    int getTokenType() {
+        return tokenType;
+    }
+
+    /**
+     * Returns the key of the message.
+     *
+     * @return the key
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the arguments of the message.
+     *
+     * @return the arguments
+     */
+    Object[] getArgs() {
+        return args;
+    }
+
+    /**
+     * Orders records like {@link Violation#compareTo(Violation)} orders their
+     * violations. Only records on the same position and of the same module need
+     * their violations, to compare the messages.
+     *
+     * @param other the record to compare to
+     * @return a negative value, zero or a positive value as this record is
+     *         before, the same as or after the other record
+     */
+    @Override
+    public int compareTo(ViolationRecord other) {
+        int result = Integer.compare(lineNo, other.lineNo);
+
+        if (result == 0) {
+            result = Integer.compare(columnNo, other.columnNo);
+        }
+        if (result == 0) {
+            if (moduleId == null) {
+                result = other.moduleId == null ? 0 : -1;
+            }
+            else if (other.moduleId == null) {
+                result = 1;
+            }
+            else {
+                result = moduleId.compareTo(other.moduleId);
+            }
+        }
+        if (result == 0) {
+            result = toViolation().getViolation().compareTo(other.toViolation().getViolation());
+        }
+
+        return result;
+    }
+
+}
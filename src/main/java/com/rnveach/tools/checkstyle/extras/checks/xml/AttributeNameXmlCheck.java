@@ -54,6 +54,11 @@ public final class AttributeNameXmlCheck extends AbstractXmlCheck {
         };
     }
 
+    @Override
+    public boolean isConcurrentWalkSafe() {
+        return true;
+    }
+
     @Override
     public int[] getDefaultTokens() {
         return getRequiredTokens();
@@ -70,6 +70,11 @@ public final class AttributeOrderXmlCheck extends AbstractXmlCheck {
         };
     }
 
+    @Override
+    public boolean isConcurrentWalkSafe() {
+        return true;
+    }
+
     @Override
     public int[] getDefaultTokens() {
         return getRequiredTokens();
@@ -54,6 +54,11 @@ public final class ElementNameXmlCheck extends AbstractXmlCheck {
         };
     }
 
+    @Override
+    public boolean isConcurrentWalkSafe() {
+        return true;
+    }
+
     @Override
     public int[] getDefaultTokens() {
         return getRequiredTokens();
@@ -42,6 +42,11 @@ public final class EmptyContentXmlCheck extends AbstractXmlCheck {
         };
     }
 
+    @Override
+    public boolean isConcurrentWalkSafe() {
+        return true;
+    }
+
     @Override
     public int[] getDefaultTokens() {
         return getRequiredTokens();
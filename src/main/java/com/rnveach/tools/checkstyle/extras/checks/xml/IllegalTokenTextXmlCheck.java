@@ -71,6 +71,16 @@ public final class IllegalTokenTextXmlCheck extends AbstractXmlCheck {
         return CommonUtil.EMPTY_INT_ARRAY;
     }
 
+    @Override
+    public boolean isTokenOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean isConcurrentWalkSafe() {
+        return true;
+    }
+
     @Override
     public void visitToken(XmlAST ast) {
         final String text = ast.getText();
@@ -50,6 +50,16 @@ public final class IllegalTokenXmlCheck extends AbstractXmlCheck {
         return CommonUtil.EMPTY_INT_ARRAY;
     }
 
+    @Override
+    public boolean isTokenOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean isConcurrentWalkSafe() {
+        return true;
+    }
+
     @Override
     public void visitToken(XmlAST ast) {
         log(ast, MSG_KEY, convertToString(ast));
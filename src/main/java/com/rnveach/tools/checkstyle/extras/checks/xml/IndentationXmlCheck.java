@@ -95,6 +95,11 @@ public final class IndentationXmlCheck extends AbstractXmlCheck {
         return XmlAstUtil.getAllTokenIds();
     }
 
+    @Override
+    public boolean isConcurrentWalkSafe() {
+        return true;
+    }
+
     @Override
     public int[] getDefaultTokens() {
         return getRequiredTokens();
@@ -19,6 +19,8 @@
 
 package com.rnveach.tools.checkstyle.extras.events;
 
+import java.util.function.Supplier;
+
 import com.puppycrawl.tools.checkstyle.api.FileContents;
 import com.puppycrawl.tools.checkstyle.api.Violation;
 import com.rnveach.tools.checkstyle.extras.asts.PropertyAST;
@@ -30,8 +32,12 @@ public final class PropertyWalkerAuditEvent {
     private final String fileName;
     /** The file contents. */
     private final FileContents fileContents;
+    /** Line number of the violation. **/
+    private final int line;
+    /** Creates the violation associated with the event when it is needed. **/
+    private final Supplier<Violation> violationSupplier;
     /** Violation associated with the event. **/
-    private final Violation violation;
+    private Violation violation;
     /** Root ast element. **/
     private final PropertyAST rootAst;
 
@@ -45,9 +51,26 @@ public final class PropertyWalkerAuditEvent {
      */
     public PropertyWalkerAuditEvent(FileContents fileContents, String fileName, Violation violation,
             PropertyAST rootAst) {
+        this(fileContents, fileName, violation.getLineNo(), () -> violation, rootAst);
+    }
+
+    /**
+     * Creates a new {@code PropertyWalkerAuditEvent} instance whose violation is
+     * only created when it is first needed. Filters that only look at the line
+     * number do not create it.
+     *
+     * @param fileContents contents of the file associated with the event
+     * @param fileName file associated with the event
+     * @param line the line number of the violation
+     * @param violationSupplier creates the actual violation
+     * @param rootAst root AST element {@link PropertyAST} of the file
+     */
+    public PropertyWalkerAuditEvent(FileContents fileContents, String fileName, int line,
+            Supplier<Violation> violationSupplier, PropertyAST rootAst) {
         this.fileContents = fileContents;
         this.fileName = fileName;
-        this.violation = violation;
+        this.line = line;
+        this.violationSupplier = violationSupplier;
         this.rootAst = rootAst;
     }
 
@@ -76,6 +99,9 @@ public final class PropertyWalkerAuditEvent {
      * @return the violation
      */
     public Violation getViolation() {
+        if (violation == null) {
+            violation = violationSupplier.get();
+        }
         return violation;
     }
 
@@ -86,7 +112,7 @@ public final class PropertyWalkerAuditEvent {
      * @return an integer representing the line number in the file source code.
      */
     public int getLine() {
-        return violation.getLineNo();
+        return line;
     }
 
     /**
@@ -95,7 +121,7 @@ public final class PropertyWalkerAuditEvent {
      * @return the violation message
      */
     public String getMessage() {
-        return violation.getViolation();
+        return getViolation().getViolation();
     }
 
     /**
@@ -104,7 +130,7 @@ public final class PropertyWalkerAuditEvent {
      * @return the column associated with the violation
      */
     public int getColumn() {
-        return violation.getColumnNo();
+        return getViolation().getColumnNo();
     }
 
     /**
@@ -113,7 +139,7 @@ public final class PropertyWalkerAuditEvent {
      * @return the column char index associated with the violation
      */
     public int getColumnCharIndex() {
-        return violation.getColumnCharIndex();
+        return getViolation().getColumnCharIndex();
     }
 
     /**
@@ -123,7 +149,7 @@ public final class PropertyWalkerAuditEvent {
      *         null.
      */
     public String getModuleId() {
-        return violation.getModuleId();
+        return getViolation().getModuleId();
     }
 
     /**
@@ -132,7 +158,7 @@ public final class PropertyWalkerAuditEvent {
      * @return the name of the source for the violation
      */
     public String getSourceName() {
-        return violation.getSourceName();
+        return getViolation().getSourceName();
     }
 
     /**
@@ -141,7 +167,7 @@ public final class PropertyWalkerAuditEvent {
      * @return the token type of the violation
      */
     public int getTokenType() {
-        return violation.getTokenType();
+        return getViolation().getTokenType();
     }
 
     /**
@@ -0,0 +1,52 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.filters;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+
+/**
+ * An interface for filtering all violations of a file at once. Unlike
+ * {@link XmlWalkerFilter}, which is called once per violation, it is called
+ * once per file, so filters which need to scan the file first, like looking
+ * for suppression comments, only need to do it once.
+ */
+@FunctionalInterface
+public interface XmlWalkerBatchFilter {
+
+    /**
+     * Determines which violations of a file are accepted.
+     *
+     * @param fileContents the contents of the file.
+     * @param fileName the name of the file.
+     * @param rootAst root AST element {@link XmlAST} of the file, or
+     *        {@code null} if the file was not parsed.
+     * @param violations the violations of the file, in sorted order.
+     * @return a bit set where bit {@code i} is set if the violation at index
+     *         {@code i} of the list is accepted.
+     */
+    BitSet accept(FileContents fileContents, String fileName, XmlAST rootAst,
+            List<Violation> violations);
+
+}
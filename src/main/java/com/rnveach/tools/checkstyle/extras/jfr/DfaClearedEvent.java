@@ -0,0 +1,77 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for the DFA cache of a parser being trimmed or cleared. The
+ * duration is the time spent clearing it.
+ */
+@Name("com.rnveach.tools.checkstyle.extras.DfaCleared")
+@Label("DFA Cleared")
+@Category({"Checkstyle", "Extras"})
+@Description("The DFA cache of a parser was trimmed or cleared")
+public final class DfaClearedEvent extends Event {
+
+    /** The name of the grammar. */
+    @Label("Grammar")
+    private String grammar;
+
+    /** The number of DFA states before clearing. */
+    @Label("States Before")
+    private int statesBefore;
+
+    /** The number of DFA states left after clearing. */
+    @Label("States After")
+    private int statesAfter;
+
+    /**
+     * Sets the name of the grammar.
+     *
+     * @param grammar the name of the grammar
+     */
+    public void setGrammar(String grammar) {
+        this.grammar = grammar;
+    }
+
+    /**
+     * Sets the number of DFA states before clearing.
+     *
+     * @param statesBefore the number of states
+     */
+    public void setStatesBefore(int statesBefore) {
+        this.statesBefore = statesBefore;
+    }
+
+    /**
+     * Sets the number of DFA states left after clearing.
+     *
+     * @param statesAfter the number of states
+     */
+    public void setStatesAfter(int statesAfter) {
+        this.statesAfter = statesAfter;
+    }
+
+}
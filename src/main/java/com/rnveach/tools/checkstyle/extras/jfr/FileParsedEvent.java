@@ -0,0 +1,88 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event for a file parsed into an AST. The duration is the time spent parsing. */
+@Name("com.rnveach.tools.checkstyle.extras.FileParsed")
+@Label("File Parsed")
+@Category({"Checkstyle", "Extras"})
+@Description("A file was parsed into an AST")
+public final class FileParsedEvent extends Event {
+
+    /** The name of the grammar. */
+    @Label("Grammar")
+    private String grammar;
+
+    /** The path of the file. */
+    @Label("Path")
+    private String path;
+
+    /** The number of characters parsed. */
+    @Label("Characters")
+    @Description("The number of characters parsed")
+    private long characters;
+
+    /** The number of nodes of the AST. */
+    @Label("Node Count")
+    private long nodeCount;
+
+    /**
+     * Sets the name of the grammar.
+     *
+     * @param grammar the name of the grammar
+     */
+    public void setGrammar(String grammar) {
+        this.grammar = grammar;
+    }
+
+    /**
+     * Sets the path of the file.
+     *
+     * @param path the path of the file
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Sets the number of characters parsed.
+     *
+     * @param characters the number of characters
+     */
+    public void setCharacters(long characters) {
+        this.characters = characters;
+    }
+
+    /**
+     * Sets the number of nodes of the AST.
+     *
+     * @param nodeCount the number of nodes
+     */
+    public void setNodeCount(long nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+}
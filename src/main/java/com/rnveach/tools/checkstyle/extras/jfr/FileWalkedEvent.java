@@ -0,0 +1,77 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a file walked by the checks of a walker. The duration is the
+ * time spent walking, without parsing and filtering.
+ */
+@Name("com.rnveach.tools.checkstyle.extras.FileWalked")
+@Label("File Walked")
+@Category({"Checkstyle", "Extras"})
+@Description("The checks of a walker walked a file")
+public final class FileWalkedEvent extends Event {
+
+    /** The name of the walker. */
+    @Label("Walker")
+    private String walker;
+
+    /** The path of the file. */
+    @Label("Path")
+    private String path;
+
+    /** The number of checks that walked the file. */
+    @Label("Checks Invoked")
+    private int checksInvoked;
+
+    /**
+     * Sets the name of the walker.
+     *
+     * @param walker the name of the walker
+     */
+    public void setWalker(String walker) {
+        this.walker = walker;
+    }
+
+    /**
+     * Sets the path of the file.
+     *
+     * @param path the path of the file
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Sets the number of checks that walked the file.
+     *
+     * @param checksInvoked the number of checks
+     */
+    public void setChecksInvoked(int checksInvoked) {
+        this.checksInvoked = checksInvoked;
+    }
+
+}
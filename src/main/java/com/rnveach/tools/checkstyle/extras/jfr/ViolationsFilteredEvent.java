@@ -0,0 +1,92 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for the violations of a file passed through the filters of a
+ * walker. The duration is the time spent sorting and filtering them.
+ */
+@Name("com.rnveach.tools.checkstyle.extras.ViolationsFiltered")
+@Label("Violations Filtered")
+@Category({"Checkstyle", "Extras"})
+@Description("The violations of a file were sorted and filtered")
+public final class ViolationsFilteredEvent extends Event {
+
+    /** The name of the walker. */
+    @Label("Walker")
+    private String walker;
+
+    /** The path of the file. */
+    @Label("Path")
+    private String path;
+
+    /** The number of violations before filtering. */
+    @Label("Before")
+    @Description("The number of violations logged, without duplicates")
+    private int before;
+
+    /** The number of violations after filtering. */
+    @Label("After")
+    @Description("The number of violations reported")
+    private int after;
+
+    /**
+     * Sets the name of the walker.
+     *
+     * @param walker the name of the walker
+     */
+    public void setWalker(String walker) {
+        this.walker = walker;
+    }
+
+    /**
+     * Sets the path of the file.
+     *
+     * @param path the path of the file
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Sets the number of violations before filtering.
+     *
+     * @param before the number of violations
+     */
+    public void setBefore(int before) {
+        this.before = before;
+    }
+
+    /**
+     * Sets the number of violations after filtering.
+     *
+     * @param after the number of violations
+     */
+    public void setAfter(int after) {
+        this.after = after;
+    }
+
+}
@@ -0,0 +1,62 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/** Finds the {@link MetricsProvider} used by the parsers and walkers. */
+public final class ExtrasMetrics {
+
+    /** The provider, loaded when this class is first used. */
+    private static final MetricsProvider PROVIDER = loadProvider();
+
+    /** Stop instances being created. **/
+    private ExtrasMetrics() {
+    }
+
+    /**
+     * Gets the provider used by the parsers and walkers.
+     *
+     * @return the provider
+     */
+    public static MetricsProvider getProvider() {
+        return PROVIDER;
+    }
+
+    /**
+     * Loads the first provider registered with {@link ServiceLoader}.
+     *
+     * @return the provider, or {@link NoOpMetricsProvider} if there is none
+     */
+    private static MetricsProvider loadProvider() {
+        final Iterator<MetricsProvider> providers = ServiceLoader
+                .load(MetricsProvider.class, ExtrasMetrics.class.getClassLoader()).iterator();
+        final MetricsProvider result;
+        if (providers.hasNext()) {
+            result = providers.next();
+        }
+        else {
+            result = new NoOpMetricsProvider();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,135 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link MetricsProvider} which keeps the metrics in memory, meant for
+ * tests. Histograms keep the number of values, their sum and their maximum.
+ */
+public final class InMemoryMetricsProvider implements MetricsProvider {
+
+    /** The counters by name. */
+    private final Map<String, InMemoryCounter> counters = new ConcurrentHashMap<>();
+
+    /** The histograms by name. */
+    private final Map<String, InMemoryHistogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new InMemoryCounter());
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return getHistogram(name);
+    }
+
+    /**
+     * Returns the count of a counter.
+     *
+     * @param name the name of the counter
+     * @return the count, or 0 if there is no such counter
+     */
+    public long getCount(String name) {
+        final InMemoryCounter counter = counters.get(name);
+        long result = 0;
+        if (counter != null) {
+            result = counter.sum.sum();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a histogram, creating it if there is none yet.
+     *
+     * @param name the name of the histogram
+     * @return the histogram
+     */
+    public InMemoryHistogram getHistogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new InMemoryHistogram());
+    }
+
+    /** A counter kept in memory. */
+    private static final class InMemoryCounter implements Counter {
+
+        /** The count. */
+        private final LongAdder sum = new LongAdder();
+
+        @Override
+        public void increment(long amount) {
+            sum.add(amount);
+        }
+
+    }
+
+    /** A histogram kept in memory. */
+    public static final class InMemoryHistogram implements Histogram {
+
+        /** The number of values. */
+        private final LongAdder count = new LongAdder();
+
+        /** The sum of the values. */
+        private final LongAdder sum = new LongAdder();
+
+        /** The largest value. */
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        @Override
+        public void record(long value) {
+            count.increment();
+            sum.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        /**
+         * Returns the number of values.
+         *
+         * @return the number of values
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the sum of the values.
+         *
+         * @return the sum
+         */
+        public long getSum() {
+            return sum.sum();
+        }
+
+        /**
+         * Returns the largest value.
+         *
+         * @return the largest value, or {@link Long#MIN_VALUE} if there is none
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,58 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.metrics;
+
+/**
+ * The service provider interface of the metrics. The first implementation
+ * found by {@link java.util.ServiceLoader} is used, or
+ * {@link NoOpMetricsProvider} if there is none. The metrics are created once,
+ * when the parsers and walkers are loaded, so recording a value only costs a
+ * call to the counter or histogram.
+ */
+public interface MetricsProvider {
+
+    /**
+     * Creates or finds a counter.
+     *
+     * @param name the name of the counter
+     * @return the counter
+     */
+    Counter counter(String name);
+
+    /**
+     * Creates or finds a histogram.
+     *
+     * @param name the name of the histogram
+     * @return the histogram
+     */
+    Histogram histogram(String name);
+
+    /**
+     * Whether values are recorded at all. Metrics that need extra work to
+     * compute, like timings or counting the nodes of an AST, are skipped if
+     * not.
+     *
+     * @return {@code true} if values are recorded
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+}
@@ -0,0 +1,129 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.metrics;
+
+/**
+ * The metrics of a parser. Each parser keeps one instance for its whole life.
+ * Metrics are named {@code <prefix>.parse.latency},
+ * {@code <prefix>.parse.characters}, {@code <prefix>.parse.failures} and
+ * {@code <prefix>.nodes.<token name>}.
+ */
+public final class ParserMetrics {
+
+    /** Whether the provider records values at all. */
+    private final boolean enabled;
+
+    /** Time taken by successful parses, in nanoseconds. */
+    private final Histogram parseLatency;
+
+    /** Number of characters parsed. */
+    private final Counter charactersParsed;
+
+    /** Number of parses that failed. */
+    private final Counter parseFailures;
+
+    /** Number of AST nodes created, by token type. */
+    private final Counter[] nodesCreated;
+
+    /**
+     * Creates the metrics of a parser.
+     *
+     * @param prefix the prefix of the metric names
+     * @param tokenNames the names of the token types, indexed by type, where
+     *        {@code null} means the type is never used
+     */
+    public ParserMetrics(String prefix, String... tokenNames) {
+        final MetricsProvider provider = ExtrasMetrics.getProvider();
+        enabled = provider.isEnabled();
+        parseLatency = provider.histogram(prefix + ".parse.latency");
+        charactersParsed = provider.counter(prefix + ".parse.characters");
+        parseFailures = provider.counter(prefix + ".parse.failures");
+        nodesCreated = new Counter[tokenNames.length];
+        for (int type = 0; type < tokenNames.length; type++) {
+            if (tokenNames[type] != null) {
+                nodesCreated[type] = provider.counter(prefix + ".nodes." + tokenNames[type]);
+            }
+        }
+    }
+
+    /**
+     * Whether the provider records values at all. Nodes should only be
+     * counted if so.
+     *
+     * @return {@code true} if values are recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the number of token types nodes can be counted for.
+     *
+     * @return one more than the largest token type
+     */
+    public int getTokenTypeCount() {
+        return nodesCreated.length;
+    }
+
+    /**
+     * Returns the time a parse starts at.
+     *
+     * @return the current time in nanoseconds, or 0 if metrics are disabled
+     */
+    public long startParse() {
+        long result = 0;
+        if (enabled) {
+            result = System.nanoTime();
+        }
+        return result;
+    }
+
+    /**
+     * Records a successful parse.
+     *
+     * @param start the time the parse started at
+     * @param characters the number of characters parsed
+     */
+    public void finishParse(long start, int characters) {
+        if (enabled) {
+            parseLatency.record(System.nanoTime() - start);
+            charactersParsed.increment(characters);
+        }
+    }
+
+    /** Records a failed parse. */
+    public void recordFailure() {
+        parseFailures.increment(1);
+    }
+
+    /**
+     * Records the AST nodes created by a parse.
+     *
+     * @param countsByType the number of nodes, indexed by token type
+     */
+    public void recordNodes(long... countsByType) {
+        for (int type = 0; type < countsByType.length; type++) {
+            if (countsByType[type] != 0 && nodesCreated[type] != null) {
+                nodesCreated[type].increment(countsByType[type]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.metrics;
+
+/**
+ * The metrics of a walker, shared by all its instances. Metrics are named
+ * {@code <prefix>.files}, {@code <prefix>.walk.latency},
+ * {@code <prefix>.violations.logged} and {@code <prefix>.violations.reported}.
+ */
+public final class WalkerMetrics {
+
+    /** Whether the provider records values at all. */
+    private final boolean enabled;
+
+    /** Number of files processed. */
+    private final Counter filesProcessed;
+
+    /** Time taken to walk a file, in nanoseconds. */
+    private final Histogram walkLatency;
+
+    /** Number of violations logged by the checks. */
+    private final Counter violationsLogged;
+
+    /** Number of violations left after filtering. */
+    private final Counter violationsReported;
+
+    /**
+     * Creates the metrics of a walker.
+     *
+     * @param prefix the prefix of the metric names
+     */
+    public WalkerMetrics(String prefix) {
+        final MetricsProvider provider = ExtrasMetrics.getProvider();
+        enabled = provider.isEnabled();
+        filesProcessed = provider.counter(prefix + ".files");
+        walkLatency = provider.histogram(prefix + ".walk.latency");
+        violationsLogged = provider.counter(prefix + ".violations.logged");
+        violationsReported = provider.counter(prefix + ".violations.reported");
+    }
+
+    /**
+     * Returns the time a walk starts at.
+     *
+     * @return the current time in nanoseconds, or 0 if metrics are disabled
+     */
+    public long startWalk() {
+        long result = 0;
+        if (enabled) {
+            result = System.nanoTime();
+        }
+        return result;
+    }
+
+    /**
+     * Records a finished walk.
+     *
+     * @param start the time the walk started at
+     */
+    public void finishWalk(long start) {
+        if (enabled) {
+            walkLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a processed file.
+     *
+     * @param logged the number of violations logged by the checks
+     * @param reported the number of violations left after filtering
+     */
+    public void recordFile(int logged, int reported) {
+        filesProcessed.increment(1);
+        violationsLogged.increment(logged);
+        violationsReported.increment(reported);
+    }
+
+}
@@ -0,0 +1,339 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.ParseInfo;
+import org.antlr.v4.runtime.atn.ProfilingATNSimulator;
+
+/**
+ * Collects how expensive each decision of an ANTLR generated parser is to
+ * predict, over all files parsed while profiling is enabled.
+ *
+ * <p>
+ * Profiling is disabled by default. When it is enabled, each parse runs with
+ * a {@link ProfilingATNSimulator}, which shares the DFA cache with the normal
+ * simulator but is noticeably slower, so it should only be enabled to find the
+ * decisions worth improving in the grammar.
+ * </p>
+ */
+public final class DecisionProfiler {
+
+    /** Number of nanoseconds in a millisecond. */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /** The name of the grammar profiled. */
+    private final String grammarName;
+
+    /** The statistics of each decision, indexed by the decision number. */
+    private final DecisionStats[] decisions;
+
+    /** Whether parses are profiled. */
+    private volatile boolean enabled;
+
+    /**
+     * Creates a new {@code DecisionProfiler} instance.
+     *
+     * @param grammarName the name of the grammar profiled
+     * @param atn the ATN of the grammar
+     * @param ruleNames the names of the rules of the grammar
+     */
+    public DecisionProfiler(String grammarName, ATN atn, String... ruleNames) {
+        this.grammarName = grammarName;
+        decisions = new DecisionStats[atn.getNumberOfDecisions()];
+        for (int decision = 0; decision < decisions.length; decision++) {
+            decisions[decision] = new DecisionStats(decision,
+                    ruleNames[atn.getDecisionState(decision).ruleIndex]);
+        }
+    }
+
+    /**
+     * Gets the name of the grammar profiled.
+     *
+     * @return the name of the grammar
+     */
+    public String getGrammarName() {
+        return grammarName;
+    }
+
+    /**
+     * Sets whether parses are profiled.
+     *
+     * @param enabled {@code true} to profile parses
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets whether parses are profiled.
+     *
+     * @return {@code true} if parses are profiled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the statistics of the decisions that were predicted at least once,
+     * the ones that took the longest first.
+     *
+     * @return the statistics of the decisions
+     */
+    public synchronized List<DecisionStats> getDecisions() {
+        final List<DecisionStats> result = new ArrayList<>();
+        for (DecisionStats decision : decisions) {
+            if (decision.invocations > 0) {
+                result.add(decision.copy());
+            }
+        }
+        result.sort((first, second) -> Long.compare(second.timeNanos, first.timeNanos));
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Writes a summary of the decisions that were predicted at least once as
+     * text, the ones that took the longest first.
+     *
+     * @param writer the writer to write the summary to
+     * @throws IOException if the summary could not be written
+     */
+    public void writeSummary(Writer writer) throws IOException {
+        writer.write(String.format(Locale.ROOT,
+                "%-8s %-24s %10s %12s %10s %8s %10s %10s %8s %10s%n", "Decision", "Rule",
+                "Calls", "Total ms", "SLL look", "SLL max", "LL fallbk", "LL look", "LL max",
+                "Ambiguity"));
+        for (DecisionStats decision : getDecisions()) {
+            writer.write(String.format(Locale.ROOT,
+                    "%-8d %-24s %10d %12.3f %10d %8d %10d %10d %8d %10d%n",
+                    decision.getDecision(), decision.getRuleName(), decision.getInvocations(),
+                    decision.getTimeNanos() / NANOS_PER_MILLI, decision.getSllLookahead(),
+                    decision.getSllMaxLookahead(), decision.getLlFallbacks(),
+                    decision.getLlLookahead(), decision.getLlMaxLookahead(),
+                    decision.getAmbiguities()));
+        }
+        writer.flush();
+    }
+
+    /** Clears the statistics collected so far. */
+    public synchronized void reset() {
+        for (int decision = 0; decision < decisions.length; decision++) {
+            decisions[decision] = new DecisionStats(decision,
+                    decisions[decision].getRuleName());
+        }
+    }
+
+    /**
+     * Adds the statistics of a profiled parse.
+     *
+     * @param parseInfo the statistics of the parse, or {@code null} if the
+     *        parse was not profiled
+     */
+    synchronized void add(ParseInfo parseInfo) {
+        if (parseInfo != null) {
+            for (DecisionInfo info : parseInfo.getDecisionInfo()) {
+                if (info.invocations > 0) {
+                    decisions[info.decision].add(info);
+                }
+            }
+        }
+    }
+
+    /** The prediction statistics of a decision. */
+    public static final class DecisionStats {
+
+        /** The decision number. */
+        private final int decision;
+
+        /** The name of the rule the decision is in. */
+        private final String ruleName;
+
+        /** Number of times the decision was predicted. */
+        private long invocations;
+
+        /** Time spent predicting the decision. */
+        private long timeNanos;
+
+        /** Total number of tokens looked ahead with SLL prediction. */
+        private long sllLookahead;
+
+        /** Largest number of tokens looked ahead with SLL prediction. */
+        private long sllMaxLookahead;
+
+        /** Number of times SLL prediction fell back to full LL prediction. */
+        private long llFallbacks;
+
+        /** Total number of tokens looked ahead with full LL prediction. */
+        private long llLookahead;
+
+        /** Largest number of tokens looked ahead with full LL prediction. */
+        private long llMaxLookahead;
+
+        /** Number of ambiguities found. */
+        private long ambiguities;
+
+        /**
+         * Creates empty statistics.
+         *
+         * @param decision the decision number
+         * @param ruleName the name of the rule the decision is in
+         */
+        private DecisionStats(int decision, String ruleName) {
+            this.decision = decision;
+            this.ruleName = ruleName;
+        }
+
+        /**
+         * Adds the statistics of a decision in one parse.
+         *
+         * @param info the statistics
+         */
+        private void add(DecisionInfo info) {
+            invocations += info.invocations;
+            timeNanos += info.timeInPrediction;
+            sllLookahead += info.SLL_TotalLook;
+            sllMaxLookahead = Math.max(sllMaxLookahead, info.SLL_MaxLook);
+            llFallbacks += info.LL_Fallback;
+            llLookahead += info.LL_TotalLook;
+            llMaxLookahead = Math.max(llMaxLookahead, info.LL_MaxLook);
+            ambiguities += info.ambiguities.size();
+        }
+
+        /**
+         * Copies the statistics.
+         *
+         * @return the copy
+         */
+        private DecisionStats copy() {
+            final DecisionStats result = new DecisionStats(decision, ruleName);
+            result.invocations = invocations;
+            result.timeNanos = timeNanos;
+            result.sllLookahead = sllLookahead;
+            result.sllMaxLookahead = sllMaxLookahead;
+            result.llFallbacks = llFallbacks;
+            result.llLookahead = llLookahead;
+            result.llMaxLookahead = llMaxLookahead;
+            result.ambiguities = ambiguities;
+            return result;
+        }
+
+        /**
+         * Gets the decision number.
+         *
+         * @return the decision number
+         */
+        public int getDecision() {
+            return decision;
+        }
+
+        /**
+         * Gets the name of the rule the decision is in.
+         *
+         * @return the name of the rule
+         */
+        public String getRuleName() {
+            return ruleName;
+        }
+
+        /**
+         * Gets the number of times the decision was predicted.
+         *
+         * @return the number of predictions
+         */
+        public long getInvocations() {
+            return invocations;
+        }
+
+        /**
+         * Gets the time spent predicting the decision.
+         *
+         * @return the time in nanoseconds
+         */
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        /**
+         * Gets the total number of tokens looked ahead with SLL prediction.
+         *
+         * @return the number of tokens
+         */
+        public long getSllLookahead() {
+            return sllLookahead;
+        }
+
+        /**
+         * Gets the largest number of tokens looked ahead by one SLL prediction.
+         *
+         * @return the number of tokens
+         */
+        public long getSllMaxLookahead() {
+            return sllMaxLookahead;
+        }
+
+        /**
+         * Gets the number of times SLL prediction fell back to full LL
+         * prediction.
+         *
+         * @return the number of fallbacks
+         */
+        public long getLlFallbacks() {
+            return llFallbacks;
+        }
+
+        /**
+         * Gets the total number of tokens looked ahead with full LL prediction.
+         *
+         * @return the number of tokens
+         */
+        public long getLlLookahead() {
+            return llLookahead;
+        }
+
+        /**
+         * Gets the largest number of tokens looked ahead by one full LL
+         * prediction.
+         *
+         * @return the number of tokens
+         */
+        public long getLlMaxLookahead() {
+            return llMaxLookahead;
+        }
+
+        /**
+         * Gets the number of ambiguities found.
+         *
+         * @return the number of ambiguities
+         */
+        public long getAmbiguities() {
+            return ambiguities;
+        }
+
+    }
+
+}
@@ -0,0 +1,422 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import com.rnveach.tools.checkstyle.extras.jfr.DfaClearedEvent;
+
+/**
+ * Manages the DFA cache shared by all instances of an ANTLR generated parser.
+ *
+ * <p>
+ * The DFA cache makes prediction faster the more files are parsed, but it
+ * also grows without bound. Instead of dropping the cache after a fixed number
+ * of files, this class only trims it when the number of DFA states goes over a
+ * configurable budget, and only clears it completely when the heap left in
+ * use by the last garbage collections crosses a configurable threshold.
+ * </p>
+ *
+ * <p>
+ * The cache can also be saved to a snapshot file when a run ends and loaded
+ * from it when the next run starts, so the first files of a run do not have to
+ * warm the cache up again.
+ * </p>
+ *
+ * <p>
+ * The manager is safe to use while files are parsed on several threads. A
+ * parse that is running while the cache is trimmed keeps working with the DFA
+ * instances it already has, since the DFA is only a cache of the ATN.
+ * </p>
+ *
+ * <p>
+ * The DFAs are replaced with plain stores into the array of the generated
+ * parser, which reads it without synchronization. This is safe because a
+ * parser that still reads the old DFA keeps predicting correctly with it, and
+ * only the states it adds there are lost. A new DFA is published safely: its
+ * fields are final, and its start state {@link DFA#s0} is volatile and written
+ * after all other states of a snapshot. States added while parsing are guarded
+ * by ANTLR itself.
+ * </p>
+ */
+public final class DfaCacheManager {
+
+    /** Default maximum number of DFA states kept before the cache is trimmed. */
+    public static final int DEFAULT_MAX_DFA_STATES = 20_000;
+
+    /**
+     * Default percentage of the maximum heap that can be used before the
+     * cache is cleared.
+     */
+    public static final int DEFAULT_HEAP_USAGE_THRESHOLD = 90;
+
+    /** Number of parses between two reads of the heap usage. */
+    private static final int HEAP_CHECK_INTERVAL = 64;
+
+    /** Value of a whole percentage. */
+    private static final int PERCENT = 100;
+
+    /** The bean used to read the maximum heap size. */
+    private static final MemoryMXBean MEMORY_BEAN = ManagementFactory.getMemoryMXBean();
+
+    /** The pools of the heap, used to read the usage after garbage collections. */
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory
+            .getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+
+    /** The name of the grammar the cache belongs to. */
+    private final String grammarName;
+
+    /** The ATN of the grammar, used to create empty DFAs. */
+    private final ATN atn;
+
+    /** The DFA cache of the grammar, one DFA per decision. */
+    private final DFA[] decisionToDfa;
+
+    /** Guard so only one thread trims the cache at a time. */
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    /** Number of parses since the heap usage was last read. */
+    private final AtomicInteger parsesSinceHeapCheck = new AtomicInteger();
+
+    /** Number of times the cache was trimmed or cleared. */
+    private final AtomicLong clearCount = new AtomicLong();
+
+    /** Time spent parsing while the cache was being rebuilt after a clear. */
+    private final AtomicLong rebuildTimeNanos = new AtomicLong();
+
+    /** Maximum number of DFA states kept before the cache is trimmed. */
+    private volatile int maxDfaStates = DEFAULT_MAX_DFA_STATES;
+
+    /** Percentage of the maximum heap that can be used before the cache is cleared. */
+    private volatile int heapUsageThreshold = DEFAULT_HEAP_USAGE_THRESHOLD;
+
+    /** Whether the cache is being rebuilt after it was trimmed or cleared. */
+    private volatile boolean rebuilding;
+
+    /** The number of DFA states at the end of the last parse while rebuilding. */
+    private volatile int rebuildStateCount;
+
+    /** The number of DFA states when the heap usage last cleared the cache. */
+    private volatile int heapClearStateCount;
+
+    /**
+     * Creates a new {@code DfaCacheManager} instance.
+     *
+     * @param grammarName the name of the grammar the cache belongs to
+     * @param atn the ATN of the grammar
+     * @param decisionToDfa the DFA cache shared by all instances of the parser
+     */
+    public DfaCacheManager(String grammarName, ATN atn, DFA[] decisionToDfa) {
+        this.grammarName = grammarName;
+        this.atn = atn;
+        this.decisionToDfa = decisionToDfa;
+    }
+
+    /**
+     * Gets the name of the grammar the cache belongs to.
+     *
+     * @return the name of the grammar
+     */
+    public String getGrammarName() {
+        return grammarName;
+    }
+
+    /**
+     * Sets the maximum number of DFA states kept before the cache is trimmed.
+     * When the budget is exceeded, the largest decisions are cleared until half
+     * of the budget is left.
+     *
+     * @param maxDfaStates the maximum number of DFA states
+     */
+    public void setMaxDfaStates(int maxDfaStates) {
+        this.maxDfaStates = maxDfaStates;
+    }
+
+    /**
+     * Sets the percentage of the maximum heap that can be used before the cache
+     * is cleared completely. A value of {@code 100} or more disables the check.
+     * Once cleared this way, the cache is only cleared again for the heap usage
+     * when it has grown back to the number of states it had, since otherwise
+     * the heap is used by something else.
+     *
+     * @param heapUsageThreshold the heap usage threshold in percent
+     */
+    public void setHeapUsageThreshold(int heapUsageThreshold) {
+        this.heapUsageThreshold = heapUsageThreshold;
+    }
+
+    /**
+     * Notifies the manager that a parse is about to start. The cache is trimmed
+     * first if it is over budget.
+     *
+     * @return the start time of the parse, to be given to {@link #endParse(long)}
+     */
+    public long beginParse() {
+        final int stateCount = getDfaStateCount();
+        final boolean heapUsageExceeded = stateCount > 0
+                && stateCount >= heapClearStateCount && isHeapUsageExceeded();
+
+        if (heapUsageExceeded || stateCount > maxDfaStates) {
+            if (trimming.compareAndSet(false, true)) {
+                try {
+                    if (heapUsageExceeded) {
+                        heapClearStateCount = stateCount;
+                        trim(0);
+                    }
+                    else {
+                        trim(maxDfaStates / 2);
+                    }
+                }
+                finally {
+                    trimming.set(false);
+                }
+            }
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Notifies the manager that a parse has finished.
+     *
+     * @param startNanos the start time returned by {@link #beginParse()}
+     */
+    public void endParse(long startNanos) {
+        if (rebuilding) {
+            rebuildTimeNanos.addAndGet(System.nanoTime() - startNanos);
+
+            // the cache is warm again once a parse adds no new states
+            final int stateCount = getDfaStateCount();
+            if (stateCount == rebuildStateCount) {
+                rebuilding = false;
+            }
+            rebuildStateCount = stateCount;
+        }
+    }
+
+    /**
+     * Clears the whole cache. Waits for a trim running on another thread to
+     * finish first.
+     */
+    public void clear() {
+        while (!trimming.compareAndSet(false, true)) {
+            Thread.onSpinWait();
+        }
+        try {
+            trim(0);
+        }
+        finally {
+            trimming.set(false);
+        }
+    }
+
+    /**
+     * Saves the cache to a snapshot file, which can be loaded by
+     * {@link #loadSnapshot(File)} in a later run. The snapshot is written to a
+     * temporary file next to it first, and then moved in place atomically, so
+     * the file never holds a partly written snapshot.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void saveSnapshot(File file) throws IOException {
+        final byte[] snapshot = DfaSnapshot.write(grammarName, atn, decisionToDfa);
+        final File directory = file.getAbsoluteFile().getParentFile();
+
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+
+        final File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (OutputStream out = new FileOutputStream(temporary)) {
+                out.write(snapshot);
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    /**
+     * Loads the cache from a snapshot file saved by {@link #saveSnapshot(File)}.
+     * Only the decisions that have no states in the cache yet are replaced. A
+     * missing file, or one that is corrupt or was saved for another version of
+     * the grammar, is ignored.
+     *
+     * @param file the snapshot file
+     * @return {@code true} if the snapshot was loaded
+     */
+    public boolean loadSnapshot(File file) {
+        boolean result = false;
+
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                final DFA[] snapshot = DfaSnapshot.read(in.readAllBytes(), grammarName, atn);
+
+                for (int decision = 0; decision < decisionToDfa.length; decision++) {
+                    if (decisionToDfa[decision].states.isEmpty()) {
+                        // a racing parser may keep the old DFA, see the class description
+                        decisionToDfa[decision] = snapshot[decision];
+                    }
+                }
+                result = true;
+            }
+            catch (final IOException ignored) {
+                // an unreadable snapshot only means the cache starts cold
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the number of states currently in the cache.
+     *
+     * @return the number of DFA states
+     */
+    public int getDfaStateCount() {
+        int result = 0;
+        for (DFA dfa : decisionToDfa) {
+            result += dfa.states.size();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of times the cache was trimmed or cleared.
+     *
+     * @return the number of clears
+     */
+    public long getClearCount() {
+        return clearCount.get();
+    }
+
+    /**
+     * Gets the time spent parsing files while the cache was being rebuilt after
+     * it was trimmed or cleared.
+     *
+     * @return the rebuild time in nanoseconds
+     */
+    public long getRebuildTimeNanos() {
+        return rebuildTimeNanos.get();
+    }
+
+    /**
+     * Checks if the heap usage is over the threshold. The heap usage is only
+     * read every {@link #HEAP_CHECK_INTERVAL} parses. It is the usage of each
+     * heap pool right after its last garbage collection, so garbage that is
+     * not collected yet does not count.
+     *
+     * @return {@code true} if the heap usage is over the threshold
+     */
+    private boolean isHeapUsageExceeded() {
+        boolean result = false;
+
+        if (heapUsageThreshold < PERCENT
+                && parsesSinceHeapCheck.incrementAndGet() >= HEAP_CHECK_INTERVAL) {
+            parsesSinceHeapCheck.set(0);
+
+            long used = 0;
+            for (MemoryPoolMXBean pool : HEAP_POOLS) {
+                // null if the pool does not support it
+                final MemoryUsage usage = pool.getCollectionUsage();
+                if (usage != null) {
+                    used += usage.getUsed();
+                }
+            }
+            final long max = MEMORY_BEAN.getHeapMemoryUsage().getMax();
+            result = max > 0 && used * PERCENT > max * heapUsageThreshold;
+        }
+
+        return result;
+    }
+
+    /**
+     * Clears the DFAs of the largest decisions until no more than the given
+     * number of states is left. Must only be called by the thread holding
+     * {@link #trimming}.
+     *
+     * @param targetStateCount the number of states to keep at most
+     */
+    private void trim(int targetStateCount) {
+        final DfaClearedEvent event = new DfaClearedEvent();
+        event.begin();
+
+        // other parses keep adding states, so the sort must not read them live
+        final int[] sizes = new int[decisionToDfa.length];
+        int statesBefore = 0;
+        for (int decision = 0; decision < sizes.length; decision++) {
+            sizes[decision] = decisionToDfa[decision].states.size();
+            statesBefore += sizes[decision];
+        }
+        final int[] decisions = IntStream.range(0, sizes.length).boxed()
+                .sorted(Comparator.comparingInt((Integer decision) -> sizes[decision])
+                        .reversed())
+                .mapToInt(Integer::intValue).toArray();
+        int stateCount = statesBefore;
+
+        for (int decision : decisions) {
+            if (stateCount <= targetStateCount) {
+                break;
+            }
+
+            stateCount -= sizes[decision];
+            // a racing parser may keep the old DFA, see the class description
+            decisionToDfa[decision] = new DFA(atn.getDecisionState(decision), decision);
+        }
+
+        clearCount.incrementAndGet();
+        rebuildStateCount = stateCount;
+        rebuilding = true;
+
+        if (event.shouldCommit()) {
+            event.setGrammar(grammarName);
+            event.setStatesBefore(statesBefore);
+            event.setStatesAfter(stateCount);
+            event.commit();
+        }
+    }
+
+}
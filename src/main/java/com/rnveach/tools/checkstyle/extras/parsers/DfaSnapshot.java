@@ -0,0 +1,533 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.antlr.v4.runtime.RuntimeMetaData;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNConfig;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ATNSerializer;
+import org.antlr.v4.runtime.atn.ATNSimulator;
+import org.antlr.v4.runtime.atn.ArrayPredictionContext;
+import org.antlr.v4.runtime.atn.PredictionContext;
+import org.antlr.v4.runtime.atn.SingletonPredictionContext;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+import org.antlr.v4.runtime.misc.IntegerList;
+
+/**
+ * Reads and writes snapshots of the DFA cache of an ANTLR generated parser.
+ *
+ * <p>
+ * A snapshot starts with a header holding the name of the grammar, the version
+ * of the ANTLR runtime and a checksum of the serialized ATN of the grammar. It
+ * ends with a CRC32 checksum of all the bytes before it. A snapshot is only
+ * read if all of them match, so a snapshot written for another version of the
+ * grammar, or a truncated or corrupt one, is rejected.
+ * </p>
+ *
+ * <p>
+ * Decisions that use semantic predicates or precedence are not written, since
+ * they depend on the state of the parser and not only on the ATN.
+ * </p>
+ */
+final class DfaSnapshot {
+
+    /** Magic number at the start of a snapshot. */
+    private static final int MAGIC = 0x44464153;
+
+    /** Version of the snapshot format. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Number of bytes of the checksum at the end of a snapshot. */
+    private static final int CHECKSUM_LENGTH = Long.BYTES;
+
+    /** Identifier written for a missing state or context. */
+    private static final int NONE = -1;
+
+    /** Stop instances being created. **/
+    private DfaSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the DFA cache of a grammar.
+     *
+     * @param grammarName the name of the grammar
+     * @param atn the ATN of the grammar
+     * @param decisionToDfa the DFA cache of the grammar
+     * @return the bytes of the snapshot
+     */
+    static byte[] write(String grammarName, ATN atn, DFA[] decisionToDfa) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(grammarName);
+            out.writeUTF(RuntimeMetaData.VERSION);
+            out.writeLong(getAtnChecksum(atn));
+
+            final List<List<DFAState>> decisionStates = new ArrayList<>();
+            final Map<PredictionContext, Integer> contextIds = new IdentityHashMap<>();
+            final List<PredictionContext> contexts = new ArrayList<>();
+
+            for (DFA dfa : decisionToDfa) {
+                final List<DFAState> states;
+                synchronized (dfa.states) {
+                    states = getStates(dfa);
+                }
+                for (DFAState state : states) {
+                    for (ATNConfig config : state.configs) {
+                        addContext(config.context, contextIds, contexts);
+                    }
+                }
+                decisionStates.add(states);
+            }
+
+            writeContexts(out, contexts, contextIds);
+
+            out.writeInt(decisionToDfa.length);
+            for (int decision = 0; decision < decisionToDfa.length; decision++) {
+                writeDecision(out, decisionToDfa[decision], decisionStates.get(decision),
+                        contextIds);
+            }
+
+            out.writeLong(getChecksum(bytes.toByteArray(), bytes.size()));
+        }
+        catch (final IOException ex) {
+            // a byte array output stream never fails
+            throw new IllegalStateException(ex);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a snapshot of the DFA cache of a grammar.
+     *
+     * @param snapshot the bytes of the snapshot
+     * @param grammarName the name of the grammar
+     * @param atn the ATN of the grammar
+     * @return the DFA cache, one DFA per decision
+     * @throws IOException if the snapshot is corrupt or was written for
+     *         another grammar
+     */
+    static DFA[] read(byte[] snapshot, String grammarName, ATN atn) throws IOException {
+        final int length = snapshot.length - CHECKSUM_LENGTH;
+        if (length < 0) {
+            throw new IOException("Snapshot is truncated");
+        }
+
+        final DataInputStream checksum = new DataInputStream(new ByteArrayInputStream(
+                snapshot, length, CHECKSUM_LENGTH));
+        if (checksum.readLong() != getChecksum(snapshot, length)) {
+            throw new IOException("Snapshot checksum does not match");
+        }
+
+        final DataInputStream data = new DataInputStream(new ByteArrayInputStream(
+                snapshot, 0, length));
+        if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION
+                || !grammarName.equals(data.readUTF())
+                || !RuntimeMetaData.VERSION.equals(data.readUTF())
+                || data.readLong() != getAtnChecksum(atn)) {
+            throw new IOException("Snapshot was written for another grammar or runtime");
+        }
+
+        final PredictionContext[] contexts = readContexts(data, atn);
+
+        final int decisionCount = data.readInt();
+        if (decisionCount != atn.getNumberOfDecisions()) {
+            throw new IOException("Snapshot has an invalid number of decisions");
+        }
+
+        final DFA[] result = new DFA[decisionCount];
+        for (int decision = 0; decision < decisionCount; decision++) {
+            result[decision] = readDecision(data, atn, decision, contexts);
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the states of a DFA that can be written, in the order of their state
+     * numbers.
+     *
+     * @param dfa the DFA
+     * @return the states, empty if the DFA cannot be written
+     */
+    private static List<DFAState> getStates(DFA dfa) {
+        final List<DFAState> result;
+
+        if (dfa.isPrecedenceDfa()) {
+            result = new ArrayList<>();
+        }
+        else {
+            result = dfa.getStates();
+            for (DFAState state : result) {
+                if (state.predicates != null || state.configs.hasSemanticContext) {
+                    result.clear();
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds a prediction context, and all of its parents, to the list of
+     * contexts to write. Parents are always added before their children.
+     *
+     * @param context the context to add
+     * @param contextIds the identifiers of the contexts already added
+     * @param contexts the contexts already added
+     */
+    private static void addContext(PredictionContext context,
+            Map<PredictionContext, Integer> contextIds, List<PredictionContext> contexts) {
+        if (context != null && !contextIds.containsKey(context)) {
+            for (int index = 0; index < context.size(); index++) {
+                addContext(context.getParent(index), contextIds, contexts);
+            }
+            contextIds.put(context, contexts.size());
+            contexts.add(context);
+        }
+    }
+
+    /**
+     * Writes the prediction contexts used by the states.
+     *
+     * @param out the output
+     * @param contexts the contexts, parents before their children
+     * @param contextIds the identifiers of the contexts
+     * @throws IOException if an error occurs while writing
+     */
+    private static void writeContexts(DataOutputStream out, List<PredictionContext> contexts,
+            Map<PredictionContext, Integer> contextIds) throws IOException {
+        out.writeInt(contexts.size());
+        for (PredictionContext context : contexts) {
+            if (context.isEmpty()) {
+                out.writeInt(0);
+            }
+            else {
+                out.writeInt(context.size());
+                for (int index = 0; index < context.size(); index++) {
+                    final PredictionContext parent = context.getParent(index);
+                    if (parent == null) {
+                        out.writeInt(NONE);
+                    }
+                    else {
+                        out.writeInt(contextIds.get(parent));
+                    }
+                    out.writeInt(context.getReturnState(index));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the prediction contexts used by the states.
+     *
+     * @param in the input
+     * @param atn the ATN of the grammar
+     * @return the contexts, by identifier
+     * @throws IOException if an error occurs while reading or the data is invalid
+     */
+    private static PredictionContext[] readContexts(DataInputStream in, ATN atn)
+            throws IOException {
+        final PredictionContext[] result = new PredictionContext[readCount(in)];
+
+        for (int id = 0; id < result.length; id++) {
+            final int size = readCount(in);
+
+            if (size == 0) {
+                result[id] = PredictionContext.EMPTY;
+            }
+            else {
+                final PredictionContext[] parents = new PredictionContext[size];
+                final int[] returnStates = new int[size];
+
+                for (int index = 0; index < size; index++) {
+                    final int parentId = in.readInt();
+                    if (parentId != NONE) {
+                        parents[index] = result[checkIndex(parentId, id)];
+                    }
+                    returnStates[index] = in.readInt();
+                    if (returnStates[index] != PredictionContext.EMPTY_RETURN_STATE) {
+                        checkIndex(returnStates[index], atn.states.size());
+                    }
+                }
+
+                if (size == 1) {
+                    result[id] = SingletonPredictionContext.create(parents[0], returnStates[0]);
+                }
+                else {
+                    result[id] = new ArrayPredictionContext(parents, returnStates);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes the states of the DFA of a decision.
+     *
+     * @param out the output
+     * @param dfa the DFA of the decision
+     * @param states the states to write
+     * @param contextIds the identifiers of the prediction contexts
+     * @throws IOException if an error occurs while writing
+     */
+    private static void writeDecision(DataOutputStream out, DFA dfa, List<DFAState> states,
+            Map<PredictionContext, Integer> contextIds) throws IOException {
+        out.writeInt(states.size());
+
+        for (DFAState state : states) {
+            out.writeInt(state.stateNumber);
+            out.writeBoolean(state.isAcceptState);
+            out.writeInt(state.prediction);
+            out.writeBoolean(state.requiresFullContext);
+            out.writeBoolean(state.configs.fullCtx);
+            out.writeInt(state.configs.uniqueAlt);
+            out.writeInt(state.configs.size());
+
+            for (ATNConfig config : state.configs) {
+                out.writeInt(config.state.stateNumber);
+                out.writeInt(config.alt);
+                out.writeInt(contextIds.get(config.context));
+                out.writeInt(config.reachesIntoOuterContext);
+            }
+        }
+
+        for (DFAState state : states) {
+            writeEdges(out, state, states.size());
+        }
+
+        if (states.isEmpty() || dfa.s0 == null) {
+            out.writeInt(NONE);
+        }
+        else {
+            out.writeInt(dfa.s0.stateNumber);
+        }
+    }
+
+    /**
+     * Writes the edges of a state. Edges to states that were not written, such
+     * as states added after the states were listed, are skipped.
+     *
+     * @param out the output
+     * @param state the state
+     * @param stateCount the number of states written
+     * @throws IOException if an error occurs while writing
+     */
+    private static void writeEdges(DataOutputStream out, DFAState state, int stateCount)
+            throws IOException {
+        final DFAState[] edges = state.edges;
+
+        if (edges == null) {
+            out.writeInt(NONE);
+        }
+        else {
+            out.writeInt(edges.length);
+            for (DFAState target : edges) {
+                if (target == null || target != ATNSimulator.ERROR
+                        && target.stateNumber >= stateCount) {
+                    out.writeInt(NONE);
+                }
+                else if (target == ATNSimulator.ERROR) {
+                    out.writeInt(Integer.MAX_VALUE);
+                }
+                else {
+                    out.writeInt(target.stateNumber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the DFA of a decision.
+     *
+     * @param in the input
+     * @param atn the ATN of the grammar
+     * @param decision the number of the decision
+     * @param contexts the prediction contexts, by identifier
+     * @return the DFA
+     * @throws IOException if an error occurs while reading or the data is invalid
+     */
+    private static DFA readDecision(DataInputStream in, ATN atn, int decision,
+            PredictionContext... contexts) throws IOException {
+        final DFA result = new DFA(atn.getDecisionState(decision), decision);
+        final DFAState[] states = new DFAState[readCount(in)];
+
+        for (int index = 0; index < states.length; index++) {
+            final int stateNumber = checkIndex(in.readInt(), states.length);
+            final boolean isAcceptState = in.readBoolean();
+            final int prediction = in.readInt();
+            final boolean requiresFullContext = in.readBoolean();
+            final ATNConfigSet configs = new ATNConfigSet(in.readBoolean());
+            configs.uniqueAlt = in.readInt();
+
+            final int configCount = readCount(in);
+            for (int config = 0; config < configCount; config++) {
+                final int atnState = checkIndex(in.readInt(), atn.states.size());
+                final int alt = in.readInt();
+                final int contextId = checkIndex(in.readInt(), contexts.length);
+                final ATNConfig atnConfig = new ATNConfig(atn.states.get(atnState), alt,
+                        contexts[contextId]);
+                atnConfig.reachesIntoOuterContext = in.readInt();
+                configs.add(atnConfig);
+            }
+            configs.setReadonly(true);
+
+            final DFAState state = new DFAState(configs);
+            state.stateNumber = stateNumber;
+            state.isAcceptState = isAcceptState;
+            state.prediction = prediction;
+            state.requiresFullContext = requiresFullContext;
+
+            if (states[stateNumber] != null) {
+                throw new IOException("Snapshot has a duplicate state");
+            }
+            states[stateNumber] = state;
+            result.states.put(state, state);
+        }
+
+        for (DFAState state : states) {
+            readEdges(in, atn, state, states);
+        }
+
+        // written last, the volatile start state publishes the states above
+        final int startState = in.readInt();
+        if (startState != NONE) {
+            result.s0 = states[checkIndex(startState, states.length)];
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the edges of a state.
+     *
+     * @param in the input
+     * @param atn the ATN of the grammar
+     * @param state the state
+     * @param states the states of the DFA, by state number
+     * @throws IOException if an error occurs while reading or the data is invalid
+     */
+    private static void readEdges(DataInputStream in, ATN atn, DFAState state,
+            DFAState... states) throws IOException {
+        final int edgeCount = in.readInt();
+
+        if (edgeCount != NONE) {
+            // one edge per token type, plus one for EOF
+            if (edgeCount != atn.maxTokenType + 2) {
+                throw new IOException("Snapshot has an invalid number of edges");
+            }
+            state.edges = new DFAState[edgeCount];
+            for (int index = 0; index < edgeCount; index++) {
+                final int target = in.readInt();
+                if (target == Integer.MAX_VALUE) {
+                    state.edges[index] = ATNSimulator.ERROR;
+                }
+                else if (target != NONE) {
+                    state.edges[index] = states[checkIndex(target, states.length)];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a count of items.
+     *
+     * @param in the input
+     * @return the count
+     * @throws IOException if an error occurs while reading or the count is
+     *         negative
+     */
+    private static int readCount(DataInputStream in) throws IOException {
+        final int result = in.readInt();
+        if (result < 0) {
+            throw new IOException("Snapshot has an invalid count");
+        }
+        return result;
+    }
+
+    /**
+     * Checks that an index read from a snapshot is in range.
+     *
+     * @param index the index
+     * @param size the number of valid indexes
+     * @return the index
+     * @throws IOException if the index is out of range
+     */
+    private static int checkIndex(int index, int size) throws IOException {
+        if (index < 0 || index >= size) {
+            throw new IOException("Snapshot has an invalid index " + index);
+        }
+        return index;
+    }
+
+    /**
+     * Computes the checksum of the serialized ATN of a grammar.
+     *
+     * @param atn the ATN
+     * @return the checksum
+     */
+    private static long getAtnChecksum(ATN atn) {
+        final IntegerList serialized = ATNSerializer.getSerialized(atn);
+        final CRC32 crc = new CRC32();
+
+        for (int index = 0; index < serialized.size(); index++) {
+            final int value = serialized.get(index);
+            crc.update(value >>> 24);
+            crc.update(value >>> 16);
+            crc.update(value >>> 8);
+            crc.update(value);
+        }
+
+        return crc.getValue();
+    }
+
+    /**
+     * Computes the checksum of the start of an array of bytes.
+     *
+     * @param bytes the bytes
+     * @param length the number of bytes to include
+     * @return the checksum
+     */
+    private static long getChecksum(byte[] bytes, int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+
+}
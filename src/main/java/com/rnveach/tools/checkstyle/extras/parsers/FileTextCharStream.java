@@ -0,0 +1,240 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import java.util.Arrays;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A {@link CharStream} that reads the code points of a file directly from its
+ * {@link CharSequence}, instead of copying the text into a code point array
+ * like {@link org.antlr.v4.runtime.CharStreams#fromString(String)} does.
+ *
+ * <p>
+ * The indexes of a {@link CharStream} are code point indexes. When the text
+ * contains no supplementary characters, they are the same as the char
+ * indexes. Otherwise the code point indexes of the supplementary characters
+ * are recorded once, and a char index is found by counting the surrogate
+ * pairs before it with a binary search.
+ * </p>
+ *
+ * <p>
+ * AST nodes built from the tokens of this stream keep a reference to its text
+ * and read their own text from it only when asked, so the text must not be
+ * changed afterwards.
+ * </p>
+ */
+public final class FileTextCharStream implements CharStream {
+
+    /** The text being read. */
+    private final CharSequence text;
+
+    /** The name of the source of the text. */
+    private final String sourceName;
+
+    /** The sorted code point indexes of the supplementary characters in the text. */
+    private final int[] supplementaryIndexes;
+
+    /** The number of code points in the text. */
+    private final int size;
+
+    /** The code point index of the next code point to read. */
+    private int position;
+
+    /**
+     * Creates a new {@code FileTextCharStream} instance.
+     *
+     * @param text the text to read
+     * @param sourceName the name of the source of the text
+     */
+    public FileTextCharStream(CharSequence text, String sourceName) {
+        this.text = text;
+        this.sourceName = sourceName;
+        supplementaryIndexes = findSupplementaryIndexes(text);
+        size = text.length() - supplementaryIndexes.length;
+    }
+
+    /**
+     * Finds the code point indexes of the supplementary characters in the text.
+     *
+     * @param text the text to search
+     * @return the sorted code point indexes
+     */
+    private static int[] findSupplementaryIndexes(CharSequence text) {
+        int[] result = new int[0];
+        int count = 0;
+        final int length = text.length();
+
+        for (int index = 0; index < length; index++) {
+            if (Character.isHighSurrogate(text.charAt(index)) && index + 1 < length
+                    && Character.isLowSurrogate(text.charAt(index + 1))) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, Math.max(count * 2, 8));
+                }
+                result[count] = index - count;
+                count++;
+                index++;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Gets the text being read.
+     *
+     * @return the text
+     */
+    public CharSequence getFullText() {
+        return text;
+    }
+
+    /**
+     * Converts a code point index to a char index.
+     *
+     * @param codePointIndex the code point index, between {@code 0} and the size
+     * @return the char index
+     */
+    public int toCharIndex(int codePointIndex) {
+        int result = codePointIndex;
+
+        if (supplementaryIndexes.length > 0) {
+            int pairsBefore = Arrays.binarySearch(supplementaryIndexes, codePointIndex);
+            if (pairsBefore < 0) {
+                pairsBefore = -pairsBefore - 1;
+            }
+            result += pairsBefore;
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the code point at a code point index.
+     *
+     * @param codePointIndex the code point index
+     * @return the code point
+     */
+    private int codePointAt(int codePointIndex) {
+        final int charIndex = toCharIndex(codePointIndex);
+        final char value = text.charAt(charIndex);
+        final int result;
+
+        if (Character.isHighSurrogate(value) && charIndex + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(charIndex + 1))) {
+            result = Character.toCodePoint(value, text.charAt(charIndex + 1));
+        }
+        else {
+            result = value;
+        }
+
+        return result;
+    }
+
+    @Override
+    public void consume() {
+        if (position >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position++;
+    }
+
+    @Override
+    public int LA(int offset) {
+        final int index;
+
+        if (offset < 0) {
+            index = position + offset;
+        }
+        else {
+            index = position + offset - 1;
+        }
+
+        final int result;
+
+        if (offset == 0) {
+            result = 0;
+        }
+        else if (index < 0 || index >= size) {
+            result = IntStream.EOF;
+        }
+        else {
+            result = codePointAt(index);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+        // nothing to release, the whole text is always available
+    }
+
+    @Override
+    public int index() {
+        return position;
+    }
+
+    @Override
+    public void seek(int index) {
+        position = index;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        final String result;
+
+        if (sourceName == null || sourceName.isEmpty()) {
+            result = UNKNOWN_SOURCE_NAME;
+        }
+        else {
+            result = sourceName;
+        }
+
+        return result;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        final int start = Math.min(interval.a, size);
+        final int end = start + Math.max(Math.min(interval.b - interval.a + 1, size - start), 0);
+
+        return text.subSequence(toCharIndex(start), toCharIndex(end)).toString();
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+
+}
@@ -0,0 +1,127 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import java.util.Arrays;
+
+import com.puppycrawl.tools.checkstyle.api.LineColumn;
+
+/**
+ * Converts between char offsets in a text and the line and column numbers the
+ * lexers give to tokens. Lines start at 1 and end with {@code \r\n},
+ * {@code \n} or {@code \r}. Columns start at 0 and count code points.
+ */
+final class LineOffsets {
+
+    /** The text. */
+    private final CharSequence text;
+
+    /** The offset of the start of each line, the first line at index 0. */
+    private final int[] lineStarts;
+
+    /**
+     * Creates a new {@code LineOffsets} instance.
+     *
+     * @param text the text
+     */
+    LineOffsets(CharSequence text) {
+        this.text = text;
+
+        int[] starts = new int[64];
+        int count = 1;
+        final int length = text.length();
+
+        for (int index = 0; index < length; index++) {
+            final char value = text.charAt(index);
+            if (value == '\n' || value == '\r') {
+                if (value == '\r' && index + 1 < length && text.charAt(index + 1) == '\n') {
+                    index++;
+                }
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count] = index + 1;
+                count++;
+            }
+        }
+
+        lineStarts = Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Gets the offset of a line and column.
+     *
+     * @param line the line number, starting at 1
+     * @param column the column number, in code points starting at 0
+     * @return the offset
+     */
+    public int getOffset(int line, int column) {
+        final int lineStart = lineStarts[line - 1];
+        return Character.offsetByCodePoints(text, lineStart, column);
+    }
+
+    /**
+     * Gets the line and column of an offset.
+     *
+     * @param offset the offset
+     * @return the line and column
+     */
+    public LineColumn getLineColumn(int offset) {
+        int line = Arrays.binarySearch(lineStarts, offset);
+        if (line < 0) {
+            line = -line - 2;
+        }
+
+        return new LineColumn(line + 1,
+                Character.codePointCount(text, lineStarts[line], offset));
+    }
+
+    /**
+     * Gets the line and column reached after reading a range of a text, when
+     * the start of the range is at a known line and column.
+     *
+     * @param text the text
+     * @param start the start offset of the range
+     * @param end the end offset of the range
+     * @param position the line and column of the start of the range
+     * @return the line and column of the end of the range
+     */
+    public static LineColumn advance(CharSequence text, int start, int end,
+            LineColumn position) {
+        int line = position.getLine();
+        int lineStart = start;
+        int column = position.getColumn();
+
+        for (int index = start; index < end; index++) {
+            final char value = text.charAt(index);
+            if (value == '\n' || value == '\r') {
+                if (value == '\r' && index + 1 < end && text.charAt(index + 1) == '\n') {
+                    index++;
+                }
+                line++;
+                lineStart = index + 1;
+                column = 0;
+            }
+        }
+
+        return new LineColumn(line, column + Character.codePointCount(text, lineStart, end));
+    }
+
+}
@@ -0,0 +1,259 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.LineColumn;
+import com.rnveach.tools.checkstyle.extras.asts.PropertyAST;
+import com.rnveach.tools.checkstyle.extras.asts.PropertyAstImpl;
+import com.rnveach.tools.checkstyle.extras.tokens.PropertyTokenTypes;
+import com.rnveach.tools.checkstyle.extras.utils.PropertyAstUtil;
+
+/**
+ * Helper methods to parse a property source file again after it was edited,
+ * while reusing the AST of the text before the edit.
+ */
+public final class PropertyIncrementalParser {
+
+    /** Stop instances being created. **/
+    private PropertyIncrementalParser() {
+    }
+
+    /**
+     * Parses a property source file again after an edit. Only the rows touched
+     * by the edit, including their continuation lines, are lexed and parsed
+     * again. They replace the old rows in the previous AST, and the positions
+     * of the nodes after them are moved. All other rows are reused, and read
+     * their text from the text after the edit from then on. If the
+     * edited rows could continue into the next row, the whole text is parsed.
+     *
+     * <p>
+     * The previous AST is changed in place and must not be used afterwards.
+     * </p>
+     *
+     * @param previousAst the root of the AST of the text before the edit
+     * @param previousText the text before the edit
+     * @param edit the edit
+     * @param fileName the name of the file
+     * @return the root of the AST of the text after the edit
+     * @throws CheckstyleException if the text after the edit is not a valid
+     *         property source
+     */
+    public static PropertyAST parse(PropertyAST previousAst, CharSequence previousText,
+            TextEdit edit, String fileName) throws CheckstyleException {
+        final String text = edit.apply(previousText);
+        PropertyAST result = null;
+
+        if (previousAst != null && reparseRows((PropertyAstImpl) previousAst,
+                new LineOffsets(previousText), text, edit)) {
+            result = previousAst;
+        }
+
+        if (result == null) {
+            result = PropertyParser.parse(text, fileName, false);
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the rows touched by the edit again and replaces them in the AST.
+     * The rows parsed are the ones between the last row terminator that ends
+     * before the edit and the first row terminator that starts after it. Both
+     * terminators, and the characters next to them, are not changed by the
+     * edit, so they are lexed the same way as before.
+     *
+     * @param file the root of the AST
+     * @param lineOffsets the line offsets of the text before the edit
+     * @param text the text after the edit
+     * @param edit the edit
+     * @return {@code true} if the rows were replaced, {@code false} if the
+     *         whole text has to be parsed
+     */
+    private static boolean reparseRows(PropertyAstImpl file, LineOffsets lineOffsets,
+            String text, TextEdit edit) {
+        PropertyAST before = null;
+        PropertyAST after = null;
+
+        for (PropertyAST child = file.getFirstChild(); child != null && after == null;
+                child = child.getNextSibling()) {
+            if (child.getType() == PropertyTokenTypes.TERMINATOR) {
+                if (child.getEndOffset() < edit.getOffset()) {
+                    before = child;
+                }
+                else if (child.getStartOffset() > edit.getEndOffset()) {
+                    after = child;
+                }
+            }
+        }
+
+        boolean result = false;
+
+        if (before != null || after != null) {
+            final int startOffset;
+            if (before == null) {
+                startOffset = 0;
+            }
+            else {
+                startOffset = before.getEndOffset();
+            }
+
+            final int newEndOffset;
+            if (after == null) {
+                newEndOffset = text.length();
+            }
+            else {
+                newEndOffset = after.getStartOffset() + edit.getLengthDelta();
+            }
+
+            // a trailing backslash could make the next row a continuation
+            if (after == null || text.charAt(newEndOffset - 1) != '\\') {
+                final LineColumn start = lineOffsets.getLineColumn(startOffset);
+                final PropertyAstImpl rows = (PropertyAstImpl) PropertyParser
+                        .parseRows(text.subSequence(startOffset, newEndOffset), start.getLine());
+
+                if (rows != null) {
+                    final PropertyAST firstRow = rows.getFirstChild();
+                    replaceRows(file, before, after, rows);
+
+                    if (before != null) {
+                        PropertyAST end = after;
+                        if (firstRow != null) {
+                            end = firstRow;
+                        }
+                        moveText(file.getFirstChild(), end, text, 0);
+                    }
+                    moveText(firstRow, after, text, startOffset);
+                    if (after != null) {
+                        shiftNodes(after, new LineColumn(after.getLineNo(), after.getColumnNo()),
+                                LineOffsets.advance(text, startOffset, newEndOffset, start), text,
+                                edit.getLengthDelta());
+                    }
+                    result = true;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Replaces the children of the file between two children with the children
+     * of new rows.
+     *
+     * @param file the root of the AST
+     * @param before the child before the replaced ones, or {@code null} if
+     *        they start at the first child
+     * @param after the child after the replaced ones, or {@code null} if they
+     *        end at the last child
+     * @param rows the root of the AST of the new rows
+     */
+    private static void replaceRows(PropertyAstImpl file, PropertyAST before, PropertyAST after,
+            PropertyAstImpl rows) {
+        final List<PropertyAstImpl> newChildren = new ArrayList<>();
+        for (PropertyAstImpl child = rows.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            newChildren.add(child);
+        }
+        for (PropertyAstImpl child : newChildren) {
+            child.setNextSibling(null);
+        }
+
+        PropertyAST oldChild;
+        if (before == null) {
+            oldChild = file.getFirstChild();
+        }
+        else {
+            oldChild = before.getNextSibling();
+        }
+        while (oldChild != after) {
+            final PropertyAST next = oldChild.getNextSibling();
+            file.removeChild(oldChild);
+            oldChild = next;
+        }
+
+        PropertyAstImpl previous = (PropertyAstImpl) before;
+        for (PropertyAstImpl child : newChildren) {
+            if (previous != null) {
+                previous.addNextSibling(child);
+            }
+            else if (after != null) {
+                ((PropertyAstImpl) after).addPreviousSibling(child);
+            }
+            else {
+                file.addChild(child);
+            }
+            previous = child;
+        }
+    }
+
+    /**
+     * Moves the text of the nodes from a node up to another node to the text
+     * after the edit.
+     *
+     * @param first the first node to move, or {@code null} if there is none
+     * @param end the node to stop at, or {@code null} to move all nodes after
+     *        the first one
+     * @param text the text after the edit
+     * @param offsetDelta the number of chars the nodes moved by
+     */
+    private static void moveText(PropertyAST first, PropertyAST end, CharSequence text,
+            int offsetDelta) {
+        PropertyAST node = first;
+
+        while (node != null && node != end) {
+            ((PropertyAstImpl) node).moveText(text, offsetDelta);
+            node = PropertyAstUtil.getNextPreOrderNode(node);
+        }
+    }
+
+    /**
+     * Moves the positions and the text of a node and all the nodes after it
+     * after the end of a changed range.
+     *
+     * @param first the first node to move
+     * @param oldEnd the end of the changed range before the edit
+     * @param newEnd the end of the changed range after the edit
+     * @param text the text after the edit
+     * @param offsetDelta the number of chars the nodes moved by
+     */
+    private static void shiftNodes(PropertyAST first, LineColumn oldEnd, LineColumn newEnd,
+            CharSequence text, int offsetDelta) {
+        final int lineDelta = newEnd.getLine() - oldEnd.getLine();
+        final int columnDelta = newEnd.getColumn() - oldEnd.getColumn();
+        PropertyAST node = first;
+
+        while (node != null) {
+            final PropertyAstImpl nodeImpl = (PropertyAstImpl) node;
+            final int lineNo = nodeImpl.getLineNo();
+
+            if (lineNo == oldEnd.getLine()) {
+                nodeImpl.setColumnNo(nodeImpl.getColumnNo() + columnDelta);
+            }
+            nodeImpl.setLineNo(lineNo + lineDelta);
+            nodeImpl.moveText(text, offsetDelta);
+            node = PropertyAstUtil.getNextPreOrderNode(node);
+        }
+    }
+
+}
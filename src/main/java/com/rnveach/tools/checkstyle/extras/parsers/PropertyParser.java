@@ -23,26 +23,54 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.ProfilingATNSimulator;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 import com.puppycrawl.tools.checkstyle.CheckstyleParserErrorStrategy;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.FileContents;
 import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LineColumn;
 import com.rnveach.tools.checkstyle.extras.asts.PropertyAST;
 import com.rnveach.tools.checkstyle.extras.grammars.PropertyLanguageLexer;
 import com.rnveach.tools.checkstyle.extras.grammars.PropertyLanguageParser;
+import com.rnveach.tools.checkstyle.extras.jfr.FileParsedEvent;
+import com.rnveach.tools.checkstyle.extras.metrics.ParserMetrics;
+import com.rnveach.tools.checkstyle.extras.utils.PropertyAstUtil;
 import com.rnveach.tools.checkstyle.extras.visitors.PropertyAstVisitor;
 
 /** Helper methods to parse property source files. */
 public final class PropertyParser {
 
+    /** Number of two-stage parses that were started. */
+    private static final AtomicLong TWO_STAGE_PARSE_COUNT = new AtomicLong();
+
+    /** Number of two-stage parses that had to fall back to full LL prediction. */
+    private static final AtomicLong LL_FALLBACK_COUNT = new AtomicLong();
+
+    /** Manager of the DFA cache shared by all parsers. */
+    private static final DfaCacheManager DFA_CACHE_MANAGER = new DfaCacheManager(
+            "PropertyLanguage", PropertyLanguageParser._ATN,
+            PropertyLanguageParser.getSharedDecisionToDfa());
+
+    /** Profiler of the decisions of all parsers. */
+    private static final DecisionProfiler DECISION_PROFILER = new DecisionProfiler(
+            "PropertyLanguage", PropertyLanguageParser._ATN, PropertyLanguageParser.ruleNames);
+
+    /** Metrics of all parses. */
+    private static final ParserMetrics METRICS = new ParserMetrics(
+            "checkstyle.extras.property.parser", getTokenNames());
+
     /** Stop instances being created. **/
     private PropertyParser() {
     }
@@ -56,30 +84,246 @@ public final class PropertyParser {
      *         source
      */
     public static PropertyAST parse(FileContents contents) throws CheckstyleException {
-        final String fullText = contents.getText().getFullText().toString();
-        final CharStream codePointCharStream = CharStreams.fromString(fullText);
-        final PropertyLanguageLexer lexer = new PropertyLanguageLexer(codePointCharStream, true);
-        lexer.removeErrorListeners();
-
-        final CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-        final PropertyLanguageParser parser = new PropertyLanguageParser(tokenStream,
-                PropertyLanguageParser.CLEAR_DFA_LIMIT);
-        parser.setErrorHandler(new CheckstyleParserErrorStrategy());
-        parser.removeErrorListeners();
-        parser.addErrorListener(new CheckstyleErrorListener());
+        return parse(contents, false);
+    }
+
+    /**
+     * Static helper method to parses a property source file.
+     *
+     * <p>
+     * When {@code twoStagePrediction} is set, the file is first parsed with
+     * {@link PredictionMode#SLL} prediction and a bail-out error strategy. Only
+     * if that fails is the file parsed a second time with full
+     * {@link PredictionMode#LL} prediction and the normal error reporting. SLL
+     * either produces the same parse tree as LL or fails, so the resulting AST
+     * is the same either way.
+     * </p>
+     *
+     * @param contents contains the contents of the file
+     * @param twoStagePrediction {@code true} to try SLL prediction before LL
+     * @return the root of the AST
+     * @throws CheckstyleException if the contents is not a valid property
+     *         source
+     */
+    public static PropertyAST parse(FileContents contents, boolean twoStagePrediction)
+            throws CheckstyleException {
+        return parse(contents.getText().getFullText(), contents.getFileName(),
+                twoStagePrediction);
+    }
+
+    /**
+     * Parses the text of a property source file.
+     *
+     * @param text the text of the file
+     * @param fileName the name of the file
+     * @param twoStagePrediction {@code true} to try SLL prediction before LL
+     * @return the root of the AST
+     * @throws CheckstyleException if the text is not a valid property source
+     */
+    static PropertyAST parse(CharSequence text, String fileName, boolean twoStagePrediction)
+            throws CheckstyleException {
+        final FileParsedEvent event = new FileParsedEvent();
+        event.begin();
+        final FileTextCharStream charStream = new FileTextCharStream(text, fileName);
+        final ParseContext context = ParseContext.acquire();
 
         final PropertyLanguageParser.FileContext file;
+        final long metricsStart = METRICS.startParse();
+        final boolean profiling = DECISION_PROFILER.isEnabled();
+        final long parseStart = DFA_CACHE_MANAGER.beginParse();
         try {
-            file = parser.file();
+            context.setInput(charStream);
+            context.setProfile(profiling);
+            if (twoStagePrediction) {
+                file = parseTwoStage(context);
+            }
+            else {
+                file = parseLl(context);
+            }
         }
         catch (IllegalStateException ex) {
+            METRICS.recordFailure();
             final String exceptionMsg = String.format(Locale.ROOT,
                     "%s occurred while parsing file %s.", ex.getClass().getSimpleName(),
-                    contents.getFileName());
+                    fileName);
             throw new CheckstyleException(exceptionMsg, ex);
         }
+        finally {
+            if (profiling) {
+                DECISION_PROFILER.add(context.parser.getParseInfo());
+            }
+            DFA_CACHE_MANAGER.endParse(parseStart);
+            context.release();
+        }
 
-        return new PropertyAstVisitor().visit(file);
+        final PropertyAST root = new PropertyAstVisitor(charStream.getFullText(),
+                charStream::toCharIndex).visit(file);
+        METRICS.finishParse(metricsStart, text.length());
+        if (METRICS.isEnabled()) {
+            METRICS.recordNodes(
+                    PropertyAstUtil.countNodesByType(root, METRICS.getTokenTypeCount()));
+        }
+        commitParsedEvent(event, text, fileName, root);
+        return root;
+    }
+
+
+    /**
+     * Commits the JFR event of a parsed file, if it is enabled.
+     *
+     * @param event the event, started when parsing started
+     * @param text the text of the file
+     * @param fileName the name of the file
+     * @param root the root of the AST
+     */
+    private static void commitParsedEvent(FileParsedEvent event, CharSequence text,
+            String fileName, PropertyAST root) {
+        if (event.shouldCommit()) {
+            event.setGrammar(DFA_CACHE_MANAGER.getGrammarName());
+            event.setPath(fileName);
+            event.setCharacters(text.length());
+            event.setNodeCount(PropertyAstUtil.countNodes(root));
+            event.commit();
+        }
+    }
+
+    /**
+     * Gets the names of the token types of the lexer, indexed by type.
+     *
+     * @return the names of the token types
+     */
+    private static String[] getTokenNames() {
+        final int count = PropertyLanguageLexer.VOCABULARY.getMaxTokenType() + 1;
+        final String[] result = new String[count];
+        for (int type = 0; type < count; type++) {
+            result[type] = PropertyLanguageLexer.VOCABULARY.getSymbolicName(type);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the text of complete rows, which start at the beginning of the
+     * given line of a file. Used to parse only a part of a file again after an
+     * edit.
+     *
+     * @param text the text of the rows
+     * @param line the line of the start of the text in the file
+     * @return the root of the AST of the rows, or {@code null} if the text is
+     *         empty or not valid
+     */
+    static PropertyAST parseRows(CharSequence text, int line) {
+        final ParseContext context = ParseContext.acquire();
+        PropertyAST result = null;
+
+        final long parseStart = DFA_CACHE_MANAGER.beginParse();
+        try {
+            final FileTextCharStream input = new FileTextCharStream(text, null);
+            context.setInput(input, new LineColumn(line, 0));
+
+            final PropertyLanguageParser parser = context.parser;
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(context.bailErrorStrategy);
+            parser.removeErrorListeners();
+
+            final PropertyLanguageParser.FileContext tree = parser.file();
+            if (parser.getCurrentToken().getType() == Token.EOF) {
+                result = new PropertyAstVisitor(input.getFullText(), input::toCharIndex)
+                        .visit(tree);
+            }
+        }
+        catch (ParseCancellationException ex) {
+            // not valid on its own, the caller has to parse the whole file
+        }
+        finally {
+            DFA_CACHE_MANAGER.endParse(parseStart);
+            context.release();
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the file with {@link PredictionMode#SLL} prediction first and
+     * retries with full {@link PredictionMode#LL} prediction if it fails.
+     *
+     * @param context the parse context to use
+     * @return the parse tree of the file
+     */
+    private static PropertyLanguageParser.FileContext parseTwoStage(ParseContext context) {
+        TWO_STAGE_PARSE_COUNT.incrementAndGet();
+
+        final PropertyLanguageParser parser = context.parser;
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(context.bailErrorStrategy);
+        parser.removeErrorListeners();
+
+        PropertyLanguageParser.FileContext file;
+        try {
+            file = parser.file();
+        }
+        catch (ParseCancellationException ex) {
+            LL_FALLBACK_COUNT.incrementAndGet();
+
+            // rewinds the token stream too
+            parser.reset();
+            file = parseLl(context);
+        }
+        return file;
+    }
+
+    /**
+     * Parses the file with full {@link PredictionMode#LL} prediction and
+     * reports any syntax error.
+     *
+     * @param context the parse context to use
+     * @return the parse tree of the file
+     */
+    private static PropertyLanguageParser.FileContext parseLl(ParseContext context) {
+        final PropertyLanguageParser parser = context.parser;
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        parser.setErrorHandler(context.errorStrategy);
+        parser.removeErrorListeners();
+        parser.addErrorListener(context.errorListener);
+
+        return parser.file();
+    }
+
+    /**
+     * Gets the number of two-stage parses that were started.
+     *
+     * @return the number of two-stage parses
+     */
+    public static long getTwoStageParseCount() {
+        return TWO_STAGE_PARSE_COUNT.get();
+    }
+
+    /**
+     * Gets the number of two-stage parses where the {@link PredictionMode#SLL}
+     * stage failed and the file had to be parsed again with full
+     * {@link PredictionMode#LL} prediction.
+     *
+     * @return the number of LL fallbacks
+     */
+    public static long getLlFallbackCount() {
+        return LL_FALLBACK_COUNT.get();
+    }
+
+    /**
+     * Gets the manager of the DFA cache shared by all parsers.
+     *
+     * @return the DFA cache manager
+     */
+    public static DfaCacheManager getDfaCacheManager() {
+        return DFA_CACHE_MANAGER;
+    }
+
+    /**
+     * Gets the profiler of the decisions of all parsers.
+     *
+     * @return the decision profiler
+     */
+    public static DecisionProfiler getDecisionProfiler() {
+        return DECISION_PROFILER;
     }
 
     /**
@@ -122,4 +366,112 @@ public final class PropertyParser {
         }
     }
 
+    /**
+     * The lexer, parser and helpers needed to parse a file. Creating them costs
+     * about as much as parsing a short file, so one context is kept per thread
+     * and reused for every file parsed on that thread.
+     */
+    private static final class ParseContext {
+
+        /** The context of the current thread. */
+        private static final ThreadLocal<ParseContext> THREAD_CONTEXT =
+                ThreadLocal.withInitial(ParseContext::new);
+
+        /** The lexer. */
+        private final PropertyLanguageLexer lexer;
+
+        /** The token stream between the lexer and the parser. */
+        private final CommonTokenStream tokenStream;
+
+        /** The parser. */
+        private final PropertyLanguageParser parser;
+
+        /** The error strategy used by the SLL stage of a two-stage parse. */
+        private final BailErrorStrategy bailErrorStrategy = new BailErrorStrategy();
+
+        /** The error strategy used by a full LL parse. */
+        private final CheckstyleParserErrorStrategy errorStrategy =
+                new CheckstyleParserErrorStrategy();
+
+        /** The error listener used by a full LL parse. */
+        private final CheckstyleErrorListener errorListener = new CheckstyleErrorListener();
+
+        /** Whether the context is being used by a parse. */
+        private boolean inUse;
+
+        /** Creates a new {@code ParseContext} instance. */
+        private ParseContext() {
+            lexer = new PropertyLanguageLexer(null, true);
+            lexer.removeErrorListeners();
+            tokenStream = new CommonTokenStream(lexer);
+            parser = new PropertyLanguageParser(null);
+        }
+
+        /**
+         * Gets the context of the current thread. A new context is created if
+         * the one of the thread is already being used.
+         *
+         * @return the parse context
+         */
+        public static ParseContext acquire() {
+            ParseContext result = THREAD_CONTEXT.get();
+            if (result.inUse) {
+                result = new ParseContext();
+            }
+            result.inUse = true;
+            return result;
+        }
+
+        /**
+         * Points the lexer and parser to a new input.
+         *
+         * @param input the character stream to parse
+         */
+        public void setInput(CharStream input) {
+            setInput(input, new LineColumn(1, 0));
+        }
+
+        /**
+         * Points the lexer and parser to a new input, which starts at the
+         * given line and column.
+         *
+         * @param input the character stream to parse
+         * @param start the line and column of the start of the input
+         */
+        public void setInput(CharStream input, LineColumn start) {
+            lexer.setInputStream(input);
+            lexer.setLine(start.getLine());
+            lexer.setCharPositionInLine(start.getColumn());
+            tokenStream.setTokenSource(lexer);
+            parser.setInputStream(tokenStream);
+        }
+
+        /**
+         * Sets whether the next parse is profiled. A profiled parse gets a new
+         * {@link ProfilingATNSimulator}, so its statistics only cover that
+         * parse. Both simulators share the DFA cache of the parser.
+         *
+         * @param profile {@code true} to profile the next parse
+         */
+        public void setProfile(boolean profile) {
+            if (profile) {
+                parser.setInterpreter(new ProfilingATNSimulator(parser));
+            }
+            else {
+                parser.setProfile(false);
+            }
+        }
+
+        /**
+         * Drops the references to the last input, so it can be garbage
+         * collected, and makes the context available again.
+         */
+        public void release() {
+            parser.setInputStream(null);
+            tokenStream.setTokenSource(lexer);
+            lexer.setInputStream(null);
+            inUse = false;
+        }
+    }
+
 }
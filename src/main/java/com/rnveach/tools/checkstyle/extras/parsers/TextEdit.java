@@ -0,0 +1,120 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+/**
+ * A single edit of a text, replacing a range of characters with new text.
+ * Offsets are char indexes into the text before the edit.
+ */
+public final class TextEdit {
+
+    /** The offset of the first character removed or inserted. */
+    private final int offset;
+
+    /** The number of characters removed. */
+    private final int removedLength;
+
+    /** The text inserted at the offset. */
+    private final String insertedText;
+
+    /**
+     * Creates a new {@code TextEdit} instance.
+     *
+     * @param offset the offset of the first character removed or inserted
+     * @param removedLength the number of characters removed
+     * @param insertedText the text inserted at the offset
+     * @throws IllegalArgumentException if the offset or length is negative
+     */
+    public TextEdit(int offset, int removedLength, String insertedText) {
+        if (offset < 0 || removedLength < 0) {
+            throw new IllegalArgumentException("Offset and removed length must be positive");
+        }
+
+        this.offset = offset;
+        this.removedLength = removedLength;
+        this.insertedText = insertedText;
+    }
+
+    /**
+     * Gets the offset of the first character removed or inserted.
+     *
+     * @return the offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the number of characters removed.
+     *
+     * @return the removed length
+     */
+    public int getRemovedLength() {
+        return removedLength;
+    }
+
+    /**
+     * Gets the text inserted at the offset.
+     *
+     * @return the inserted text
+     */
+    public String getInsertedText() {
+        return insertedText;
+    }
+
+    /**
+     * Gets the offset, in the text before the edit, right after the last
+     * character removed.
+     *
+     * @return the end offset
+     */
+    public int getEndOffset() {
+        return offset + removedLength;
+    }
+
+    /**
+     * Gets the difference of the text length caused by the edit.
+     *
+     * @return the length difference
+     */
+    public int getLengthDelta() {
+        return insertedText.length() - removedLength;
+    }
+
+    /**
+     * Applies the edit to a text.
+     *
+     * @param text the text before the edit
+     * @return the text after the edit
+     * @throws IllegalArgumentException if the edit is outside of the text
+     */
+    public String apply(CharSequence text) {
+        if (getEndOffset() > text.length()) {
+            throw new IllegalArgumentException("Edit is outside of the text");
+        }
+
+        return new StringBuilder(text.length() + getLengthDelta())
+                .append(text, 0, offset)
+                .append(insertedText)
+                .append(text, getEndOffset(), text.length())
+                .toString();
+    }
+
+}
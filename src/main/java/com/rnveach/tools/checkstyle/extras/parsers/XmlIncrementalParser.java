@@ -0,0 +1,226 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.LineColumn;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+import com.rnveach.tools.checkstyle.extras.asts.CompactXmlTree;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAstImpl;
+import com.rnveach.tools.checkstyle.extras.tokens.XmlTokenTypes;
+import com.rnveach.tools.checkstyle.extras.utils.XmlAstUtil;
+
+/**
+ * Helper methods to parse a XML source file again after it was edited, while
+ * reusing the AST of the text before the edit.
+ */
+public final class XmlIncrementalParser {
+
+    /** Stop instances being created. **/
+    private XmlIncrementalParser() {
+    }
+
+    /**
+     * Parses a XML source file again after an edit. Only the innermost element
+     * enclosing the edit is lexed and parsed again. It replaces the old element
+     * in the previous AST, and the positions of the nodes after it are moved.
+     * All other nodes are reused, and read their text from the text after the
+     * edit from then on. If no element encloses the edit, or the
+     * element is no longer a single valid element after the edit, or the
+     * previous AST is a {@link CompactXmlTree}, which can not be modified, the
+     * whole text is parsed.
+     *
+     * <p>
+     * The previous AST is changed in place and must not be used afterwards.
+     * </p>
+     *
+     * @param previousAst the root of the AST of the text before the edit
+     * @param previousText the text before the edit
+     * @param edit the edit
+     * @param fileName the name of the file
+     * @return the root of the AST of the text after the edit
+     * @throws CheckstyleException if the text after the edit is not a valid
+     *         XML source
+     */
+    public static XmlAST parse(XmlAST previousAst, CharSequence previousText, TextEdit edit,
+            String fileName) throws CheckstyleException {
+        final String text = edit.apply(previousText);
+        XmlAST result = null;
+
+        if (previousAst instanceof XmlAstImpl) {
+            final XmlAstImpl element = findEnclosingElement(previousAst, edit);
+
+            if (element != null && reparseElement(element, new LineOffsets(previousText), text,
+                    edit)) {
+                result = previousAst;
+            }
+        }
+
+        if (result == null) {
+            result = XmlParser.parse(text, fileName, false, false);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the innermost element that encloses the edit, without the edit
+     * touching its first or last character.
+     *
+     * @param root the root of the AST
+     * @param edit the edit
+     * @return the element, or {@code null} if there is none
+     */
+    private static XmlAstImpl findEnclosingElement(XmlAST root, TextEdit edit) {
+        XmlAstImpl result = null;
+        XmlAST container = root;
+
+        while (container != null) {
+            XmlAST found = null;
+
+            for (XmlAST child = container.getFirstChild(); child != null;
+                    child = child.getNextSibling()) {
+                if (child.getType() == XmlTokenTypes.ELEMENT
+                        && child.getStartOffset() < edit.getOffset()
+                        && edit.getEndOffset() < child.getEndOffset()) {
+                    found = child;
+                    break;
+                }
+            }
+
+            container = null;
+            if (found != null) {
+                result = (XmlAstImpl) found;
+                container = found.findFirst(XmlTokenTypes.CONTENT);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Counts the elements enclosing an element.
+     *
+     * @param element the element
+     * @return the number of enclosing elements
+     */
+    private static int getDepth(XmlAST element) {
+        int result = 0;
+        for (XmlAST parent = element.getParent(); parent != null;
+                parent = parent.getParent()) {
+            if (parent.getType() == XmlTokenTypes.ELEMENT) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses an element again after the edit and replaces it in the AST.
+     *
+     * @param element the element enclosing the edit
+     * @param lineOffsets the line offsets of the text before the edit
+     * @param text the text after the edit
+     * @param edit the edit
+     * @return {@code true} if the element was replaced, {@code false} if the
+     *         whole text has to be parsed
+     */
+    private static boolean reparseElement(XmlAstImpl element, LineOffsets lineOffsets,
+            String text, TextEdit edit) {
+        final LineColumn start = new LineColumn(element.getLineNo(), element.getColumnNo());
+        final int startOffset = element.getStartOffset();
+        final int oldEndOffset = element.getEndOffset();
+        final int newEndOffset = oldEndOffset + edit.getLengthDelta();
+
+        final XmlAstImpl newElement = (XmlAstImpl) XmlParser.parseElement(
+                text.subSequence(startOffset, newEndOffset), start, getDepth(element));
+        boolean result = false;
+
+        if (newElement != null) {
+            element.addPreviousSibling(newElement);
+            ((XmlAstImpl) element.getParent()).removeChild(element);
+
+            XmlAST root = newElement;
+            while (root.getParent() != null) {
+                root = root.getParent();
+            }
+            final XmlAST next = XmlAstUtil.getNextNode(newElement);
+
+            moveText(root, newElement, text, 0);
+            moveText(newElement, next, text, startOffset);
+            shiftNodes(next, lineOffsets.getLineColumn(oldEndOffset),
+                    LineOffsets.advance(text, startOffset, newEndOffset, start), text,
+                    edit.getLengthDelta());
+            result = true;
+        }
+
+        return result;
+    }
+
+    /**
+     * Moves the text of the nodes from a node up to another node to the text
+     * after the edit.
+     *
+     * @param first the first node to move
+     * @param end the node to stop at, or {@code null} to move all nodes after
+     *        the first one
+     * @param text the text after the edit
+     * @param offsetDelta the number of chars the nodes moved by
+     */
+    private static void moveText(XmlAST first, XmlAST end, CharSequence text,
+            int offsetDelta) {
+        XmlAST node = first;
+
+        while (node != null && node != end) {
+            ((XmlAstImpl) node).moveText(text, offsetDelta);
+            node = XmlAstUtil.getNextPreOrderNode(node);
+        }
+    }
+
+    /**
+     * Moves the positions and the text of a node and all the nodes after it
+     * after the end of a changed range.
+     *
+     * @param first the first node to move
+     * @param oldEnd the end of the changed range before the edit
+     * @param newEnd the end of the changed range after the edit
+     * @param text the text after the edit
+     * @param offsetDelta the number of chars the nodes moved by
+     */
+    private static void shiftNodes(XmlAST first, LineColumn oldEnd, LineColumn newEnd,
+            CharSequence text, int offsetDelta) {
+        final int lineDelta = newEnd.getLine() - oldEnd.getLine();
+        final int columnDelta = newEnd.getColumn() - oldEnd.getColumn();
+        XmlAST node = first;
+
+        while (node != null) {
+            final XmlAstImpl nodeImpl = (XmlAstImpl) node;
+            final int lineNo = nodeImpl.getLineNo();
+
+            if (lineNo == oldEnd.getLine()) {
+                nodeImpl.setColumnNo(nodeImpl.getColumnNo() + columnDelta);
+            }
+            nodeImpl.setLineNo(lineNo + lineDelta);
+            nodeImpl.moveText(text, offsetDelta);
+            node = XmlAstUtil.getNextPreOrderNode(node);
+        }
+    }
+
+}
@@ -23,26 +23,79 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
-import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.ProfilingATNSimulator;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
 import com.puppycrawl.tools.checkstyle.CheckstyleParserErrorStrategy;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.FileContents;
 import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LineColumn;
+import com.rnveach.tools.checkstyle.extras.asts.CompactXmlTree;
 import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAstImpl;
 import com.rnveach.tools.checkstyle.extras.grammars.XmlLanguageLexer;
 import com.rnveach.tools.checkstyle.extras.grammars.XmlLanguageParser;
-import com.rnveach.tools.checkstyle.extras.visitors.XmlAstVisitor;
+import com.rnveach.tools.checkstyle.extras.jfr.FileParsedEvent;
+import com.rnveach.tools.checkstyle.extras.metrics.ParserMetrics;
+import com.rnveach.tools.checkstyle.extras.utils.XmlAstUtil;
+import com.rnveach.tools.checkstyle.extras.visitors.CompactXmlAstBuilder;
+import com.rnveach.tools.checkstyle.extras.visitors.XmlAstBuilder;
 
 /** Helper methods to parse XML source files. */
 public final class XmlParser {
 
+    /**
+     * The default maximum number of elements nested in each other. The parser
+     * generated by ANTLR calls itself once for every nesting level, so a file
+     * nested deeper is rejected with a {@link CheckstyleException} before it
+     * can overflow the stack of the thread. Well over twice this depth parses
+     * on a thread with the default stack size.
+     */
+    public static final int DEFAULT_MAX_NESTING_DEPTH = 500;
+
+    /** Walker used to build the AST from a parse tree, without recursion. */
+    private static final ParseTreeWalker TREE_WALKER = new IterativeParseTreeWalker();
+
+    /** Number of two-stage parses that were started. */
+    private static final AtomicLong TWO_STAGE_PARSE_COUNT = new AtomicLong();
+
+    /** Number of two-stage parses that had to fall back to full LL prediction. */
+    private static final AtomicLong LL_FALLBACK_COUNT = new AtomicLong();
+
+    /** Manager of the DFA cache shared by all parsers. */
+    private static final DfaCacheManager DFA_CACHE_MANAGER = new DfaCacheManager(
+            "XmlLanguage", XmlLanguageParser._ATN,
+            XmlLanguageParser.getSharedDecisionToDfa());
+
+    /** Profiler of the decisions of all parsers. */
+    private static final DecisionProfiler DECISION_PROFILER = new DecisionProfiler(
+            "XmlLanguage", XmlLanguageParser._ATN, XmlLanguageParser.ruleNames);
+
+    /** Metrics of all parses. */
+    private static final ParserMetrics METRICS = new ParserMetrics(
+            "checkstyle.extras.xml.parser", getTokenNames());
+
+    /** The maximum number of elements nested in each other, shared by all parsers. */
+    private static volatile int maxNestingDepth = DEFAULT_MAX_NESTING_DEPTH;
+
     /** Stop instances being created. **/
     private XmlParser() {
     }
@@ -55,30 +108,390 @@ public final class XmlParser {
      * @throws CheckstyleException if the contents is not a valid XML source
      */
     public static XmlAST parse(FileContents contents) throws CheckstyleException {
-        final String fullText = contents.getText().getFullText().toString();
-        final CharStream codePointCharStream = CharStreams.fromString(fullText);
-        final XmlLanguageLexer lexer = new XmlLanguageLexer(codePointCharStream, true);
-        lexer.removeErrorListeners();
-
-        final CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-        final XmlLanguageParser parser = new XmlLanguageParser(tokenStream,
-                XmlLanguageParser.CLEAR_DFA_LIMIT);
-        parser.setErrorHandler(new CheckstyleParserErrorStrategy());
-        parser.removeErrorListeners();
-        parser.addErrorListener(new CheckstyleErrorListener());
+        return parse(contents, false);
+    }
+
+    /**
+     * Static helper method to parses a XML source file.
+     *
+     * <p>
+     * When {@code twoStagePrediction} is set, the file is first parsed with
+     * {@link PredictionMode#SLL} prediction and a bail-out error strategy. Only
+     * if that fails is the file parsed a second time with full
+     * {@link PredictionMode#LL} prediction and the normal error reporting. SLL
+     * either produces the same parse tree as LL or fails, so the resulting AST
+     * is the same either way.
+     * </p>
+     *
+     * @param contents contains the contents of the file
+     * @param twoStagePrediction {@code true} to try SLL prediction before LL
+     * @return the root of the AST
+     * @throws CheckstyleException if the contents is not a valid XML source
+     */
+    public static XmlAST parse(FileContents contents, boolean twoStagePrediction)
+            throws CheckstyleException {
+        return parse(contents, twoStagePrediction, false);
+    }
+
+    /**
+     * Static helper method to parses a XML source file.
+     *
+     * <p>
+     * When {@code buildAstDuringParse} is set, the parser builds no parse tree
+     * and the AST is created by {@link XmlAstBuilder} while rules are parsed.
+     * The full parse tree and the AST are never alive together, and no second
+     * traversal is needed. The resulting AST is the same either way.
+     * </p>
+     *
+     * @param contents contains the contents of the file
+     * @param twoStagePrediction {@code true} to try SLL prediction before LL
+     * @param buildAstDuringParse {@code true} to build the AST while parsing
+     * @return the root of the AST
+     * @throws CheckstyleException if the contents is not a valid XML source
+     * @see #parse(FileContents, boolean)
+     */
+    public static XmlAST parse(FileContents contents, boolean twoStagePrediction,
+            boolean buildAstDuringParse) throws CheckstyleException {
+        return parse(contents, twoStagePrediction, buildAstDuringParse, false);
+    }
+
+    /**
+     * Static helper method to parses a XML source file.
+     *
+     * <p>
+     * When {@code compactAst} is set, the AST is stored in a
+     * {@link CompactXmlTree} built by {@link CompactXmlAstBuilder} while rules
+     * are parsed, whatever {@code buildAstDuringParse} is. The resulting AST
+     * has the same nodes in the same order either way.
+     * </p>
+     *
+     * @param contents contains the contents of the file
+     * @param twoStagePrediction {@code true} to try SLL prediction before LL
+     * @param buildAstDuringParse {@code true} to build the AST while parsing
+     * @param compactAst {@code true} to store the AST in parallel arrays
+     * @return the root of the AST
+     * @throws CheckstyleException if the contents is not a valid XML source
+     * @see #parse(FileContents, boolean, boolean)
+     */
+    public static XmlAST parse(FileContents contents, boolean twoStagePrediction,
+            boolean buildAstDuringParse, boolean compactAst) throws CheckstyleException {
+        return parse(contents.getText().getFullText(), contents.getFileName(),
+                twoStagePrediction, buildAstDuringParse, compactAst);
+    }
+
+    /**
+     * Parses the text of a XML source file.
+     *
+     * @param text the text of the file
+     * @param fileName the name of the file
+     * @param twoStagePrediction {@code true} to try SLL prediction before LL
+     * @param buildAstDuringParse {@code true} to build the AST while parsing
+     * @return the root of the AST
+     * @throws CheckstyleException if the text is not a valid XML source
+     */
+    static XmlAST parse(CharSequence text, String fileName, boolean twoStagePrediction,
+            boolean buildAstDuringParse) throws CheckstyleException {
+        return parse(text, fileName, twoStagePrediction, buildAstDuringParse, false);
+    }
+
+    /**
+     * Parses the text of a XML source file.
+     *
+     * @param text the text of the file
+     * @param fileName the name of the file
+     * @param twoStagePrediction {@code true} to try SLL prediction before LL
+     * @param buildAstDuringParse {@code true} to build the AST while parsing
+     * @param compactAst {@code true} to store the AST in parallel arrays
+     * @return the root of the AST
+     * @throws CheckstyleException if the text is not a valid XML source
+     */
+    static XmlAST parse(CharSequence text, String fileName, boolean twoStagePrediction,
+            boolean buildAstDuringParse, boolean compactAst) throws CheckstyleException {
+        final FileParsedEvent event = new FileParsedEvent();
+        event.begin();
+        final FileTextCharStream charStream = new FileTextCharStream(text, fileName);
+        final ParseContext context = ParseContext.acquire();
 
         final XmlLanguageParser.DocumentContext document;
+        XmlAST root = null;
+        final ParseTreeListener astListener = context.getAstListener(buildAstDuringParse,
+                compactAst);
+        final long metricsStart = METRICS.startParse();
+        final boolean profiling = DECISION_PROFILER.isEnabled();
+        final long parseStart = DFA_CACHE_MANAGER.beginParse();
         try {
-            document = parser.document();
+            context.setInput(charStream, astListener);
+            context.setProfile(profiling);
+            if (twoStagePrediction) {
+                document = parseTwoStage(context);
+            }
+            else {
+                document = parseLl(context);
+            }
+            if (astListener == context.astBuilder) {
+                root = context.astBuilder.getRoot();
+            }
+            else if (astListener == context.compactAstBuilder) {
+                root = context.compactAstBuilder.getRoot();
+            }
         }
-        catch (IllegalStateException ex) {
+        catch (IllegalStateException | NestingDepthExceededException ex) {
+            METRICS.recordFailure();
             final String exceptionMsg = String.format(Locale.ROOT,
                     "%s occurred while parsing file %s.", ex.getClass().getSimpleName(),
-                    contents.getFileName());
+                    fileName);
             throw new CheckstyleException(exceptionMsg, ex);
         }
+        finally {
+            if (profiling) {
+                DECISION_PROFILER.add(context.parser.getParseInfo());
+            }
+            DFA_CACHE_MANAGER.endParse(parseStart);
+            context.release();
+        }
+
+        if (astListener == null) {
+            root = buildAst(document, charStream);
+        }
+        METRICS.finishParse(metricsStart, text.length());
+        if (METRICS.isEnabled()) {
+            METRICS.recordNodes(
+                    XmlAstUtil.countNodesByType(root, METRICS.getTokenTypeCount()));
+        }
+        commitParsedEvent(event, text, fileName, root);
+        return root;
+    }
+
+    /**
+     * Builds the AST of a parse tree. The tree is walked with an explicit stack,
+     * so it can be nested as deep as the parser allows.
+     *
+     * @param tree the parse tree
+     * @param input the character stream the tree was parsed from
+     * @return the root of the AST, or {@code null} if the tree has no nodes
+     */
+    private static XmlAstImpl buildAst(ParseTree tree, FileTextCharStream input) {
+        final XmlAstBuilder builder = new XmlAstBuilder();
+        builder.setSource(input.getFullText(), input::toCharIndex);
+        TREE_WALKER.walk(builder, tree);
+        return builder.getRoot();
+    }
+
+    /**
+     * Commits the JFR event of a parsed file, if it is enabled.
+     *
+     * @param event the event, started when parsing started
+     * @param text the text of the file
+     * @param fileName the name of the file
+     * @param root the root of the AST
+     */
+    private static void commitParsedEvent(FileParsedEvent event, CharSequence text,
+            String fileName, XmlAST root) {
+        if (event.shouldCommit()) {
+            event.setGrammar(DFA_CACHE_MANAGER.getGrammarName());
+            event.setPath(fileName);
+            event.setCharacters(text.length());
+            event.setNodeCount(XmlAstUtil.countNodes(root));
+            event.commit();
+        }
+    }
+
+    /**
+     * Gets the names of the token types of the lexer, indexed by type.
+     *
+     * @return the names of the token types
+     */
+    private static String[] getTokenNames() {
+        final int count = XmlLanguageLexer.VOCABULARY.getMaxTokenType() + 1;
+        final String[] result = new String[count];
+        for (int type = 0; type < count; type++) {
+            result[type] = XmlLanguageLexer.VOCABULARY.getSymbolicName(type);
+        }
+        return result;
+    }
+
+    /**
+     * Runs only the lexer over a XML source file, without parsing it. Each
+     * token is given to the consumer as a AST node without parent, in the
+     * order of the file. Syntax errors are not detected.
+     *
+     * @param contents contains the contents of the file
+     * @param tokenConsumer the consumer of the tokens
+     */
+    public static void tokenize(FileContents contents, Consumer<XmlAST> tokenConsumer) {
+        final FileTextCharStream charStream = new FileTextCharStream(
+                contents.getText().getFullText(), contents.getFileName());
+        final ParseContext context = ParseContext.acquire();
+
+        try {
+            context.lexer.setInputStream(charStream);
+            for (Token token = context.lexer.nextToken(); token.getType() != Token.EOF;
+                    token = context.lexer.nextToken()) {
+                final XmlAstImpl ast = new XmlAstImpl();
+                ast.initialize(token, charStream.getFullText(),
+                        charStream.toCharIndex(token.getStartIndex()),
+                        charStream.toCharIndex(token.getStopIndex() + 1));
+                tokenConsumer.accept(ast);
+            }
+        }
+        finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Parses the text of a single element, which starts at the given line and
+     * column of a file. Used to parse only a part of a file again after an
+     * edit.
+     *
+     * @param text the text of the element
+     * @param start the line and column of the start of the text in the file
+     * @param depth the number of elements enclosing the element in the file
+     * @return the AST of the element, or {@code null} if the text is not
+     *         exactly one valid element, or is nested too deep
+     */
+    static XmlAST parseElement(CharSequence text, LineColumn start, int depth) {
+        final ParseContext context = ParseContext.acquire();
+        XmlAST result = null;
+
+        final long parseStart = DFA_CACHE_MANAGER.beginParse();
+        try {
+            final FileTextCharStream input = new FileTextCharStream(text, null);
+            context.setInput(input, null, start, depth);
+
+            final XmlLanguageParser parser = context.parser;
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(context.bailErrorStrategy);
+            parser.removeErrorListeners();
+
+            final XmlLanguageParser.ElementContext tree = parser.element();
+            if (parser.getCurrentToken().getType() == Token.EOF) {
+                result = buildAst(tree, input);
+            }
+        }
+        catch (ParseCancellationException ex) {
+            // not valid on its own, the caller has to parse the whole file
+        }
+        catch (NestingDepthExceededException ex) {
+            // nested too deep, the caller has to parse the whole file to report it
+        }
+        finally {
+            DFA_CACHE_MANAGER.endParse(parseStart);
+            context.release();
+        }
 
-        return new XmlAstVisitor().visit(document);
+        return result;
+    }
+
+    /**
+     * Parses the document with {@link PredictionMode#SLL} prediction first and
+     * retries with full {@link PredictionMode#LL} prediction if it fails.
+     *
+     * @param context the parse context to use
+     * @return the parse tree of the document
+     */
+    private static XmlLanguageParser.DocumentContext parseTwoStage(ParseContext context) {
+        TWO_STAGE_PARSE_COUNT.incrementAndGet();
+
+        final XmlLanguageParser parser = context.parser;
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(context.bailErrorStrategy);
+        parser.removeErrorListeners();
+
+        XmlLanguageParser.DocumentContext document;
+        try {
+            document = parser.document();
+        }
+        catch (ParseCancellationException ex) {
+            LL_FALLBACK_COUNT.incrementAndGet();
+
+            // rewinds the token stream too
+            parser.reset();
+            context.depthListener.reset(0);
+            context.astBuilder.reset();
+            context.compactAstBuilder.reset();
+            document = parseLl(context);
+        }
+        return document;
+    }
+
+    /**
+     * Parses the document with full {@link PredictionMode#LL} prediction and
+     * reports any syntax error.
+     *
+     * @param context the parse context to use
+     * @return the parse tree of the document
+     */
+    private static XmlLanguageParser.DocumentContext parseLl(ParseContext context) {
+        final XmlLanguageParser parser = context.parser;
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        parser.setErrorHandler(context.errorStrategy);
+        parser.removeErrorListeners();
+        parser.addErrorListener(context.errorListener);
+
+        return parser.document();
+    }
+
+    /**
+     * Gets the number of two-stage parses that were started.
+     *
+     * @return the number of two-stage parses
+     */
+    public static long getTwoStageParseCount() {
+        return TWO_STAGE_PARSE_COUNT.get();
+    }
+
+    /**
+     * Gets the number of two-stage parses where the {@link PredictionMode#SLL}
+     * stage failed and the file had to be parsed again with full
+     * {@link PredictionMode#LL} prediction.
+     *
+     * @return the number of LL fallbacks
+     */
+    public static long getLlFallbackCount() {
+        return LL_FALLBACK_COUNT.get();
+    }
+
+    /**
+     * Sets the maximum number of elements nested in each other, shared by all
+     * parsers. Files nested deeper fail to parse. A limit much higher than
+     * {@link #DEFAULT_MAX_NESTING_DEPTH} may need a larger thread stack size.
+     *
+     * @param depth the maximum nesting depth
+     * @throws IllegalArgumentException if the depth is not positive
+     */
+    public static void setMaxNestingDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Invalid max nesting depth: " + depth);
+        }
+        maxNestingDepth = depth;
+    }
+
+    /**
+     * Gets the maximum number of elements nested in each other.
+     *
+     * @return the maximum nesting depth
+     */
+    public static int getMaxNestingDepth() {
+        return maxNestingDepth;
+    }
+
+    /**
+     * Gets the manager of the DFA cache shared by all parsers.
+     *
+     * @return the DFA cache manager
+     */
+    public static DfaCacheManager getDfaCacheManager() {
+        return DFA_CACHE_MANAGER;
+    }
+
+    /**
+     * Gets the profiler of the decisions of all parsers.
+     *
+     * @return the decision profiler
+     */
+    public static DecisionProfiler getDecisionProfiler() {
+        return DECISION_PROFILER;
     }
 
     /**
@@ -120,4 +533,242 @@ public final class XmlParser {
         }
     }
 
+    /**
+     * Parse listener that counts the elements being parsed and stops the parse
+     * when they are nested deeper than {@link #getMaxNestingDepth()}.
+     */
+    private static final class NestingDepthListener implements ParseTreeListener {
+
+        /** The number of elements being parsed. */
+        private int depth;
+
+        /** The maximum nesting depth of the current parse. */
+        private int maxDepth;
+
+        /**
+         * Sets the number of elements enclosing the input to parse and reads
+         * the maximum nesting depth, so it stays the same during the parse.
+         *
+         * @param startDepth the number of enclosing elements
+         */
+        public void reset(int startDepth) {
+            depth = startDepth;
+            maxDepth = maxNestingDepth;
+        }
+
+        @Override
+        public void enterEveryRule(ParserRuleContext ctx) {
+            if (ctx.getRuleIndex() == XmlLanguageParser.RULE_element) {
+                depth++;
+                if (depth > maxDepth) {
+                    final Token start = ctx.getStart();
+                    throw new NestingDepthExceededException(start.getLine() + ":"
+                            + start.getCharPositionInLine()
+                            + ": nesting depth exceeds the maximum of " + maxDepth);
+                }
+            }
+        }
+
+        @Override
+        public void exitEveryRule(ParserRuleContext ctx) {
+            if (ctx.getRuleIndex() == XmlLanguageParser.RULE_element) {
+                depth--;
+            }
+        }
+
+        @Override
+        public void visitTerminal(TerminalNode node) {
+            // tokens do not change the depth
+        }
+
+        @Override
+        public void visitErrorNode(ErrorNode node) {
+            // syntax errors are reported by the error strategy of the parser
+        }
+    }
+
+    /**
+     * Thrown by {@link NestingDepthListener} when elements are nested deeper
+     * than {@link #getMaxNestingDepth()}.
+     */
+    private static final class NestingDepthExceededException extends RuntimeException {
+
+        /** The version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param message the position of the element and the maximum depth
+         */
+        private NestingDepthExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The lexer, parser and helpers needed to parse a file. Creating them costs
+     * about as much as parsing a short file, so one context is kept per thread
+     * and reused for every file parsed on that thread.
+     */
+    private static final class ParseContext {
+
+        /** The context of the current thread. */
+        private static final ThreadLocal<ParseContext> THREAD_CONTEXT =
+                ThreadLocal.withInitial(ParseContext::new);
+
+        /** The lexer. */
+        private final XmlLanguageLexer lexer;
+
+        /** The token stream between the lexer and the parser. */
+        private final CommonTokenStream tokenStream;
+
+        /** The parser. */
+        private final XmlLanguageParser parser;
+
+        /** The error strategy used by the SLL stage of a two-stage parse. */
+        private final BailErrorStrategy bailErrorStrategy = new BailErrorStrategy();
+
+        /** The error strategy used by a full LL parse. */
+        private final CheckstyleParserErrorStrategy errorStrategy =
+                new CheckstyleParserErrorStrategy();
+
+        /** The error listener used by a full LL parse. */
+        private final CheckstyleErrorListener errorListener = new CheckstyleErrorListener();
+
+        /** The builder of the AST, when it is built during the parse. */
+        private final XmlAstBuilder astBuilder = new XmlAstBuilder();
+
+        /** The builder of the AST, when it is stored in parallel arrays. */
+        private final CompactXmlAstBuilder compactAstBuilder = new CompactXmlAstBuilder();
+
+        /** The listener that limits how deep elements are nested. */
+        private final NestingDepthListener depthListener = new NestingDepthListener();
+
+        /** Whether the context is being used by a parse. */
+        private boolean inUse;
+
+        /** Creates a new {@code ParseContext} instance. */
+        private ParseContext() {
+            lexer = new XmlLanguageLexer(null, true);
+            lexer.removeErrorListeners();
+            tokenStream = new CommonTokenStream(lexer);
+            parser = new XmlLanguageParser(null);
+        }
+
+        /**
+         * Gets the context of the current thread. A new context is created if
+         * the one of the thread is already being used.
+         *
+         * @return the parse context
+         */
+        public static ParseContext acquire() {
+            ParseContext result = THREAD_CONTEXT.get();
+            if (result.inUse) {
+                result = new ParseContext();
+            }
+            result.inUse = true;
+            return result;
+        }
+
+        /**
+         * Gets the listener that builds the AST while parsing.
+         *
+         * @param buildAstDuringParse {@code true} to build the AST while parsing
+         * @param compactAst {@code true} to store the AST in parallel arrays
+         * @return the listener, or {@code null} if the AST is built from the
+         *         parse tree
+         */
+        public ParseTreeListener getAstListener(boolean buildAstDuringParse,
+                boolean compactAst) {
+            final ParseTreeListener result;
+            if (compactAst) {
+                result = compactAstBuilder;
+            }
+            else if (buildAstDuringParse) {
+                result = astBuilder;
+            }
+            else {
+                result = null;
+            }
+            return result;
+        }
+
+        /**
+         * Points the lexer and parser to a new input.
+         *
+         * @param input the character stream to parse
+         * @param astListener the listener that builds the AST while parsing,
+         *        or {@code null} to build a parse tree
+         */
+        public void setInput(FileTextCharStream input, ParseTreeListener astListener) {
+            setInput(input, astListener, new LineColumn(1, 0), 0);
+        }
+
+        /**
+         * Points the lexer and parser to a new input, which starts at the
+         * given line and column, inside the given number of elements.
+         *
+         * @param input the character stream to parse
+         * @param astListener the listener that builds the AST while parsing,
+         *        or {@code null} to build a parse tree
+         * @param start the line and column of the start of the input
+         * @param depth the number of elements enclosing the input
+         */
+        public void setInput(FileTextCharStream input, ParseTreeListener astListener,
+                LineColumn start, int depth) {
+            lexer.setInputStream(input);
+            astBuilder.setSource(input.getFullText(), input::toCharIndex);
+            compactAstBuilder.setSource(input.getFullText(), input::toCharIndex);
+            lexer.setLine(start.getLine());
+            lexer.setCharPositionInLine(start.getColumn());
+            tokenStream.setTokenSource(lexer);
+            parser.setInputStream(tokenStream);
+            if (astListener == compactAstBuilder) {
+                // the stream keeps every token anyway, reading them first sizes the tree
+                tokenStream.fill();
+                compactAstBuilder.presize(tokenStream.size());
+            }
+            parser.setBuildParseTree(astListener == null);
+            // added first, so the parse stops before anything else sees the element
+            depthListener.reset(depth);
+            parser.addParseListener(depthListener);
+            if (astListener != null) {
+                parser.addParseListener(astListener);
+            }
+        }
+
+        /**
+         * Sets whether the next parse is profiled. A profiled parse gets a new
+         * {@link ProfilingATNSimulator}, so its statistics only cover that
+         * parse. Both simulators share the DFA cache of the parser.
+         *
+         * @param profile {@code true} to profile the next parse
+         */
+        public void setProfile(boolean profile) {
+            if (profile) {
+                parser.setInterpreter(new ProfilingATNSimulator(parser));
+            }
+            else {
+                parser.setProfile(false);
+            }
+        }
+
+        /**
+         * Drops the references to the last input, so it can be garbage
+         * collected, and makes the context available again.
+         */
+        public void release() {
+            parser.setInputStream(null);
+            parser.removeParseListeners();
+            astBuilder.reset();
+            astBuilder.setSource(null, null);
+            compactAstBuilder.reset();
+            compactAstBuilder.setSource(null, null);
+            tokenStream.setTokenSource(lexer);
+            lexer.setInputStream(null);
+            inUse = false;
+        }
+    }
+
 }
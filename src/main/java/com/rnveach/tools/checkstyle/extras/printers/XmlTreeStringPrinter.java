@@ -21,6 +21,8 @@ package com.rnveach.tools.checkstyle.extras.printers;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.regex.Pattern;
 
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
@@ -38,6 +40,9 @@ public final class XmlTreeStringPrinter {
     /** Tab pattern. */
     private static final Pattern TAB = Pattern.compile("\t");
 
+    /** Length of the padding added for each level of the tree. */
+    private static final int INDENT_LENGTH = 4;
+
     /** OS specific line separator. */
     private static final String LINE_SEPARATOR = System.lineSeparator();
 
@@ -59,19 +64,36 @@ public final class XmlTreeStringPrinter {
     }
 
     /**
-     * Prints full tree of the XmlAST.
+     * Prints full tree of the XmlAST. The tree is walked without recursion, so
+     * it can be nested as deep as the parser allows.
      *
      * @param ast root XmlAST
      * @return Full tree
      */
-    private static String printTree(XmlAST ast) {
+    public static String printTree(XmlAST ast) {
         final StringBuilder messageBuilder = new StringBuilder(1024);
-        XmlAST node = ast;
-        while (node != null) {
-            messageBuilder.append(getIndentation(node)).append(getNodeInfo(node))
-                    .append(LINE_SEPARATOR);
-            messageBuilder.append(printTree(node.getFirstChild()));
-            node = node.getNextSibling();
+        if (ast != null) {
+            final XmlAST top = ast.getParent();
+            final StringBuilder prefix = getPrefix(ast);
+            XmlAST node = ast;
+            while (node != null) {
+                appendNode(messageBuilder, prefix, node);
+                XmlAST next = node.getFirstChild();
+                if (next == null) {
+                    next = node.getNextSibling();
+                    while (next == null && node.getParent() != top) {
+                        node = node.getParent();
+                        if (node.getParent() != null) {
+                            prefix.setLength(prefix.length() - INDENT_LENGTH);
+                        }
+                        next = node.getNextSibling();
+                    }
+                }
+                else if (node.getParent() != null) {
+                    prefix.append(getPadding(node));
+                }
+                node = next;
+            }
         }
         return messageBuilder.toString();
     }
@@ -83,15 +105,43 @@ public final class XmlTreeStringPrinter {
      * @return branch as string
      */
     public static String printBranch(XmlAST node) {
-        final String result;
-        if (node == null) {
-            result = "";
+        final Deque<XmlAST> branch = new ArrayDeque<>();
+        for (XmlAST ast = node; ast != null; ast = ast.getParent()) {
+            branch.push(ast);
         }
-        else {
-            result = printBranch(node.getParent()) + getIndentation(node) + getNodeInfo(node)
-                    + LINE_SEPARATOR;
+
+        final StringBuilder messageBuilder = new StringBuilder(1024);
+        final StringBuilder prefix = new StringBuilder(1024);
+        for (XmlAST ast : branch) {
+            appendNode(messageBuilder, prefix, ast);
+            if (ast.getParent() != null) {
+                prefix.append(getPadding(ast));
+            }
         }
-        return result;
+        return messageBuilder.toString();
+    }
+
+    /**
+     * Appends the line of a node.
+     *
+     * @param messageBuilder the builder to append to
+     * @param prefix the padding of the ancestors of the node
+     * @param node the node
+     */
+    private static void appendNode(StringBuilder messageBuilder, CharSequence prefix,
+            XmlAST node) {
+        messageBuilder.append(prefix);
+        if (node.getParent() != null) {
+            if (node.getNextSibling() == null) {
+                // only ASCII symbols must be used due to
+                // problems with running tests on Windows
+                messageBuilder.append("`--");
+            }
+            else {
+                messageBuilder.append("|--");
+            }
+        }
+        messageBuilder.append(getNodeInfo(node)).append(LINE_SEPARATOR);
     }
 
     /**
@@ -108,37 +158,37 @@ public final class XmlTreeStringPrinter {
     }
 
     /**
-     * Get indentation for an AST node.
+     * Get the padding of the ancestors of an AST node, which is put before the
+     * node and each of its descendants.
      *
-     * @param ast the AST to get the indentation for.
-     * @return the indentation in String format.
+     * @param ast the AST to get the padding for.
+     * @return the padding of the ancestors.
      */
-    private static String getIndentation(XmlAST ast) {
-        final boolean isLastChild = ast.getNextSibling() == null;
-        XmlAST node = ast;
-        final StringBuilder indentation = new StringBuilder(1024);
-        while (node.getParent() != null) {
+    private static StringBuilder getPrefix(XmlAST ast) {
+        final StringBuilder prefix = new StringBuilder(1024);
+        XmlAST node = ast.getParent();
+        while (node != null && node.getParent() != null) {
+            prefix.insert(0, getPadding(node));
             node = node.getParent();
-            if (node.getParent() == null) {
-                if (isLastChild) {
-                    // only ASCII symbols must be used due to
-                    // problems with running tests on Windows
-                    indentation.append("`--");
-                }
-                else {
-                    indentation.append("|--");
-                }
-            }
-            else {
-                if (node.getNextSibling() == null) {
-                    indentation.insert(0, "    ");
-                }
-                else {
-                    indentation.insert(0, "|   ");
-                }
-            }
         }
-        return indentation.toString();
+        return prefix;
+    }
+
+    /**
+     * Get the padding a node puts before the lines of its descendants.
+     *
+     * @param node the node, which is not the root.
+     * @return the padding.
+     */
+    private static String getPadding(XmlAST node) {
+        final String result;
+        if (node.getNextSibling() == null) {
+            result = "    ";
+        }
+        else {
+            result = "|   ";
+        }
+        return result;
     }
 
     /**
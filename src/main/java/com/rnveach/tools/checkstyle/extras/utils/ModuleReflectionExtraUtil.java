@@ -22,7 +22,9 @@ package com.rnveach.tools.checkstyle.extras.utils;
 import com.puppycrawl.tools.checkstyle.utils.ModuleReflectionUtil;
 import com.rnveach.tools.checkstyle.extras.checks.AbstractPropertyCheck;
 import com.rnveach.tools.checkstyle.extras.checks.AbstractXmlCheck;
+import com.rnveach.tools.checkstyle.extras.filters.PropertyWalkerBatchFilter;
 import com.rnveach.tools.checkstyle.extras.filters.PropertyWalkerFilter;
+import com.rnveach.tools.checkstyle.extras.filters.XmlWalkerBatchFilter;
 import com.rnveach.tools.checkstyle.extras.filters.XmlWalkerFilter;
 
 /**
@@ -65,14 +67,38 @@ public final class ModuleReflectionExtraUtil {
     /**
      * Checks whether a class may be considered as the checkstyle
      * {@code XmlWalker} filter. Checkstyle's {@code XmlWalker} filters are
-     * classes which implement 'XmlWalkerFilter' interface.
+     * classes which implement 'XmlWalkerFilter' or 'XmlWalkerBatchFilter'
+     * interface.
      *
      * @param clazz class to check.
      * @return true if a class may be considered as the checkstyle
      *         {@code XmlWalker} filter.
      */
     public static boolean isXmlWalkerFilterModule(Class<?> clazz) {
-        return XmlWalkerFilter.class.isAssignableFrom(clazz);
+        return XmlWalkerFilter.class.isAssignableFrom(clazz)
+                || XmlWalkerBatchFilter.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * Checks whether a class overrides a public method it inherits from a base
+     * class.
+     *
+     * @param clazz class to check.
+     * @param baseClass the base class declaring the method.
+     * @param methodName the name of the method.
+     * @param parameterTypes the parameter types of the method.
+     * @return true if the method is declared by a class other than the base class.
+     * @throws IllegalArgumentException if the class has no such public method.
+     */
+    public static boolean isMethodOverridden(Class<?> clazz, Class<?> baseClass,
+            String methodName, Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(methodName, parameterTypes).getDeclaringClass() != baseClass;
+        }
+        catch (final NoSuchMethodException ex) {
+            throw new IllegalArgumentException(
+                    "Method " + methodName + " not found in " + clazz.getName(), ex);
+        }
     }
 
     /**
@@ -90,14 +116,16 @@ public final class ModuleReflectionExtraUtil {
     /**
      * Checks whether a class may be considered as the checkstyle
      * {@code PropertyWalker} filter. Checkstyle's {@code PropertyWalker}
-     * filters are classes which implement 'PropertyWalkerFilter' interface.
+     * filters are classes which implement 'PropertyWalkerFilter' or
+     * 'PropertyWalkerBatchFilter' interface.
      *
      * @param clazz class to check.
      * @return true if a class may be considered as the checkstyle
      *         {@code PropertyWalker} filter.
      */
     public static boolean isPropertyWalkerFilterModule(Class<?> clazz) {
-        return PropertyWalkerFilter.class.isAssignableFrom(clazz);
+        return PropertyWalkerFilter.class.isAssignableFrom(clazz)
+                || PropertyWalkerBatchFilter.class.isAssignableFrom(clazz);
     }
 
 }
@@ -101,6 +101,24 @@ public final class PropertyAstUtil {
         return id;
     }
 
+    /**
+     * Gets the bit of a token type in a mask of token types. All types that do
+     * not fit in the mask share its highest bit.
+     *
+     * @param type AST type.
+     * @return the bit of the type.
+     */
+    public static long getTypeMask(int type) {
+        final long result;
+        if (type >= 0 && type < Long.SIZE - 1) {
+            result = 1L << type;
+        }
+        else {
+            result = Long.MIN_VALUE;
+        }
+        return result;
+    }
+
     /**
      * Is argument comment-related type.
      *
@@ -111,6 +129,73 @@ public final class PropertyAstUtil {
         return type == PropertyTokenTypes.COMMENT;
     }
 
+    /**
+     * Gets the node after a node in a pre-order traversal of the AST.
+     *
+     * @param node the node
+     * @return the next node, or {@code null} if there is none
+     */
+    public static PropertyAST getNextPreOrderNode(PropertyAST node) {
+        PropertyAST result = node.getFirstChild();
+        if (result == null) {
+            result = getNextNode(node);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the first node after a node and all its children.
+     *
+     * @param node the node
+     * @return the next node, or {@code null} if there is none
+     */
+    public static PropertyAST getNextNode(PropertyAST node) {
+        PropertyAST current = node;
+
+        while (current != null && current.getNextSibling() == null) {
+            current = current.getParent();
+        }
+
+        PropertyAST result = null;
+        if (current != null) {
+            result = current.getNextSibling();
+        }
+        return result;
+    }
+
+    /**
+     * Counts the nodes of an AST, without recursion.
+     *
+     * @param root the root of the AST, or {@code null}
+     * @return the number of nodes
+     */
+    public static long countNodes(PropertyAST root) {
+        long result = 0;
+        for (PropertyAST node = root; node != null; node = getNextPreOrderNode(node)) {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Counts the nodes of an AST by token type, without recursion. Nodes whose
+     * type does not fit in the array are not counted.
+     *
+     * @param root the root of the AST, or {@code null}
+     * @param typeCount the number of token types to count
+     * @return the number of nodes, indexed by token type
+     */
+    public static long[] countNodesByType(PropertyAST root, int typeCount) {
+        final long[] result = new long[typeCount];
+        for (PropertyAST node = root; node != null; node = getNextPreOrderNode(node)) {
+            final int type = node.getType();
+            if (type >= 0 && type < result.length) {
+                result[type]++;
+            }
+        }
+        return result;
+    }
+
     /**
      * Creates a map of 'field name' to 'field value' from all {@code public}
      * {@code int} fields of a class.
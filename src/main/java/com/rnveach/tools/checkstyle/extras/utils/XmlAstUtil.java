@@ -26,6 +26,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import com.rnveach.tools.checkstyle.extras.asts.CompactXmlTree;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+import com.rnveach.tools.checkstyle.extras.grammars.XmlLanguageLexer;
 import com.rnveach.tools.checkstyle.extras.tokens.XmlTokenTypes;
 
 /** Contains utility methods for XML ASTs. */
@@ -39,6 +42,10 @@ public final class XmlAstUtil {
     /** Array of all token IDs. */
     private static final int[] TOKEN_IDS;
 
+    /** Sorted array of the token IDs created by the lexer. */
+    private static final int[] LEXER_TOKEN_IDS = Arrays
+            .stream(XmlLanguageLexer._ATN.ruleToTokenType).distinct().sorted().toArray();
+
     /** Format for exception message when getting token by given id. */
     private static final String TOKEN_ID_EXCEPTION_FORMAT = "unknown TokenTypes id '%s'";
 
@@ -100,6 +107,35 @@ public final class XmlAstUtil {
         return id;
     }
 
+    /**
+     * Checks if a token type is created by the lexer, rather than being an
+     * imaginary type only created while building the AST.
+     *
+     * @param type AST type.
+     * @return true if the lexer creates tokens of the type.
+     */
+    public static boolean isLexerTokenType(int type) {
+        return Arrays.binarySearch(LEXER_TOKEN_IDS, type) >= 0;
+    }
+
+    /**
+     * Gets the bit of a token type in a mask of token types. All types that do
+     * not fit in the mask share its highest bit.
+     *
+     * @param type AST type.
+     * @return the bit of the type.
+     */
+    public static long getTypeMask(int type) {
+        final long result;
+        if (type >= 0 && type < Long.SIZE - 1) {
+            result = 1L << type;
+        }
+        else {
+            result = Long.MIN_VALUE;
+        }
+        return result;
+    }
+
     /**
      * Is argument comment-related type.
      *
@@ -110,6 +146,83 @@ public final class XmlAstUtil {
         return type == XmlTokenTypes.COMMENT;
     }
 
+    /**
+     * Gets the node after a node in a pre-order traversal of the AST.
+     *
+     * @param node the node
+     * @return the next node, or {@code null} if there is none
+     */
+    public static XmlAST getNextPreOrderNode(XmlAST node) {
+        XmlAST result = node.getFirstChild();
+        if (result == null) {
+            result = getNextNode(node);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the first node after a node and all its children.
+     *
+     * @param node the node
+     * @return the next node, or {@code null} if there is none
+     */
+    public static XmlAST getNextNode(XmlAST node) {
+        XmlAST current = node;
+
+        while (current != null && current.getNextSibling() == null) {
+            current = current.getParent();
+        }
+
+        XmlAST result = null;
+        if (current != null) {
+            result = current.getNextSibling();
+        }
+        return result;
+    }
+
+    /**
+     * Counts the nodes of an AST, without recursion.
+     *
+     * @param root the root of the AST, or {@code null}
+     * @return the number of nodes
+     */
+    public static long countNodes(XmlAST root) {
+        long result = 0;
+        for (XmlAST node = root; node != null; node = getNextPreOrderNode(node)) {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Counts the nodes of an AST by token type, without recursion. Nodes whose
+     * type does not fit in the array are not counted. The whole of a
+     * {@link CompactXmlTree} is counted from its index, without creating a
+     * cursor for every node.
+     *
+     * @param root the root of the AST, or {@code null}
+     * @param typeCount the number of token types to count
+     * @return the number of nodes, indexed by token type
+     */
+    public static long[] countNodesByType(XmlAST root, int typeCount) {
+        final long[] result = new long[typeCount];
+        if (root instanceof CompactXmlTree.Node && root.getParent() == null) {
+            final CompactXmlTree tree = ((CompactXmlTree.Node) root).getTree();
+            for (int type = 0; type < result.length; type++) {
+                result[type] = tree.getNodeCount(type);
+            }
+        }
+        else {
+            for (XmlAST node = root; node != null; node = getNextPreOrderNode(node)) {
+                final int type = node.getType();
+                if (type >= 0 && type < result.length) {
+                    result[type]++;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Creates a map of 'field name' to 'field value' from all {@code public}
      * {@code int} fields of a class.
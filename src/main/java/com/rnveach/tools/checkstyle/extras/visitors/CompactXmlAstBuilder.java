@@ -0,0 +1,134 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.visitors;
+
+import java.util.function.IntUnaryOperator;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import com.rnveach.tools.checkstyle.extras.asts.CompactXmlTree;
+import com.rnveach.tools.checkstyle.extras.grammars.XmlLanguageParser;
+
+/**
+ * Parse listener used to build a {@link CompactXmlTree} while
+ * {@link XmlLanguageParser} parses, without a parse tree and without an object
+ * per node. The AST has the same shape as the one built by
+ * {@link XmlAstBuilder}.
+ */
+public final class CompactXmlAstBuilder implements ParseTreeListener {
+
+    /** The builder of the tree, reused for every parse. */
+    private final CompactXmlTree.Builder builder = new CompactXmlTree.Builder();
+
+    /** Number of rules being parsed that have a node. */
+    private int depth;
+
+    /** The root of the AST, once the document is parsed. */
+    private CompactXmlTree.Node root;
+
+    /** The text of the file being parsed. */
+    private CharSequence source;
+
+    /** Converts the code point indexes of the tokens to char offsets in the text. */
+    private IntUnaryOperator charIndexes;
+
+    /**
+     * Sets the text of the file being parsed, which the nodes of the tokens
+     * read their text from.
+     *
+     * @param text the text of the file
+     * @param toCharIndex converts a code point index of the parsed stream to a
+     *        char offset in the text
+     */
+    public void setSource(CharSequence text, IntUnaryOperator toCharIndex) {
+        source = text;
+        charIndexes = toCharIndex;
+    }
+
+    /**
+     * Gets the root of the AST built during the last parse.
+     *
+     * @return the root of the AST, or {@code null} if the document is empty
+     */
+    public CompactXmlTree.Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Makes room for the nodes of a file before it is parsed, so the arrays of
+     * the tree are not grown one step at a time. The parser rules add about
+     * one node for every two tokens.
+     *
+     * @param tokenCount the number of tokens of the file
+     */
+    public void presize(int tokenCount) {
+        builder.ensureCapacity(tokenCount + tokenCount / 2);
+    }
+
+    /**
+     * Drops everything built so far, so the builder can be used for a new
+     * parse.
+     */
+    public void reset() {
+        builder.reset();
+        depth = 0;
+        root = null;
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+        final int tokenType = XmlAstBuilder.getTokenType(ctx.getRuleIndex());
+        if (tokenType != XmlAstBuilder.FLATTENED) {
+            builder.openNode(tokenType);
+            depth++;
+        }
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        if (XmlAstBuilder.getTokenType(ctx.getRuleIndex()) != XmlAstBuilder.FLATTENED) {
+            builder.closeNode();
+            depth--;
+            // the document has only 'EOF', which is not included in AST
+            if (depth == 0 && builder.hasRootChildren()) {
+                root = builder.build().getRoot();
+            }
+        }
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+        final Token token = node.getSymbol();
+        if (token.getType() != Token.EOF) {
+            builder.addToken(token, source, charIndexes.applyAsInt(token.getStartIndex()),
+                    charIndexes.applyAsInt(token.getStopIndex() + 1));
+        }
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+        // syntax errors are reported by the error strategy of the parser
+    }
+
+}
@@ -20,6 +20,7 @@
 package com.rnveach.tools.checkstyle.extras.visitors;
 
 import java.util.List;
+import java.util.function.IntUnaryOperator;
 
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
@@ -57,6 +58,34 @@ import com.rnveach.tools.checkstyle.extras.utils.PropertyAstUtil;
 public final class PropertyAstVisitor extends AbstractParseTreeVisitor<PropertyAstImpl>
         implements PropertyLanguageParserVisitor<PropertyAstImpl> {
 
+    /** The text of the parsed file, or {@code null} to copy token texts. */
+    private final CharSequence source;
+
+    /** Converts the code point indexes of the tokens to char offsets in the text. */
+    private final IntUnaryOperator charIndexes;
+
+    /**
+     * Creates a new {@code PropertyAstVisitor} instance that copies the text
+     * of every token.
+     */
+    public PropertyAstVisitor() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a new {@code PropertyAstVisitor} instance whose nodes of tokens
+     * read their text from the text of the parsed file only when asked.
+     *
+     * @param source the text of the parsed file, or {@code null} to copy the
+     *        text of every token
+     * @param charIndexes converts a code point index of the parsed stream to a
+     *        char offset in the text
+     */
+    public PropertyAstVisitor(CharSequence source, IntUnaryOperator charIndexes) {
+        this.source = source;
+        this.charIndexes = charIndexes;
+    }
+
     @Override
     public PropertyAstImpl visitFile(FileContext ctx) {
         final PropertyAstImpl file;
@@ -68,6 +97,7 @@ public final class PropertyAstVisitor extends AbstractParseTreeVisitor<PropertyA
             file = createImaginary(PropertyTokenTypes.FILE);
             // last child is 'EOF', we do not include this token in AST
             processChildren(file, ctx.children.subList(0, ctx.children.size() - 1));
+            file.resolvePositions();
         }
         return file;
     }
@@ -166,17 +196,8 @@ public final class PropertyAstVisitor extends AbstractParseTreeVisitor<PropertyA
 
         if (character.getType() == PropertyTokenTypes.TEXT
                 || character.getType() == PropertyTokenTypes.WS) {
-            final String originalText = character.getText();
-
-            if (originalText.length() > 1) {
-                character.setText(originalText.substring(0, 1));
-
-                final PropertyAstImpl splitAst = new PropertyAstImpl();
-                splitAst.initialize(character.getType(), originalText.substring(1));
-                splitAst.setLineNo(character.getLineNo());
-                splitAst.setColumnNo(character.getColumnNo() + 1);
-
-                ast.setNextSibling(splitAst);
+            if (character.getText().length() > 1) {
+                ast.setNextSibling(character.splitText(1));
             }
         }
 
@@ -219,7 +240,7 @@ public final class PropertyAstVisitor extends AbstractParseTreeVisitor<PropertyA
      * @param node the TerminalNode to build the PropertyAstImpl from
      * @return new PropertyAstImpl of given type
      */
-    private static PropertyAstImpl create(TerminalNode node) {
+    private PropertyAstImpl create(TerminalNode node) {
         return create((Token) node.getPayload());
     }
 
@@ -231,9 +252,15 @@ public final class PropertyAstVisitor extends AbstractParseTreeVisitor<PropertyA
      * @param token the token to build the PropertyAstImpl from
      * @return new PropertyAstImpl of given type
      */
-    private static PropertyAstImpl create(Token token) {
+    private PropertyAstImpl create(Token token) {
         final PropertyAstImpl propertyAst = new PropertyAstImpl();
-        propertyAst.initialize(token);
+        if (source == null) {
+            propertyAst.initialize(token);
+        }
+        else {
+            propertyAst.initialize(token, source, charIndexes.applyAsInt(token.getStartIndex()),
+                    charIndexes.applyAsInt(token.getStopIndex() + 1));
+        }
         return propertyAst;
     }
 
@@ -311,7 +338,7 @@ public final class PropertyAstVisitor extends AbstractParseTreeVisitor<PropertyA
 
             if (lastNewChild != null && lastNewChild.getType() == PropertyTokenTypes.TEXT
                     && newChild.getType() == PropertyTokenTypes.TEXT) {
-                lastNewChild.setText(lastNewChild.getText() + newChild.getText());
+                lastNewChild.appendText(newChild);
             }
             else {
                 parent.addChild(newChild);
@@ -353,7 +380,7 @@ public final class PropertyAstVisitor extends AbstractParseTreeVisitor<PropertyA
             }
             else {
                 if (lastNewChild != null) {
-                    lastNewChild.setText(lastNewChild.getText() + newChild.getText());
+                    lastNewChild.appendText(newChild);
                 }
                 else {
                     lastNewChild = newChild;
@@ -398,8 +425,7 @@ public final class PropertyAstVisitor extends AbstractParseTreeVisitor<PropertyA
 
                 if (lastNewChildLastChild.getType() == PropertyTokenTypes.TEXT
                         && newChildFirstChild.getType() == PropertyTokenTypes.TEXT) {
-                    lastNewChildLastChild.setText(
-                            lastNewChildLastChild.getText() + newChildFirstChild.getText());
+                    lastNewChildLastChild.appendText(newChildFirstChild);
 
                     newChildFirstChild = newChildFirstChild.getNextSibling();
                 }
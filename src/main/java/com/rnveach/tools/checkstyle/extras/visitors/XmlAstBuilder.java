@@ -0,0 +1,200 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.visitors;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.IntUnaryOperator;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import com.rnveach.tools.checkstyle.extras.asts.XmlAstImpl;
+import com.rnveach.tools.checkstyle.extras.grammars.XmlLanguageParser;
+import com.rnveach.tools.checkstyle.extras.tokens.XmlTokenTypes;
+import com.rnveach.tools.checkstyle.extras.utils.XmlAstUtil;
+
+/**
+ * Parse listener used to build the XML AST while {@link XmlLanguageParser}
+ * parses, so the parser does not need to build a parse tree. When a parse tree
+ * was built, the same listener builds the AST from it by walking the tree with
+ * an explicit stack, so this is the only conversion of rules to AST nodes.
+ */
+public final class XmlAstBuilder implements ParseTreeListener {
+
+    /** Token type of rules whose children are added to the parent of the rule. */
+    static final int FLATTENED = -1;
+
+    /** The nodes of the rules being parsed, the innermost first. */
+    private final Deque<XmlAstImpl> nodes = new ArrayDeque<>();
+
+    /** The root of the AST, once the document is parsed. */
+    private XmlAstImpl root;
+
+    /** The text of the file being parsed, or {@code null} to copy token texts. */
+    private CharSequence source;
+
+    /** Converts the code point indexes of the tokens to char offsets in the text. */
+    private IntUnaryOperator charIndexes;
+
+    /**
+     * Sets the text of the file being parsed, so the nodes of the tokens read
+     * their text from it only when asked.
+     *
+     * @param text the text of the file, or {@code null} to copy the text of
+     *        every token
+     * @param toCharIndex converts a code point index of the parsed stream to a
+     *        char offset in the text
+     */
+    public void setSource(CharSequence text, IntUnaryOperator toCharIndex) {
+        source = text;
+        charIndexes = toCharIndex;
+    }
+
+    /**
+     * Gets the root of the AST built during the last parse.
+     *
+     * @return the root of the AST, or {@code null} if the document is empty
+     */
+    public XmlAstImpl getRoot() {
+        return root;
+    }
+
+    /**
+     * Drops everything built so far, so the builder can be used for a new
+     * parse.
+     */
+    public void reset() {
+        nodes.clear();
+        root = null;
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+        final int tokenType = getTokenType(ctx.getRuleIndex());
+        if (tokenType != FLATTENED) {
+            nodes.push(createImaginary(tokenType));
+        }
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        if (getTokenType(ctx.getRuleIndex()) != FLATTENED) {
+            final XmlAstImpl node = nodes.pop();
+            if (nodes.isEmpty()) {
+                // the document has only 'EOF', which is not included in AST
+                if (node.hasChildren()) {
+                    node.resolvePositions();
+                    root = node;
+                }
+            }
+            else {
+                nodes.peek().addChild(node);
+            }
+        }
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+        final Token token = node.getSymbol();
+        if (token.getType() != Token.EOF) {
+            final XmlAstImpl xmlAst = new XmlAstImpl();
+            if (source == null) {
+                xmlAst.initialize(token);
+            }
+            else {
+                xmlAst.initialize(token, source, charIndexes.applyAsInt(token.getStartIndex()),
+                        charIndexes.applyAsInt(token.getStopIndex() + 1));
+            }
+            nodes.peek().addChild(xmlAst);
+        }
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+        // syntax errors are reported by the error strategy of the parser
+    }
+
+    /**
+     * Gets the token type of the AST node created for a parser rule.
+     *
+     * @param ruleIndex the index of the parser rule
+     * @return the token type, or {@link #FLATTENED} if the rule has no node
+     */
+    static int getTokenType(int ruleIndex) {
+        final int result;
+
+        switch (ruleIndex) {
+            case XmlLanguageParser.RULE_document:
+                result = XmlTokenTypes.DOCUMENT;
+                break;
+            case XmlLanguageParser.RULE_prolog:
+                result = XmlTokenTypes.PROLOG;
+                break;
+            case XmlLanguageParser.RULE_content:
+                result = XmlTokenTypes.CONTENT;
+                break;
+            case XmlLanguageParser.RULE_element:
+                result = XmlTokenTypes.ELEMENT;
+                break;
+            case XmlLanguageParser.RULE_startElement:
+                result = XmlTokenTypes.START_ELEMENT;
+                break;
+            case XmlLanguageParser.RULE_endElement:
+                result = XmlTokenTypes.END_ELEMENT;
+                break;
+            case XmlLanguageParser.RULE_emptyElement:
+                result = XmlTokenTypes.EMPTY_ELEMENT;
+                break;
+            case XmlLanguageParser.RULE_reference:
+                result = XmlTokenTypes.REFERENCE;
+                break;
+            case XmlLanguageParser.RULE_attribute:
+                result = XmlTokenTypes.ATTRIBUTE;
+                break;
+            case XmlLanguageParser.RULE_misc:
+                result = XmlTokenTypes.MISC;
+                break;
+            default:
+                // chardata
+                result = FLATTENED;
+                break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Create a XmlAstImpl for an imaginary node.
+     *
+     * @param tokenType the token type of this XmlAstImpl
+     * @return new XmlAstImpl of given type
+     */
+    private static XmlAstImpl createImaginary(int tokenType) {
+        final XmlAstImpl xmlAst = new XmlAstImpl();
+        xmlAst.setType(tokenType);
+        xmlAst.setText(XmlAstUtil.getTokenName(tokenType));
+        return xmlAst;
+    }
+
+}
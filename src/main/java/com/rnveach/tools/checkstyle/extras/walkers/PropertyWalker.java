@@ -20,16 +20,31 @@
 package com.rnveach.tools.checkstyle.extras.walkers;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -46,9 +61,15 @@ import com.puppycrawl.tools.checkstyle.api.FileText;
 import com.puppycrawl.tools.checkstyle.api.Violation;
 import com.rnveach.tools.checkstyle.extras.asts.PropertyAST;
 import com.rnveach.tools.checkstyle.extras.checks.AbstractPropertyCheck;
+import com.rnveach.tools.checkstyle.extras.checks.ViolationRecord;
 import com.rnveach.tools.checkstyle.extras.events.PropertyWalkerAuditEvent;
+import com.rnveach.tools.checkstyle.extras.filters.PropertyWalkerBatchFilter;
 import com.rnveach.tools.checkstyle.extras.filters.PropertyWalkerFilter;
+import com.rnveach.tools.checkstyle.extras.jfr.FileWalkedEvent;
+import com.rnveach.tools.checkstyle.extras.jfr.ViolationsFilteredEvent;
+import com.rnveach.tools.checkstyle.extras.metrics.WalkerMetrics;
 import com.rnveach.tools.checkstyle.extras.parsers.PropertyParser;
+import com.rnveach.tools.checkstyle.extras.utils.ModuleReflectionExtraUtil;
 import com.rnveach.tools.checkstyle.extras.utils.PropertyAstUtil;
 
 /**
@@ -56,17 +77,50 @@ import com.rnveach.tools.checkstyle.extras.utils.PropertyAstUtil;
  */
 public final class PropertyWalker extends AbstractFileSetCheck implements ExternalResourceHolder {
 
+    /** An empty array of checks. */
+    private static final AbstractPropertyCheck[] EMPTY_CHECKS = new AbstractPropertyCheck[0];
+
+    /** Logger of problems that do not affect the result of an audit. */
+    private static final Logger LOGGER = Logger.getLogger(PropertyWalker.class.getName());
+
+    /** Metrics of all walkers of this type. */
+    private static final WalkerMetrics METRICS =
+            new WalkerMetrics("checkstyle.extras.property.walker");
+
     /** Maps from token name to ordinary checks. */
     private final Map<Integer, Set<AbstractPropertyCheck>> tokenToOrdinaryChecks = new HashMap<>();
 
+    /** Checks to notify when visiting a node, indexed by token type. */
+    private AbstractPropertyCheck[][] visitChecks = new AbstractPropertyCheck[0][];
+
+    /**
+     * Checks to notify when leaving a node, indexed by token type. Checks that
+     * do not override {@link AbstractPropertyCheck#leaveToken} are left out.
+     */
+    private AbstractPropertyCheck[][] leaveChecks = new AbstractPropertyCheck[0][];
+
+    /** Mask of the token types any check is registered for. */
+    private long interestTypeMask;
+
     /** Registered ordinary checks, that don't use comment nodes. */
     private final Set<AbstractPropertyCheck> ordinaryChecks = createNewCheckSortedSet();
 
-    /** The ast filters. */
-    private final Set<PropertyWalkerFilter> filters = new HashSet<>();
+    /**
+     * The {@link PropertyWalkerFilter}s and {@link PropertyWalkerBatchFilter}s, adapted to
+     * one type when they are added, in the order they were configured.
+     */
+    private final List<ViolationFilter> filters = new ArrayList<>();
+
+    /** The filters that hold external resources. */
+    private final List<ExternalResourceHolder> filterResources = new ArrayList<>();
 
-    /** The sorted set of violations. */
-    private final SortedSet<Violation> violations = new TreeSet<>();
+    /**
+     * The records of the violations of the current file, in the order the
+     * checks logged them. They are only sorted and deduplicated once the whole
+     * file was walked, and only turned into violations if they pass the
+     * filters.
+     */
+    private final List<ViolationRecord> violations = new ArrayList<>();
 
     /** Context of child components. */
     private Context childContext;
@@ -74,10 +128,69 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
     /** A factory for creating submodules (i.e. the Checks) */
     private ModuleFactory moduleFactory;
 
+    /** Control whether to try SLL prediction before full LL prediction. */
+    private boolean twoStagePrediction;
+
+    /** Specify the file the DFA cache of the parser is loaded from and saved to. */
+    private File dfaSnapshotFile;
+
+    /** Specify the number of threads used to process a batch of files. */
+    private int threadCount = 1;
+
+    /**
+     * Walkers with their own instances of the checks and filters, used by the
+     * worker threads that process a batch of files.
+     */
+    private final BlockingQueue<PropertyWalker> workers = new LinkedBlockingQueue<>();
+
+    /** Number of walkers created for the worker threads. */
+    private int workerCount;
+
+    /**
+     * The walker that created this walker for one of its worker threads, or
+     * {@code null} if this walker runs the audit. Only the walker running the
+     * audit loads and writes the files shared by the whole audit.
+     */
+    private final PropertyWalker owner;
+
+    /**
+     * The worker threads that process a batch of files, created by the first
+     * batch of an audit and shut down when the audit finishes.
+     */
+    private ExecutorService executor;
+
+    /** The recorded timings, or {@code null} if timing is disabled. */
+    private WalkerTimings timings;
+
+    /** Specify the file the summary of the timings is written to. */
+    private File timingSummaryFile;
+
+    /** The worst files processed, or {@code null} if they are not reported. */
+    private SlowFileReport slowFileReport;
+
+    /** Specify the file the report of the worst files is written to. */
+    private File slowFileReportFile;
+
+    /** Specify the number of files listed in each ranking of the slow file report. */
+    private int slowFileReportSize = SlowFileReport.DEFAULT_SIZE;
+
+    /** Specify the file the decision profile of the parser is written to. */
+    private File decisionProfileFile;
+
     /**
      * Creates a new {@code PropertyWalker} instance.
      */
     public PropertyWalker() {
+        this(null);
+    }
+
+    /**
+     * Creates a new {@code PropertyWalker} instance.
+     *
+     * @param owner the walker this walker is a worker of, or {@code null}
+     */
+    private PropertyWalker(PropertyWalker owner) {
+        this.owner = owner;
         setFileExtensions("properties");
     }
 
@@ -90,12 +203,376 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
         this.moduleFactory = moduleFactory;
     }
 
+    /**
+     * Setter to control whether to parse files with SLL prediction first and
+     * only fall back to full LL prediction when that fails.
+     *
+     * @param twoStagePrediction {@code true} to use two-stage prediction.
+     */
+    public void setTwoStagePrediction(boolean twoStagePrediction) {
+        this.twoStagePrediction = twoStagePrediction;
+    }
+
+    /**
+     * Setter to control whether to record the time spent in each phase of
+     * processing a file, and by each check in each of its callbacks, together
+     * with the number of calls. The timings are available from
+     * {@link #getTimings()}.
+     *
+     * @param timing {@code true} to record timings.
+     */
+    public void setTiming(boolean timing) {
+        if (timing && timings == null) {
+            timings = new WalkerTimings();
+            ordinaryChecks.forEach(timings::addCheck);
+        }
+        else if (!timing) {
+            timings = null;
+        }
+    }
+
+    /**
+     * Setter to specify the file a summary of the timings is written to when
+     * processing finishes. Setting it also enables timing.
+     *
+     * @param timingSummaryFile the path of the summary file.
+     */
+    public void setTimingSummaryFile(String timingSummaryFile) {
+        this.timingSummaryFile = new File(timingSummaryFile);
+        setTiming(true);
+    }
+
+    /**
+     * Returns the timings recorded since processing began, including the ones
+     * of the worker threads.
+     *
+     * @return the timings, or {@code null} if timing is disabled.
+     */
+    public WalkerTimings getTimings() {
+        WalkerTimings result = null;
+        if (timings != null) {
+            result = timings.snapshot();
+            for (PropertyWalker worker : workers) {
+                if (worker.timings != null) {
+                    result.merge(worker.timings);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Setter to specify the file a report of the worst files is written to
+     * when processing finishes, as JSON. The files are ranked by parse time,
+     * walk time, number of AST nodes and bytes allocated by the thread
+     * processing the file.
+     *
+     * @param slowFileReportFile the path of the report file.
+     */
+    public void setSlowFileReportFile(String slowFileReportFile) {
+        this.slowFileReportFile = new File(slowFileReportFile);
+    }
+
+    /**
+     * Setter to specify the number of files listed in each ranking of the slow
+     * file report.
+     *
+     * @param slowFileReportSize the number of files.
+     */
+    public void setSlowFileReportSize(int slowFileReportSize) {
+        this.slowFileReportSize = slowFileReportSize;
+    }
+
+    /**
+     * Returns the worst files processed since processing began, including the
+     * ones processed by the worker threads.
+     *
+     * @return the report, or {@code null} if no report file is set.
+     */
+    public SlowFileReport getSlowFileReport() {
+        return slowFileReport;
+    }
+
+    /**
+     * Setter to specify the maximum number of DFA states the parser keeps in its
+     * cache before the largest decisions are cleared. The cache is shared by all
+     * walkers of this kind.
+     *
+     * @param maxDfaStates the maximum number of DFA states.
+     */
+    public void setMaxDfaStates(int maxDfaStates) {
+        PropertyParser.getDfaCacheManager().setMaxDfaStates(maxDfaStates);
+    }
+
+    /**
+     * Setter to specify the percentage of the maximum heap that can be used
+     * before the DFA cache of the parser is cleared completely. The cache is
+     * shared by all walkers of this kind.
+     *
+     * @param dfaHeapUsageThreshold the heap usage threshold in percent.
+     */
+    public void setDfaHeapUsageThreshold(int dfaHeapUsageThreshold) {
+        PropertyParser.getDfaCacheManager().setHeapUsageThreshold(dfaHeapUsageThreshold);
+    }
+
+    /**
+     * Setter to specify the file the DFA cache of the parser is loaded from
+     * when processing starts and saved to when it finishes, so the cache does
+     * not start cold in every run. A snapshot saved for another version of the
+     * grammar is ignored. The file should not be shared with other kinds of
+     * walkers.
+     *
+     * @param dfaSnapshotFile the path of the snapshot file.
+     */
+    public void setDfaSnapshotFile(String dfaSnapshotFile) {
+        this.dfaSnapshotFile = new File(dfaSnapshotFile);
+    }
+
+    /**
+     * Setter to specify the file a profile of the decisions of the parser is
+     * written to when processing finishes. Setting it profiles every parse
+     * between {@link #beginProcessing(String)} and {@link #finishProcessing()},
+     * which makes parsing noticeably slower. The profiler is shared by all
+     * walkers of this kind.
+     *
+     * @param decisionProfileFile the path of the profile file.
+     */
+    public void setDecisionProfileFile(String decisionProfileFile) {
+        this.decisionProfileFile = new File(decisionProfileFile);
+    }
+
+    /**
+     * Setter to specify the number of threads used by
+     * {@link #processFiles(List, String)} to process a batch of files.
+     *
+     * @param threadCount the number of threads.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Processes a batch of files on a bounded pool of worker threads. Each
+     * worker uses its own walker, with its own instances of the checks and
+     * filters created from the configuration of this walker, so the per-file
+     * state kept by checks is never shared between threads. The violations of
+     * each file are the same, and in the same order, as when the files are
+     * processed one after the other.
+     *
+     * <p>
+     * {@code Checker} processes its files one at a time through
+     * {@link #process(File, FileText)} and never calls this method. It is meant
+     * for code that drives the walker itself: configure it, call
+     * {@link #beginProcessing(String)}, call this method for one or more
+     * batches, and call {@link #finishProcessing()}. The worker threads and
+     * their walkers are reused by every batch of the audit, and the worker
+     * threads are shut down when it finishes.
+     * </p>
+     *
+     * @param files the files to process.
+     * @param charset the name of the charset of the files.
+     * @return the violations of each file, in the order of the given files.
+     * @throws CheckstyleException if a file could not be read or processed.
+     */
+    public Map<File, SortedSet<Violation>> processFiles(List<File> files, String charset)
+            throws CheckstyleException {
+        createWorkers(Math.max(1, Math.min(threadCount, files.size())), charset);
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, threadCount), runnable -> {
+                final Thread thread = new Thread(runnable, "PropertyWalker-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        final List<Future<SortedSet<Violation>>> futures = new ArrayList<>();
+        for (File file : files) {
+            futures.add(executor.submit(() -> processWithWorker(file, charset)));
+        }
+
+        final Map<File, SortedSet<Violation>> result = new LinkedHashMap<>();
+        for (int index = 0; index < files.size(); index++) {
+            result.put(files.get(index), getResult(files.get(index), futures.get(index)));
+        }
+        return result;
+    }
+
+    /**
+     * Creates the walkers of the worker threads and begins processing on them.
+     * They are given the same context and configuration as this walker, and
+     * this walker as their owner, so they leave the files shared by the whole
+     * audit to this walker.
+     *
+     * @param count the number of walkers needed.
+     * @param charset the name of the charset of the files.
+     * @throws CheckstyleException if a walker could not be configured.
+     */
+    private void createWorkers(int count, String charset) throws CheckstyleException {
+        while (workerCount < count) {
+            final DefaultContext workerContext = new DefaultContext();
+            workerContext.add("moduleFactory", moduleFactory);
+            workerContext.add("severity", getSeverity());
+            workerContext.add("tabWidth", String.valueOf(getTabWidth()));
+
+            final PropertyWalker worker = new PropertyWalker(this);
+            worker.contextualize(workerContext);
+            worker.configure(getConfiguration());
+            worker.beginProcessing(charset);
+            workers.add(worker);
+            workerCount++;
+        }
+    }
+
+    /**
+     * Processes a file with one of the walkers of the worker threads.
+     *
+     * @param file the file to process.
+     * @param charset the name of the charset of the file.
+     * @return the violations of the file.
+     * @throws Exception if the file could not be read or processed.
+     */
+    private SortedSet<Violation> processWithWorker(File file, String charset) throws Exception {
+        final PropertyWalker worker = workers.take();
+        try {
+            return worker.process(file, new FileText(file.getAbsoluteFile(), charset));
+        }
+        finally {
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Waits for the violations of a file processed by a worker thread.
+     *
+     * @param file the file processed.
+     * @param future the result of the worker thread.
+     * @return the violations of the file.
+     * @throws CheckstyleException if the file could not be read or processed.
+     */
+    private static SortedSet<Violation> getResult(File file,
+            Future<SortedSet<Violation>> future) throws CheckstyleException {
+        try {
+            return future.get();
+        }
+        catch (final ExecutionException ex) {
+            throw new CheckstyleException(
+                    "Exception was thrown while processing " + file.getPath(), ex.getCause());
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException(
+                    "Interrupted while processing " + file.getPath(), ex);
+        }
+    }
+
+    @Override
+    public void beginProcessing(String charset) {
+        super.beginProcessing(charset);
+        for (PropertyWalker worker : workers) {
+            worker.beginProcessing(charset);
+        }
+        if (timings != null) {
+            timings.reset();
+        }
+        if (owner == null) {
+            beginAudit();
+        }
+    }
+
+    /**
+     * Loads and resets what is shared by the whole audit, when this walker runs
+     * the audit.
+     */
+    private void beginAudit() {
+        if (dfaSnapshotFile != null) {
+            PropertyParser.getDfaCacheManager().loadSnapshot(dfaSnapshotFile);
+        }
+        if (slowFileReportFile != null) {
+            slowFileReport.reset();
+        }
+        if (decisionProfileFile != null) {
+            PropertyParser.getDecisionProfiler().reset();
+            PropertyParser.getDecisionProfiler().setEnabled(true);
+        }
+    }
+
+    @Override
+    public void finishProcessing() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        workers.forEach(PropertyWalker::finishProcessing);
+        if (owner == null) {
+            finishAudit();
+        }
+        super.finishProcessing();
+    }
+
+    /**
+     * Writes what is shared by the whole audit, when this walker runs the
+     * audit.
+     */
+    private void finishAudit() {
+        if (dfaSnapshotFile != null) {
+            try {
+                PropertyParser.getDfaCacheManager().saveSnapshot(dfaSnapshotFile);
+            }
+            catch (final IOException ex) {
+                // the snapshot only speeds up the next run, so the audit goes on without it
+                LOGGER.log(Level.WARNING, "Unable to save DFA snapshot " + dfaSnapshotFile, ex);
+            }
+        }
+        if (timingSummaryFile != null && timings != null) {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(timingSummaryFile),
+                    StandardCharsets.UTF_8)) {
+                getTimings().writeSummary(writer);
+            }
+            catch (final IOException ex) {
+                LOGGER.log(Level.WARNING, "Unable to write timing summary " + timingSummaryFile,
+                        ex);
+            }
+        }
+        if (slowFileReportFile != null) {
+            try (Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(slowFileReportFile), StandardCharsets.UTF_8)) {
+                slowFileReport.writeJson(writer);
+            }
+            catch (final IOException ex) {
+                LOGGER.log(Level.WARNING,
+                        "Unable to write slow file report " + slowFileReportFile, ex);
+            }
+        }
+        if (decisionProfileFile != null) {
+            try (Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(decisionProfileFile), StandardCharsets.UTF_8)) {
+                PropertyParser.getDecisionProfiler().writeSummary(writer);
+            }
+            catch (final IOException ex) {
+                LOGGER.log(Level.WARNING,
+                        "Unable to write decision profile " + decisionProfileFile, ex);
+            }
+            finally {
+                // the profiler is shared by the whole JVM, so it must not slow down other parses
+                PropertyParser.getDecisionProfiler().setEnabled(false);
+            }
+        }
+    }
+
     @Override
     public void finishLocalSetup() {
         final DefaultContext checkContext = new DefaultContext();
         checkContext.add("severity", getSeverity());
         checkContext.add("tabWidth", String.valueOf(getTabWidth()));
         childContext = checkContext;
+        if (slowFileReportFile != null) {
+            if (owner == null) {
+                slowFileReport = new SlowFileReport(slowFileReportSize);
+            }
+            else {
+                slowFileReport = owner.slowFileReport;
+            }
+        }
     }
 
     /**
@@ -125,9 +602,15 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
             check.init();
             registerCheck(check);
         }
+        else if (module instanceof PropertyWalkerBatchFilter) {
+            final PropertyWalkerBatchFilter filter = (PropertyWalkerBatchFilter) module;
+            addFilter(module, (fileName, fileContents, rootAST, violations) -> filter.accept(
+                    fileContents, fileName, rootAST, violations.asList()));
+        }
         else if (module instanceof PropertyWalkerFilter) {
             final PropertyWalkerFilter filter = (PropertyWalkerFilter) module;
-            filters.add(filter);
+            addFilter(module, (fileName, fileContents, rootAST, violations) -> acceptEach(
+                    filter, fileName, fileContents, rootAST, violations));
         }
         else {
             throw new CheckstyleException("PropertyWalker is not allowed as a parent of " + name
@@ -141,41 +624,204 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
         // check if already checked and passed the file
         if (!ordinaryChecks.isEmpty()) {
             final FileContents contents = getFileContents();
-            final PropertyAST rootAST = PropertyParser.parse(contents);
+            final long allocationStart = startAllocation();
+            final long fileStart = startPhase();
+            long phaseStart = fileStart;
+            final PropertyAST rootAST = PropertyParser.parse(contents, twoStagePrediction);
+            phaseStart = finishPhase(WalkerTimings.Phase.PARSE, phaseStart);
+            final FileWalkedEvent walkedEvent = new FileWalkedEvent();
+            walkedEvent.begin();
+            final long walkStart = METRICS.startWalk();
             if (!ordinaryChecks.isEmpty()) {
                 walk(rootAST, contents);
             }
+            METRICS.finishWalk(walkStart);
+            final long parseEnd = phaseStart;
+            phaseStart = finishPhase(WalkerTimings.Phase.WALK, phaseStart);
+            addSlowFile(file, rootAST, parseEnd - fileStart, phaseStart - parseEnd,
+                    allocationStart);
+            commitWalkedEvent(walkedEvent, file);
+
+            final ViolationsFilteredEvent filteredEvent = new ViolationsFilteredEvent();
+            filteredEvent.begin();
+            final SortedViolationSet sortedViolations = SortedViolationSet.of(violations);
+            violations.clear();
+            final SortedViolationSet reportedViolations;
             if (filters.isEmpty()) {
-                addViolations(violations);
+                reportedViolations = sortedViolations;
             }
             else {
-                final SortedSet<Violation> filteredViolations = getFilteredViolations(
-                        file.getAbsolutePath(), contents, rootAST);
-                addViolations(filteredViolations);
+                reportedViolations = getFilteredViolations(file.getAbsolutePath(), contents,
+                        rootAST, sortedViolations);
+            }
+            addViolations(reportedViolations);
+            METRICS.recordFile(sortedViolations.size(), reportedViolations.size());
+            commitFilteredEvent(filteredEvent, file, sortedViolations.size(),
+                    reportedViolations.size());
+            finishPhase(WalkerTimings.Phase.FILTER, phaseStart);
+        }
+    }
+
+    /**
+     * Commits the JFR event of a walked file, if it is enabled.
+     *
+     * @param event the event, started when the walk started
+     * @param file the file walked
+     */
+    private void commitWalkedEvent(FileWalkedEvent event, File file) {
+        if (event.shouldCommit()) {
+            event.setWalker(getClass().getSimpleName());
+            event.setPath(file.getPath());
+            event.setChecksInvoked(ordinaryChecks.size());
+            event.commit();
+        }
+    }
+
+    /**
+     * Commits the JFR event of the filtered violations of a file, if it is
+     * enabled.
+     *
+     * @param event the event, started when filtering started
+     * @param file the file the violations are for
+     * @param before the number of violations before filtering
+     * @param after the number of violations after filtering
+     */
+    private void commitFilteredEvent(ViolationsFilteredEvent event, File file, int before,
+            int after) {
+        if (event.shouldCommit()) {
+            event.setWalker(getClass().getSimpleName());
+            event.setPath(file.getPath());
+            event.setBefore(before);
+            event.setAfter(after);
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the time a phase starts at, if timing is enabled or the worst
+     * files are reported.
+     *
+     * @return the current time in nanoseconds, or 0 if nothing is timed
+     */
+    private long startPhase() {
+        long result = 0;
+        if (timings != null || slowFileReport != null) {
+            result = System.nanoTime();
+        }
+        return result;
+    }
+
+    /**
+     * Records the time spent in a phase, if timing is enabled.
+     *
+     * @param phase the phase that finished
+     * @param start the time the phase started at
+     * @return the time the next phase starts at
+     */
+    private long finishPhase(WalkerTimings.Phase phase, long start) {
+        long result = 0;
+        if (timings != null || slowFileReport != null) {
+            result = System.nanoTime();
+            if (timings != null) {
+                timings.record(phase, result - start);
             }
-            violations.clear();
         }
+        return result;
     }
 
     /**
-     * Returns filtered set of {@link Violation}.
+     * Returns the bytes allocated by the current thread so far, if the worst
+     * files are reported.
+     *
+     * @return the allocated bytes, or -1 if they are not measured
+     */
+    private long startAllocation() {
+        long result = -1;
+        if (slowFileReport != null) {
+            result = SlowFileReport.getAllocatedBytes();
+        }
+        return result;
+    }
+
+    /**
+     * Adds a processed file to the report of the worst files, if they are
+     * reported.
+     *
+     * @param file the file processed
+     * @param rootAST the root of the AST of the file, or {@code null}
+     * @param parseNanos the time spent parsing the file
+     * @param walkNanos the time spent walking the AST of the file
+     * @param allocationStart the bytes allocated by the current thread when
+     *        processing started, or -1
+     */
+    private void addSlowFile(File file, PropertyAST rootAST, long parseNanos, long walkNanos,
+            long allocationStart) {
+        if (slowFileReport != null) {
+            long allocatedBytes = -1;
+            if (allocationStart >= 0) {
+                allocatedBytes = SlowFileReport.getAllocatedBytes() - allocationStart;
+            }
+            slowFileReport.add(new SlowFileReport.FileStats(file.getPath(), parseNanos,
+                    walkNanos, PropertyAstUtil.countNodes(rootAST), allocatedBytes));
+        }
+    }
+
+    /**
+     * Returns filtered set of {@link Violation}. Each filter only gets the
+     * violations accepted by the filters before it.
      *
      * @param fileName path to the file
      * @param fileContents the contents of the file
      * @param rootAST root AST element {@link PropertyAST} of the file
+     * @param sortedViolations the sorted violations of the file
      * @return filtered set of violations
      */
-    private SortedSet<Violation> getFilteredViolations(String fileName, FileContents fileContents,
-            PropertyAST rootAST) {
-        final SortedSet<Violation> result = new TreeSet<>(violations);
-        for (Violation element : violations) {
+    private SortedViolationSet getFilteredViolations(String fileName, FileContents fileContents,
+            PropertyAST rootAST, SortedViolationSet sortedViolations) {
+        SortedViolationSet result = sortedViolations;
+        for (ViolationFilter filter : filters) {
+            if (result.isEmpty()) {
+                break;
+            }
+            result = result.filter(filter.accept(fileName, fileContents, rootAST, result));
+        }
+        return result;
+    }
+
+    /**
+     * Adds a filter, adapted to the type the walker calls.
+     *
+     * @param module the configured filter
+     * @param filter the adapted filter
+     */
+    private void addFilter(Object module, ViolationFilter filter) {
+        filters.add(filter);
+        if (module instanceof ExternalResourceHolder) {
+            filterResources.add((ExternalResourceHolder) module);
+        }
+    }
+
+    /**
+     * Calls a single event filter for each violation. The events only create
+     * their violation if the filter looks at more than the line number.
+     *
+     * @param filter the filter
+     * @param fileName path to the file
+     * @param fileContents the contents of the file
+     * @param rootAST root AST element {@link PropertyAST} of the file
+     * @param sortedViolations the sorted violations to filter
+     * @return the indexes of the accepted violations
+     */
+    private static BitSet acceptEach(PropertyWalkerFilter filter, String fileName,
+            FileContents fileContents, PropertyAST rootAST, SortedViolationSet sortedViolations) {
+        final List<ViolationRecord> records = sortedViolations.getRecords();
+        final BitSet result = new BitSet(records.size());
+        for (int index = 0; index < records.size(); index++) {
+            final ViolationRecord record = records.get(index);
             final PropertyWalkerAuditEvent event = new PropertyWalkerAuditEvent(fileContents,
-                    fileName, element, rootAST);
-            for (PropertyWalkerFilter filter : filters) {
-                if (!filter.accept(event)) {
-                    result.remove(element);
-                    break;
-                }
+                    fileName, record.getLineNo(), record::toViolation, rootAST);
+            if (filter.accept(event)) {
+                result.set(index);
             }
         }
         return result;
@@ -217,6 +863,10 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
         }
 
         ordinaryChecks.add(check);
+        if (timings != null) {
+            timings.addCheck(check);
+        }
+        buildDispatchPlan();
     }
 
     /**
@@ -242,6 +892,33 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
         notifyEnd(ast);
     }
 
+    /**
+     * Builds the arrays of checks to notify for each token type from the
+     * registered checks, so the walk does not need to look them up in a map.
+     */
+    private void buildDispatchPlan() {
+        final int size = tokenToOrdinaryChecks.keySet().stream().mapToInt(Integer::intValue)
+                .max().orElse(-1) + 1;
+
+        interestTypeMask = 0;
+        visitChecks = new AbstractPropertyCheck[size][];
+        leaveChecks = new AbstractPropertyCheck[size][];
+        Arrays.fill(visitChecks, EMPTY_CHECKS);
+        Arrays.fill(leaveChecks, EMPTY_CHECKS);
+
+        for (Map.Entry<Integer, Set<AbstractPropertyCheck>> entry :
+                tokenToOrdinaryChecks.entrySet()) {
+            final int tokenId = entry.getKey();
+            interestTypeMask |= PropertyAstUtil.getTypeMask(tokenId);
+            visitChecks[tokenId] = entry.getValue().toArray(EMPTY_CHECKS);
+            leaveChecks[tokenId] = entry.getValue().stream()
+                    .filter(check -> ModuleReflectionExtraUtil.isMethodOverridden(
+                            check.getClass(), AbstractPropertyCheck.class, "leaveToken",
+                            PropertyAST.class))
+                    .toArray(AbstractPropertyCheck[]::new);
+        }
+    }
+
     /**
      * Notify checks that we are about to begin walking a tree.
      *
@@ -254,7 +931,15 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
         for (AbstractPropertyCheck check : checks) {
             check.setFileContents(contents);
             check.clearViolations();
-            check.beginTree(rootAST);
+            if (timings == null) {
+                check.beginTree(rootAST);
+            }
+            else {
+                final long start = System.nanoTime();
+                check.beginTree(rootAST);
+                timings.record(check, WalkerTimings.CheckEvent.BEGIN_TREE,
+                        System.nanoTime() - start);
+            }
         }
     }
 
@@ -267,8 +952,16 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
         final Set<AbstractPropertyCheck> checks = ordinaryChecks;
 
         for (AbstractPropertyCheck check : checks) {
-            check.finishTree(rootAST);
-            violations.addAll(check.getViolations());
+            if (timings == null) {
+                check.finishTree(rootAST);
+            }
+            else {
+                final long start = System.nanoTime();
+                check.finishTree(rootAST);
+                timings.record(check, WalkerTimings.CheckEvent.FINISH_TREE,
+                        System.nanoTime() - start);
+            }
+            check.drainViolationRecords(violations);
         }
     }
 
@@ -278,11 +971,18 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
      * @param ast the node to notify for.
      */
     private void notifyVisit(PropertyAST ast) {
-        final Collection<AbstractPropertyCheck> visitors = getListOfChecks(ast);
-
-        if (visitors != null) {
-            for (AbstractPropertyCheck check : visitors) {
+        final AbstractPropertyCheck[] checks = getChecks(visitChecks, ast.getType());
+        if (timings == null) {
+            for (AbstractPropertyCheck check : checks) {
+                check.visitToken(ast);
+            }
+        }
+        else {
+            for (AbstractPropertyCheck check : checks) {
+                final long start = System.nanoTime();
                 check.visitToken(ast);
+                timings.record(check, WalkerTimings.CheckEvent.VISIT_TOKEN,
+                        System.nanoTime() - start);
             }
         }
     }
@@ -293,63 +993,99 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
      * @param ast the node to notify for
      */
     private void notifyLeave(PropertyAST ast) {
-        final Collection<AbstractPropertyCheck> visitors = getListOfChecks(ast);
-
-        if (visitors != null) {
-            for (AbstractPropertyCheck check : visitors) {
+        final AbstractPropertyCheck[] checks = getChecks(leaveChecks, ast.getType());
+        if (timings == null) {
+            for (AbstractPropertyCheck check : checks) {
                 check.leaveToken(ast);
             }
         }
+        else {
+            for (AbstractPropertyCheck check : checks) {
+                final long start = System.nanoTime();
+                check.leaveToken(ast);
+                timings.record(check, WalkerTimings.CheckEvent.LEAVE_TOKEN,
+                        System.nanoTime() - start);
+            }
+        }
     }
 
     /**
-     * Method returns list of checks.
+     * Method returns the checks of a token type from a dispatch array.
      *
-     * @param ast the node to notify for
-     * @return list of visitors
+     * @param checks the checks indexed by token type
+     * @param tokenId the id of the token
+     * @return the checks of the token type
      */
-    private Collection<AbstractPropertyCheck> getListOfChecks(PropertyAST ast) {
-        final int tokenId = ast.getType();
-        final Collection<AbstractPropertyCheck> visitors = tokenToOrdinaryChecks.get(tokenId);
+    private static AbstractPropertyCheck[] getChecks(AbstractPropertyCheck[][] checks,
+            int tokenId) {
+        final AbstractPropertyCheck[] result;
 
-        return visitors;
+        if (tokenId >= 0 && tokenId < checks.length) {
+            result = checks[tokenId];
+        }
+        else {
+            result = EMPTY_CHECKS;
+        }
+
+        return result;
     }
 
     @Override
     public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        workers.forEach(PropertyWalker::destroy);
         ordinaryChecks.forEach(AbstractPropertyCheck::destroy);
         super.destroy();
     }
 
     @Override
     public Set<String> getExternalResourceLocations() {
-        return Stream.concat(filters.stream(), ordinaryChecks.stream())
+        return Stream.concat(filterResources.stream(), ordinaryChecks.stream()
                 .filter(ExternalResourceHolder.class::isInstance)
-                .map(ExternalResourceHolder.class::cast)
+                .map(ExternalResourceHolder.class::cast))
                 .flatMap(resource -> resource.getExternalResourceLocations().stream())
                 .collect(Collectors.toSet());
     }
 
     /**
      * Processes a node calling interested checks at each node. Uses iterative
-     * algorithm.
+     * algorithm. Subtrees that contain no token type any check is registered
+     * for are skipped.
      *
      * @param root the root of tree for process
      */
     private void processIter(PropertyAST root) {
-        PropertyAST curNode = root;
+        PropertyAST curNode = skipUninteresting(root);
         while (curNode != null) {
             notifyVisit(curNode);
-            PropertyAST toVisit = curNode.getFirstChild();
+            PropertyAST toVisit = skipUninteresting(curNode.getFirstChild());
             while (curNode != null && toVisit == null) {
                 notifyLeave(curNode);
-                toVisit = curNode.getNextSibling();
+                toVisit = skipUninteresting(curNode.getNextSibling());
                 curNode = curNode.getParent();
             }
             curNode = toVisit;
         }
     }
 
+    /**
+     * Finds the first of a node and its next siblings whose subtree contains a
+     * token type any check is registered for.
+     *
+     * @param ast the node to start from
+     * @return the node found, or {@code null} if there is none
+     */
+    private PropertyAST skipUninteresting(PropertyAST ast) {
+        PropertyAST result = ast;
+        while (result != null && (result.getSubtreeTypeMask() & interestTypeMask) == 0) {
+            result = result.getNextSibling();
+        }
+        return result;
+    }
+
     /**
      * Creates a new {@link SortedSet} with a deterministic order based on the
      * Check's name before the default ordering.
@@ -364,4 +1100,22 @@ public final class PropertyWalker extends AbstractFileSetCheck implements Extern
                 .thenComparing(AbstractPropertyCheck::hashCode));
     }
 
+    /** A filter of the violations of a file, adapted from a configured filter. */
+    @FunctionalInterface
+    private interface ViolationFilter {
+
+        /**
+         * Determines which violations of a file are accepted.
+         *
+         * @param fileName path to the file
+         * @param fileContents the contents of the file
+         * @param rootAST root AST element {@link PropertyAST} of the file
+         * @param violations the sorted violations to filter
+         * @return the indexes of the accepted violations
+         */
+        BitSet accept(String fileName, FileContents fileContents, PropertyAST rootAST,
+                SortedViolationSet violations);
+
+    }
+
 }
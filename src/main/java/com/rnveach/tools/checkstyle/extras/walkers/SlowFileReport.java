@@ -0,0 +1,369 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.walkers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * The files a walker spent the most on, ranked separately by parse time, walk
+ * time, number of AST nodes and allocated bytes. Only the worst files of each
+ * ranking are kept, so the memory used does not grow with the number of files
+ * processed. Files can be added by several threads at once.
+ */
+public final class SlowFileReport {
+
+    /** Version of the JSON format written by {@link #writeJson(Writer)}. */
+    public static final int FORMAT_VERSION = 1;
+
+    /** Default number of files kept in each ranking. */
+    public static final int DEFAULT_SIZE = 10;
+
+    /** The thread bean, if it can measure the bytes allocated by a thread. */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN =
+            getAllocationBean();
+
+    /** Number of files kept in each ranking. */
+    private final int size;
+
+    /**
+     * The files kept in each ranking, with the least bad file at the head so
+     * it can be removed quickly.
+     */
+    private final Map<Ranking, PriorityQueue<FileStats>> rankings =
+            new EnumMap<>(Ranking.class);
+
+    /**
+     * Creates a new report.
+     *
+     * @param size the number of files kept in each ranking
+     */
+    public SlowFileReport(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be positive but was " + size);
+        }
+        this.size = size;
+        for (Ranking ranking : Ranking.values()) {
+            rankings.put(ranking,
+                    new PriorityQueue<>(size + 1, ranking.getComparator()));
+        }
+    }
+
+    /**
+     * Returns the number of files kept in each ranking.
+     *
+     * @return the number of files kept
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Adds a processed file. A file is only kept in the rankings it is one of
+     * the worst files of.
+     *
+     * @param stats the statistics of the file
+     */
+    public synchronized void add(FileStats stats) {
+        for (Map.Entry<Ranking, PriorityQueue<FileStats>> entry : rankings.entrySet()) {
+            if (entry.getKey().getValue(stats) >= 0) {
+                final PriorityQueue<FileStats> queue = entry.getValue();
+                queue.add(stats);
+                if (queue.size() > size) {
+                    queue.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the worst files of a ranking, the worst first.
+     *
+     * @param ranking the ranking
+     * @return the worst files
+     */
+    public synchronized List<FileStats> getWorst(Ranking ranking) {
+        final List<FileStats> result = new ArrayList<>(rankings.get(ranking));
+        result.sort(ranking.getComparator().reversed());
+        return result;
+    }
+
+    /**
+     * Writes the report as JSON. The document is an object with the
+     * {@code version} of the format, the {@code size} of the rankings and an
+     * array for each ranking, named after {@link Ranking#getName()}, with the
+     * worst file first. Each file is an object with the {@code path},
+     * {@code parseNanos}, {@code walkNanos}, {@code nodeCount} and
+     * {@code allocatedBytes}, where -1 means the value was not measured.
+     *
+     * @param writer the writer to write the report to
+     * @throws IOException if the report could not be written
+     */
+    public void writeJson(Writer writer) throws IOException {
+        writer.write("{\n");
+        writer.write(String.format(Locale.ROOT, "  \"version\": %d,%n", FORMAT_VERSION));
+        writer.write(String.format(Locale.ROOT, "  \"size\": %d", size));
+        for (Ranking ranking : Ranking.values()) {
+            writer.write(String.format(Locale.ROOT, ",%n  \"%s\": [", ranking.getName()));
+            final List<FileStats> worst = getWorst(ranking);
+            for (int index = 0; index < worst.size(); index++) {
+                if (index > 0) {
+                    writer.write(',');
+                }
+                final FileStats stats = worst.get(index);
+                writer.write(String.format(Locale.ROOT,
+                        "%n    {\"path\": \"%s\", \"parseNanos\": %d, \"walkNanos\": %d,"
+                                + " \"nodeCount\": %d, \"allocatedBytes\": %d}",
+                        escapeJson(stats.getPath()), stats.getParseNanos(),
+                        stats.getWalkNanos(), stats.getNodeCount(),
+                        stats.getAllocatedBytes()));
+            }
+            if (!worst.isEmpty()) {
+                writer.write("\n  ");
+            }
+            writer.write(']');
+        }
+        writer.write("\n}\n");
+        writer.flush();
+    }
+
+    /** Removes all files from the report. */
+    synchronized void reset() {
+        rankings.values().forEach(PriorityQueue::clear);
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far. Only the
+     * difference between two calls is meaningful. Measuring them is a setting
+     * of the whole JVM, so it is left as it is, and nothing is measured when
+     * it is disabled.
+     *
+     * @return the allocated bytes, or -1 if the JVM does not measure them
+     */
+    static long getAllocatedBytes() {
+        long result = -1;
+        if (ALLOCATION_BEAN != null && ALLOCATION_BEAN.isThreadAllocatedMemoryEnabled()) {
+            result = ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return result;
+    }
+
+    /**
+     * Finds the thread bean, if it can measure the bytes allocated by a
+     * thread.
+     *
+     * @return the thread bean, or {@code null} if it cannot
+     */
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean result = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            result = (com.sun.management.ThreadMXBean) bean;
+            if (!result.isThreadAllocatedMemorySupported()) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Escapes a string to be written inside the quotes of a JSON string.
+     *
+     * @param value the string
+     * @return the escaped string
+     */
+    private static String escapeJson(String value) {
+        final StringBuilder result = new StringBuilder(value.length());
+        for (int index = 0; index < value.length(); index++) {
+            final char character = value.charAt(index);
+            if (character == '"' || character == '\\') {
+                result.append('\\').append(character);
+            }
+            else if (character < ' ') {
+                result.append(String.format(Locale.ROOT, "\\u%04x", (int) character));
+            }
+            else {
+                result.append(character);
+            }
+        }
+        return result.toString();
+    }
+
+    /** A way the files are ranked. */
+    public enum Ranking {
+
+        /** By the time spent parsing the file. */
+        PARSE_TIME("parseTime", FileStats::getParseNanos),
+
+        /** By the time spent walking the AST of the file. */
+        WALK_TIME("walkTime", FileStats::getWalkNanos),
+
+        /** By the number of nodes in the AST of the file. */
+        NODE_COUNT("nodeCount", FileStats::getNodeCount),
+
+        /** By the bytes allocated while parsing and walking the file. */
+        ALLOCATED_BYTES("allocatedBytes", FileStats::getAllocatedBytes);
+
+        /** The name in the report. */
+        private final String name;
+
+        /** The value the files are ranked by. */
+        private final ToLongFunction<FileStats> value;
+
+        /** Orders the files from the least to the most bad, then by path. */
+        private final Comparator<FileStats> comparator;
+
+        /**
+         * Creates a new ranking.
+         *
+         * @param name the name in the report
+         * @param value the value the files are ranked by
+         */
+        Ranking(String name, ToLongFunction<FileStats> value) {
+            this.name = name;
+            this.value = value;
+            comparator = Comparator.comparingLong(value)
+                    .thenComparing(FileStats::getPath, Comparator.reverseOrder());
+        }
+
+        /**
+         * Returns the name of the ranking in the report.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the value a file is ranked by.
+         *
+         * @param stats the statistics of the file
+         * @return the value, or -1 if it was not measured
+         */
+        long getValue(FileStats stats) {
+            return value.applyAsLong(stats);
+        }
+
+        /**
+         * Returns the order of the files from the least to the most bad.
+         *
+         * @return the comparator
+         */
+        Comparator<FileStats> getComparator() {
+            return comparator;
+        }
+
+    }
+
+    /** The statistics of a processed file. */
+    public static final class FileStats {
+
+        /** The path of the file. */
+        private final String path;
+
+        /** The time spent parsing the file, in nanoseconds. */
+        private final long parseNanos;
+
+        /** The time spent walking the AST of the file, in nanoseconds. */
+        private final long walkNanos;
+
+        /** The number of nodes in the AST of the file. */
+        private final long nodeCount;
+
+        /** The bytes allocated while parsing and walking the file, or -1. */
+        private final long allocatedBytes;
+
+        /**
+         * Creates the statistics of a file.
+         *
+         * @param path the path of the file
+         * @param parseNanos the time spent parsing the file, in nanoseconds
+         * @param walkNanos the time spent walking the AST, in nanoseconds
+         * @param nodeCount the number of nodes in the AST
+         * @param allocatedBytes the bytes allocated, or -1 if not measured
+         */
+        public FileStats(String path, long parseNanos, long walkNanos, long nodeCount,
+                long allocatedBytes) {
+            this.path = path;
+            this.parseNanos = parseNanos;
+            this.walkNanos = walkNanos;
+            this.nodeCount = nodeCount;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * Returns the path of the file.
+         *
+         * @return the path
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the time spent parsing the file.
+         *
+         * @return the time in nanoseconds
+         */
+        public long getParseNanos() {
+            return parseNanos;
+        }
+
+        /**
+         * Returns the time spent walking the AST of the file.
+         *
+         * @return the time in nanoseconds
+         */
+        public long getWalkNanos() {
+            return walkNanos;
+        }
+
+        /**
+         * Returns the number of nodes in the AST of the file.
+         *
+         * @return the number of nodes
+         */
+        public long getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Returns the bytes allocated while parsing and walking the file.
+         *
+         * @return the allocated bytes, or -1 if they were not measured
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+    }
+
+}
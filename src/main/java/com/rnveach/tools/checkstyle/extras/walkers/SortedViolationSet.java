@@ -0,0 +1,323 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.walkers;
+
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.rnveach.tools.checkstyle.extras.checks.ViolationRecord;
+
+/**
+ * An immutable {@link SortedSet} of violations backed by a sorted array of
+ * {@link ViolationRecord}s. The walkers collect the records of a file in an
+ * append-only list, and turn it into this set with a single sort, instead of
+ * inserting every violation into several {@link java.util.TreeSet}s. Like a
+ * {@code TreeSet}, violations that compare as equal are only kept once. The
+ * violations are only created from their records when they are accessed, so
+ * the records dropped by filters never create them. The views returned by
+ * {@link #subSet}, {@link #headSet} and {@link #tailSet} keep their bounds and
+ * reject keys outside of them like the views of a {@code TreeSet}.
+ */
+final class SortedViolationSet extends AbstractSet<Violation> implements SortedSet<Violation> {
+
+    /** The records of the violations, sorted and without duplicates. */
+    private final ViolationRecord[] records;
+
+    /** The index of the first violation of this set. */
+    private final int fromIndex;
+
+    /** The index after the last violation of this set. */
+    private final int toIndex;
+
+    /** The lowest violation this view can hold, or {@code null} if there is none. */
+    private final Violation lowBound;
+
+    /** The violation above the ones this view can hold, or {@code null} if there is none. */
+    private final Violation highBound;
+
+    /**
+     * Creates a new {@code SortedViolationSet} instance.
+     *
+     * @param records the records of the violations, sorted and without
+     *        duplicates
+     * @param fromIndex the index of the first violation of the set
+     * @param toIndex the index after the last violation of the set
+     * @param lowBound the lowest violation the set can hold, or {@code null}
+     * @param highBound the violation above the ones the set can hold, or
+     *        {@code null}
+     */
+    private SortedViolationSet(ViolationRecord[] records, int fromIndex, int toIndex,
+            Violation lowBound, Violation highBound) {
+        this.records = records;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.lowBound = lowBound;
+        this.highBound = highBound;
+    }
+
+    /**
+     * Creates a set of violations from a list of violation records in any
+     * order.
+     *
+     * @param records the records of the violations
+     * @return the sorted set of the violations
+     */
+    public static SortedViolationSet of(List<ViolationRecord> records) {
+        final ViolationRecord[] sorted = records.toArray(new ViolationRecord[0]);
+        Arrays.sort(sorted);
+
+        int size = 0;
+        for (ViolationRecord record : sorted) {
+            if (size == 0 || sorted[size - 1].compareTo(record) != 0) {
+                sorted[size] = record;
+                size++;
+            }
+        }
+
+        return new SortedViolationSet(sorted, 0, size, null, null);
+    }
+
+    /**
+     * Returns the records of the violations of this set as an unmodifiable
+     * list, in the same order.
+     *
+     * @return the list of records
+     */
+    public List<ViolationRecord> getRecords() {
+        return Collections.unmodifiableList(Arrays.asList(records).subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Returns the violations of this set as an unmodifiable list, in the same
+     * order. A violation is only created when it is accessed.
+     *
+     * @return the list of violations
+     */
+    public List<Violation> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Violation get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index);
+                }
+                return records[fromIndex + index].toViolation();
+            }
+
+            @Override
+            public int size() {
+                return toIndex - fromIndex;
+            }
+        };
+    }
+
+    /**
+     * Creates a set with the violations of this set whose index is set in a bit
+     * set, in the same order.
+     *
+     * @param accepted the indexes of the violations to keep, as in
+     *        {@link #asList()}
+     * @return the set of accepted violations
+     */
+    public SortedViolationSet filter(BitSet accepted) {
+        final ViolationRecord[] result = new ViolationRecord[size()];
+        int size = 0;
+
+        for (int index = accepted.nextSetBit(0); index >= 0 && index < size();
+                index = accepted.nextSetBit(index + 1)) {
+            result[size] = records[fromIndex + index];
+            size++;
+        }
+
+        return new SortedViolationSet(result, 0, size, null, null);
+    }
+
+    @Override
+    public Iterator<Violation> iterator() {
+        return new Iterator<>() {
+            /** The index of the next violation. */
+            private int index = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return index < toIndex;
+            }
+
+            @Override
+            public Violation next() {
+                if (index >= toIndex) {
+                    throw new NoSuchElementException();
+                }
+                final Violation result = records[index].toViolation();
+                index++;
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return toIndex - fromIndex;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return object instanceof Violation && indexOf((Violation) object) >= 0;
+    }
+
+    @Override
+    public Comparator<? super Violation> comparator() {
+        // natural ordering, the same as a TreeSet of violations
+        return null;
+    }
+
+    @Override
+    public SortedSet<Violation> subSet(Violation fromElement, Violation toElement) {
+        checkFromElement(fromElement);
+        checkToElement(toElement);
+        if (fromElement.compareTo(toElement) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new SortedViolationSet(records, insertionPoint(fromElement),
+                insertionPoint(toElement), fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<Violation> headSet(Violation toElement) {
+        checkToElement(toElement);
+        return new SortedViolationSet(records, fromIndex, insertionPoint(toElement),
+                lowBound, toElement);
+    }
+
+    @Override
+    public SortedSet<Violation> tailSet(Violation fromElement) {
+        checkFromElement(fromElement);
+        return new SortedViolationSet(records, insertionPoint(fromElement), toIndex,
+                fromElement, highBound);
+    }
+
+    @Override
+    public Violation first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return records[fromIndex].toViolation();
+    }
+
+    @Override
+    public Violation last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return records[toIndex - 1].toViolation();
+    }
+
+    /**
+     * Checks that a violation can be the lowest one of a view of this set.
+     *
+     * @param fromElement the lowest violation of the view
+     * @throws IllegalArgumentException if the violation is outside of the
+     *         bounds of this set
+     */
+    private void checkFromElement(Violation fromElement) {
+        if (lowBound != null && fromElement.compareTo(lowBound) < 0
+                || highBound != null && fromElement.compareTo(highBound) >= 0) {
+            throw new IllegalArgumentException("fromKey out of range");
+        }
+    }
+
+    /**
+     * Checks that a violation can be above the ones of a view of this set.
+     *
+     * @param toElement the violation above the ones of the view
+     * @throws IllegalArgumentException if the violation is outside of the
+     *         bounds of this set
+     */
+    private void checkToElement(Violation toElement) {
+        if (lowBound != null && toElement.compareTo(lowBound) < 0
+                || highBound != null && toElement.compareTo(highBound) > 0) {
+            throw new IllegalArgumentException("toKey out of range");
+        }
+    }
+
+    /**
+     * Finds a violation in this set.
+     *
+     * @param violation the violation to find
+     * @return the index of the violation, or {@code -(insertion point) - 1} if
+     *         it is not in this set
+     */
+    private int indexOf(Violation violation) {
+        int low = fromIndex;
+        int high = toIndex - 1;
+        int result = -1;
+
+        while (result < 0 && low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = records[middle].toViolation().compareTo(violation);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            }
+            else if (comparison > 0) {
+                high = middle - 1;
+            }
+            else {
+                result = middle;
+            }
+        }
+
+        if (result < 0) {
+            result = -(low + 1);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the index of the first violation of this set that is not lower
+     * than a violation.
+     *
+     * @param violation the violation
+     * @return the index
+     */
+    private int insertionPoint(Violation violation) {
+        final int index = indexOf(violation);
+        final int result;
+
+        if (index >= 0) {
+            result = index;
+        }
+        else {
+            result = -index - 1;
+        }
+
+        return result;
+    }
+
+}
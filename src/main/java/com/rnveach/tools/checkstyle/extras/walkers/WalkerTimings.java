@@ -0,0 +1,385 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.walkers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.puppycrawl.tools.checkstyle.api.AbstractViolationReporter;
+
+/**
+ * The time spent by a walker in each phase of processing a file, and by each
+ * of its checks in each of their callbacks. Timings are only recorded when
+ * they are enabled on the walker.
+ *
+ * <p>
+ * Each check is only called by one thread at a time, and the phases are only
+ * recorded by the thread processing the file, so the timings need no locking.
+ * They should only be read once the files were processed.
+ * </p>
+ */
+public final class WalkerTimings {
+
+    /** Number of nanoseconds in a millisecond. */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /** The timings of each phase, indexed by the ordinal of the phase. */
+    private final Timing[] phases = createTimings(Phase.values().length);
+
+    /** The timings of the checks, in the order the checks were added. */
+    private final List<CheckTimings> checks = new ArrayList<>();
+
+    /** The timings of each check instance. */
+    private final Map<Object, CheckTimings> checkLookup = new IdentityHashMap<>();
+
+    /**
+     * Returns the timing of a phase.
+     *
+     * @param phase the phase
+     * @return the timing of the phase
+     */
+    public Timing getPhase(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * Returns the timings of the checks, in the order they were configured.
+     *
+     * @return the timings of the checks
+     */
+    public List<CheckTimings> getChecks() {
+        return Collections.unmodifiableList(checks);
+    }
+
+    /**
+     * Writes a summary of the timings as text, with the phases first and then
+     * the checks, the slowest first.
+     *
+     * @param writer the writer to write the summary to
+     * @throws IOException if the summary could not be written
+     */
+    public void writeSummary(Writer writer) throws IOException {
+        writer.write(String.format(Locale.ROOT, "%-40s %10s %12s%n", "Phase", "Calls", "Total ms"));
+        for (Phase phase : Phase.values()) {
+            final Timing timing = getPhase(phase);
+            writer.write(String.format(Locale.ROOT, "%-40s %10d %12.3f%n", phase.getName(),
+                    timing.getCount(), timing.getNanos() / NANOS_PER_MILLI));
+        }
+
+        final List<CheckTimings> sorted = new ArrayList<>(checks);
+        sorted.sort((first, second) -> Long.compare(second.getTotalNanos(),
+                first.getTotalNanos()));
+
+        writer.write(String.format(Locale.ROOT, "%n%-40s %-12s %10s %12s%n", "Check", "Event",
+                "Calls", "Total ms"));
+        for (CheckTimings check : sorted) {
+            for (CheckEvent event : CheckEvent.values()) {
+                final Timing timing = check.getEvent(event);
+                writer.write(String.format(Locale.ROOT, "%-40s %-12s %10d %12.3f%n",
+                        check.getName(), event.getName(), timing.getCount(),
+                        timing.getNanos() / NANOS_PER_MILLI));
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Adds a check to record the timings of. The check is reported by its class
+     * name, and its id if it has one.
+     *
+     * @param check the check
+     */
+    void addCheck(AbstractViolationReporter check) {
+        if (!checkLookup.containsKey(check)) {
+            String name = check.getClass().getSimpleName();
+            if (check.getId() != null) {
+                name += "[" + check.getId() + "]";
+            }
+            final CheckTimings timings = new CheckTimings(name);
+            checks.add(timings);
+            checkLookup.put(check, timings);
+        }
+    }
+
+    /**
+     * Records the time spent in a phase.
+     *
+     * @param phase the phase
+     * @param nanos the time spent, in nanoseconds
+     */
+    void record(Phase phase, long nanos) {
+        phases[phase.ordinal()].add(1, nanos);
+    }
+
+    /**
+     * Records the time spent by a check in one of its callbacks.
+     *
+     * @param check the check
+     * @param event the callback
+     * @param nanos the time spent, in nanoseconds
+     */
+    void record(Object check, CheckEvent event, long nanos) {
+        checkLookup.get(check).events[event.ordinal()].add(1, nanos);
+    }
+
+    /**
+     * Adds the timings of another walker with the same configuration, whose
+     * checks were added in the same order.
+     *
+     * @param other the timings to add
+     */
+    void merge(WalkerTimings other) {
+        for (int index = 0; index < phases.length; index++) {
+            phases[index].add(other.phases[index]);
+        }
+        for (int index = 0; index < checks.size() && index < other.checks.size(); index++) {
+            final Timing[] events = checks.get(index).events;
+            for (int event = 0; event < events.length; event++) {
+                events[event].add(other.checks.get(index).events[event]);
+            }
+        }
+    }
+
+    /**
+     * Creates a snapshot of these timings, which more timings cannot be
+     * recorded to.
+     *
+     * @return the snapshot
+     */
+    WalkerTimings snapshot() {
+        final WalkerTimings result = new WalkerTimings();
+        for (CheckTimings check : checks) {
+            result.checks.add(new CheckTimings(check.getName()));
+        }
+        result.merge(this);
+        return result;
+    }
+
+    /** Clears all recorded timings, but keeps the checks. */
+    void reset() {
+        for (Timing phase : phases) {
+            phase.reset();
+        }
+        for (CheckTimings check : checks) {
+            for (Timing event : check.events) {
+                event.reset();
+            }
+        }
+    }
+
+    /**
+     * Creates an array of empty timings.
+     *
+     * @param count the number of timings
+     * @return the timings
+     */
+    private static Timing[] createTimings(int count) {
+        final Timing[] result = new Timing[count];
+        for (int index = 0; index < count; index++) {
+            result[index] = new Timing();
+        }
+        return result;
+    }
+
+    /** The phases of processing a file. */
+    public enum Phase {
+
+        /** Parsing the file into an AST. */
+        PARSE("parse"),
+        /**
+         * Walking the AST with the checks, or the tokens of the file when the
+         * checks only need tokens.
+         */
+        WALK("walk"),
+        /** Sorting and filtering the violations. */
+        FILTER("filter");
+
+        /** The name of the phase in the summary. */
+        private final String name;
+
+        /**
+         * Creates a new {@code Phase} instance.
+         *
+         * @param name the name of the phase in the summary
+         */
+        Phase(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the phase in the summary.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    /** The callbacks of a check. */
+    public enum CheckEvent {
+
+        /** The {@code beginTree} callback. */
+        BEGIN_TREE("beginTree"),
+        /** The {@code visitToken} callback. */
+        VISIT_TOKEN("visitToken"),
+        /** The {@code leaveToken} callback. */
+        LEAVE_TOKEN("leaveToken"),
+        /** The {@code finishTree} callback. */
+        FINISH_TREE("finishTree");
+
+        /** The name of the callback in the summary. */
+        private final String name;
+
+        /**
+         * Creates a new {@code CheckEvent} instance.
+         *
+         * @param name the name of the callback in the summary
+         */
+        CheckEvent(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the callback in the summary.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    /** The number of calls and the cumulative time spent in them. */
+    public static final class Timing {
+
+        /** The number of calls. */
+        private long count;
+
+        /** The time spent in the calls, in nanoseconds. */
+        private long nanos;
+
+        /**
+         * Returns the number of calls.
+         *
+         * @return the number of calls
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the time spent in the calls.
+         *
+         * @return the time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Adds calls and the time spent in them.
+         *
+         * @param calls the number of calls
+         * @param time the time spent, in nanoseconds
+         */
+        private void add(long calls, long time) {
+            count += calls;
+            nanos += time;
+        }
+
+        /**
+         * Adds the calls of another timing.
+         *
+         * @param other the other timing
+         */
+        private void add(Timing other) {
+            add(other.count, other.nanos);
+        }
+
+        /** Clears the timing. */
+        private void reset() {
+            count = 0;
+            nanos = 0;
+        }
+
+    }
+
+    /** The timings of the callbacks of a check. */
+    public static final class CheckTimings {
+
+        /** The name of the check. */
+        private final String name;
+
+        /** The timings of each callback, indexed by the ordinal of the callback. */
+        private final Timing[] events = createTimings(CheckEvent.values().length);
+
+        /**
+         * Creates a new {@code CheckTimings} instance.
+         *
+         * @param name the name of the check
+         */
+        private CheckTimings(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the check, with its id if it has one.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the timing of a callback of the check.
+         *
+         * @param event the callback
+         * @return the timing
+         */
+        public Timing getEvent(CheckEvent event) {
+            return events[event.ordinal()];
+        }
+
+        /**
+         * Returns the time spent in all callbacks of the check.
+         *
+         * @return the time in nanoseconds
+         */
+        public long getTotalNanos() {
+            long result = 0;
+            for (Timing event : events) {
+                result += event.getNanos();
+            }
+            return result;
+        }
+
+    }
+
+}
@@ -20,16 +20,36 @@
 package com.rnveach.tools.checkstyle.extras.walkers;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,10 +65,17 @@ import com.puppycrawl.tools.checkstyle.api.FileContents;
 import com.puppycrawl.tools.checkstyle.api.FileText;
 import com.puppycrawl.tools.checkstyle.api.Violation;
 import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAstImpl;
 import com.rnveach.tools.checkstyle.extras.checks.AbstractXmlCheck;
+import com.rnveach.tools.checkstyle.extras.checks.ViolationRecord;
 import com.rnveach.tools.checkstyle.extras.events.XmlWalkerAuditEvent;
+import com.rnveach.tools.checkstyle.extras.filters.XmlWalkerBatchFilter;
 import com.rnveach.tools.checkstyle.extras.filters.XmlWalkerFilter;
+import com.rnveach.tools.checkstyle.extras.jfr.FileWalkedEvent;
+import com.rnveach.tools.checkstyle.extras.jfr.ViolationsFilteredEvent;
+import com.rnveach.tools.checkstyle.extras.metrics.WalkerMetrics;
 import com.rnveach.tools.checkstyle.extras.parsers.XmlParser;
+import com.rnveach.tools.checkstyle.extras.utils.ModuleReflectionExtraUtil;
 import com.rnveach.tools.checkstyle.extras.utils.XmlAstUtil;
 
 /**
@@ -56,17 +83,59 @@ import com.rnveach.tools.checkstyle.extras.utils.XmlAstUtil;
  */
 public final class XmlWalker extends AbstractFileSetCheck implements ExternalResourceHolder {
 
+    /** An empty array of checks. */
+    private static final AbstractXmlCheck[] EMPTY_CHECKS = new AbstractXmlCheck[0];
+
+    /** Logger of problems that do not affect the result of an audit. */
+    private static final Logger LOGGER = Logger.getLogger(XmlWalker.class.getName());
+
+    /** Metrics of all walkers of this type. */
+    private static final WalkerMetrics METRICS =
+            new WalkerMetrics("checkstyle.extras.xml.walker");
+
     /** Maps from token name to ordinary checks. */
     private final Map<Integer, Set<AbstractXmlCheck>> tokenToOrdinaryChecks = new HashMap<>();
 
+    /** The dispatch plan of all checks. */
+    private DispatchPlan dispatchPlan =
+            new DispatchPlan(tokenToOrdinaryChecks, check -> true, null);
+
+    /** The checks that must walk the AST sequentially when checks walk it concurrently. */
+    private final Set<AbstractXmlCheck> sequentialChecks = createNewCheckSortedSet();
+
+    /** The dispatch plan of the checks that must walk the AST sequentially. */
+    private DispatchPlan sequentialPlan = dispatchPlan;
+
+    /** The dispatch plans of the checks that can walk the AST concurrently. */
+    private final Map<AbstractXmlCheck, DispatchPlan> concurrentPlans = new LinkedHashMap<>();
+
+    /**
+     * The fork-join pool the concurrent checks walk the AST on, created by the
+     * first file walked concurrently and shut down when processing finishes. It
+     * is owned by this walker rather than the common pool, so the checks do not
+     * compete with unrelated tasks of the JVM and are stopped with the walker.
+     */
+    private ForkJoinPool checkExecutor;
+
     /** Registered ordinary checks, that don't use comment nodes. */
     private final Set<AbstractXmlCheck> ordinaryChecks = createNewCheckSortedSet();
 
-    /** The ast filters. */
-    private final Set<XmlWalkerFilter> filters = new HashSet<>();
+    /**
+     * The {@link XmlWalkerFilter}s and {@link XmlWalkerBatchFilter}s, adapted to
+     * one type when they are added, in the order they were configured.
+     */
+    private final List<ViolationFilter> filters = new ArrayList<>();
+
+    /** The filters that hold external resources. */
+    private final List<ExternalResourceHolder> filterResources = new ArrayList<>();
 
-    /** The sorted set of violations. */
-    private final SortedSet<Violation> violations = new TreeSet<>();
+    /**
+     * The records of the violations of the current file, in the order the
+     * checks logged them. They are only sorted and deduplicated once the whole
+     * file was walked, and only turned into violations if they pass the
+     * filters.
+     */
+    private final List<ViolationRecord> violations = new ArrayList<>();
 
     /** Context of child components. */
     private Context childContext;
@@ -74,10 +143,96 @@ public final class XmlWalker extends AbstractFileSetCheck implements ExternalRes
     /** A factory for creating submodules (i.e. the Checks) */
     private ModuleFactory moduleFactory;
 
+    /** Control whether to try SLL prediction before full LL prediction. */
+    private boolean twoStagePrediction;
+
+    /** Specify the file the DFA cache of the parser is loaded from and saved to. */
+    private File dfaSnapshotFile;
+
+    /** Specify the number of threads used to process a batch of files. */
+    private int threadCount = 1;
+
+    /**
+     * Walkers with their own instances of the checks and filters, used by the
+     * worker threads that process a batch of files.
+     */
+    private final BlockingQueue<XmlWalker> workers = new LinkedBlockingQueue<>();
+
+    /** Number of walkers created for the worker threads. */
+    private int workerCount;
+
+    /**
+     * The walker that created this walker for one of its worker threads, or
+     * {@code null} if this walker runs the audit. Only the walker running the
+     * audit loads and writes the files shared by the whole audit.
+     */
+    private final XmlWalker owner;
+
+    /**
+     * The worker threads that process a batch of files, created by the first
+     * batch of an audit and shut down when the audit finishes.
+     */
+    private ExecutorService executor;
+
+    /** Control whether to build the AST while parsing instead of from a parse tree. */
+    private boolean buildAstDuringParse;
+
+    /**
+     * Control whether to store the AST of a file in parallel primitive arrays
+     * instead of one object per node.
+     */
+    private boolean compactAst;
+
+    /**
+     * Control whether to only run the lexer, without parsing, when all checks
+     * only inspect single tokens.
+     */
+    private boolean tokenOnlyExecution;
+
+    /**
+     * Whether the files are only tokenized, worked out again every time the
+     * checks or filters change.
+     */
+    private boolean tokenOnly;
+
+    /**
+     * Control whether checks that are safe for it walk the AST of a file
+     * concurrently, on a pool of threads owned by the walker.
+     */
+    private boolean concurrentChecks;
+
+    /** The recorded timings, or {@code null} if timing is disabled. */
+    private WalkerTimings timings;
+
+    /** Specify the file the summary of the timings is written to. */
+    private File timingSummaryFile;
+
+    /** The worst files processed, or {@code null} if they are not reported. */
+    private SlowFileReport slowFileReport;
+
+    /** Specify the file the report of the worst files is written to. */
+    private File slowFileReportFile;
+
+    /** Specify the number of files listed in each ranking of the slow file report. */
+    private int slowFileReportSize = SlowFileReport.DEFAULT_SIZE;
+
+    /** Specify the file the decision profile of the parser is written to. */
+    private File decisionProfileFile;
+
     /**
      * Creates a new {@code XmlWalker} instance.
      */
     public XmlWalker() {
+        this(null);
+    }
+
+    /**
+     * Creates a new {@code XmlWalker} instance.
+     *
+     * @param owner the walker this walker is a worker of, or {@code null}
+     */
+    private XmlWalker(XmlWalker owner) {
+        this.owner = owner;
         setFileExtensions("xml");
     }
 
@@ -90,12 +245,440 @@ public final class XmlWalker extends AbstractFileSetCheck implements ExternalRes
         this.moduleFactory = moduleFactory;
     }
 
+    /**
+     * Setter to control whether to parse files with SLL prediction first and
+     * only fall back to full LL prediction when that fails.
+     *
+     * @param twoStagePrediction {@code true} to use two-stage prediction.
+     */
+    public void setTwoStagePrediction(boolean twoStagePrediction) {
+        this.twoStagePrediction = twoStagePrediction;
+    }
+
+    /**
+     * Setter to control whether to build the AST while the file is parsed,
+     * instead of building a full parse tree first and converting it.
+     *
+     * @param buildAstDuringParse {@code true} to build the AST while parsing.
+     */
+    public void setBuildAstDuringParse(boolean buildAstDuringParse) {
+        this.buildAstDuringParse = buildAstDuringParse;
+    }
+
+    /**
+     * Setter to control whether to store the AST of a file in parallel
+     * primitive arrays, read through short-lived cursors, instead of one
+     * object per node. This puts much less load on the garbage collector for
+     * large files. The AST is always built while the file is parsed.
+     *
+     * @param compactAst {@code true} to store the AST in parallel arrays.
+     */
+    public void setCompactAst(boolean compactAst) {
+        this.compactAst = compactAst;
+    }
+
+    /**
+     * Setter to control whether to only run the lexer, without parsing, when
+     * all checks only inspect single tokens and there are no filters. Syntax
+     * errors in a file are not reported in that case, so this is disabled by
+     * default.
+     *
+     * @param tokenOnlyExecution {@code true} to allow token-only execution.
+     */
+    public void setTokenOnlyExecution(boolean tokenOnlyExecution) {
+        this.tokenOnlyExecution = tokenOnlyExecution;
+        tokenOnly = isTokenOnly();
+    }
+
+    /**
+     * Setter to control whether checks that declare themselves safe for it walk
+     * the AST of a file concurrently, on a bounded fork-join pool owned by
+     * this walker, while the other checks walk it sequentially as usual. The
+     * AST is frozen first, so it cannot be modified while it is shared.
+     *
+     * @param concurrentChecks {@code true} to walk the AST concurrently.
+     */
+    public void setConcurrentChecks(boolean concurrentChecks) {
+        this.concurrentChecks = concurrentChecks;
+    }
+
+    /**
+     * Setter to control whether to record the time spent in each phase of
+     * processing a file, and by each check in each of its callbacks, together
+     * with the number of calls. The timings are available from
+     * {@link #getTimings()}.
+     *
+     * @param timing {@code true} to record timings.
+     */
+    public void setTiming(boolean timing) {
+        if (timing && timings == null) {
+            timings = new WalkerTimings();
+            ordinaryChecks.forEach(timings::addCheck);
+            buildDispatchPlan();
+        }
+        else if (!timing && timings != null) {
+            timings = null;
+            buildDispatchPlan();
+        }
+    }
+
+    /**
+     * Setter to specify the file a summary of the timings is written to when
+     * processing finishes. Setting it also enables timing.
+     *
+     * @param timingSummaryFile the path of the summary file.
+     */
+    public void setTimingSummaryFile(String timingSummaryFile) {
+        this.timingSummaryFile = new File(timingSummaryFile);
+        setTiming(true);
+    }
+
+    /**
+     * Returns the timings recorded since processing began, including the ones
+     * of the worker threads.
+     *
+     * @return the timings, or {@code null} if timing is disabled.
+     */
+    public WalkerTimings getTimings() {
+        WalkerTimings result = null;
+        if (timings != null) {
+            result = timings.snapshot();
+            for (XmlWalker worker : workers) {
+                if (worker.timings != null) {
+                    result.merge(worker.timings);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Setter to specify the file a report of the worst files is written to
+     * when processing finishes, as JSON. The files are ranked by parse time,
+     * walk time, number of AST nodes and bytes allocated by the thread
+     * processing the file.
+     *
+     * @param slowFileReportFile the path of the report file.
+     */
+    public void setSlowFileReportFile(String slowFileReportFile) {
+        this.slowFileReportFile = new File(slowFileReportFile);
+    }
+
+    /**
+     * Setter to specify the number of files listed in each ranking of the slow
+     * file report.
+     *
+     * @param slowFileReportSize the number of files.
+     */
+    public void setSlowFileReportSize(int slowFileReportSize) {
+        this.slowFileReportSize = slowFileReportSize;
+    }
+
+    /**
+     * Returns the worst files processed since processing began, including the
+     * ones processed by the worker threads.
+     *
+     * @return the report, or {@code null} if no report file is set.
+     */
+    public SlowFileReport getSlowFileReport() {
+        return slowFileReport;
+    }
+
+    /**
+     * Setter to specify the maximum number of DFA states the parser keeps in its
+     * cache before the largest decisions are cleared. The cache is shared by all
+     * walkers of this kind.
+     *
+     * @param maxDfaStates the maximum number of DFA states.
+     */
+    public void setMaxDfaStates(int maxDfaStates) {
+        XmlParser.getDfaCacheManager().setMaxDfaStates(maxDfaStates);
+    }
+
+    /**
+     * Setter to specify the maximum number of elements nested in each other.
+     * Files nested deeper are rejected before the parser can overflow the
+     * stack. The limit is shared by all walkers of this kind.
+     *
+     * @param maxNestingDepth the maximum nesting depth.
+     */
+    public void setMaxNestingDepth(int maxNestingDepth) {
+        XmlParser.setMaxNestingDepth(maxNestingDepth);
+    }
+
+    /**
+     * Setter to specify the percentage of the maximum heap that can be used
+     * before the DFA cache of the parser is cleared completely. The cache is
+     * shared by all walkers of this kind.
+     *
+     * @param dfaHeapUsageThreshold the heap usage threshold in percent.
+     */
+    public void setDfaHeapUsageThreshold(int dfaHeapUsageThreshold) {
+        XmlParser.getDfaCacheManager().setHeapUsageThreshold(dfaHeapUsageThreshold);
+    }
+
+    /**
+     * Setter to specify the file the DFA cache of the parser is loaded from
+     * when processing starts and saved to when it finishes, so the cache does
+     * not start cold in every run. A snapshot saved for another version of the
+     * grammar is ignored. The file should not be shared with other kinds of
+     * walkers.
+     *
+     * @param dfaSnapshotFile the path of the snapshot file.
+     */
+    public void setDfaSnapshotFile(String dfaSnapshotFile) {
+        this.dfaSnapshotFile = new File(dfaSnapshotFile);
+    }
+
+    /**
+     * Setter to specify the file a profile of the decisions of the parser is
+     * written to when processing finishes. Setting it profiles every parse
+     * between {@link #beginProcessing(String)} and {@link #finishProcessing()},
+     * which makes parsing noticeably slower. The profiler is shared by all
+     * walkers of this kind.
+     *
+     * @param decisionProfileFile the path of the profile file.
+     */
+    public void setDecisionProfileFile(String decisionProfileFile) {
+        this.decisionProfileFile = new File(decisionProfileFile);
+    }
+
+    /**
+     * Setter to specify the number of threads used by
+     * {@link #processFiles(List, String)} to process a batch of files.
+     *
+     * @param threadCount the number of threads.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Processes a batch of files on a bounded pool of worker threads. Each
+     * worker uses its own walker, with its own instances of the checks and
+     * filters created from the configuration of this walker, so the per-file
+     * state kept by checks is never shared between threads. The violations of
+     * each file are the same, and in the same order, as when the files are
+     * processed one after the other.
+     *
+     * <p>
+     * {@code Checker} processes its files one at a time through
+     * {@link #process(File, FileText)} and never calls this method. It is meant
+     * for code that drives the walker itself: configure it, call
+     * {@link #beginProcessing(String)}, call this method for one or more
+     * batches, and call {@link #finishProcessing()}. The worker threads and
+     * their walkers are reused by every batch of the audit, and the worker
+     * threads are shut down when it finishes.
+     * </p>
+     *
+     * @param files the files to process.
+     * @param charset the name of the charset of the files.
+     * @return the violations of each file, in the order of the given files.
+     * @throws CheckstyleException if a file could not be read or processed.
+     */
+    public Map<File, SortedSet<Violation>> processFiles(List<File> files, String charset)
+            throws CheckstyleException {
+        createWorkers(Math.max(1, Math.min(threadCount, files.size())), charset);
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, threadCount), runnable -> {
+                final Thread thread = new Thread(runnable, "XmlWalker-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        final List<Future<SortedSet<Violation>>> futures = new ArrayList<>();
+        for (File file : files) {
+            futures.add(executor.submit(() -> processWithWorker(file, charset)));
+        }
+
+        final Map<File, SortedSet<Violation>> result = new LinkedHashMap<>();
+        for (int index = 0; index < files.size(); index++) {
+            result.put(files.get(index), getResult(files.get(index), futures.get(index)));
+        }
+        return result;
+    }
+
+    /**
+     * Creates the walkers of the worker threads and begins processing on them.
+     * They are given the same context and configuration as this walker, and
+     * this walker as their owner, so they leave the files shared by the whole
+     * audit to this walker.
+     *
+     * @param count the number of walkers needed.
+     * @param charset the name of the charset of the files.
+     * @throws CheckstyleException if a walker could not be configured.
+     */
+    private void createWorkers(int count, String charset) throws CheckstyleException {
+        while (workerCount < count) {
+            final DefaultContext workerContext = new DefaultContext();
+            workerContext.add("moduleFactory", moduleFactory);
+            workerContext.add("severity", getSeverity());
+            workerContext.add("tabWidth", String.valueOf(getTabWidth()));
+
+            final XmlWalker worker = new XmlWalker(this);
+            worker.contextualize(workerContext);
+            worker.configure(getConfiguration());
+            worker.beginProcessing(charset);
+            workers.add(worker);
+            workerCount++;
+        }
+    }
+
+    /**
+     * Processes a file with one of the walkers of the worker threads.
+     *
+     * @param file the file to process.
+     * @param charset the name of the charset of the file.
+     * @return the violations of the file.
+     * @throws Exception if the file could not be read or processed.
+     */
+    private SortedSet<Violation> processWithWorker(File file, String charset) throws Exception {
+        final XmlWalker worker = workers.take();
+        try {
+            return worker.process(file, new FileText(file.getAbsoluteFile(), charset));
+        }
+        finally {
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Waits for the violations of a file processed by a worker thread.
+     *
+     * @param file the file processed.
+     * @param future the result of the worker thread.
+     * @return the violations of the file.
+     * @throws CheckstyleException if the file could not be read or processed.
+     */
+    private static SortedSet<Violation> getResult(File file,
+            Future<SortedSet<Violation>> future) throws CheckstyleException {
+        try {
+            return future.get();
+        }
+        catch (final ExecutionException ex) {
+            throw new CheckstyleException(
+                    "Exception was thrown while processing " + file.getPath(), ex.getCause());
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException(
+                    "Interrupted while processing " + file.getPath(), ex);
+        }
+    }
+
+    @Override
+    public void beginProcessing(String charset) {
+        super.beginProcessing(charset);
+        for (XmlWalker worker : workers) {
+            worker.beginProcessing(charset);
+        }
+        if (timings != null) {
+            timings.reset();
+        }
+        if (owner == null) {
+            beginAudit();
+        }
+    }
+
+    /**
+     * Loads and resets what is shared by the whole audit, when this walker runs
+     * the audit.
+     */
+    private void beginAudit() {
+        if (dfaSnapshotFile != null) {
+            XmlParser.getDfaCacheManager().loadSnapshot(dfaSnapshotFile);
+        }
+        if (slowFileReportFile != null) {
+            slowFileReport.reset();
+        }
+        if (decisionProfileFile != null) {
+            XmlParser.getDecisionProfiler().reset();
+            XmlParser.getDecisionProfiler().setEnabled(true);
+        }
+    }
+
+    @Override
+    public void finishProcessing() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (checkExecutor != null) {
+            checkExecutor.shutdownNow();
+            checkExecutor = null;
+        }
+        workers.forEach(XmlWalker::finishProcessing);
+        if (owner == null) {
+            finishAudit();
+        }
+        super.finishProcessing();
+    }
+
+    /**
+     * Writes what is shared by the whole audit, when this walker runs the
+     * audit.
+     */
+    private void finishAudit() {
+        if (dfaSnapshotFile != null) {
+            try {
+                XmlParser.getDfaCacheManager().saveSnapshot(dfaSnapshotFile);
+            }
+            catch (final IOException ex) {
+                // the snapshot only speeds up the next run, so the audit goes on without it
+                LOGGER.log(Level.WARNING, "Unable to save DFA snapshot " + dfaSnapshotFile, ex);
+            }
+        }
+        if (timingSummaryFile != null && timings != null) {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(timingSummaryFile),
+                    StandardCharsets.UTF_8)) {
+                getTimings().writeSummary(writer);
+            }
+            catch (final IOException ex) {
+                LOGGER.log(Level.WARNING, "Unable to write timing summary " + timingSummaryFile,
+                        ex);
+            }
+        }
+        if (slowFileReportFile != null) {
+            try (Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(slowFileReportFile), StandardCharsets.UTF_8)) {
+                slowFileReport.writeJson(writer);
+            }
+            catch (final IOException ex) {
+                LOGGER.log(Level.WARNING,
+                        "Unable to write slow file report " + slowFileReportFile, ex);
+            }
+        }
+        if (decisionProfileFile != null) {
+            try (Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(decisionProfileFile), StandardCharsets.UTF_8)) {
+                XmlParser.getDecisionProfiler().writeSummary(writer);
+            }
+            catch (final IOException ex) {
+                LOGGER.log(Level.WARNING,
+                        "Unable to write decision profile " + decisionProfileFile, ex);
+            }
+            finally {
+                // the profiler is shared by the whole JVM, so it must not slow down other parses
+                XmlParser.getDecisionProfiler().setEnabled(false);
+            }
+        }
+    }
+
     @Override
     public void finishLocalSetup() {
         final DefaultContext checkContext = new DefaultContext();
         checkContext.add("severity", getSeverity());
         checkContext.add("tabWidth", String.valueOf(getTabWidth()));
         childContext = checkContext;
+        if (slowFileReportFile != null) {
+            if (owner == null) {
+                slowFileReport = new SlowFileReport(slowFileReportSize);
+            }
+            else {
+                slowFileReport = owner.slowFileReport;
+            }
+        }
     }
 
     /**
@@ -125,15 +708,22 @@ public final class XmlWalker extends AbstractFileSetCheck implements ExternalRes
             check.init();
             registerCheck(check);
         }
+        else if (module instanceof XmlWalkerBatchFilter) {
+            final XmlWalkerBatchFilter filter = (XmlWalkerBatchFilter) module;
+            addFilter(module, (fileName, fileContents, rootAST, violations) -> filter.accept(
+                    fileContents, fileName, rootAST, violations.asList()));
+        }
         else if (module instanceof XmlWalkerFilter) {
             final XmlWalkerFilter filter = (XmlWalkerFilter) module;
-            filters.add(filter);
+            addFilter(module, (fileName, fileContents, rootAST, violations) -> acceptEach(
+                    filter, fileName, fileContents, rootAST, violations));
         }
         else {
             throw new CheckstyleException("XmlWalker is not allowed as a parent of " + name
                     + " Please review 'Parent Module' section for this Check in web"
                     + " documentation if Check is standard.");
         }
+        tokenOnly = isTokenOnly();
     }
 
     @Override
@@ -141,41 +731,218 @@ public final class XmlWalker extends AbstractFileSetCheck implements ExternalRes
         // check if already checked and passed the file
         if (!ordinaryChecks.isEmpty()) {
             final FileContents contents = getFileContents();
-            final XmlAST rootAST = XmlParser.parse(contents);
-            if (!ordinaryChecks.isEmpty()) {
-                walk(rootAST, contents);
+            final long allocationStart = startAllocation();
+            final long fileStart = startPhase();
+            long phaseStart = fileStart;
+            final FileWalkedEvent walkedEvent = new FileWalkedEvent();
+            final XmlAST rootAST;
+            final long walkStart;
+            if (tokenOnly) {
+                rootAST = null;
+                walkedEvent.begin();
+                walkStart = METRICS.startWalk();
+                walkTokens(contents);
             }
+            else {
+                rootAST = XmlParser.parse(contents, twoStagePrediction, buildAstDuringParse,
+                        compactAst);
+                phaseStart = finishPhase(WalkerTimings.Phase.PARSE, phaseStart);
+                walkedEvent.begin();
+                walkStart = METRICS.startWalk();
+                if (concurrentChecks && !concurrentPlans.isEmpty()) {
+                    walkConcurrently(rootAST, contents);
+                }
+                else {
+                    walk(rootAST, contents);
+                }
+            }
+            METRICS.finishWalk(walkStart);
+            final long parseEnd = phaseStart;
+            phaseStart = finishPhase(WalkerTimings.Phase.WALK, phaseStart);
+            addSlowFile(file, rootAST, parseEnd - fileStart, phaseStart - parseEnd,
+                    allocationStart);
+            commitWalkedEvent(walkedEvent, file);
+
+            final ViolationsFilteredEvent filteredEvent = new ViolationsFilteredEvent();
+            filteredEvent.begin();
+            final SortedViolationSet sortedViolations = SortedViolationSet.of(violations);
+            violations.clear();
+            final SortedViolationSet reportedViolations;
             if (filters.isEmpty()) {
-                addViolations(violations);
+                reportedViolations = sortedViolations;
             }
             else {
-                final SortedSet<Violation> filteredViolations = getFilteredViolations(
-                        file.getAbsolutePath(), contents, rootAST);
-                addViolations(filteredViolations);
+                reportedViolations = getFilteredViolations(file.getAbsolutePath(), contents,
+                        rootAST, sortedViolations);
             }
-            violations.clear();
+            addViolations(reportedViolations);
+            METRICS.recordFile(sortedViolations.size(), reportedViolations.size());
+            commitFilteredEvent(filteredEvent, file, sortedViolations.size(),
+                    reportedViolations.size());
+            finishPhase(WalkerTimings.Phase.FILTER, phaseStart);
+        }
+    }
+
+    /**
+     * Commits the JFR event of a walked file, if it is enabled.
+     *
+     * @param event the event, started when the walk started
+     * @param file the file walked
+     */
+    private void commitWalkedEvent(FileWalkedEvent event, File file) {
+        if (event.shouldCommit()) {
+            event.setWalker(getClass().getSimpleName());
+            event.setPath(file.getPath());
+            event.setChecksInvoked(ordinaryChecks.size());
+            event.commit();
+        }
+    }
+
+    /**
+     * Commits the JFR event of the filtered violations of a file, if it is
+     * enabled.
+     *
+     * @param event the event, started when filtering started
+     * @param file the file the violations are for
+     * @param before the number of violations before filtering
+     * @param after the number of violations after filtering
+     */
+    private void commitFilteredEvent(ViolationsFilteredEvent event, File file, int before,
+            int after) {
+        if (event.shouldCommit()) {
+            event.setWalker(getClass().getSimpleName());
+            event.setPath(file.getPath());
+            event.setBefore(before);
+            event.setAfter(after);
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the time a phase starts at, if timing is enabled or the worst
+     * files are reported.
+     *
+     * @return the current time in nanoseconds, or 0 if nothing is timed
+     */
+    private long startPhase() {
+        long result = 0;
+        if (timings != null || slowFileReport != null) {
+            result = System.nanoTime();
         }
+        return result;
+    }
+
+    /**
+     * Records the time spent in a phase, if timing is enabled.
+     *
+     * @param phase the phase that finished
+     * @param start the time the phase started at
+     * @return the time the next phase starts at
+     */
+    private long finishPhase(WalkerTimings.Phase phase, long start) {
+        long result = 0;
+        if (timings != null || slowFileReport != null) {
+            result = System.nanoTime();
+            if (timings != null) {
+                timings.record(phase, result - start);
+            }
+        }
+        return result;
     }
 
     /**
-     * Returns filtered set of {@link Violation}.
+     * Returns the bytes allocated by the current thread so far, if the worst
+     * files are reported.
+     *
+     * @return the allocated bytes, or -1 if they are not measured
+     */
+    private long startAllocation() {
+        long result = -1;
+        if (slowFileReport != null) {
+            result = SlowFileReport.getAllocatedBytes();
+        }
+        return result;
+    }
+
+    /**
+     * Adds a processed file to the report of the worst files, if they are
+     * reported.
+     *
+     * @param file the file processed
+     * @param rootAST the root of the AST of the file, or {@code null}
+     * @param parseNanos the time spent parsing the file
+     * @param walkNanos the time spent walking the AST of the file
+     * @param allocationStart the bytes allocated by the current thread when
+     *        processing started, or -1
+     */
+    private void addSlowFile(File file, XmlAST rootAST, long parseNanos, long walkNanos,
+            long allocationStart) {
+        if (slowFileReport != null) {
+            long allocatedBytes = -1;
+            if (allocationStart >= 0) {
+                allocatedBytes = SlowFileReport.getAllocatedBytes() - allocationStart;
+            }
+            slowFileReport.add(new SlowFileReport.FileStats(file.getPath(), parseNanos,
+                    walkNanos, XmlAstUtil.countNodes(rootAST), allocatedBytes));
+        }
+    }
+
+    /**
+     * Returns filtered set of {@link Violation}. Each filter only gets the
+     * violations accepted by the filters before it.
      *
      * @param fileName path to the file
      * @param fileContents the contents of the file
      * @param rootAST root AST element {@link XmlAST} of the file
+     * @param sortedViolations the sorted violations of the file
      * @return filtered set of violations
      */
-    private SortedSet<Violation> getFilteredViolations(String fileName, FileContents fileContents,
-            XmlAST rootAST) {
-        final SortedSet<Violation> result = new TreeSet<>(violations);
-        for (Violation element : violations) {
+    private SortedViolationSet getFilteredViolations(String fileName, FileContents fileContents,
+            XmlAST rootAST, SortedViolationSet sortedViolations) {
+        SortedViolationSet result = sortedViolations;
+        for (ViolationFilter filter : filters) {
+            if (result.isEmpty()) {
+                break;
+            }
+            result = result.filter(filter.accept(fileName, fileContents, rootAST, result));
+        }
+        return result;
+    }
+
+    /**
+     * Adds a filter, adapted to the type the walker calls.
+     *
+     * @param module the configured filter
+     * @param filter the adapted filter
+     */
+    private void addFilter(Object module, ViolationFilter filter) {
+        filters.add(filter);
+        if (module instanceof ExternalResourceHolder) {
+            filterResources.add((ExternalResourceHolder) module);
+        }
+    }
+
+    /**
+     * Calls a single event filter for each violation. The events only create
+     * their violation if the filter looks at more than the line number.
+     *
+     * @param filter the filter
+     * @param fileName path to the file
+     * @param fileContents the contents of the file
+     * @param rootAST root AST element {@link XmlAST} of the file
+     * @param sortedViolations the sorted violations to filter
+     * @return the indexes of the accepted violations
+     */
+    private static BitSet acceptEach(XmlWalkerFilter filter, String fileName,
+            FileContents fileContents, XmlAST rootAST, SortedViolationSet sortedViolations) {
+        final List<ViolationRecord> records = sortedViolations.getRecords();
+        final BitSet result = new BitSet(records.size());
+        for (int index = 0; index < records.size(); index++) {
+            final ViolationRecord record = records.get(index);
             final XmlWalkerAuditEvent event = new XmlWalkerAuditEvent(fileContents, fileName,
-                    element, rootAST);
-            for (XmlWalkerFilter filter : filters) {
-                if (!filter.accept(event)) {
-                    result.remove(element);
-                    break;
-                }
+                    record.getLineNo(), record::toViolation, rootAST);
+            if (filter.accept(event)) {
+                result.set(index);
             }
         }
         return result;
@@ -217,6 +984,10 @@ public final class XmlWalker extends AbstractFileSetCheck implements ExternalRes
         }
 
         ordinaryChecks.add(check);
+        if (timings != null) {
+            timings.addCheck(check);
+        }
+        buildDispatchPlan();
     }
 
     /**
@@ -230,6 +1001,34 @@ public final class XmlWalker extends AbstractFileSetCheck implements ExternalRes
                 .add(check);
     }
 
+    /**
+     * Checks if the files can be only tokenized instead of parsed. This is the
+     * case when all checks only need single tokens that are created by the
+     * lexer, and there are no filters that could inspect the AST.
+     *
+     * @return {@code true} if only the lexer needs to run
+     */
+    private boolean isTokenOnly() {
+        return tokenOnlyExecution && filters.isEmpty()
+                && ordinaryChecks.stream().allMatch(AbstractXmlCheck::isTokenOnly)
+                && tokenToOrdinaryChecks.keySet().stream()
+                        .allMatch(XmlAstUtil::isLexerTokenType);
+    }
+
+    /**
+     * Initiates the walk of the tokens of a file, without parsing it.
+     *
+     * @param contents the contents of the file.
+     */
+    private void walkTokens(FileContents contents) {
+        notifyBegin(ordinaryChecks, null, contents, timings);
+        XmlParser.tokenize(contents, token -> {
+            dispatchPlan.notifyVisit(token);
+            dispatchPlan.notifyLeave(token);
+        });
+        notifyEnd(ordinaryChecks, null, violations, timings);
+    }
+
     /**
      * Initiates the walk of an AST.
      *
@@ -237,119 +1036,209 @@ public final class XmlWalker extends AbstractFileSetCheck implements ExternalRes
      * @param contents the contents of the file the AST was generated from.
      */
     private void walk(XmlAST ast, FileContents contents) {
-        notifyBegin(ast, contents);
-        processIter(ast);
-        notifyEnd(ast);
+        notifyBegin(ordinaryChecks, ast, contents, timings);
+        dispatchPlan.processIter(ast);
+        notifyEnd(ordinaryChecks, ast, violations, timings);
     }
 
     /**
-     * Notify checks that we are about to begin walking a tree.
+     * Initiates the walk of an AST where each check that is safe for it walks
+     * the AST on a thread of the pool of this walker, while the other checks
+     * walk it on this thread.
      *
-     * @param rootAST the root of the tree.
+     * @param ast the root AST
      * @param contents the contents of the file the AST was generated from.
+     * @throws CheckstyleException if a check failed while walking the AST.
      */
-    private void notifyBegin(XmlAST rootAST, FileContents contents) {
-        final Set<AbstractXmlCheck> checks = ordinaryChecks;
+    private void walkConcurrently(XmlAST ast, FileContents contents)
+            throws CheckstyleException {
+        // a compact AST can not be modified at all
+        if (ast instanceof XmlAstImpl) {
+            ((XmlAstImpl) ast).freeze();
+        }
+        if (checkExecutor == null) {
+            final int poolSize = Math.min(concurrentPlans.size(),
+                    Runtime.getRuntime().availableProcessors());
+            checkExecutor = new ForkJoinPool(Math.max(1, poolSize), pool -> {
+                final ForkJoinWorkerThread thread =
+                        ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("XmlWalker-check-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
 
-        for (AbstractXmlCheck check : checks) {
-            check.setFileContents(contents);
-            check.clearViolations();
-            check.beginTree(rootAST);
+        final List<ForkJoinTask<List<ViolationRecord>>> tasks = new ArrayList<>();
+        for (Map.Entry<AbstractXmlCheck, DispatchPlan> entry : concurrentPlans.entrySet()) {
+            tasks.add(checkExecutor.submit(
+                    () -> walkCheck(entry.getKey(), entry.getValue(), ast, contents, timings)));
+        }
+
+        try {
+            notifyBegin(sequentialChecks, ast, contents, timings);
+            sequentialPlan.processIter(ast);
+            notifyEnd(sequentialChecks, ast, violations, timings);
+        }
+        finally {
+            // every check must be done with this file before the next one starts,
+            // even when another check failed; cancelling would not stop a task
+            // that already started, it would only stop waiting for it
+            tasks.forEach(ForkJoinTask::quietlyJoin);
+        }
+
+        for (ForkJoinTask<List<ViolationRecord>> task : tasks) {
+            violations.addAll(getResult(contents, task));
         }
     }
 
     /**
-     * Notify checks that we have finished walking a tree.
+     * Gets the records of the violations of a check walked on a thread of the
+     * pool of this walker.
      *
-     * @param rootAST the root of the tree.
+     * @param contents the contents of the file walked.
+     * @param task the walk of the check, which has ended.
+     * @return the records of the violations of the check.
+     * @throws CheckstyleException if the check failed while walking the AST.
      */
-    private void notifyEnd(XmlAST rootAST) {
-        final Set<AbstractXmlCheck> checks = ordinaryChecks;
-
-        for (AbstractXmlCheck check : checks) {
-            check.finishTree(rootAST);
-            violations.addAll(check.getViolations());
+    private static List<ViolationRecord> getResult(FileContents contents,
+            ForkJoinTask<List<ViolationRecord>> task) throws CheckstyleException {
+        try {
+            return task.get();
+        }
+        catch (final ExecutionException ex) {
+            throw new CheckstyleException(
+                    "Exception was thrown while walking " + contents.getFileName(),
+                    ex.getCause());
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException(
+                    "Interrupted while walking " + contents.getFileName(), ex);
         }
     }
 
     /**
-     * Notify checks that visiting a node.
+     * Walks an AST with a single check. The context the check keeps for the
+     * current thread is dropped afterwards, so the threads of the pool do not
+     * hold on to the contents of the file.
      *
-     * @param ast the node to notify for.
+     * @param check the check
+     * @param plan the dispatch plan of the check
+     * @param ast the root AST
+     * @param contents the contents of the file the AST was generated from.
+     * @param timings the timings to record to, or {@code null}
+     * @return the records of the violations of the check
      */
-    private void notifyVisit(XmlAST ast) {
-        final Collection<AbstractXmlCheck> visitors = getListOfChecks(ast);
+    private static List<ViolationRecord> walkCheck(AbstractXmlCheck check, DispatchPlan plan,
+            XmlAST ast, FileContents contents, WalkerTimings timings) {
+        final Set<AbstractXmlCheck> checks = Collections.singleton(check);
+        final List<ViolationRecord> result = new ArrayList<>();
 
-        if (visitors != null) {
-            for (AbstractXmlCheck check : visitors) {
-                check.visitToken(ast);
-            }
+        try {
+            notifyBegin(checks, ast, contents, timings);
+            plan.processIter(ast);
+            notifyEnd(checks, ast, result, timings);
+        }
+        finally {
+            check.removeThreadContext();
         }
+        return result;
     }
 
     /**
-     * Notify checks that leaving a node.
-     *
-     * @param ast the node to notify for
+     * Builds the dispatch plans of the registered checks, so the walk does not
+     * need to look them up in a map.
      */
-    private void notifyLeave(XmlAST ast) {
-        final Collection<AbstractXmlCheck> visitors = getListOfChecks(ast);
+    private void buildDispatchPlan() {
+        dispatchPlan = new DispatchPlan(tokenToOrdinaryChecks, check -> true, timings);
 
-        if (visitors != null) {
-            for (AbstractXmlCheck check : visitors) {
-                check.leaveToken(ast);
+        sequentialChecks.clear();
+        concurrentPlans.clear();
+        for (AbstractXmlCheck check : ordinaryChecks) {
+            if (check.isConcurrentWalkSafe()) {
+                concurrentPlans.put(check,
+                        new DispatchPlan(tokenToOrdinaryChecks, check::equals, timings));
+            }
+            else {
+                sequentialChecks.add(check);
             }
         }
+        sequentialPlan = new DispatchPlan(tokenToOrdinaryChecks, sequentialChecks::contains,
+                timings);
     }
 
     /**
-     * Method returns list of checks.
+     * Notify checks that we are about to begin walking a tree.
      *
-     * @param ast the node to notify for
-     * @return list of visitors
+     * @param checks the checks to notify.
+     * @param rootAST the root of the tree.
+     * @param contents the contents of the file the AST was generated from.
+     * @param timings the timings to record to, or {@code null}.
      */
-    private Collection<AbstractXmlCheck> getListOfChecks(XmlAST ast) {
-        final int tokenId = ast.getType();
-        final Collection<AbstractXmlCheck> visitors = tokenToOrdinaryChecks.get(tokenId);
+    private static void notifyBegin(Set<AbstractXmlCheck> checks, XmlAST rootAST,
+            FileContents contents, WalkerTimings timings) {
+        for (AbstractXmlCheck check : checks) {
+            check.setFileContents(contents);
+            check.clearViolations();
+            if (timings == null) {
+                check.beginTree(rootAST);
+            }
+            else {
+                final long start = System.nanoTime();
+                check.beginTree(rootAST);
+                timings.record(check, WalkerTimings.CheckEvent.BEGIN_TREE,
+                        System.nanoTime() - start);
+            }
+        }
+    }
 
-        return visitors;
+    /**
+     * Notify checks that we have finished walking a tree.
+     *
+     * @param checks the checks to notify.
+     * @param rootAST the root of the tree.
+     * @param target the list to move the records of the violations to.
+     * @param timings the timings to record to, or {@code null}.
+     */
+    private static void notifyEnd(Set<AbstractXmlCheck> checks, XmlAST rootAST,
+            List<ViolationRecord> target, WalkerTimings timings) {
+        for (AbstractXmlCheck check : checks) {
+            if (timings == null) {
+                check.finishTree(rootAST);
+            }
+            else {
+                final long start = System.nanoTime();
+                check.finishTree(rootAST);
+                timings.record(check, WalkerTimings.CheckEvent.FINISH_TREE,
+                        System.nanoTime() - start);
+            }
+            check.drainViolationRecords(target);
+        }
     }
 
     @Override
     public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (checkExecutor != null) {
+            checkExecutor.shutdownNow();
+            checkExecutor = null;
+        }
+        workers.forEach(XmlWalker::destroy);
         ordinaryChecks.forEach(AbstractXmlCheck::destroy);
         super.destroy();
     }
 
     @Override
     public Set<String> getExternalResourceLocations() {
-        return Stream.concat(filters.stream(), ordinaryChecks.stream())
+        return Stream.concat(filterResources.stream(), ordinaryChecks.stream()
                 .filter(ExternalResourceHolder.class::isInstance)
-                .map(ExternalResourceHolder.class::cast)
+                .map(ExternalResourceHolder.class::cast))
                 .flatMap(resource -> resource.getExternalResourceLocations().stream())
                 .collect(Collectors.toSet());
     }
 
-    /**
-     * Processes a node calling interested checks at each node. Uses iterative
-     * algorithm.
-     *
-     * @param root the root of tree for process
-     */
-    private void processIter(XmlAST root) {
-        XmlAST curNode = root;
-        while (curNode != null) {
-            notifyVisit(curNode);
-            XmlAST toVisit = curNode.getFirstChild();
-            while (curNode != null && toVisit == null) {
-                notifyLeave(curNode);
-                toVisit = curNode.getNextSibling();
-                curNode = curNode.getParent();
-            }
-            curNode = toVisit;
-        }
-    }
-
     /**
      * Creates a new {@link SortedSet} with a deterministic order based on the
      * Check's name before the default ordering.
@@ -364,4 +1253,180 @@ public final class XmlWalker extends AbstractFileSetCheck implements ExternalRes
                         .thenComparing(AbstractXmlCheck::hashCode));
     }
 
+    /**
+     * The checks to notify for each token type, stored in arrays indexed by
+     * token type.
+     */
+    private static final class DispatchPlan {
+
+        /** Checks to notify when visiting a node, indexed by token type. */
+        private final AbstractXmlCheck[][] visitChecks;
+
+        /**
+         * Checks to notify when leaving a node, indexed by token type. Checks
+         * that do not override {@link AbstractXmlCheck#leaveToken} are left out.
+         */
+        private final AbstractXmlCheck[][] leaveChecks;
+
+        /** Mask of the token types any check of the plan is registered for. */
+        private long interestTypeMask;
+
+        /** The timings to record to, or {@code null} if timing is disabled. */
+        private final WalkerTimings timings;
+
+        /**
+         * Creates a new {@code DispatchPlan} instance.
+         *
+         * @param tokenToChecks the checks registered for each token type
+         * @param filter the filter of the checks to include in the plan
+         * @param timings the timings to record to, or {@code null}
+         */
+        private DispatchPlan(Map<Integer, Set<AbstractXmlCheck>> tokenToChecks,
+                Predicate<AbstractXmlCheck> filter, WalkerTimings timings) {
+            this.timings = timings;
+
+            final int size = tokenToChecks.keySet().stream().mapToInt(Integer::intValue)
+                    .max().orElse(-1) + 1;
+
+            visitChecks = new AbstractXmlCheck[size][];
+            leaveChecks = new AbstractXmlCheck[size][];
+            Arrays.fill(visitChecks, EMPTY_CHECKS);
+            Arrays.fill(leaveChecks, EMPTY_CHECKS);
+
+            for (Map.Entry<Integer, Set<AbstractXmlCheck>> entry : tokenToChecks.entrySet()) {
+                final int tokenId = entry.getKey();
+                visitChecks[tokenId] = entry.getValue().stream().filter(filter)
+                        .toArray(AbstractXmlCheck[]::new);
+                leaveChecks[tokenId] = Arrays.stream(visitChecks[tokenId])
+                        .filter(check -> ModuleReflectionExtraUtil.isMethodOverridden(
+                                check.getClass(), AbstractXmlCheck.class, "leaveToken",
+                                XmlAST.class))
+                        .toArray(AbstractXmlCheck[]::new);
+                if (visitChecks[tokenId].length > 0) {
+                    interestTypeMask |= XmlAstUtil.getTypeMask(tokenId);
+                }
+            }
+        }
+
+        /**
+         * Processes a node calling interested checks at each node. Uses
+         * iterative algorithm. Subtrees that contain no token type any check is
+         * registered for are skipped.
+         *
+         * @param root the root of tree for process
+         */
+        private void processIter(XmlAST root) {
+            XmlAST curNode = skipUninteresting(root);
+            while (curNode != null) {
+                notifyVisit(curNode);
+                XmlAST toVisit = skipUninteresting(curNode.getFirstChild());
+                while (curNode != null && toVisit == null) {
+                    notifyLeave(curNode);
+                    toVisit = skipUninteresting(curNode.getNextSibling());
+                    curNode = curNode.getParent();
+                }
+                curNode = toVisit;
+            }
+        }
+
+        /**
+         * Finds the first of a node and its next siblings whose subtree
+         * contains a token type any check is registered for.
+         *
+         * @param ast the node to start from
+         * @return the node found, or {@code null} if there is none
+         */
+        private XmlAST skipUninteresting(XmlAST ast) {
+            XmlAST result = ast;
+            while (result != null && (result.getSubtreeTypeMask() & interestTypeMask) == 0) {
+                result = result.getNextSibling();
+            }
+            return result;
+        }
+
+        /**
+         * Notify checks that visiting a node.
+         *
+         * @param ast the node to notify for.
+         */
+        private void notifyVisit(XmlAST ast) {
+            final AbstractXmlCheck[] checks = getChecks(visitChecks, ast.getType());
+            if (timings == null) {
+                for (AbstractXmlCheck check : checks) {
+                    check.visitToken(ast);
+                }
+            }
+            else {
+                for (AbstractXmlCheck check : checks) {
+                    final long start = System.nanoTime();
+                    check.visitToken(ast);
+                    timings.record(check, WalkerTimings.CheckEvent.VISIT_TOKEN,
+                            System.nanoTime() - start);
+                }
+            }
+        }
+
+        /**
+         * Notify checks that leaving a node.
+         *
+         * @param ast the node to notify for
+         */
+        private void notifyLeave(XmlAST ast) {
+            final AbstractXmlCheck[] checks = getChecks(leaveChecks, ast.getType());
+            if (timings == null) {
+                for (AbstractXmlCheck check : checks) {
+                    check.leaveToken(ast);
+                }
+            }
+            else {
+                for (AbstractXmlCheck check : checks) {
+                    final long start = System.nanoTime();
+                    check.leaveToken(ast);
+                    timings.record(check, WalkerTimings.CheckEvent.LEAVE_TOKEN,
+                            System.nanoTime() - start);
+                }
+            }
+        }
+
+        /**
+         * Method returns the checks of a token type from a dispatch array.
+         *
+         * @param checks the checks indexed by token type
+         * @param tokenId the id of the token
+         * @return the checks of the token type
+         */
+        private static AbstractXmlCheck[] getChecks(AbstractXmlCheck[][] checks,
+                int tokenId) {
+            final AbstractXmlCheck[] result;
+
+            if (tokenId >= 0 && tokenId < checks.length) {
+                result = checks[tokenId];
+            }
+            else {
+                result = EMPTY_CHECKS;
+            }
+
+            return result;
+        }
+
+    }
+
+    /** A filter of the violations of a file, adapted from a configured filter. */
+    @FunctionalInterface
+    private interface ViolationFilter {
+
+        /**
+         * Determines which violations of a file are accepted.
+         *
+         * @param fileName path to the file
+         * @param fileContents the contents of the file
+         * @param rootAST root AST element {@link XmlAST} of the file
+         * @param violations the sorted violations to filter
+         * @return the indexes of the accepted violations
+         */
+        BitSet accept(String fileName, FileContents fileContents, XmlAST rootAST,
+                SortedViolationSet violations);
+
+    }
+
 }
@@ -24,38 +24,14 @@ options { tokenVocab=PropertyLanguageLexer; }
 @parser::members {
 
     /**
-     * This is the number of files to parse before clearing the parser's
-     * DFA states. This number can have a significant impact on performance;
-     * we have found 500 files to be a good balance between parser speed and
-     * memory usage. This field must be public in order to be accessed and
-     * used for {@link PropertyLanguageParser#PropertyLanguageParser(TokenStream, int)}
-     * generated constructor.
-     */
-    public static final int CLEAR_DFA_LIMIT = 500;
-
-    static int fileCounter = 0;
-
-    /**
-     * We create a custom constructor so that we can clear the DFA
-     * states upon instantiation of PropertyLanguageParser.
+     * Gets the DFA cache shared by all instances of PropertyLanguageParser. The
+     * cache is not cleared by the parser itself; this is left to the code
+     * driving the parser so it can be done based on memory usage.
      *
-     * @param input the token stream to parse
-     * @param clearDfaLimit this is the number of files to parse before clearing
-     *         the parser's DFA states. This number can have a significant impact
-     *         on performance; more frequent clearing of DFA states can lead to
-     *         slower parsing but lower memory usage. Conversely, not clearing the
-     *         DFA states at all can lead to enormous memory usage, but may also
-     *         have a negative effect on memory usage from higher garbage collector
-     *         activity.
+     * @return the shared DFA cache, one DFA per decision
      */
-    public PropertyLanguageParser(TokenStream input, int clearDfaLimit) {
-        super(input);
-        _interp = new ParserATNSimulator(this, _ATN , _decisionToDFA, _sharedContextCache);
-        fileCounter++;
-        if (fileCounter > clearDfaLimit) {
-            _interp.clearDFA();
-            fileCounter = 0;
-        }
+    public static DFA[] getSharedDecisionToDfa() {
+        return _decisionToDFA;
     }
 }
 
@@ -0,0 +1,153 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.asts;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.rnveach.tools.checkstyle.extras.tokens.XmlTokenTypes;
+
+public class XmlAstImplTest {
+
+    @Test
+    public void testAddChildLinksToLastChild() {
+        final XmlAstImpl parent = createImaginary();
+        XmlAstImpl previous = null;
+
+        for (int index = 0; index < 1000; index++) {
+            final XmlAstImpl child = createToken(index + 1, 0);
+            parent.addChild(child);
+
+            assertWithMessage("Added child should be the last child")
+                    .that(parent.getLastChild()).isSameInstanceAs(child);
+            assertWithMessage("Added child should follow the previous last child")
+                    .that(child.getPreviousSibling()).isSameInstanceAs(previous);
+            if (previous != null) {
+                assertWithMessage("Previous last child should link to the added child")
+                        .that(previous.getNextSibling()).isSameInstanceAs(child);
+            }
+            previous = child;
+        }
+
+        assertWithMessage("All children should be added")
+                .that(parent.getChildCount()).isEqualTo(1000);
+    }
+
+    @Test
+    public void testLastChild() {
+        final XmlAstImpl parent = createImaginary();
+        final XmlAstImpl first = createToken(1, 0);
+        final XmlAstImpl second = createToken(1, 1);
+        final XmlAstImpl third = createToken(1, 2);
+
+        parent.addChild(first);
+        parent.addChild(second);
+        parent.addChild(third);
+        parent.removeChild(third);
+        assertWithMessage("Removed last child should not be the last child")
+                .that(parent.getLastChild()).isSameInstanceAs(second);
+
+        second.addNextSibling(third);
+        assertWithMessage("Sibling added after the last child should be the last child")
+                .that(parent.getLastChild()).isSameInstanceAs(third);
+
+        parent.removeChild(first);
+        parent.removeChild(second);
+        parent.removeChild(third);
+        assertWithMessage("Parent without children should have no last child")
+                .that(parent.getLastChild()).isNull();
+
+        final XmlAstImpl fourth = createToken(2, 0);
+        parent.addChild(fourth);
+        assertWithMessage("Only child should have no previous sibling")
+                .that(fourth.getPreviousSibling()).isNull();
+        assertWithMessage("Only child should be the last child")
+                .that(parent.getLastChild()).isSameInstanceAs(fourth);
+    }
+
+    @Test
+    public void testResolvePositions() {
+        final XmlAstImpl root = createImaginary();
+        final XmlAstImpl child = createImaginary();
+        child.addChild(createToken(3, 4));
+        root.addChild(child);
+        root.addChild(createToken(5, 0));
+
+        root.resolvePositions();
+
+        assertWithMessage("Root should take the line of its first token")
+                .that(root.getLineNo()).isEqualTo(3);
+        assertWithMessage("Root should take the column of its first token")
+                .that(root.getColumnNo()).isEqualTo(4);
+        assertWithMessage("Child should take the column of its first token")
+                .that(child.getColumnNo()).isEqualTo(4);
+    }
+
+    @Test
+    public void testNodesOfType() {
+        final XmlAstImpl root = createImaginary();
+        final XmlAstImpl child = createImaginary();
+        final XmlAstImpl first = createToken(1, 0);
+        final XmlAstImpl second = createToken(2, 0);
+        child.addChild(first);
+        root.addChild(child);
+        root.addChild(second);
+
+        final List<XmlAST> tokens = root.getNodesOfType(XmlTokenTypes.TEXT);
+        assertWithMessage("Tokens should be in document order")
+                .that(tokens).containsExactly(first, second).inOrder();
+        assertWithMessage("Imaginary nodes should include the root")
+                .that(root.getNodesOfType(XmlTokenTypes.CONTENT))
+                .containsExactly(root, child).inOrder();
+        assertWithMessage("Subtree should only have its own tokens")
+                .that(child.getNodesOfType(XmlTokenTypes.TEXT)).containsExactly(first);
+        assertWithMessage("Missing type should have no nodes")
+                .that(root.getNodesOfType(Integer.MAX_VALUE)).isEmpty();
+
+        final XmlAstImpl third = createToken(1, 1);
+        child.addChild(third);
+        assertWithMessage("Index should be rebuilt after the tree is modified")
+                .that(root.getNodesOfType(XmlTokenTypes.TEXT))
+                .containsExactly(first, third, second).inOrder();
+
+        child.removeChild(first);
+        assertWithMessage("Removed node should no longer be indexed")
+                .that(root.getNodesOfType(XmlTokenTypes.TEXT))
+                .containsExactly(third, second).inOrder();
+    }
+
+    private static XmlAstImpl createImaginary() {
+        final XmlAstImpl ast = new XmlAstImpl();
+        ast.initialize(XmlTokenTypes.CONTENT, "CONTENT");
+        return ast;
+    }
+
+    private static XmlAstImpl createToken(int lineNo, int columnNo) {
+        final XmlAstImpl ast = new XmlAstImpl();
+        ast.initialize(XmlTokenTypes.TEXT, "x");
+        ast.setLineNo(lineNo);
+        ast.setColumnNo(columnNo);
+        return ast;
+    }
+
+}
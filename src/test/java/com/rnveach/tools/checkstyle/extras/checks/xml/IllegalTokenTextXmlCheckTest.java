@@ -57,6 +57,25 @@ public class IllegalTokenTextXmlCheckTest extends AbstractExtraModuleTestSupport
         verify(config, getPath("InputIllegalTokenTextXml.xml"), expected);
     }
 
+    @Test
+    public void testViolationWithTokenOnlyExecution() throws Exception {
+        final DefaultConfiguration config = createModuleConfig(IllegalTokenTextXmlCheck.class);
+        config.addProperty("tokens", "NAME");
+        config.addProperty("format", "element");
+
+        final DefaultConfiguration walkerConfig = createXmlWalkerConfig(config);
+        walkerConfig.addProperty("tokenOnlyExecution", "true");
+
+        final String[] expected = {
+                "3:4: " + getCheckMessage(MSG_KEY, "element"),
+                "3:26: " + getCheckMessage(MSG_KEY, "element"),
+                "4:4: " + getCheckMessage(MSG_KEY, "element"),
+                "4:50: " + getCheckMessage(MSG_KEY, "element"),
+        };
+
+        verify(walkerConfig, getPath("InputIllegalTokenTextXml.xml"), expected);
+    }
+
     @Test
     public void testViolationSpecific() throws Exception {
         final DefaultConfiguration config = createModuleConfig(IllegalTokenTextXmlCheck.class);
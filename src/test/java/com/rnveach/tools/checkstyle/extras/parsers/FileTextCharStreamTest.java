@@ -0,0 +1,83 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.jupiter.api.Test;
+
+public class FileTextCharStreamTest {
+
+    private static final String TEXT = "<a>😀bé𝄞</a>\r\n";
+
+    @Test
+    public void testSameAsCodePointCharStream() {
+        final CharStream expected = CharStreams.fromString(TEXT);
+        final CharStream actual = new FileTextCharStream(TEXT, "Input.xml");
+
+        assertWithMessage("Invalid size")
+                .that(actual.size()).isEqualTo(expected.size());
+
+        for (int index = 0; index <= expected.size(); index++) {
+            assertWithMessage("Invalid look ahead at " + index)
+                    .that(actual.LA(1)).isEqualTo(expected.LA(1));
+            assertWithMessage("Invalid look behind at " + index)
+                    .that(actual.LA(-1)).isEqualTo(expected.LA(-1));
+
+            for (int end = index - 1; end <= expected.size(); end++) {
+                final Interval interval = Interval.of(index, end);
+                assertWithMessage("Invalid text for " + interval)
+                        .that(actual.getText(interval)).isEqualTo(expected.getText(interval));
+            }
+
+            if (index < expected.size()) {
+                expected.consume();
+                actual.consume();
+            }
+        }
+
+        assertWithMessage("Invalid look ahead at end")
+                .that(actual.LA(1)).isEqualTo(IntStream.EOF);
+        assertWithMessage("Invalid full text")
+                .that(actual.toString()).isEqualTo(TEXT);
+    }
+
+    @Test
+    public void testConsumeAtEnd() {
+        final CharStream stream = new FileTextCharStream("", null);
+
+        assertWithMessage("Invalid source name")
+                .that(stream.getSourceName()).isEqualTo(IntStream.UNKNOWN_SOURCE_NAME);
+
+        try {
+            stream.consume();
+            assertWithMessage("Exception is expected").fail();
+        }
+        catch (IllegalStateException ex) {
+            assertWithMessage("Invalid exception message")
+                    .that(ex.getMessage()).isEqualTo("cannot consume EOF");
+        }
+    }
+
+}
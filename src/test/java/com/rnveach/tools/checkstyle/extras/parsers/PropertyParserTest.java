@@ -0,0 +1,149 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.puppycrawl.tools.checkstyle.AbstractPathTestSupport;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.rnveach.tools.checkstyle.extras.asts.PropertyAST;
+import com.rnveach.tools.checkstyle.extras.printers.PropertyTreeStringPrinter;
+import com.rnveach.tools.checkstyle.extras.utils.PropertyAstUtil;
+
+public class PropertyParserTest extends AbstractPathTestSupport {
+
+    @Override
+    protected String getPackageLocation() {
+        return "com/rnveach/tools/checkstyle/extras/parsers";
+    }
+
+    @Test
+    public void testTwoStagePredictionSameTree() throws Exception {
+        final FileContents contents = getFileContents("InputPropertyParser.properties");
+
+        final String expected =
+                PropertyTreeStringPrinter.printTree(PropertyParser.parse(contents, false));
+        final long twoStageParses = PropertyParser.getTwoStageParseCount();
+        final String actual =
+                PropertyTreeStringPrinter.printTree(PropertyParser.parse(contents, true));
+
+        assertWithMessage("Two-stage prediction should produce the same AST")
+                .that(actual).isEqualTo(expected);
+        assertWithMessage("Two-stage parse count should be increased")
+                .that(PropertyParser.getTwoStageParseCount()).isGreaterThan(twoStageParses);
+    }
+
+    @Test
+    public void testIncrementalParse() throws Exception {
+        final String text = "a=1\nb = 2\n\nc:3 \\\n  4\nd=5";
+
+        verifyIncrementalParse(text, new TextEdit(text.indexOf('2'), 1, "22 \\\n  more"), true);
+        verifyIncrementalParse(text, new TextEdit(text.indexOf(" = 2"), 0, "\n"), true);
+        verifyIncrementalParse(text, new TextEdit(text.indexOf('4'), 1, "four"), true);
+        verifyIncrementalParse(text, new TextEdit(1, 1, ":"), true);
+        verifyIncrementalParse(text, new TextEdit(text.indexOf('5'), 1, "five\ne=6"), true);
+        verifyIncrementalParse(text, new TextEdit(text.indexOf('2') + 1, 0, " \\"), true);
+    }
+
+    @Test
+    public void testIncrementalParseFallback() throws Exception {
+        final String text = "a=1\nb=x\\\\\nc=3\n";
+
+        verifyIncrementalParse(text, new TextEdit(text.indexOf('x'), 1, ""), false);
+        verifyIncrementalParse(text, new TextEdit(0, text.length(), "x=y"), false);
+    }
+
+    private static void verifyIncrementalParse(String text, TextEdit edit, boolean reused)
+            throws Exception {
+        final PropertyAST previousAst = PropertyParser.parse(text, "Input.properties", false);
+        final String expected = PropertyTreeStringPrinter.printTree(
+                PropertyParser.parse(edit.apply(text), "Input.properties", false));
+        final PropertyAST actual = PropertyIncrementalParser.parse(previousAst, text, edit,
+                "Input.properties");
+
+        assertWithMessage("Incremental parse should produce the same AST as a full parse")
+                .that(PropertyTreeStringPrinter.printTree(actual)).isEqualTo(expected);
+        assertWithMessage("Invalid reuse of the previous AST")
+                .that(actual == previousAst).isEqualTo(reused);
+        verifyOffsets(actual, edit.apply(text));
+    }
+
+    @Test
+    public void testOffsets() throws Exception {
+        final String text = "# \uD83D\uDE00 c\na\\tb = x:y \\\n  z\\n\n\uD83D\uDE00=\\u0041\n";
+        final PropertyAST root = PropertyParser.parse(text, "Input.properties", false);
+
+        verifyOffsets(root, text);
+        assertWithMessage("Root should start at the start of the file")
+                .that(root.getStartOffset()).isEqualTo(0);
+        assertWithMessage("Root should end at the end of the file")
+                .that(root.getEndOffset()).isEqualTo(text.length());
+    }
+
+    private static void verifyOffsets(PropertyAST ast, String text) {
+        for (PropertyAST child = ast.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            if (child.hasChildren()) {
+                assertWithMessage("Node should start at its first child")
+                        .that(child.getStartOffset())
+                        .isEqualTo(child.getFirstChild().getStartOffset());
+                assertWithMessage("Node should end at its last child")
+                        .that(child.getEndOffset())
+                        .isEqualTo(child.getLastChild().getEndOffset());
+                verifyOffsets(child, text);
+            }
+            else {
+                assertWithMessage("Token text should be the text at its offsets")
+                        .that(text.substring(child.getStartOffset(), child.getEndOffset()))
+                        .isEqualTo(child.getText());
+            }
+        }
+    }
+
+    @Test
+    public void testSubtreeTypeMask() throws Exception {
+        verifySubtreeTypeMask(
+                PropertyParser.parse(getFileContents("InputPropertyParser.properties")));
+    }
+
+    private static long verifySubtreeTypeMask(PropertyAST ast) {
+        long expected = PropertyAstUtil.getTypeMask(ast.getType());
+        for (PropertyAST child = ast.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            expected |= verifySubtreeTypeMask(child);
+        }
+
+        assertWithMessage("Invalid subtree type mask of " + ast)
+                .that(ast.getSubtreeTypeMask()).isEqualTo(expected);
+        return expected;
+    }
+
+    private FileContents getFileContents(String fileName) throws Exception {
+        return new FileContents(
+                new FileText(new File(getPath(fileName)), StandardCharsets.UTF_8.name()));
+    }
+
+}
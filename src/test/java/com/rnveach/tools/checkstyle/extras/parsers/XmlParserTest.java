@@ -0,0 +1,733 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.parsers;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.puppycrawl.tools.checkstyle.AbstractPathTestSupport;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.rnveach.tools.checkstyle.extras.asts.CompactXmlTree;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAstImpl;
+import com.rnveach.tools.checkstyle.extras.grammars.XmlLanguageParser;
+import com.rnveach.tools.checkstyle.extras.metrics.ExtrasMetrics;
+import com.rnveach.tools.checkstyle.extras.metrics.InMemoryMetricsProvider;
+import com.rnveach.tools.checkstyle.extras.printers.XmlTreeStringPrinter;
+import com.rnveach.tools.checkstyle.extras.tokens.XmlTokenTypes;
+import com.rnveach.tools.checkstyle.extras.utils.XmlAstUtil;
+
+public class XmlParserTest extends AbstractPathTestSupport {
+
+    @TempDir
+    public File temporaryFolder;
+
+    @Override
+    protected String getPackageLocation() {
+        return "com/rnveach/tools/checkstyle/extras/parsers";
+    }
+
+    @Test
+    public void testTwoStagePredictionSameTree() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+
+        final String expected = XmlTreeStringPrinter.printTree(XmlParser.parse(contents, false));
+        final long twoStageParses = XmlParser.getTwoStageParseCount();
+        final String actual = XmlTreeStringPrinter.printTree(XmlParser.parse(contents, true));
+
+        assertWithMessage("Two-stage prediction should produce the same AST")
+                .that(actual).isEqualTo(expected);
+        assertWithMessage("Two-stage parse count should be increased")
+                .that(XmlParser.getTwoStageParseCount()).isGreaterThan(twoStageParses);
+    }
+
+    @Test
+    public void testTwoStagePredictionFallback() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParserInvalid.xml");
+        final long fallbacks = XmlParser.getLlFallbackCount();
+
+        try {
+            XmlParser.parse(contents, true);
+            assertWithMessage("Exception is expected").fail();
+        }
+        catch (CheckstyleException ex) {
+            assertWithMessage("Invalid exception message")
+                    .that(ex.getMessage()).startsWith("IllegalStateException occurred");
+        }
+
+        assertWithMessage("LL fallback count should be increased")
+                .that(XmlParser.getLlFallbackCount()).isGreaterThan(fallbacks);
+    }
+
+    @Test
+    public void testTwoStagePredictionFallbackSameTree() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+        final String expected = XmlTreeStringPrinter.printTree(XmlParser.parse(contents, false));
+        final long fallbacks = XmlParser.getLlFallbackCount();
+
+        // the grammar has no decision where SLL fails on valid XML, so the element
+        // decision is made to look like an SLL conflict resolved to the wrong
+        // alternative, which only full LL prediction gets right
+        final ATN atn = XmlLanguageParser._ATN;
+        DFA dfa = null;
+        for (DecisionState state : atn.decisionToState) {
+            if (state.ruleIndex == XmlLanguageParser.RULE_element) {
+                dfa = XmlLanguageParser.getSharedDecisionToDfa()[state.decision];
+            }
+        }
+        assertWithMessage("Element decision should be in the DFA cache")
+                .that(dfa.s0).isNotNull();
+        final DFAState conflict = new DFAState(new ATNConfigSet());
+        conflict.isAcceptState = true;
+        conflict.requiresFullContext = true;
+        // the alternative of an empty element
+        conflict.prediction = 3;
+
+        final String actual;
+        try {
+            if (dfa.s0.edges == null) {
+                dfa.s0.edges = new DFAState[atn.maxTokenType + 2];
+            }
+            dfa.s0.edges[XmlLanguageParser.OPEN + 1] = conflict;
+            actual = XmlTreeStringPrinter.printTree(XmlParser.parse(contents, true));
+        }
+        finally {
+            XmlParser.getDfaCacheManager().clear();
+        }
+
+        assertWithMessage("LL fallback should produce the same AST as a plain LL parse")
+                .that(actual).isEqualTo(expected);
+        assertWithMessage("LL fallback count should be increased")
+                .that(XmlParser.getLlFallbackCount()).isEqualTo(fallbacks + 1);
+    }
+
+    @Test
+    public void testBuildAstDuringParseSameTree() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+
+        final String expected = XmlTreeStringPrinter.printTree(XmlParser.parse(contents));
+
+        assertWithMessage("Building the AST during the parse should produce the same AST")
+                .that(XmlTreeStringPrinter.printTree(XmlParser.parse(contents, false, true)))
+                .isEqualTo(expected);
+        assertWithMessage("Building the AST during a two-stage parse should produce the same AST")
+                .that(XmlTreeStringPrinter.printTree(XmlParser.parse(contents, true, true)))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    public void testParseAfterFailureOnSameThread() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+        final String expected = XmlTreeStringPrinter.printTree(XmlParser.parse(contents));
+
+        try {
+            XmlParser.parse(getFileContents("InputXmlParserInvalid.xml"));
+            assertWithMessage("Exception is expected").fail();
+        }
+        catch (CheckstyleException ex) {
+            assertWithMessage("Invalid exception message")
+                    .that(ex.getMessage()).startsWith("IllegalStateException occurred");
+        }
+
+        assertWithMessage("Reused parse context should produce the same AST")
+                .that(XmlTreeStringPrinter.printTree(XmlParser.parse(contents)))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    public void testDfaCacheTrimmedOverBudget() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+        final DfaCacheManager manager = XmlParser.getDfaCacheManager();
+
+        XmlParser.parse(contents);
+        final long clears = manager.getClearCount();
+        final int stateCount = manager.getDfaStateCount();
+
+        assertWithMessage("DFA cache should not be empty after a parse")
+                .that(stateCount).isGreaterThan(0);
+
+        try {
+            manager.setMaxDfaStates(stateCount - 1);
+            XmlParser.parse(contents);
+        }
+        finally {
+            manager.setMaxDfaStates(DfaCacheManager.DEFAULT_MAX_DFA_STATES);
+        }
+
+        assertWithMessage("DFA cache should be trimmed when over budget")
+                .that(manager.getClearCount()).isGreaterThan(clears);
+        assertWithMessage("Rebuild time should be recorded after a trim")
+                .that(manager.getRebuildTimeNanos()).isGreaterThan(0L);
+    }
+
+    @Test
+    public void testDfaCacheClear() throws Exception {
+        final DfaCacheManager manager = XmlParser.getDfaCacheManager();
+
+        XmlParser.parse(getFileContents("InputXmlParser.xml"));
+        manager.clear();
+
+        assertWithMessage("DFA cache should be empty after a clear")
+                .that(manager.getDfaStateCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDfaCacheClearedOnHeapUsage() throws Exception {
+        final File snapshot = new File(temporaryFolder, "xml.dfa");
+        XmlParser.parse(getFileContents("InputXmlParser.xml"));
+        XmlParser.getDfaCacheManager().saveSnapshot(snapshot);
+
+        final ATN atn = XmlLanguageParser._ATN;
+        final DFA[] decisionToDfa = new DFA[atn.getNumberOfDecisions()];
+        for (int decision = 0; decision < decisionToDfa.length; decision++) {
+            decisionToDfa[decision] = new DFA(atn.getDecisionState(decision), decision);
+        }
+        final DfaCacheManager manager = new DfaCacheManager("XmlLanguage", atn, decisionToDfa);
+        manager.setHeapUsageThreshold(0);
+        manager.loadSnapshot(snapshot);
+        final int stateCount = manager.getDfaStateCount();
+        // the usage after a collection is only known once the heap was collected
+        System.gc();
+
+        beginParses(manager);
+        assertWithMessage("DFA cache should be cleared over the heap usage threshold")
+                .that(manager.getDfaStateCount()).isEqualTo(0);
+        assertWithMessage("Invalid clear count").that(manager.getClearCount()).isEqualTo(1);
+
+        final DFAState state = new DFAState(new ATNConfigSet());
+        decisionToDfa[0].states.put(state, state);
+        beginParses(manager);
+        assertWithMessage("DFA cache should not be cleared again before it regrows")
+                .that(manager.getDfaStateCount()).isEqualTo(1);
+
+        decisionToDfa[0] = new DFA(atn.getDecisionState(0), 0);
+        manager.loadSnapshot(snapshot);
+        assertWithMessage("Snapshot should restore the DFA cache")
+                .that(manager.getDfaStateCount()).isEqualTo(stateCount);
+        beginParses(manager);
+        assertWithMessage("DFA cache should be cleared again once it regrew")
+                .that(manager.getClearCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDfaSnapshotRoundTrip() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+        final DfaCacheManager manager = XmlParser.getDfaCacheManager();
+        final File snapshot = new File(temporaryFolder, "xml.dfa");
+
+        final String expected = XmlTreeStringPrinter.printTree(XmlParser.parse(contents));
+        final int stateCount = manager.getDfaStateCount();
+        manager.saveSnapshot(snapshot);
+        manager.saveSnapshot(snapshot);
+        manager.clear();
+
+        assertWithMessage("Saving should replace the snapshot and leave no temporary files")
+                .that(temporaryFolder.list()).asList().containsExactly("xml.dfa");
+
+        assertWithMessage("Snapshot should be loaded")
+                .that(manager.loadSnapshot(snapshot)).isTrue();
+        assertWithMessage("Loaded snapshot should restore all DFA states")
+                .that(manager.getDfaStateCount()).isEqualTo(stateCount);
+        assertWithMessage("Parse with a loaded snapshot should produce the same AST")
+                .that(XmlTreeStringPrinter.printTree(XmlParser.parse(contents)))
+                .isEqualTo(expected);
+        assertWithMessage("Parse with a loaded snapshot should not need new DFA states")
+                .that(manager.getDfaStateCount()).isEqualTo(stateCount);
+    }
+
+    @Test
+    public void testDfaSnapshotRejected() throws Exception {
+        final DfaCacheManager manager = XmlParser.getDfaCacheManager();
+        final File snapshot = new File(temporaryFolder, "xml.dfa");
+
+        assertWithMessage("Missing snapshot should not be loaded")
+                .that(manager.loadSnapshot(snapshot)).isFalse();
+
+        PropertyParser.getDfaCacheManager().saveSnapshot(snapshot);
+        assertWithMessage("Snapshot of another grammar should not be loaded")
+                .that(manager.loadSnapshot(snapshot)).isFalse();
+
+        XmlParser.parse(getFileContents("InputXmlParser.xml"));
+        manager.saveSnapshot(snapshot);
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.seek(file.length() / 2);
+            final int value = file.read();
+            file.seek(file.length() / 2);
+            file.write(value ^ 1);
+        }
+        assertWithMessage("Corrupt snapshot should not be loaded")
+                .that(manager.loadSnapshot(snapshot)).isFalse();
+    }
+
+    @Test
+    public void testFrozenAst() throws Exception {
+        final XmlAstImpl root =
+                (XmlAstImpl) XmlParser.parse(getFileContents("InputXmlParser.xml"));
+        final XmlAstImpl child = root.getFirstChild();
+        root.freeze();
+
+        try {
+            child.setText("text");
+            assertWithMessage("Exception is expected").fail();
+        }
+        catch (IllegalStateException ex) {
+            assertWithMessage("Invalid exception message")
+                    .that(ex.getMessage()).startsWith("AST is frozen");
+        }
+    }
+
+    @Test
+    public void testIncrementalParseInsideElement() throws Exception {
+        final String text = "<a>\n  <b>text</b> <c>x</c>\n  <d/>\n</a>\n";
+
+        verifyIncrementalParse(text, new TextEdit(text.indexOf("text"), 4, "new\nlines"), true);
+        verifyIncrementalParse(text, new TextEdit(text.indexOf('x'), 1, "xyz"), true);
+        verifyIncrementalParse(text, new TextEdit(text.indexOf("b>"), 1, "bb"), true);
+    }
+
+    @Test
+    public void testIncrementalParseFallback() throws Exception {
+        final String text = "<a>\n  <b>text</b>\n</a>\n";
+
+        verifyIncrementalParse(text, new TextEdit(text.indexOf("ext"), 0, "</b><b>"), false);
+        verifyIncrementalParse(text, new TextEdit(0, 0, "<?xml version=\"1.0\"?>\n"), false);
+    }
+
+    private static void verifyIncrementalParse(String text, TextEdit edit, boolean reused)
+            throws Exception {
+        final XmlAST previousAst = XmlParser.parse(text, "Input.xml", false, false);
+        final String expected = XmlTreeStringPrinter.printTree(
+                XmlParser.parse(edit.apply(text), "Input.xml", false, false));
+        final XmlAST actual = XmlIncrementalParser.parse(previousAst, text, edit, "Input.xml");
+
+        assertWithMessage("Incremental parse should produce the same AST as a full parse")
+                .that(XmlTreeStringPrinter.printTree(actual)).isEqualTo(expected);
+        assertWithMessage("Invalid reuse of the previous AST")
+                .that(actual == previousAst).isEqualTo(reused);
+        verifyOffsets(actual, edit.apply(text));
+    }
+
+    @Test
+    public void testOffsets() throws Exception {
+        final String text = "<a x=\"\uD83D\uDE00\">\n  <b>t\uD83D\uDE00xt</b><!-- c -->\n</a>\n";
+
+        verifyOffsets(XmlParser.parse(text, "Input.xml", false, false), text);
+        verifyOffsets(XmlParser.parse(text, "Input.xml", false, true), text);
+        verifyOffsets(XmlParser.parse(text, "Input.xml", false, false, true), text);
+
+        final XmlAST root = XmlParser.parse(text, "Input.xml", false, false);
+        assertWithMessage("Root should start at the start of the file")
+                .that(root.getStartOffset()).isEqualTo(0);
+        assertWithMessage("Root should end at the end of the last element")
+                .that(root.getEndOffset()).isEqualTo(text.lastIndexOf('>') + 1);
+    }
+
+    @Test
+    public void testMaxNestingDepth() throws Exception {
+        final String text = createNestedText(XmlParser.DEFAULT_MAX_NESTING_DEPTH);
+        final String expected = XmlTreeStringPrinter.printTree(
+                XmlParser.parse(text, "Input.xml", false, false));
+
+        assertWithMessage("Two-stage parse should produce the same AST")
+                .that(XmlTreeStringPrinter.printTree(
+                        XmlParser.parse(text, "Input.xml", true, false)))
+                .isEqualTo(expected);
+        assertWithMessage("AST built during the parse should be the same")
+                .that(XmlTreeStringPrinter.printTree(
+                        XmlParser.parse(text, "Input.xml", false, true)))
+                .isEqualTo(expected);
+        assertWithMessage("Compact AST should be the same")
+                .that(XmlTreeStringPrinter.printTree(
+                        XmlParser.parse(text, "Input.xml", false, false, true)))
+                .isEqualTo(expected);
+
+        XmlAST deepest = XmlParser.parse(text, "Input.xml", false, false);
+        int depth = 0;
+        while (deepest.findFirst(XmlTokenTypes.ELEMENT) != null) {
+            deepest = deepest.findFirst(XmlTokenTypes.ELEMENT);
+            depth++;
+            final XmlAST content = deepest.findFirst(XmlTokenTypes.CONTENT);
+            if (content != null) {
+                deepest = content;
+            }
+        }
+        assertWithMessage("Invalid nesting depth").that(depth)
+                .isEqualTo(XmlParser.DEFAULT_MAX_NESTING_DEPTH);
+        assertWithMessage("Branch of the deepest element should be printed")
+                .that(XmlTreeStringPrinter.printBranch(deepest)).isNotEmpty();
+    }
+
+    @Test
+    public void testMaxNestingDepthExceeded() throws Exception {
+        final String text = createNestedText(XmlParser.DEFAULT_MAX_NESTING_DEPTH + 1);
+
+        for (int mode = 0; mode < 4; mode++) {
+            try {
+                XmlParser.parse(text, "Input.xml", mode == 1, mode == 2, mode == 3);
+                assertWithMessage("Exception is expected").fail();
+            }
+            catch (CheckstyleException ex) {
+                assertWithMessage("Invalid exception message")
+                        .that(ex.getMessage())
+                        .startsWith("NestingDepthExceededException occurred");
+                assertWithMessage("Invalid exception cause")
+                        .that(ex.getCause().getMessage()).endsWith(
+                                "nesting depth exceeds the maximum of "
+                                        + XmlParser.DEFAULT_MAX_NESTING_DEPTH);
+            }
+        }
+    }
+
+    @Test
+    public void testMaxNestingDepthConfigured() throws Exception {
+        final String text = createNestedText(XmlParser.DEFAULT_MAX_NESTING_DEPTH + 1);
+
+        XmlParser.setMaxNestingDepth(XmlParser.DEFAULT_MAX_NESTING_DEPTH + 1);
+        try {
+            assertWithMessage("Deeper file should parse with a raised limit")
+                    .that(XmlParser.parse(text, "Input.xml", true, false)).isNotNull();
+
+            XmlParser.setMaxNestingDepth(2);
+            try {
+                XmlParser.parse(createNestedText(3), "Input.xml", false, false);
+                assertWithMessage("Exception is expected").fail();
+            }
+            catch (CheckstyleException ex) {
+                assertWithMessage("Invalid exception cause")
+                        .that(ex.getCause().getMessage())
+                        .endsWith("nesting depth exceeds the maximum of 2");
+            }
+        }
+        finally {
+            XmlParser.setMaxNestingDepth(XmlParser.DEFAULT_MAX_NESTING_DEPTH);
+        }
+        assertWithMessage("Invalid default max nesting depth")
+                .that(XmlParser.getMaxNestingDepth())
+                .isEqualTo(XmlParser.DEFAULT_MAX_NESTING_DEPTH);
+    }
+
+    @Test
+    public void testInvalidMaxNestingDepth() {
+        try {
+            XmlParser.setMaxNestingDepth(0);
+            assertWithMessage("Exception is expected").fail();
+        }
+        catch (IllegalArgumentException ex) {
+            assertWithMessage("Invalid exception message")
+                    .that(ex.getMessage()).isEqualTo("Invalid max nesting depth: 0");
+        }
+    }
+
+    @Test
+    public void testIncrementalParseNestingDepth() throws Exception {
+        final String text = createNestedText(XmlParser.DEFAULT_MAX_NESTING_DEPTH);
+        final int offset = text.indexOf("</a>");
+
+        verifyIncrementalParse(text, new TextEdit(offset, 0, "text"), true);
+
+        final XmlAST previousAst = XmlParser.parse(text, "Input.xml", false, false);
+        try {
+            XmlIncrementalParser.parse(previousAst, text, new TextEdit(offset, 0, "<b/>"),
+                    "Input.xml");
+            assertWithMessage("Exception is expected").fail();
+        }
+        catch (CheckstyleException ex) {
+            assertWithMessage("Invalid exception message")
+                    .that(ex.getMessage()).startsWith("NestingDepthExceededException occurred");
+            assertWithMessage("Invalid exception cause")
+                    .that(ex.getCause().getMessage()).contains("nesting depth");
+        }
+    }
+
+    @Test
+    public void testNodesOfType() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+        final XmlAstImpl root = (XmlAstImpl) XmlParser.parse(contents);
+        final XmlAST compactRoot = XmlParser.parse(contents, false, false, true);
+        final XmlAST element = root.findFirst(XmlTokenTypes.ELEMENT);
+        final XmlAST compactElement = compactRoot.findFirst(XmlTokenTypes.ELEMENT);
+
+        for (int type = 0; type <= XmlTokenTypes.PI; type++) {
+            final List<String> expected = collectNodes(root, type, new ArrayList<>());
+            assertWithMessage("Invalid nodes of type %s", type)
+                    .that(toStrings(root.getNodesOfType(type))).isEqualTo(expected);
+            assertWithMessage("Invalid nodes of type %s in the compact AST", type)
+                    .that(toStrings(compactRoot.getNodesOfType(type))).isEqualTo(expected);
+
+            final List<String> expectedInElement =
+                    collectNodes(element, type, new ArrayList<>());
+            assertWithMessage("Invalid nodes of type %s in the element", type)
+                    .that(toStrings(element.getNodesOfType(type)))
+                    .isEqualTo(expectedInElement);
+            assertWithMessage("Invalid nodes of type %s in the compact element", type)
+                    .that(toStrings(compactElement.getNodesOfType(type)))
+                    .isEqualTo(expectedInElement);
+        }
+
+        final List<String> expected = toStrings(root.getNodesOfType(XmlTokenTypes.NAME));
+        root.freeze();
+        assertWithMessage("Frozen AST should keep its index")
+                .that(toStrings(root.getNodesOfType(XmlTokenTypes.NAME))).isEqualTo(expected);
+    }
+
+    @Test
+    public void testCompactAstSameTree() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+
+        final String expected = XmlTreeStringPrinter.printTree(XmlParser.parse(contents));
+        final XmlAST root = XmlParser.parse(contents, false, false, true);
+
+        assertWithMessage("Compact AST should be the same AST")
+                .that(XmlTreeStringPrinter.printTree(root)).isEqualTo(expected);
+        assertWithMessage("Compact AST should be the same AST after two-stage parse")
+                .that(XmlTreeStringPrinter.printTree(XmlParser.parse(contents, true, false, true)))
+                .isEqualTo(expected);
+        assertWithMessage("Cursors of the same node should be equal")
+                .that(root.getFirstChild().getParent()).isEqualTo(root);
+        assertWithMessage("Last child should point back to its previous sibling")
+                .that(root.getLastChild().getPreviousSibling().getNextSibling())
+                .isEqualTo(root.getLastChild());
+        assertWithMessage("Compact AST should count children")
+                .that(root.getChildCount()).isEqualTo(XmlParser.parse(contents).getChildCount());
+        verifySubtreeTypeMask(root);
+    }
+
+    @Test
+    public void testCompactAstEstimatedSize() throws Exception {
+        final StringBuilder text = new StringBuilder("<root>\n");
+        for (int index = 0; index < 400; index++) {
+            text.append("  <item id=\"").append(index).append("\" kind=\"plain\">text</item>\n");
+        }
+        text.append("</root>\n");
+        final FileContents contents = new FileContents(new FileText(new File("large.xml"),
+                Arrays.asList(text.toString().split("\n"))));
+
+        final XmlAST objects = XmlParser.parse(contents, false, true, false);
+        final CompactXmlTree tree =
+                ((CompactXmlTree.Node) XmlParser.parse(contents, false, false, true)).getTree();
+
+        assertWithMessage("Both parses should have the same number of nodes")
+                .that((long) tree.size()).isEqualTo(countNodes(objects));
+        // getEstimatedSize is only an estimate from the array lengths; the real
+        // allocated and retained memory of both forms is compared by CompactAstBenchmark
+        assertWithMessage("Estimate should cover the node arrays")
+                .that(tree.getEstimatedSize()).isAtLeast(11L * Integer.BYTES * tree.size());
+        for (int type = 0; type < Long.SIZE; type++) {
+            assertWithMessage("Invalid node count of type %s", type)
+                    .that((long) tree.getNodeCount(type)).isEqualTo(countNodes(objects, type));
+        }
+        assertWithMessage("Unknown type should have no nodes")
+                .that(tree.getNodeCount(-1)).isEqualTo(0);
+    }
+
+    @Test
+    public void testSubtreeTypeMask() throws Exception {
+        verifySubtreeTypeMask(XmlParser.parse(getFileContents("InputXmlParser.xml")));
+    }
+
+    @Test
+    public void testDecisionProfiler() throws Exception {
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+        final String expected = XmlTreeStringPrinter.printTree(XmlParser.parse(contents));
+        final DecisionProfiler profiler = XmlParser.getDecisionProfiler();
+
+        profiler.reset();
+        profiler.setEnabled(true);
+        final String actual;
+        try {
+            actual = XmlTreeStringPrinter.printTree(XmlParser.parse(contents, true));
+        }
+        finally {
+            profiler.setEnabled(false);
+        }
+        final List<DecisionProfiler.DecisionStats> decisions = profiler.getDecisions();
+
+        assertWithMessage("Profiling should produce the same AST")
+                .that(actual).isEqualTo(expected);
+        assertWithMessage("Decisions should be named after their rules")
+                .that(decisions.stream().map(DecisionProfiler.DecisionStats::getRuleName)
+                        .collect(Collectors.toSet()))
+                .containsAtLeast("content", "element");
+        for (DecisionProfiler.DecisionStats decision : decisions) {
+            assertWithMessage("Listed decisions should be predicted")
+                    .that(decision.getInvocations()).isGreaterThan(0L);
+        }
+
+        XmlParser.parse(contents);
+        assertWithMessage("Parses should not be profiled once disabled")
+                .that(profiler.getDecisions().get(0).getInvocations())
+                .isEqualTo(decisions.get(0).getInvocations());
+
+        final StringWriter writer = new StringWriter();
+        profiler.writeSummary(writer);
+        assertWithMessage("Summary should list the rules")
+                .that(writer.toString()).contains("content");
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        final InMemoryMetricsProvider metrics =
+                (InMemoryMetricsProvider) ExtrasMetrics.getProvider();
+        final FileContents contents = getFileContents("InputXmlParser.xml");
+        final long characters = metrics.getCount("checkstyle.extras.xml.parser.parse.characters");
+        final long elements = metrics.getCount("checkstyle.extras.xml.parser.nodes.ELEMENT");
+        final long parses = metrics.getHistogram("checkstyle.extras.xml.parser.parse.latency")
+                .getCount();
+        final long failures = metrics.getCount("checkstyle.extras.xml.parser.parse.failures");
+
+        final XmlAST root = XmlParser.parse(contents);
+        try {
+            XmlParser.parse(getFileContents("InputXmlParserInvalid.xml"));
+            assertWithMessage("Exception is expected").fail();
+        }
+        catch (CheckstyleException ex) {
+            assertWithMessage("Invalid exception message")
+                    .that(ex.getMessage()).startsWith("IllegalStateException occurred");
+        }
+
+        assertWithMessage("Parsed characters should be counted")
+                .that(metrics.getCount("checkstyle.extras.xml.parser.parse.characters"))
+                .isEqualTo(characters + contents.getText().getFullText().length());
+        assertWithMessage("Created nodes should be counted by type")
+                .that(metrics.getCount("checkstyle.extras.xml.parser.nodes.ELEMENT"))
+                .isEqualTo(elements + countNodes(root, XmlTokenTypes.ELEMENT));
+        XmlParser.parse(contents, false, false, true);
+        assertWithMessage("Nodes of a compact AST should be counted by type")
+                .that(metrics.getCount("checkstyle.extras.xml.parser.nodes.ELEMENT"))
+                .isEqualTo(elements + 2 * countNodes(root, XmlTokenTypes.ELEMENT));
+        assertWithMessage("Successful parse should be timed")
+                .that(metrics.getHistogram("checkstyle.extras.xml.parser.parse.latency")
+                        .getCount())
+                .isEqualTo(parses + 2);
+        assertWithMessage("Failed parse should be counted")
+                .that(metrics.getCount("checkstyle.extras.xml.parser.parse.failures"))
+                .isEqualTo(failures + 1);
+    }
+
+    private static void beginParses(DfaCacheManager manager) {
+        // more than the number of parses between two reads of the heap usage
+        for (int count = 0; count < 100; count++) {
+            manager.endParse(manager.beginParse());
+        }
+    }
+
+    private static List<String> collectNodes(XmlAST ast, int type, List<String> result) {
+        if (ast.getType() == type) {
+            result.add(ast.toString() + ast.getStartOffset());
+        }
+        for (XmlAST child = ast.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            collectNodes(child, type, result);
+        }
+        return result;
+    }
+
+    private static List<String> toStrings(List<XmlAST> nodes) {
+        return nodes.stream().map(ast -> ast.toString() + ast.getStartOffset())
+                .collect(Collectors.toList());
+    }
+
+    private static String createNestedText(int depth) {
+        final StringBuilder text = new StringBuilder(depth * 16);
+        for (int index = 0; index < depth; index++) {
+            text.append("<a x=\"1\">");
+        }
+        for (int index = 0; index < depth; index++) {
+            text.append("</a>");
+        }
+        return text.append('\n').toString();
+    }
+
+    private static void verifyOffsets(XmlAST ast, String text) {
+        for (XmlAST child = ast.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.hasChildren()) {
+                assertWithMessage("Node should start at its first child")
+                        .that(child.getStartOffset())
+                        .isEqualTo(child.getFirstChild().getStartOffset());
+                assertWithMessage("Node should end at its last child")
+                        .that(child.getEndOffset())
+                        .isEqualTo(child.getLastChild().getEndOffset());
+                verifyOffsets(child, text);
+            }
+            else {
+                assertWithMessage("Token text should be the text at its offsets")
+                        .that(text.substring(child.getStartOffset(), child.getEndOffset()))
+                        .isEqualTo(child.getText());
+            }
+        }
+    }
+
+    private static long countNodes(XmlAST ast) {
+        long result = 1;
+        for (XmlAST child = ast.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            result += countNodes(child);
+        }
+        return result;
+    }
+
+    private static long countNodes(XmlAST ast, int type) {
+        long result = 0;
+        if (ast.getType() == type) {
+            result++;
+        }
+        for (XmlAST child = ast.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            result += countNodes(child, type);
+        }
+        return result;
+    }
+
+    private static long verifySubtreeTypeMask(XmlAST ast) {
+        long expected = XmlAstUtil.getTypeMask(ast.getType());
+        for (XmlAST child = ast.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            expected |= verifySubtreeTypeMask(child);
+        }
+
+        assertWithMessage("Invalid subtree type mask of " + ast)
+                .that(ast.getSubtreeTypeMask()).isEqualTo(expected);
+        return expected;
+    }
+
+    private FileContents getFileContents(String fileName) throws Exception {
+        return new FileContents(
+                new FileText(new File(getPath(fileName)), StandardCharsets.UTF_8.name()));
+    }
+
+}
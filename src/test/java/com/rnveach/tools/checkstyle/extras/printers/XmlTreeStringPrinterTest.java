@@ -19,9 +19,18 @@
 
 package com.rnveach.tools.checkstyle.extras.printers;
 
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.File;
+import java.util.Collections;
+
 import org.junit.jupiter.api.Test;
 
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
 import com.rnveach.tools.checkstyle.extras.internal.AbstractTreeTestSupport;
+import com.rnveach.tools.checkstyle.extras.parsers.XmlParser;
+import com.rnveach.tools.checkstyle.extras.tokens.XmlTokenTypes;
 
 public class XmlTreeStringPrinterTest extends AbstractTreeTestSupport {
 
@@ -35,4 +44,56 @@ public class XmlTreeStringPrinterTest extends AbstractTreeTestSupport {
         verifyXmlAst(getPath("ExpectedXml.txt"), getPath("Input.xml"));
     }
 
+    @Test
+    public void testPrintSubtree() throws Exception {
+        final XmlAST element = parse("<a x=\"1\"><b>t</b><c/></a>")
+                .findFirst(XmlTokenTypes.ELEMENT).findFirst(XmlTokenTypes.CONTENT)
+                .getFirstChild();
+        final String expected = "    |   |--ELEMENT -> ELEMENT [1:9]\n"
+                + "    |   |   |--START_ELEMENT -> START_ELEMENT [1:9]\n"
+                + "    |   |   |   |--OPEN -> < [1:9]\n"
+                + "    |   |   |   |--NAME -> b [1:10]\n"
+                + "    |   |   |   `--CLOSE -> > [1:11]\n"
+                + "    |   |   |--CONTENT -> CONTENT [1:12]\n"
+                + "    |   |   |   `--TEXT -> t [1:12]\n"
+                + "    |   |   `--END_ELEMENT -> END_ELEMENT [1:13]\n"
+                + "    |   |       |--OPEN -> < [1:13]\n"
+                + "    |   |       |--SLASH -> / [1:14]\n"
+                + "    |   |       |--NAME -> b [1:15]\n"
+                + "    |   |       `--CLOSE -> > [1:16]\n"
+                + "    |   `--ELEMENT -> ELEMENT [1:17]\n"
+                + "    |       `--EMPTY_ELEMENT -> EMPTY_ELEMENT [1:17]\n"
+                + "    |           |--OPEN -> < [1:17]\n"
+                + "    |           |--NAME -> c [1:18]\n"
+                + "    |           `--SLASH_CLOSE -> /> [1:19]\n";
+
+        assertWithMessage("Subtree should be printed with the indentation of its ancestors")
+                .that(toLfLineEnding(XmlTreeStringPrinter.printTree(element)))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    public void testPrintBranch() throws Exception {
+        final XmlAST open = parse("<a x=\"1\"><b>t</b><c/></a>")
+                .findFirst(XmlTokenTypes.ELEMENT).findFirst(XmlTokenTypes.CONTENT)
+                .getFirstChild().getFirstChild().getFirstChild();
+        final String expected = "DOCUMENT -> DOCUMENT [1:0]\n"
+                + "`--ELEMENT -> ELEMENT [1:0]\n"
+                + "    |--CONTENT -> CONTENT [1:9]\n"
+                + "    |   |--ELEMENT -> ELEMENT [1:9]\n"
+                + "    |   |   |--START_ELEMENT -> START_ELEMENT [1:9]\n"
+                + "    |   |   |   |--OPEN -> < [1:9]\n";
+
+        assertWithMessage("Invalid branch")
+                .that(toLfLineEnding(XmlTreeStringPrinter.printBranch(open)))
+                .isEqualTo(expected);
+        assertWithMessage("Empty branch should print nothing")
+                .that(XmlTreeStringPrinter.printBranch(null)).isEmpty();
+    }
+
+    private static XmlAST parse(String text) throws Exception {
+        return XmlParser.parseFileText(
+                new FileText(new File("Input.xml"), Collections.singletonList(text)));
+    }
+
 }
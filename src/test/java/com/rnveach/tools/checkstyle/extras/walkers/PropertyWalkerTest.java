@@ -0,0 +1,88 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.walkers;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.rnveach.tools.checkstyle.extras.checks.property.DuplicateKeyPropertyCheck;
+import com.rnveach.tools.checkstyle.extras.checks.property.OrderedKeyPropertyCheck;
+import com.rnveach.tools.checkstyle.extras.internal.AbstractExtraModuleTestSupport;
+
+public class PropertyWalkerTest extends AbstractExtraModuleTestSupport {
+
+    @Override
+    protected String getPackageLocation() {
+        return "com/rnveach/tools/checkstyle/extras/checks/property";
+    }
+
+    @Test
+    public void testProcessFilesInParallel() throws Exception {
+        final DefaultConfiguration config = createModuleConfig(PropertyWalker.class);
+        config.addChild(createModuleConfig(OrderedKeyPropertyCheck.class));
+        config.addChild(createModuleConfig(DuplicateKeyPropertyCheck.class));
+        config.addProperty("threadCount", "4");
+
+        final PropertyWalker walker = new PropertyWalker();
+        walker.setModuleFactory(new PackageObjectFactory(
+                PropertyWalker.class.getPackage().getName(), getClass().getClassLoader()));
+        walker.configure(config);
+
+        final List<File> files = Arrays.stream(new File(getPath("")).listFiles())
+                .filter(file -> file.getName().endsWith(".properties")).sorted()
+                .collect(Collectors.toList());
+        final Map<File, SortedSet<Violation>> expected = new LinkedHashMap<>();
+        for (File file : files) {
+            expected.put(file, walker.process(file,
+                    new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name())));
+        }
+
+        final int half = files.size() / 2;
+        walker.beginProcessing(StandardCharsets.UTF_8.name());
+        final Map<File, SortedSet<Violation>> actual = new LinkedHashMap<>(
+                walker.processFiles(files.subList(0, half), StandardCharsets.UTF_8.name()));
+        actual.putAll(walker.processFiles(files.subList(half, files.size()),
+                StandardCharsets.UTF_8.name()));
+        walker.finishProcessing();
+
+        assertWithMessage("Files should be in the given order")
+                .that(actual.keySet()).containsExactlyElementsIn(files).inOrder();
+        assertWithMessage("Files should have violations")
+                .that(expected.values().stream().mapToInt(SortedSet::size).sum())
+                .isGreaterThan(0);
+        assertWithMessage("Parallel processing should produce the same violations")
+                .that(actual).isEqualTo(expected);
+    }
+
+}
@@ -0,0 +1,80 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.walkers;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class SlowFileReportTest {
+
+    @Test
+    public void testRankingsAreBounded() {
+        final SlowFileReport report = new SlowFileReport(2);
+        report.add(new SlowFileReport.FileStats("a.xml", 30, 1, 100, 5));
+        report.add(new SlowFileReport.FileStats("b.xml", 10, 3, 300, 7));
+        report.add(new SlowFileReport.FileStats("c.xml", 20, 2, 200, -1));
+
+        assertWithMessage("Slowest parses should be kept, the worst first")
+                .that(getPaths(report.getWorst(SlowFileReport.Ranking.PARSE_TIME)))
+                .containsExactly("a.xml", "c.xml").inOrder();
+        assertWithMessage("Slowest walks should be kept, the worst first")
+                .that(getPaths(report.getWorst(SlowFileReport.Ranking.WALK_TIME)))
+                .containsExactly("b.xml", "c.xml").inOrder();
+        assertWithMessage("Largest trees should be kept, the worst first")
+                .that(getPaths(report.getWorst(SlowFileReport.Ranking.NODE_COUNT)))
+                .containsExactly("b.xml", "c.xml").inOrder();
+        assertWithMessage("Unmeasured allocations should not be ranked")
+                .that(getPaths(report.getWorst(SlowFileReport.Ranking.ALLOCATED_BYTES)))
+                .containsExactly("b.xml", "a.xml").inOrder();
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        final SlowFileReport report = new SlowFileReport(1);
+        report.add(new SlowFileReport.FileStats("dir\\\"a\".xml", 4, 3, 2, 1));
+        report.add(new SlowFileReport.FileStats("b.xml", 0, 0, 0, -1));
+        final StringWriter writer = new StringWriter();
+        report.writeJson(writer);
+
+        final String stats = "{\"path\": \"dir\\\\\\\"a\\\".xml\", \"parseNanos\": 4,"
+                + " \"walkNanos\": 3, \"nodeCount\": 2, \"allocatedBytes\": 1}";
+        assertWithMessage("Invalid JSON report")
+                .that(writer.toString())
+                .isEqualTo("{\n"
+                        + "  \"version\": 1,\n"
+                        + "  \"size\": 1,\n"
+                        + "  \"parseTime\": [\n    " + stats + "\n  ],\n"
+                        + "  \"walkTime\": [\n    " + stats + "\n  ],\n"
+                        + "  \"nodeCount\": [\n    " + stats + "\n  ],\n"
+                        + "  \"allocatedBytes\": [\n    " + stats + "\n  ]\n"
+                        + "}\n");
+    }
+
+    private static List<String> getPaths(List<SlowFileReport.FileStats> stats) {
+        return stats.stream().map(SlowFileReport.FileStats::getPath)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,188 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.walkers;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.rnveach.tools.checkstyle.extras.checks.AbstractXmlCheck;
+import com.rnveach.tools.checkstyle.extras.checks.ViolationRecord;
+
+public class SortedViolationSetTest {
+
+    @Test
+    public void testSameOrderAsTreeSet() throws Exception {
+        final LoggingCheck check = new LoggingCheck();
+        check.configure(new DefaultConfiguration(LoggingCheck.class.getName()));
+        check.setFileContents(new FileContents(new FileText(new File("Input.xml"),
+                Arrays.asList("\tab\tcd", "x", "\t\tz"))));
+        check.log(3, 1, "b");
+        check.log(1, 4, "a");
+        check.log(3, 1, "b");
+        check.log(1, 1, "c");
+        check.log(2, "a");
+        check.log(1, 4, "a");
+        check.log(1, 3, "a");
+        check.log(3, 0, "a");
+
+        final SortedSet<Violation> expected = check.getViolations();
+        final List<ViolationRecord> records = new ArrayList<>();
+        check.drainViolationRecords(records);
+        final SortedViolationSet actual = SortedViolationSet.of(records);
+
+        assertWithMessage("Violations should be sorted and deduplicated like a TreeSet")
+                .that(actual).containsExactlyElementsIn(expected).inOrder();
+        assertWithMessage("Lazy list should have the same violations")
+                .that(actual.asList()).containsExactlyElementsIn(expected).inOrder();
+        assertWithMessage("Invalid first violation")
+                .that(actual.first()).isEqualTo(expected.first());
+        assertWithMessage("Invalid last violation")
+                .that(actual.last()).isEqualTo(expected.last());
+
+        final List<Violation> ordered = new ArrayList<>(expected);
+        final Violation middle = ordered.get(3);
+        assertWithMessage("Violation should be found")
+                .that(actual.contains(middle)).isTrue();
+        assertWithMessage("Invalid head set")
+                .that(actual.headSet(middle)).containsExactlyElementsIn(expected.headSet(middle))
+                .inOrder();
+        assertWithMessage("Invalid tail set")
+                .that(actual.tailSet(middle)).containsExactlyElementsIn(expected.tailSet(middle))
+                .inOrder();
+
+        final BitSet accepted = new BitSet();
+        accepted.set(0, 2);
+        accepted.set(3);
+        assertWithMessage("Filter should keep the order")
+                .that(actual.filter(accepted))
+                .containsExactly(ordered.get(0), ordered.get(1), ordered.get(3))
+                .inOrder();
+    }
+
+    @Test
+    public void testNestedViewsLikeTreeSet() throws Exception {
+        final LoggingCheck check = new LoggingCheck();
+        check.configure(new DefaultConfiguration(LoggingCheck.class.getName()));
+        check.setFileContents(new FileContents(new FileText(new File("Input.xml"),
+                Arrays.asList("abc", "abc", "abc"))));
+        for (int line = 1; line <= 3; line++) {
+            for (int column = 0; column < 3; column++) {
+                check.log(line, column, "a");
+            }
+        }
+        final List<Violation> keys = new ArrayList<>(check.getViolations());
+        final List<ViolationRecord> records = new ArrayList<>();
+        check.drainViolationRecords(records);
+
+        // every other violation is left out, so some keys are not in the sets
+        final BitSet accepted = new BitSet();
+        final SortedSet<Violation> expected = new TreeSet<>();
+        for (int index = 1; index < keys.size(); index += 2) {
+            accepted.set(index);
+            expected.add(keys.get(index));
+        }
+        final SortedViolationSet actual = SortedViolationSet.of(records).filter(accepted);
+
+        final List<UnaryOperator<SortedSet<Violation>>> views = new ArrayList<>();
+        for (Violation from : keys) {
+            views.add(set -> set.headSet(from));
+            views.add(set -> set.tailSet(from));
+            for (Violation to : keys) {
+                views.add(set -> set.subSet(from, to));
+            }
+        }
+        for (UnaryOperator<SortedSet<Violation>> outer : views) {
+            final SortedSet<Violation> expectedOuter = createView(outer, expected);
+            final SortedSet<Violation> actualOuter = verifyView(outer, actual, expectedOuter);
+            if (expectedOuter != null) {
+                for (UnaryOperator<SortedSet<Violation>> inner : views) {
+                    verifyView(inner, actualOuter, createView(inner, expectedOuter));
+                }
+            }
+        }
+    }
+
+    private static SortedSet<Violation> createView(UnaryOperator<SortedSet<Violation>> view,
+            SortedSet<Violation> set) {
+        SortedSet<Violation> result;
+        try {
+            result = view.apply(set);
+        }
+        catch (IllegalArgumentException ex) {
+            result = null;
+        }
+        return result;
+    }
+
+    private static SortedSet<Violation> verifyView(UnaryOperator<SortedSet<Violation>> view,
+            SortedSet<Violation> actual, SortedSet<Violation> expected) {
+        SortedSet<Violation> result = null;
+        if (expected == null) {
+            try {
+                view.apply(actual);
+                assertWithMessage("Exception is expected").fail();
+            }
+            catch (IllegalArgumentException ex) {
+                assertWithMessage("Invalid exception message")
+                        .that(ex.getMessage()).isNotEmpty();
+            }
+        }
+        else {
+            result = view.apply(actual);
+            assertWithMessage("View should have the same violations as a TreeSet view")
+                    .that(result).containsExactlyElementsIn(expected).inOrder();
+        }
+        return result;
+    }
+
+    private static final class LoggingCheck extends AbstractXmlCheck {
+
+        @Override
+        public int[] getDefaultTokens() {
+            return new int[0];
+        }
+
+        @Override
+        public int[] getAcceptableTokens() {
+            return new int[0];
+        }
+
+        @Override
+        public int[] getRequiredTokens() {
+            return new int[0];
+        }
+
+    }
+
+}
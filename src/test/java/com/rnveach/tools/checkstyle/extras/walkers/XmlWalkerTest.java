@@ -0,0 +1,634 @@
+///////////////////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code and other text files for adherence to a set of rules.
+// Copyright (C) 2001-2024 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+///////////////////////////////////////////////////////////////////////////////////////////////
+
+package com.rnveach.tools.checkstyle.extras.walkers;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.DefaultContext;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.rnveach.tools.checkstyle.extras.asts.XmlAST;
+import com.rnveach.tools.checkstyle.extras.checks.AbstractXmlCheck;
+import com.rnveach.tools.checkstyle.extras.checks.xml.AttributeNameXmlCheck;
+import com.rnveach.tools.checkstyle.extras.checks.xml.AttributeOrderXmlCheck;
+import com.rnveach.tools.checkstyle.extras.checks.xml.ElementNameXmlCheck;
+import com.rnveach.tools.checkstyle.extras.checks.xml.EmptyContentXmlCheck;
+import com.rnveach.tools.checkstyle.extras.checks.xml.IllegalTokenTextXmlCheck;
+import com.rnveach.tools.checkstyle.extras.checks.xml.IndentationXmlCheck;
+import com.rnveach.tools.checkstyle.extras.events.XmlWalkerAuditEvent;
+import com.rnveach.tools.checkstyle.extras.filters.XmlWalkerBatchFilter;
+import com.rnveach.tools.checkstyle.extras.filters.XmlWalkerFilter;
+import com.rnveach.tools.checkstyle.extras.internal.AbstractExtraModuleTestSupport;
+import com.rnveach.tools.checkstyle.extras.jfr.DfaClearedEvent;
+import com.rnveach.tools.checkstyle.extras.jfr.FileParsedEvent;
+import com.rnveach.tools.checkstyle.extras.jfr.FileWalkedEvent;
+import com.rnveach.tools.checkstyle.extras.jfr.ViolationsFilteredEvent;
+import com.rnveach.tools.checkstyle.extras.metrics.ExtrasMetrics;
+import com.rnveach.tools.checkstyle.extras.metrics.InMemoryMetricsProvider;
+import com.rnveach.tools.checkstyle.extras.parsers.XmlParser;
+import com.rnveach.tools.checkstyle.extras.tokens.XmlTokenTypes;
+
+public class XmlWalkerTest extends AbstractExtraModuleTestSupport {
+
+    @TempDir
+    public File temporaryFolder;
+
+    @Override
+    protected String getPackageLocation() {
+        return "com/rnveach/tools/checkstyle/extras/checks/xml";
+    }
+
+    @Test
+    public void testProcessFilesInParallel() throws Exception {
+        final DefaultConfiguration config = createWalkerConfig();
+        config.addProperty("threadCount", "4");
+
+        final XmlWalker walker = createWalker(config);
+        final List<File> files = getInputFiles();
+        final Map<File, SortedSet<Violation>> expected = new LinkedHashMap<>();
+        for (File file : files) {
+            expected.put(file, walker.process(file,
+                    new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name())));
+        }
+
+        final int half = files.size() / 2;
+        walker.beginProcessing(StandardCharsets.UTF_8.name());
+        final Map<File, SortedSet<Violation>> actual = new LinkedHashMap<>(
+                walker.processFiles(files.subList(0, half), StandardCharsets.UTF_8.name()));
+        actual.putAll(walker.processFiles(files.subList(half, files.size()),
+                StandardCharsets.UTF_8.name()));
+        walker.finishProcessing();
+
+        assertWithMessage("Files should be in the given order")
+                .that(actual.keySet()).containsExactlyElementsIn(files).inOrder();
+        assertWithMessage("Files should have violations")
+                .that(expected.values().stream().mapToInt(SortedSet::size).sum())
+                .isGreaterThan(0);
+        assertWithMessage("Parallel processing should produce the same violations")
+                .that(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void testConcurrentChecks() throws Exception {
+        final XmlWalker walker = createWalker(createWalkerConfig());
+        final DefaultConfiguration concurrentConfig = createWalkerConfig();
+        concurrentConfig.addProperty("concurrentChecks", "true");
+        final XmlWalker concurrentWalker = createWalker(concurrentConfig);
+
+        int violationCount = 0;
+        // the second audit walks on a new pool, after the first one was shut down
+        for (int audit = 0; audit < 2; audit++) {
+            concurrentWalker.beginProcessing(StandardCharsets.UTF_8.name());
+            for (File file : getInputFiles()) {
+                final FileText fileText =
+                        new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name());
+                final SortedSet<Violation> expected = walker.process(file, fileText);
+                violationCount += expected.size();
+
+                assertWithMessage("Concurrent checks should produce the same violations")
+                        .that(concurrentWalker.process(file, fileText)).isEqualTo(expected);
+            }
+            concurrentWalker.finishProcessing();
+        }
+
+        assertWithMessage("Files should have violations")
+                .that(violationCount).isGreaterThan(0);
+    }
+
+    @Test
+    public void testConcurrentChecksEndWhenSequentialCheckFails() throws Exception {
+        final DefaultConfiguration config = createModuleConfig(XmlWalker.class);
+        config.addProperty("concurrentChecks", "true");
+        config.addChild(createModuleConfig(SlowConcurrentCheck.class));
+        config.addChild(createModuleConfig(FailingCheck.class));
+
+        verifyConcurrentChecksEnded(createWalker(config));
+    }
+
+    @Test
+    public void testConcurrentChecksEndWhenConcurrentCheckFails() throws Exception {
+        final DefaultConfiguration config = createModuleConfig(XmlWalker.class);
+        config.addProperty("concurrentChecks", "true");
+        config.addChild(createModuleConfig(FailingConcurrentCheck.class));
+        config.addChild(createModuleConfig(SlowConcurrentCheck.class));
+
+        verifyConcurrentChecksEnded(createWalker(config));
+    }
+
+    @Test
+    public void testCompactAst() throws Exception {
+        final DefaultConfiguration config = createWalkerConfig();
+        config.addChild(createModuleConfig(AttributeNameXmlCheck.class));
+        config.addChild(createModuleConfig(EmptyContentXmlCheck.class));
+        final DefaultConfiguration illegalTextConfig =
+                createModuleConfig(IllegalTokenTextXmlCheck.class);
+        illegalTextConfig.addProperty("format", "a");
+        config.addChild(illegalTextConfig);
+        final XmlWalker walker = createWalker(config);
+        config.addProperty("compactAst", "true");
+        final XmlWalker compactWalker = createWalker(config);
+        config.addProperty("concurrentChecks", "true");
+        final XmlWalker concurrentCompactWalker = createWalker(config);
+
+        int violationCount = 0;
+        for (File file : getInputFiles()) {
+            final FileText fileText =
+                    new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name());
+            final SortedSet<Violation> expected = walker.process(file, fileText);
+            violationCount += expected.size();
+
+            assertWithMessage("Compact AST should produce the same violations")
+                    .that(compactWalker.process(file, fileText)).isEqualTo(expected);
+            assertWithMessage("Compact AST should produce the same concurrent violations")
+                    .that(concurrentCompactWalker.process(file, fileText)).isEqualTo(expected);
+        }
+
+        assertWithMessage("Files should have violations")
+                .that(violationCount).isGreaterThan(0);
+    }
+
+    @Test
+    public void testBatchFilters() throws Exception {
+        final XmlWalker walker = createWalker(createWalkerConfig());
+        final DefaultConfiguration filteredConfig = createWalkerConfig();
+        filteredConfig.addChild(createModuleConfig(EvenLineBatchFilter.class));
+        filteredConfig.addChild(createModuleConfig(NoElementNameFilter.class));
+        final XmlWalker filteredWalker = createWalker(filteredConfig);
+
+        EvenLineBatchFilter.calls = 0;
+        int filesWithViolations = 0;
+        int violationCount = 0;
+        for (File file : getInputFiles()) {
+            final FileText fileText =
+                    new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name());
+            final SortedSet<Violation> unfiltered = walker.process(file, fileText);
+            if (!unfiltered.isEmpty()) {
+                filesWithViolations++;
+            }
+            final List<Violation> expected = unfiltered.stream()
+                    .filter(violation -> violation.getLineNo() % 2 == 0)
+                    .filter(violation -> !isElementNameViolation(violation))
+                    .collect(Collectors.toList());
+            violationCount += expected.size();
+
+            assertWithMessage("Filters should remove the violations they do not accept")
+                    .that(filteredWalker.process(file, fileText))
+                    .containsExactlyElementsIn(expected).inOrder();
+        }
+
+        assertWithMessage("Files should have violations")
+                .that(violationCount).isGreaterThan(0);
+        assertWithMessage("Batch filter should be called once per file with violations")
+                .that(EvenLineBatchFilter.calls).isEqualTo(filesWithViolations);
+    }
+
+    @Test
+    public void testTiming() throws Exception {
+        final XmlWalker walker = createWalker(createWalkerConfig());
+        final File summaryFile = new File(temporaryFolder, "timings.txt");
+        final DefaultConfiguration timedConfig = createWalkerConfig();
+        timedConfig.addProperty("timingSummaryFile", summaryFile.getAbsolutePath());
+        final XmlWalker timedWalker = createWalker(timedConfig);
+
+        assertWithMessage("Timings should be disabled by default")
+                .that(walker.getTimings()).isNull();
+
+        final List<File> files = getInputFiles();
+        timedWalker.beginProcessing(StandardCharsets.UTF_8.name());
+        for (File file : files) {
+            final FileText fileText =
+                    new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name());
+            assertWithMessage("Timing should not change the violations")
+                    .that(timedWalker.process(file, fileText))
+                    .isEqualTo(walker.process(file, fileText));
+        }
+        timedWalker.finishProcessing();
+
+        final WalkerTimings timings = timedWalker.getTimings();
+        for (WalkerTimings.Phase phase : WalkerTimings.Phase.values()) {
+            assertWithMessage("Phase should be timed for each file: " + phase)
+                    .that(timings.getPhase(phase).getCount()).isEqualTo(files.size());
+        }
+        assertWithMessage("Each check should be timed")
+                .that(timings.getChecks().stream().map(WalkerTimings.CheckTimings::getName)
+                        .collect(Collectors.toList()))
+                .containsExactly("AttributeOrderXmlCheck", "ElementNameXmlCheck",
+                        "IndentationXmlCheck");
+        for (WalkerTimings.CheckTimings check : timings.getChecks()) {
+            assertWithMessage("Trees should be timed for each file: " + check.getName())
+                    .that(check.getEvent(WalkerTimings.CheckEvent.BEGIN_TREE).getCount())
+                    .isEqualTo(files.size());
+            assertWithMessage("Tokens should be timed: " + check.getName())
+                    .that(check.getEvent(WalkerTimings.CheckEvent.VISIT_TOKEN).getCount())
+                    .isGreaterThan(0);
+        }
+
+        final String summary = new String(Files.readAllBytes(summaryFile.toPath()),
+                StandardCharsets.UTF_8);
+        assertWithMessage("Summary should list the parse phase")
+                .that(summary).contains("parse");
+        assertWithMessage("Summary should list each check")
+                .that(summary).contains("IndentationXmlCheck");
+    }
+
+    @Test
+    public void testWorkersShareAuditSettings() throws Exception {
+        final File reportFile = new File(temporaryFolder, "slow-files.json");
+        final DefaultConfiguration config = createWalkerConfig();
+        config.addProperty("threadCount", "2");
+        config.addProperty("slowFileReportFile", reportFile.getAbsolutePath());
+        config.addProperty("slowFileReportSize", "100");
+        final DefaultContext context = new DefaultContext();
+        context.add("severity", "warning");
+        final XmlWalker walker = new XmlWalker();
+        walker.setModuleFactory(new PackageObjectFactory(
+                XmlWalker.class.getPackage().getName(), getClass().getClassLoader()));
+        walker.contextualize(context);
+        walker.configure(config);
+        final List<File> files = getInputFiles();
+
+        walker.beginProcessing(StandardCharsets.UTF_8.name());
+        final Map<File, SortedSet<Violation>> violations =
+                walker.processFiles(files, StandardCharsets.UTF_8.name());
+        walker.finishProcessing();
+
+        assertWithMessage("Workers should use the severity of the context")
+                .that(violations.values().stream().flatMap(SortedSet::stream)
+                        .map(Violation::getSeverityLevel).distinct()
+                        .collect(Collectors.toList()))
+                .containsExactly(SeverityLevel.WARNING);
+        assertWithMessage("Workers should add to the report of the walker")
+                .that(walker.getSlowFileReport().getWorst(SlowFileReport.Ranking.PARSE_TIME))
+                .hasSize(files.size());
+        assertWithMessage("Only the walker should write the report")
+                .that(temporaryFolder.list()).asList().containsExactly("slow-files.json");
+    }
+
+    @Test
+    public void testTimingWithWorkers() throws Exception {
+        final DefaultConfiguration config = createWalkerConfig();
+        config.addProperty("timing", "true");
+        config.addProperty("threadCount", "2");
+        final XmlWalker walker = createWalker(config);
+        final List<File> files = getInputFiles();
+
+        // the second audit must start from the reset timings of the workers
+        for (int audit = 0; audit < 2; audit++) {
+            walker.beginProcessing(StandardCharsets.UTF_8.name());
+            walker.processFiles(files, StandardCharsets.UTF_8.name());
+            walker.finishProcessing();
+
+            assertWithMessage("Workers should time each file once per audit")
+                    .that(walker.getTimings().getPhase(WalkerTimings.Phase.PARSE).getCount())
+                    .isEqualTo(files.size());
+        }
+    }
+
+    @Test
+    public void testSlowFileReport() throws Exception {
+        final File reportFile = new File(temporaryFolder, "slow-files.json");
+        final DefaultConfiguration config = createWalkerConfig();
+        config.addProperty("slowFileReportFile", reportFile.getAbsolutePath());
+        config.addProperty("slowFileReportSize", "2");
+        final XmlWalker walker = createWalker(config);
+        final List<File> files = getInputFiles();
+
+        walker.beginProcessing(StandardCharsets.UTF_8.name());
+        for (File file : files) {
+            walker.process(file,
+                    new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name()));
+        }
+        walker.finishProcessing();
+
+        final SlowFileReport report = walker.getSlowFileReport();
+        final List<SlowFileReport.FileStats> largest =
+                report.getWorst(SlowFileReport.Ranking.NODE_COUNT);
+        assertWithMessage("Only the configured number of files should be kept")
+                .that(largest).hasSize(2);
+        assertWithMessage("Largest tree should be first")
+                .that(largest.get(0).getNodeCount())
+                .isAtLeast(largest.get(1).getNodeCount());
+        assertWithMessage("Largest tree should have nodes")
+                .that(largest.get(1).getNodeCount()).isGreaterThan(0L);
+
+        final String json = new String(Files.readAllBytes(reportFile.toPath()),
+                StandardCharsets.UTF_8);
+        assertWithMessage("Report should list the largest file")
+                .that(json).contains("\"nodeCount\": " + largest.get(0).getNodeCount());
+        assertWithMessage("Report should list each ranking")
+                .that(json).contains("\"allocatedBytes\": [");
+    }
+
+    @Test
+    public void testDfaSnapshotNotWritable() throws Exception {
+        final File blocker = new File(temporaryFolder, "blocker");
+        Files.write(blocker.toPath(), new byte[0]);
+        final DefaultConfiguration config = createWalkerConfig();
+        config.addProperty("dfaSnapshotFile", new File(blocker, "xml.dfa").getAbsolutePath());
+        final XmlWalker walker = createWalker(config);
+        final XmlWalker plainWalker = createWalker(createWalkerConfig());
+        final File file = getInputFiles().get(0);
+        final FileText fileText =
+                new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name());
+
+        walker.beginProcessing(StandardCharsets.UTF_8.name());
+        final SortedSet<Violation> violations = walker.process(file, fileText);
+        walker.finishProcessing();
+
+        assertWithMessage("Failing to save the snapshot should not change the violations")
+                .that(violations).isEqualTo(plainWalker.process(file, fileText));
+        assertWithMessage("Snapshot should not be written below a file")
+                .that(new File(blocker, "xml.dfa").exists()).isFalse();
+    }
+
+    @Test
+    public void testDecisionProfile() throws Exception {
+        final File profileFile = new File(temporaryFolder, "decisions.txt");
+        final DefaultConfiguration config = createWalkerConfig();
+        config.addProperty("decisionProfileFile", profileFile.getAbsolutePath());
+        final XmlWalker walker = createWalker(config);
+        final File file = getInputFiles().get(0);
+
+        assertWithMessage("Configuring the walker should not enable the profiler")
+                .that(XmlParser.getDecisionProfiler().isEnabled()).isFalse();
+        walker.beginProcessing(StandardCharsets.UTF_8.name());
+        assertWithMessage("Profiler should be enabled while processing")
+                .that(XmlParser.getDecisionProfiler().isEnabled()).isTrue();
+        walker.process(file, new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name()));
+        walker.finishProcessing();
+
+        assertWithMessage("Profiler should be disabled when processing finishes")
+                .that(XmlParser.getDecisionProfiler().isEnabled()).isFalse();
+        assertWithMessage("Profile should list the decisions")
+                .that(new String(Files.readAllBytes(profileFile.toPath()),
+                        StandardCharsets.UTF_8))
+                .contains("Decision");
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        final XmlWalker walker = createWalker(createWalkerConfig());
+        final List<File> files = getInputFiles();
+        final File recordingFile = new File(temporaryFolder, "recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(FileParsedEvent.class);
+            recording.enable(FileWalkedEvent.class);
+            recording.enable(ViolationsFilteredEvent.class);
+            recording.enable(DfaClearedEvent.class);
+            recording.start();
+            for (File file : files) {
+                walker.process(file,
+                        new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name()));
+            }
+            XmlParser.getDfaCacheManager().clear();
+            recording.stop();
+            recording.dump(recordingFile.toPath());
+        }
+
+        final Map<String, List<RecordedEvent>> events = RecordingFile
+                .readAllEvents(recordingFile.toPath()).stream()
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+        final List<RecordedEvent> parsed =
+                events.get("com.rnveach.tools.checkstyle.extras.FileParsed");
+        assertWithMessage("Each file should be parsed")
+                .that(parsed).hasSize(files.size());
+        assertWithMessage("Parsed files should have nodes")
+                .that(parsed.get(0).getLong("nodeCount")).isGreaterThan(0L);
+        assertWithMessage("Each file should be walked")
+                .that(events.get("com.rnveach.tools.checkstyle.extras.FileWalked"))
+                .hasSize(files.size());
+        assertWithMessage("Each file should be filtered")
+                .that(events.get("com.rnveach.tools.checkstyle.extras.ViolationsFiltered"))
+                .hasSize(files.size());
+        assertWithMessage("Clearing the DFA should be recorded")
+                .that(events.get("com.rnveach.tools.checkstyle.extras.DfaCleared"))
+                .isNotEmpty();
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        final InMemoryMetricsProvider metrics =
+                (InMemoryMetricsProvider) ExtrasMetrics.getProvider();
+        final DefaultConfiguration config = createWalkerConfig();
+        config.addChild(createModuleConfig(EvenLineBatchFilter.class));
+        final XmlWalker walker = createWalker(config);
+        final List<File> files = getInputFiles();
+        final long processed = metrics.getCount("checkstyle.extras.xml.walker.files");
+        final long walks = metrics.getHistogram("checkstyle.extras.xml.walker.walk.latency")
+                .getCount();
+        final long logged = metrics.getCount("checkstyle.extras.xml.walker.violations.logged");
+        final long reported =
+                metrics.getCount("checkstyle.extras.xml.walker.violations.reported");
+
+        long expectedReported = 0;
+        for (File file : files) {
+            expectedReported += walker.process(file,
+                    new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name())).size();
+        }
+
+        assertWithMessage("Processed files should be counted")
+                .that(metrics.getCount("checkstyle.extras.xml.walker.files"))
+                .isEqualTo(processed + files.size());
+        assertWithMessage("Walks should be timed")
+                .that(metrics.getHistogram("checkstyle.extras.xml.walker.walk.latency")
+                        .getCount())
+                .isEqualTo(walks + files.size());
+        assertWithMessage("Reported violations should be counted")
+                .that(metrics.getCount("checkstyle.extras.xml.walker.violations.reported"))
+                .isEqualTo(reported + expectedReported);
+        assertWithMessage("Filtered violations should still be counted as logged")
+                .that(metrics.getCount("checkstyle.extras.xml.walker.violations.logged")
+                        - logged)
+                .isGreaterThan(expectedReported);
+    }
+
+    private static boolean isElementNameViolation(Violation violation) {
+        return ElementNameXmlCheck.class.getName().equals(violation.getSourceName());
+    }
+
+    private static DefaultConfiguration createWalkerConfig() {
+        final DefaultConfiguration indentationConfig =
+                createModuleConfig(IndentationXmlCheck.class);
+        indentationConfig.addProperty("forceStrictIndentation", "true");
+        final DefaultConfiguration config = createModuleConfig(XmlWalker.class);
+        config.addChild(indentationConfig);
+        config.addChild(createModuleConfig(ElementNameXmlCheck.class));
+        config.addChild(createModuleConfig(AttributeOrderXmlCheck.class));
+        return config;
+    }
+
+    private void verifyConcurrentChecksEnded(XmlWalker walker) throws Exception {
+        final File file = getInputFiles().get(0);
+        final FileText fileText =
+                new FileText(file.getAbsoluteFile(), StandardCharsets.UTF_8.name());
+        SlowConcurrentCheck.FINISHED.set(0);
+
+        walker.beginProcessing(StandardCharsets.UTF_8.name());
+        try {
+            walker.process(file, fileText);
+            assertWithMessage("Exception is expected").fail();
+        }
+        catch (IllegalStateException | CheckstyleException ex) {
+            assertWithMessage("Slow check should have finished the file before the failure")
+                    .that(SlowConcurrentCheck.FINISHED.get()).isEqualTo(1);
+        }
+        finally {
+            walker.finishProcessing();
+        }
+    }
+
+    private XmlWalker createWalker(DefaultConfiguration config) throws Exception {
+        final XmlWalker walker = new XmlWalker();
+        walker.setModuleFactory(new PackageObjectFactory(
+                XmlWalker.class.getPackage().getName(), getClass().getClassLoader()));
+        walker.configure(config);
+        return walker;
+    }
+
+    private List<File> getInputFiles() throws Exception {
+        return Arrays.stream(new File(getPath("")).listFiles())
+                .filter(file -> file.getName().endsWith(".xml")).sorted()
+                .collect(Collectors.toList());
+    }
+
+    public static final class EvenLineBatchFilter implements XmlWalkerBatchFilter {
+
+        private static int calls;
+
+        @Override
+        public BitSet accept(FileContents fileContents, String fileName, XmlAST rootAst,
+                List<Violation> violations) {
+            calls++;
+            final BitSet result = new BitSet();
+            for (int index = 0; index < violations.size(); index++) {
+                if (violations.get(index).getLineNo() % 2 == 0) {
+                    result.set(index);
+                }
+            }
+            return result;
+        }
+
+    }
+
+    public static final class SlowConcurrentCheck extends AbstractXmlCheck {
+
+        private static final AtomicInteger FINISHED = new AtomicInteger();
+
+        @Override
+        public int[] getDefaultTokens() {
+            return getRequiredTokens();
+        }
+
+        @Override
+        public int[] getAcceptableTokens() {
+            return getRequiredTokens();
+        }
+
+        @Override
+        public int[] getRequiredTokens() {
+            return new int[] {XmlTokenTypes.ELEMENT};
+        }
+
+        @Override
+        public boolean isConcurrentWalkSafe() {
+            return true;
+        }
+
+        @Override
+        public void finishTree(XmlAST rootAst) {
+            try {
+                Thread.sleep(200);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            FINISHED.incrementAndGet();
+        }
+
+    }
+
+    public static class FailingCheck extends AbstractXmlCheck {
+
+        @Override
+        public int[] getDefaultTokens() {
+            return getRequiredTokens();
+        }
+
+        @Override
+        public int[] getAcceptableTokens() {
+            return getRequiredTokens();
+        }
+
+        @Override
+        public int[] getRequiredTokens() {
+            return new int[] {XmlTokenTypes.ELEMENT};
+        }
+
+        @Override
+        public void beginTree(XmlAST rootAst) {
+            throw new IllegalStateException("check failed");
+        }
+
+    }
+
+    public static final class FailingConcurrentCheck extends FailingCheck {
+
+        @Override
+        public boolean isConcurrentWalkSafe() {
+            return true;
+        }
+
+    }
+
+    public static final class NoElementNameFilter implements XmlWalkerFilter {
+
+        @Override
+        public boolean accept(XmlWalkerAuditEvent xmlWalkerAuditEvent) {
+            return !isElementNameViolation(xmlWalkerAuditEvent.getViolation());
+        }
+
+    }
+
+}